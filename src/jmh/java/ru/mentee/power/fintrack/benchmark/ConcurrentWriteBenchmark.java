@@ -0,0 +1,84 @@
+package ru.mentee.power.fintrack.benchmark;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.mentee.power.fintrack.model.Transaction;
+import ru.mentee.power.fintrack.service.TransactionService;
+
+/**
+ * Пропускная способность записи в многопоточный {@link TransactionService} из нескольких
+ * потоков сразу.
+ *
+ * <p>Каждая операция добавляет транзакцию и удаляет её, поэтому размер реестра не меняется
+ * между итерациями. Писатели берут замки разных полос и сталкиваются только при публикации
+ * новой версии индексов; рост пропускной способности с числом потоков показывает, насколько
+ * эта публикация не сводит запись к одному потоку. Число потоков меняется ключом {@code -t}.
+ */
+@State(Scope.Benchmark)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(8)
+public class ConcurrentWriteBenchmark {
+
+  private static final int DRAFTS = 1024;
+
+  @Param({"100000", "1000000"})
+  int size;
+
+  private TransactionService service;
+
+  /**
+   * Свои заготовки транзакций у каждого потока, чтобы потоки не делили состояние вне сервиса.
+   */
+  @State(Scope.Thread)
+  public static class Writer {
+
+    private final Transaction[] drafts = new Transaction[DRAFTS];
+    private int next;
+
+    @Setup(Level.Trial)
+    public void prepareDrafts() {
+      SplittableRandom random = new SplittableRandom(Thread.currentThread().threadId());
+      for (int i = 0; i < DRAFTS; i++) {
+        drafts[i] = Ledgers.randomTransaction(random, i);
+      }
+    }
+
+    private Transaction nextDraft() {
+      Transaction draft = drafts[next];
+      next = (next + 1) % DRAFTS;
+      return draft;
+    }
+  }
+
+  @Setup(Level.Trial)
+  public void buildLedger() {
+    service = TransactionService.concurrent();
+    service.setQueryCacheCapacity(0);
+    Ledgers.fill(service, size, 42);
+  }
+
+  @Benchmark
+  @BenchmarkMode(Mode.Throughput)
+  @OutputTimeUnit(TimeUnit.MILLISECONDS)
+  public boolean addThenDelete(Writer writer) {
+    Transaction draft = writer.nextDraft();
+    Transaction transaction = service.addTransaction(draft.getTransactionType(), draft.getSum(),
+        draft.getCategory(), draft.getDescription(), draft.getDate());
+    return service.deleteTransaction(transaction.getId());
+  }
+}
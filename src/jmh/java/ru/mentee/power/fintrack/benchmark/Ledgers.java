@@ -0,0 +1,63 @@
+package ru.mentee.power.fintrack.benchmark;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import ru.mentee.power.fintrack.model.Transaction;
+import ru.mentee.power.fintrack.model.Transaction.Category;
+import ru.mentee.power.fintrack.model.Transaction.TransactionType;
+import ru.mentee.power.fintrack.service.ColumnarLedger;
+import ru.mentee.power.fintrack.service.TransactionService;
+
+/**
+ * Генератор воспроизводимых реестров для бенчмарков.
+ */
+final class Ledgers {
+
+  private static final LocalDate START = LocalDate.of(2020, 1, 1);
+  private static final int DAYS = 2_000;
+  private static final int BATCH = 100_000;
+  private static final Category[] CATEGORIES = Category.values();
+
+  private Ledgers() {
+  }
+
+  /**
+   * Заполняем сервис size транзакциями: примерно четверть доходов, остальное расходы.
+   */
+  static void fill(TransactionService service, int size, long seed) {
+    SplittableRandom random = new SplittableRandom(seed);
+    List<Transaction> batch = new ArrayList<>(Math.min(size, BATCH));
+    for (int i = 0; i < size; i++) {
+      batch.add(randomTransaction(random, i));
+      if (batch.size() == BATCH) {
+        service.addTransactions(batch);
+        batch.clear();
+      }
+    }
+    service.addTransactions(batch);
+  }
+
+  /**
+   * Заполняем колоночное хранилище теми же транзакциями, что {@link #fill} с тем же seed.
+   */
+  static void fill(ColumnarLedger ledger, int size, long seed) {
+    SplittableRandom random = new SplittableRandom(seed);
+    for (int i = 0; i < size; i++) {
+      Transaction transaction = randomTransaction(random, i);
+      ledger.addTransaction(transaction.getTransactionType(), transaction.getSum(),
+          transaction.getCategory(), transaction.getDescription(), transaction.getDate());
+    }
+  }
+
+  static Transaction randomTransaction(SplittableRandom random, int number) {
+    TransactionType type = random.nextInt(4) == 0 ? TransactionType.INCOME
+        : TransactionType.EXPENSE;
+    return new Transaction(0, "Операция " + number % 1_000,
+        BigDecimal.valueOf(1 + random.nextInt(1_000_000), 2),
+        START.plusDays(random.nextInt(DAYS)), CATEGORIES[random.nextInt(CATEGORIES.length)],
+        type);
+  }
+}
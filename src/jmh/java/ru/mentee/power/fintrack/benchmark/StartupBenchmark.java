@@ -0,0 +1,93 @@
+package ru.mentee.power.fintrack.benchmark;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.mentee.power.fintrack.persistence.FsyncPolicy;
+import ru.mentee.power.fintrack.persistence.TransactionJournal;
+import ru.mentee.power.fintrack.service.TransactionService;
+
+/**
+ * Холодный старт: полное проигрывание журнала против открытия снимка с пустым журналом.
+ * В обоих случаях после старта считается баланс, как при первой команде balance.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(value = 1, jvmArgsAppend = {"-Xms8g", "-Xmx8g"})
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+public class StartupBenchmark {
+
+  @Param({"1000", "100000", "1000000", "10000000"})
+  int size;
+
+  private Path directory;
+  private Path fullJournal;
+  private Path snapshot;
+  private Path journalAfterSnapshot;
+
+  /**
+   * Пишем журнал со всей историей, а затем снимок и обнулённый им журнал.
+   */
+  @Setup(Level.Trial)
+  public void writeFiles() throws IOException {
+    directory = Files.createTempDirectory("fintrack-startup");
+    fullJournal = directory.resolve("full.journal");
+    snapshot = directory.resolve("ledger.snapshot");
+    journalAfterSnapshot = directory.resolve("ledger.journal");
+
+    TransactionService service = new TransactionService();
+    try (TransactionJournal journal = TransactionJournal.open(journalAfterSnapshot, service,
+        FsyncPolicy.osManaged())) {
+      Ledgers.fill(service, size, 42);
+      journal.flush();
+      Files.copy(journalAfterSnapshot, fullJournal);
+      service.saveSnapshot(snapshot);
+    }
+  }
+
+  @TearDown(Level.Trial)
+  public void deleteFiles() throws IOException {
+    try (Stream<Path> files = Files.walk(directory)) {
+      for (Path file : files.sorted(Comparator.reverseOrder()).toList()) {
+        Files.delete(file);
+      }
+    }
+  }
+
+  @Benchmark
+  public BigDecimal replayJournal() throws IOException {
+    TransactionService service = new TransactionService();
+    try (TransactionJournal journal = TransactionJournal.open(fullJournal, service,
+        FsyncPolicy.osManaged())) {
+      return service.calculateBalance();
+    }
+  }
+
+  @Benchmark
+  public BigDecimal openSnapshot() throws IOException {
+    TransactionService service = TransactionService.openSnapshot(snapshot);
+    try (TransactionJournal journal = TransactionJournal.open(journalAfterSnapshot, service,
+        FsyncPolicy.osManaged())) {
+      return service.calculateBalance();
+    }
+  }
+}
@@ -0,0 +1,116 @@
+package ru.mentee.power.fintrack.benchmark;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.math.BigDecimal;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.mentee.power.fintrack.model.Transaction;
+import ru.mentee.power.fintrack.model.Transaction.Category;
+import ru.mentee.power.fintrack.model.Transaction.TransactionType;
+import ru.mentee.power.fintrack.service.ColumnarLedger;
+import ru.mentee.power.fintrack.service.TransactionFilter;
+import ru.mentee.power.fintrack.service.TransactionService;
+
+/**
+ * Объектный реестр {@link TransactionService} против колоночного {@link ColumnarLedger} на
+ * одних и тех же транзакциях: сколько кучи держит заполненное хранилище и сколько стоит проход
+ * по всем строкам.
+ *
+ * <p>Хранилище выбирается параметром {@code storage}. Куча измеряется после сборки мусора до и
+ * после заполнения и выводится рядом со временем операций вспомогательным счётчиком
+ * {@code retainedBytes}. Объектный реестр отвечает на итоги по категориям из готовых сумм,
+ * поэтому его проход меряется явно — сложением сумм из потока транзакций.
+ */
+@State(Scope.Benchmark)
+@Fork(value = 1, jvmArgsAppend = {"-Xms8g", "-Xmx8g"})
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class StorageBenchmark {
+
+  private static final TransactionFilter EXPENSES =
+      new TransactionFilter(TransactionType.EXPENSE, null, null, null);
+
+  @Param({"object", "columnar"})
+  String storage;
+
+  @Param({"1000000", "10000000"})
+  int size;
+
+  private TransactionService service;
+  private ColumnarLedger ledger;
+  private long retainedBytes;
+
+  /**
+   * Байты кучи, занятые хранилищем; JMH выводит поле как вспомогательный результат.
+   */
+  @State(Scope.Thread)
+  @AuxCounters(AuxCounters.Type.EVENTS)
+  public static class Footprint {
+    public long retainedBytes;
+  }
+
+  @Setup(Level.Trial)
+  public void buildLedger() {
+    long before = usedHeapAfterGc();
+    switch (storage) {
+      case "object" -> {
+        service = new TransactionService();
+        service.setQueryCacheCapacity(0);
+        Ledgers.fill(service, size, 42);
+      }
+      case "columnar" -> {
+        ledger = new ColumnarLedger(size);
+        Ledgers.fill(ledger, size, 42);
+      }
+      default -> throw new IllegalArgumentException("Неизвестное хранилище: " + storage);
+    }
+    retainedBytes = usedHeapAfterGc() - before;
+  }
+
+  @Benchmark
+  @BenchmarkMode(Mode.AverageTime)
+  @OutputTimeUnit(TimeUnit.MILLISECONDS)
+  public Map<Category, BigDecimal> expensesByCategoryScan(Footprint footprint) {
+    footprint.retainedBytes = retainedBytes;
+    if (ledger != null) {
+      return ledger.getExpensesByCategory();
+    }
+    Map<Category, BigDecimal> totals = new EnumMap<>(Category.class);
+    service.stream(EXPENSES).forEach(transaction ->
+        totals.merge(transaction.getCategory(), transaction.getSum(), BigDecimal::add));
+    return totals;
+  }
+
+  @Benchmark
+  @BenchmarkMode(Mode.AverageTime)
+  @OutputTimeUnit(TimeUnit.MILLISECONDS)
+  public List<Transaction> transactionsByCategory(Footprint footprint) {
+    footprint.retainedBytes = retainedBytes;
+    return ledger != null
+        ? ledger.getTransactionsByCategory(Category.TRANSPORT)
+        : service.getTransactionsByCategory(Category.TRANSPORT);
+  }
+
+  private static long usedHeapAfterGc() {
+    MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+    memory.gc();
+    memory.gc();
+    return memory.getHeapMemoryUsage().getUsed();
+  }
+}
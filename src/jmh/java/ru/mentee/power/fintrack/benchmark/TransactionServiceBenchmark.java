@@ -0,0 +1,156 @@
+package ru.mentee.power.fintrack.benchmark;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.mentee.power.fintrack.model.Transaction;
+import ru.mentee.power.fintrack.model.Transaction.Category;
+import ru.mentee.power.fintrack.model.Transaction.TransactionType;
+import ru.mentee.power.fintrack.service.TransactionFilter;
+import ru.mentee.power.fintrack.service.TransactionService;
+
+/**
+ * Бенчмарки основных операций {@link TransactionService} на реестрах от 1 тыс. до 10 млн
+ * транзакций.
+ *
+ * <p>Чтения меряются как среднее время операции. Добавление и удаление меняют размер реестра,
+ * поэтому меряются пачками по {@link #WRITE_BATCH} операций за итерацию, а перед каждой
+ * итерацией реестр возвращается к исходному размеру. Кэш запросов выключен, иначе чтения
+ * без записей между ними мерили бы только попадания в кэш.
+ */
+@State(Scope.Benchmark)
+@Fork(value = 1, jvmArgsAppend = {"-Xms8g", "-Xmx8g"})
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class TransactionServiceBenchmark {
+
+  static final int WRITE_BATCH = 500;
+
+  @Param({"1000", "100000", "1000000", "10000000"})
+  int size;
+
+  private TransactionService service;
+  private final List<Transaction> added = new ArrayList<>();
+  private final List<Transaction> deleted = new ArrayList<>();
+  private final Transaction[] drafts = new Transaction[WRITE_BATCH];
+  private Transaction[] byId;
+  private int[] deleteOrder;
+  private int deleteCursor;
+
+  /**
+   * Строим реестр нужного размера, заготовки для добавления и случайный порядок удаления id.
+   */
+  @Setup(Level.Trial)
+  public void buildLedger() {
+    service = new TransactionService();
+    service.setQueryCacheCapacity(0);
+    Ledgers.fill(service, size, 42);
+    byId = new Transaction[size];
+    service.stream(TransactionFilter.all())
+        .forEach(transaction -> byId[transaction.getId()] = transaction);
+
+    SplittableRandom random = new SplittableRandom(7);
+    for (int i = 0; i < WRITE_BATCH; i++) {
+      drafts[i] = Ledgers.randomTransaction(random, i);
+    }
+    deleteOrder = new int[size];
+    for (int i = 0; i < size; i++) {
+      deleteOrder[i] = i;
+    }
+    for (int i = size - 1; i > 0; i--) {
+      int j = random.nextInt(i + 1);
+      int swap = deleteOrder[i];
+      deleteOrder[i] = deleteOrder[j];
+      deleteOrder[j] = swap;
+    }
+  }
+
+  /**
+   * Убираем добавленное и возвращаем удалённое за прошлую итерацию.
+   */
+  @Setup(Level.Iteration)
+  public void restoreLedger() {
+    added.forEach(transaction -> service.deleteTransaction(transaction.getId()));
+    added.clear();
+    deleted.forEach(service::restoreTransaction);
+    deleted.clear();
+  }
+
+  @Benchmark
+  @BenchmarkMode(Mode.SingleShotTime)
+  @Warmup(iterations = 5, batchSize = WRITE_BATCH)
+  @Measurement(iterations = 20, batchSize = WRITE_BATCH)
+  @OutputTimeUnit(TimeUnit.MICROSECONDS)
+  public Transaction addTransaction() {
+    Transaction draft = drafts[added.size() % WRITE_BATCH];
+    Transaction transaction = service.addTransaction(draft.getTransactionType(), draft.getSum(),
+        draft.getCategory(), draft.getDescription(), draft.getDate());
+    added.add(transaction);
+    return transaction;
+  }
+
+  @Benchmark
+  @BenchmarkMode(Mode.SingleShotTime)
+  @Warmup(iterations = 5, batchSize = WRITE_BATCH)
+  @Measurement(iterations = 20, batchSize = WRITE_BATCH)
+  @OutputTimeUnit(TimeUnit.MICROSECONDS)
+  public boolean deleteTransaction() {
+    int id = deleteOrder[deleteCursor];
+    deleteCursor = (deleteCursor + 1) % size;
+    boolean removed = service.deleteTransaction(id);
+    if (removed) {
+      deleted.add(byId[id]);
+    }
+    return removed;
+  }
+
+  @Benchmark
+  @BenchmarkMode(Mode.AverageTime)
+  @OutputTimeUnit(TimeUnit.MICROSECONDS)
+  public List<Transaction> getAllTransactions() {
+    return service.getAllTransactions();
+  }
+
+  @Benchmark
+  @BenchmarkMode(Mode.AverageTime)
+  @OutputTimeUnit(TimeUnit.MICROSECONDS)
+  public List<Transaction> getTransactionsByType() {
+    return service.getTransactionsByType(TransactionType.INCOME);
+  }
+
+  @Benchmark
+  @BenchmarkMode(Mode.AverageTime)
+  @OutputTimeUnit(TimeUnit.MICROSECONDS)
+  public List<Transaction> getTransactionsByCategory() {
+    return service.getTransactionsByCategory(Category.TRANSPORT);
+  }
+
+  @Benchmark
+  @BenchmarkMode(Mode.AverageTime)
+  @OutputTimeUnit(TimeUnit.NANOSECONDS)
+  public BigDecimal calculateBalance() {
+    return service.calculateBalance();
+  }
+
+  @Benchmark
+  @BenchmarkMode(Mode.AverageTime)
+  @OutputTimeUnit(TimeUnit.NANOSECONDS)
+  public Map<Category, BigDecimal> getExpensesByCategory() {
+    return service.getExpensesByCategory();
+  }
+}
@@ -0,0 +1,144 @@
+package ru.mentee.power.fintrack.cli;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Нагрузочный клиент для {@link FinanceHttpServer}.
+ *
+ * <p>Запускает заданное число клиентов, каждый в своём виртуальном потоке; клиент отправляет
+ * запросы один за другим, смешивая добавления и чтения в заданной доле. В конце печатаются
+ * пропускная способность и точные перцентили задержки по всем запросам.
+ *
+ * <p>Параметры: {@code --url http://127.0.0.1:8080/commands}, {@code --clients 100},
+ * {@code --requests 200} на клиента, {@code --writes 0.2} — доля добавлений.
+ */
+public final class LoadTestClient {
+
+  private static final String[] READ_COMMANDS = {
+      "balance",
+      "summary",
+      "list expense --limit 20",
+      "search нагрузка",
+      "report monthly 2026",
+  };
+
+  private LoadTestClient() {
+  }
+
+  /**
+   * Запускаем нагрузку и печатаем отчёт.
+   */
+  public static void main(String[] args) throws InterruptedException {
+    URI uri = URI.create("http://127.0.0.1:8080/commands");
+    int clients = 100;
+    int requests = 200;
+    double writes = 0.2;
+    for (int i = 0; i + 1 < args.length; i += 2) {
+      switch (args[i]) {
+        case "--url" -> uri = URI.create(args[i + 1]);
+        case "--clients" -> clients = Integer.parseInt(args[i + 1]);
+        case "--requests" -> requests = Integer.parseInt(args[i + 1]);
+        case "--writes" -> writes = Double.parseDouble(args[i + 1]);
+        default -> throw new IllegalArgumentException("Неизвестный параметр: " + args[i]);
+      }
+    }
+
+    HttpClient client = HttpClient.newBuilder()
+        .version(HttpClient.Version.HTTP_1_1)
+        .connectTimeout(Duration.ofSeconds(10))
+        .executor(Executors.newVirtualThreadPerTaskExecutor())
+        .build();
+    long[][] latencies = new long[clients][];
+    AtomicLong errors = new AtomicLong();
+
+    long started = System.nanoTime();
+    try (ExecutorService workers = Executors.newVirtualThreadPerTaskExecutor()) {
+      for (int c = 0; c < clients; c++) {
+        int clientIndex = c;
+        URI target = uri;
+        int count = requests;
+        double writeShare = writes;
+        workers.submit(() -> latencies[clientIndex] = runClient(client, target, count,
+            writeShare, errors));
+      }
+    }
+    long elapsed = System.nanoTime() - started;
+
+    report(latencies, errors.get(), elapsed);
+  }
+
+  private static long[] runClient(HttpClient client, URI uri, int requests, double writes,
+      AtomicLong errors) {
+    ThreadLocalRandom random = ThreadLocalRandom.current();
+    long[] latencies = new long[requests];
+    for (int i = 0; i < requests; i++) {
+      String command = random.nextDouble() < writes
+          ? "add expense " + (1 + random.nextInt(10_000)) + ".00 GOODS нагрузка"
+          : READ_COMMANDS[random.nextInt(READ_COMMANDS.length)];
+      HttpRequest request = HttpRequest.newBuilder(uri)
+          .header("Content-Type", FinanceHttpServer.COMMANDS_CONTENT_TYPE)
+          .POST(HttpRequest.BodyPublishers.ofString(command))
+          .build();
+      long started = System.nanoTime();
+      try {
+        HttpResponse<String> response = client.send(request,
+            HttpResponse.BodyHandlers.ofString());
+        if (response.statusCode() != 200 || response.body().startsWith("{\"error\"")) {
+          errors.incrementAndGet();
+        }
+      } catch (IOException e) {
+        errors.incrementAndGet();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        return Arrays.copyOf(latencies, i);
+      }
+      latencies[i] = System.nanoTime() - started;
+    }
+    return latencies;
+  }
+
+  private static void report(long[][] perClient, long errors, long elapsedNanos) {
+    List<long[]> completed = new ArrayList<>();
+    int total = 0;
+    for (long[] latencies : perClient) {
+      if (latencies != null) {
+        completed.add(latencies);
+        total += latencies.length;
+      }
+    }
+    long[] all = new long[total];
+    int offset = 0;
+    for (long[] latencies : completed) {
+      System.arraycopy(latencies, 0, all, offset, latencies.length);
+      offset += latencies.length;
+    }
+    Arrays.sort(all);
+
+    System.out.printf("Запросов: %d, ошибок: %d, время: %.2f с%n", total, errors,
+        elapsedNanos / 1e9);
+    System.out.printf("Пропускная способность: %.0f запросов/с%n",
+        total / (elapsedNanos / 1e9));
+    if (total > 0) {
+      System.out.printf("Задержка, мс: p50 %.2f, p99 %.2f, p99.9 %.2f, max %.2f%n",
+          millis(all, 0.5), millis(all, 0.99), millis(all, 0.999),
+          all[total - 1] / 1e6);
+    }
+  }
+
+  private static double millis(long[] sorted, double quantile) {
+    int index = (int) Math.ceil(quantile * sorted.length) - 1;
+    return sorted[Math.max(0, index)] / 1e6;
+  }
+}
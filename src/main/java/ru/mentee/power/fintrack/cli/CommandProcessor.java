@@ -0,0 +1,548 @@
+package ru.mentee.power.fintrack.cli;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.Year;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.stream.Stream;
+import ru.mentee.power.fintrack.model.Transaction;
+import ru.mentee.power.fintrack.persistence.CsvTransactionImporter;
+import ru.mentee.power.fintrack.persistence.TransactionExporter;
+import ru.mentee.power.fintrack.service.BudgetPeriod;
+import ru.mentee.power.fintrack.service.ServiceMetrics;
+import ru.mentee.power.fintrack.service.TransactionFilter;
+import ru.mentee.power.fintrack.service.TransactionService;
+
+/**
+ * Выполнение текстовых команд над сервисом транзакций.
+ *
+ * <p>Один и тот же язык команд обслуживает консоль, пакетный режим и HTTP-сервер; результаты
+ * пишутся в переданный {@link ResultWriter}. Строки, начинающиеся с {@code #}, считаются
+ * комментариями.
+ */
+final class CommandProcessor {
+
+  private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd");
+  private static final int DEFAULT_TOP_LIMIT = 10;
+  private static final String INVALID_COMMAND_MESSAGE = "Неизвестная команда. "
+      + "Введите 'help' для списка команд.";
+  private static final String HELP_TEXT = """
+      Доступные команды:
+      
+      📥 Добавление транзакций:
+        add income <сумма> <категория> [описание]
+        add expense <сумма> <категория> [описание]
+        import <файл> - Импорт CSV: дата,тип,сумма,категория,описание
+        export <файл> [--format csv|json] [тип] [категория] [<с> <по>] - Выгрузка в файл
+      
+      📊 Просмотр данных:
+        list all      - Все транзакции
+        list income   - Доходы
+        list expense  - Расходы
+        list <с> <по> - Транзакции за период (yyyy-MM-dd)
+        list ... --limit <N> [--after <yyyy-MM-dd>:<id>] - Постранично, после курсора
+        search <слова>           - Поиск по началу слов описания
+        balance       - Текущий баланс
+        balance <yyyy-MM-dd>     - Баланс на конец дня
+        summary       - Статистика по расходам
+        summary <yyyy-MM>        - Итоги за месяц
+        top <категория|тип> [N]  - N самых крупных транзакций (по умолчанию 10, не больше 100)
+        quantiles <категория|тип> - Медиана и p90/p95/p99 сумм (погрешность до 1%)
+        budget        - Расходы по бюджетам за текущие периоды
+        budget <категория> <лимит> [month|year] - Установить бюджет (по умолчанию на месяц)
+        budget <категория> off [month|year]     - Снять бюджет
+        report monthly <yyyy>    - Доходы и расходы по месяцам года
+        report daily <yyyy-MM>   - Доходы и расходы по дням месяца
+      
+      🗑 Управление:
+        delete <id>   - Удалить транзакцию
+        snapshot      - Сохранить снимок и очистить журнал
+        archive       - Вынести старые месяцы в архив (запуск с --archive <месяцев>)
+        stats         - Метрики операций: вызовы, задержки, память
+        help          - Список команд
+        exit          - Выход
+      
+      📋 Доступные категории: 
+        • GOODS (Товары)
+        • TRANSPORT (Транспорт)
+        • SALARY (Зарплата)
+        • ENTERTAINMENT (Развлечения)
+      """;
+
+  private final TransactionService transactionService;
+  private final Path snapshotPath;
+  private final ResultWriter results;
+  private final boolean serverFiles;
+
+  CommandProcessor(TransactionService transactionService, Path snapshotPath,
+      ResultWriter results) {
+    this(transactionService, snapshotPath, results, true);
+  }
+
+  private CommandProcessor(TransactionService transactionService, Path snapshotPath,
+      ResultWriter results, boolean serverFiles) {
+    this.transactionService = transactionService;
+    this.snapshotPath = snapshotPath;
+    this.results = results;
+    this.serverFiles = serverFiles;
+  }
+
+  /**
+   * Создаём процессор для удалённых клиентов: команды, которые читают или пишут файлы на
+   * стороне сервера (import, export, snapshot), ему недоступны.
+   */
+  static CommandProcessor remote(TransactionService transactionService, ResultWriter results) {
+    return new CommandProcessor(transactionService, null, results, false);
+  }
+
+  /**
+   * Выполняем одну строку и возвращаем false, если это команда exit. Ошибки в команде
+   * сообщаются через {@link IllegalArgumentException}.
+   */
+  boolean execute(String line) {
+    CommandTokens tokens = new CommandTokens(line);
+    String command = tokens.next();
+    if (command == null || command.startsWith("#")) {
+      return true;
+    }
+    return processUserCommand(command.toLowerCase(Locale.ROOT), tokens);
+  }
+
+  /**
+   * Выполняем команды до конца ввода или команды exit и возвращаем число ошибок. Ошибки не
+   * прерывают сценарий и выводятся с номером строки — и ошибки в команде, и сбои сервиса:
+   * HTTP-сервер к этому моменту уже отправил статус 200, и ответ не должен обрываться.
+   */
+  int executeAll(BufferedReader input) throws IOException {
+    int errors = 0;
+    long lineNumber = 0;
+    for (String line = input.readLine(); line != null; line = input.readLine()) {
+      lineNumber++;
+      try {
+        if (!execute(line)) {
+          break;
+        }
+      } catch (RuntimeException e) {
+        errors++;
+        results.error("Строка " + lineNumber + ": " + describe(e));
+      }
+    }
+    return errors;
+  }
+
+  /**
+   * Возвращаем текст ошибки команды; у сбоя без сообщения — имя исключения.
+   */
+  static String describe(RuntimeException e) {
+    return e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName();
+  }
+
+  void printHelp() {
+    results.help(HELP_TEXT);
+  }
+
+  private boolean processUserCommand(String command, CommandTokens arguments) {
+    switch (command) {
+      case "add" -> handleAddCommand(arguments);
+      case "list" -> handleListCommand(arguments);
+      case "search" -> handleSearchCommand(arguments);
+      case "balance" -> handleBalanceCommand(arguments);
+      case "summary" -> handleSummaryCommand(arguments);
+      case "report" -> handleReportCommand(arguments);
+      case "top" -> handleTopCommand(arguments);
+      case "quantiles" -> handleQuantilesCommand(arguments);
+      case "budget" -> handleBudgetCommand(arguments);
+      case "delete" -> handleDeleteCommand(arguments);
+      case "snapshot" -> saveSnapshot();
+      case "archive" -> archiveOldMonths();
+      case "import" -> handleImportCommand(arguments);
+      case "export" -> handleExportCommand(arguments);
+      case "stats" -> displayStats();
+      case "help" -> printHelp();
+      case "exit" -> {
+        return false;
+      }
+      default -> throw new IllegalArgumentException(INVALID_COMMAND_MESSAGE);
+    }
+    return true;
+  }
+
+  private void handleAddCommand(CommandTokens arguments) {
+    String typeInput = arguments.next();
+    String amountInput = arguments.next();
+    String categoryInput = arguments.next();
+
+    if (categoryInput == null) {
+      throw new IllegalArgumentException(
+          "Формат команды: add [income/expense] [сумма] [категория] [описание]"
+      );
+    }
+
+    Transaction.TransactionType transactionType = parseTransactionType(typeInput);
+    BigDecimal amount = parseTransactionAmount(amountInput);
+    Transaction.Category category = parseTransactionCategory(categoryInput);
+    String description = arguments.rest();
+
+    results.added(
+        transactionService.addTransaction(transactionType, amount, category, description));
+  }
+
+  private void handleListCommand(CommandTokens arguments) {
+    List<String> listCommandParts = new ArrayList<>();
+    Integer limit = null;
+    String after = null;
+    for (String token = arguments.next(); token != null; token = arguments.next()) {
+      switch (token) {
+        case "--limit" -> limit = parseNumber(token, arguments.next());
+        case "--after" -> after = arguments.next();
+        default -> listCommandParts.add(token);
+      }
+    }
+    if (after != null && limit == null) {
+      throw new IllegalArgumentException("--after используется вместе с --limit");
+    }
+    if (listCommandParts.isEmpty()) {
+      throw new IllegalArgumentException("Укажите тип списка: all, income, expense "
+          + "или период <с> <по>");
+    }
+
+    TransactionFilter filter = switch (listCommandParts.get(0).toLowerCase()) {
+      case "all" -> TransactionFilter.all();
+      case "income" -> TransactionFilter.byType(Transaction.TransactionType.INCOME);
+      case "expense" -> TransactionFilter.byType(Transaction.TransactionType.EXPENSE);
+      default -> {
+        if (listCommandParts.size() != 2) {
+          throw new IllegalArgumentException("Укажите тип списка: all, income, expense "
+              + "или период <с> <по>");
+        }
+        yield TransactionFilter.between(parseDate(listCommandParts.get(0)),
+            parseDate(listCommandParts.get(1)));
+      }
+    };
+
+    if (limit == null) {
+      try (Stream<Transaction> transactions = transactionService.stream(filter)) {
+        results.transactions(transactions.iterator());
+      }
+      return;
+    }
+    List<Transaction> page = after == null ? transactionService.page(filter, limit, null)
+        : readPageAfter(filter, limit, after);
+    results.transactions(page.iterator());
+    if (page.size() == limit) {
+      results.nextPage(page.get(page.size() - 1));
+    }
+  }
+
+  /**
+   * Разбираем курсор вида {@code yyyy-MM-dd:id}, выданный с предыдущей страницей, и читаем
+   * страницу после него; транзакция курсора может быть уже удалена.
+   */
+  private List<Transaction> readPageAfter(TransactionFilter filter, int limit, String cursor) {
+    int separator = cursor.indexOf(':');
+    if (separator < 0) {
+      throw new IllegalArgumentException("--after: ожидается курсор <yyyy-MM-dd>:<id>");
+    }
+    return transactionService.page(filter, limit, parseDate(cursor.substring(0, separator)),
+        parseNumber("--after", cursor.substring(separator + 1)));
+  }
+
+  private void handleSearchCommand(CommandTokens arguments) {
+    String query = arguments.rest();
+    if (query.isEmpty()) {
+      throw new IllegalArgumentException("Укажите слова для поиска в описании");
+    }
+
+    long started = System.nanoTime();
+    List<Transaction> found = transactionService.search(query);
+    long elapsedMillis = (System.nanoTime() - started) / 1_000_000;
+    results.transactions(found.iterator());
+    results.found(found.size(), elapsedMillis);
+  }
+
+  private void handleTopCommand(CommandTokens arguments) {
+    TransactionFilter filter = TransactionFilter.all();
+    int limit = DEFAULT_TOP_LIMIT;
+    for (String token = arguments.next(); token != null; token = arguments.next()) {
+      if (Character.isDigit(token.charAt(0))) {
+        limit = parseNumber("top", token);
+      } else {
+        filter = withTypeOrCategory(filter, token);
+      }
+    }
+    results.transactions(transactionService.getTopTransactions(filter.type(), filter.category(),
+        limit).iterator());
+  }
+
+  private void handleQuantilesCommand(CommandTokens arguments) {
+    TransactionFilter filter = TransactionFilter.all();
+    for (String token = arguments.next(); token != null; token = arguments.next()) {
+      filter = withTypeOrCategory(filter, token);
+    }
+    results.distribution(transactionService.getAmountDistribution(filter.type(),
+        filter.category()));
+  }
+
+  private void handleBudgetCommand(CommandTokens arguments) {
+    String categoryInput = arguments.next();
+    if (categoryInput != null) {
+      String limitInput = arguments.next();
+      if (limitInput == null) {
+        throw new IllegalArgumentException(
+            "Формат команды: budget <категория> <лимит>|off [month|year]");
+      }
+      Transaction.Category category = parseTransactionCategory(categoryInput);
+      BudgetPeriod period = parseBudgetPeriod(arguments.next());
+      if ("off".equalsIgnoreCase(limitInput)) {
+        if (!transactionService.removeBudget(category, period)) {
+          throw new IllegalArgumentException("Бюджет не найден");
+        }
+      } else {
+        transactionService.setBudget(category, period, parseTransactionAmount(limitInput));
+      }
+    }
+    results.budgets(transactionService.getBudgetStatus(LocalDate.now()));
+  }
+
+  private BudgetPeriod parseBudgetPeriod(String periodInput) {
+    if (periodInput == null) {
+      return BudgetPeriod.MONTH;
+    }
+    return switch (periodInput.toLowerCase()) {
+      case "month" -> BudgetPeriod.MONTH;
+      case "year" -> BudgetPeriod.YEAR;
+      default -> throw new IllegalArgumentException("Период бюджета: month или year");
+    };
+  }
+
+  /**
+   * Уточняем фильтр типом (income, expense) или категорией транзакций.
+   */
+  private TransactionFilter withTypeOrCategory(TransactionFilter filter, String token) {
+    return switch (token.toLowerCase()) {
+      case "income", "expense" -> new TransactionFilter(parseTransactionType(token),
+          filter.category(), null, null);
+      default -> new TransactionFilter(filter.type(), parseTransactionCategory(token), null,
+          null);
+    };
+  }
+
+  private void handleDeleteCommand(CommandTokens arguments) {
+    String idInput = arguments.next();
+    if (idInput == null) {
+      throw new IllegalArgumentException("Укажите ID транзакции");
+    }
+
+    int transactionId = parseNumber("delete", idInput);
+    results.deleted(transactionId, transactionService.deleteTransaction(transactionId));
+  }
+
+  private void handleImportCommand(CommandTokens arguments) {
+    requireServerFiles("import");
+    String file = arguments.rest();
+    if (file.isEmpty()) {
+      throw new IllegalArgumentException("Укажите путь к CSV-файлу");
+    }
+
+    long started = System.nanoTime();
+    try {
+      long imported = new CsvTransactionImporter().importFile(Path.of(file),
+          transactionService);
+      results.imported(imported, (System.nanoTime() - started) / 1_000_000);
+    } catch (IOException e) {
+      throw new IllegalArgumentException("Не удалось прочитать файл: " + e.getMessage(), e);
+    }
+  }
+
+  private void handleExportCommand(CommandTokens arguments) {
+    requireServerFiles("export");
+    String file = arguments.next();
+    if (file == null) {
+      throw new IllegalArgumentException(
+          "Формат команды: export <файл> [--format csv|json] [тип] [категория] [<с> <по>]");
+    }
+    TransactionExporter.Format format = TransactionExporter.Format.CSV;
+    TransactionFilter filter = TransactionFilter.all();
+    List<LocalDate> period = new ArrayList<>(2);
+    for (String token = arguments.next(); token != null; token = arguments.next()) {
+      if ("--format".equals(token)) {
+        format = parseExportFormat(arguments.next());
+      } else if (Character.isDigit(token.charAt(0))) {
+        period.add(parseDate(token));
+      } else {
+        filter = withTypeOrCategory(filter, token);
+      }
+    }
+    if (!period.isEmpty()) {
+      if (period.size() != 2) {
+        throw new IllegalArgumentException("Укажите период двумя датами: <с> <по>");
+      }
+      filter = new TransactionFilter(filter.type(), filter.category(), period.get(0),
+          period.get(1));
+    }
+
+    long started = System.nanoTime();
+    try {
+      long exported = new TransactionExporter(format).export(transactionService, filter,
+          Path.of(file));
+      results.exported(exported, (System.nanoTime() - started) / 1_000_000);
+    } catch (IOException e) {
+      throw new IllegalArgumentException("Не удалось записать файл: " + e.getMessage(), e);
+    }
+  }
+
+  private TransactionExporter.Format parseExportFormat(String formatInput) {
+    if (formatInput == null) {
+      throw new IllegalArgumentException("Формат выгрузки: csv или json");
+    }
+    return switch (formatInput.toLowerCase()) {
+      case "csv" -> TransactionExporter.Format.CSV;
+      case "json" -> TransactionExporter.Format.JSON;
+      default -> throw new IllegalArgumentException("Формат выгрузки: csv или json");
+    };
+  }
+
+  private void archiveOldMonths() {
+    long started = System.nanoTime();
+    try {
+      int archived = transactionService.archive();
+      results.archived(archived, (System.nanoTime() - started) / 1_000_000);
+    } catch (IllegalStateException e) {
+      throw new IllegalArgumentException("Архив не включён: запустите с --archive <месяцев>", e);
+    } catch (IOException e) {
+      throw new IllegalArgumentException("Не удалось записать архив: " + e.getMessage(), e);
+    }
+  }
+
+  private void saveSnapshot() {
+    requireServerFiles("snapshot");
+    try {
+      transactionService.saveSnapshot(snapshotPath);
+      results.snapshotSaved();
+    } catch (IOException e) {
+      throw new IllegalArgumentException("Не удалось сохранить снимок: " + e.getMessage(), e);
+    }
+  }
+
+  private void requireServerFiles(String command) {
+    if (!serverFiles) {
+      throw new IllegalArgumentException(
+          "Команда " + command + " работает с файлами сервера и удалённо недоступна");
+    }
+  }
+
+  private void displayStats() {
+    ServiceMetrics metrics = transactionService.getMetrics();
+    if (!metrics.isEnabled()) {
+      throw new IllegalArgumentException("Метрики выключены параметром --no-metrics");
+    }
+    results.stats(metrics.snapshot(), transactionService.getTransactionCount(),
+        transactionService.getQueryCacheStats());
+  }
+
+  private void handleBalanceCommand(CommandTokens arguments) {
+    String dateInput = arguments.next();
+    if (dateInput == null) {
+      results.balance(null, transactionService.calculateBalance());
+      return;
+    }
+
+    LocalDate date = parseDate(dateInput);
+    results.balance(date, transactionService.balanceAsOf(date));
+  }
+
+  private void handleSummaryCommand(CommandTokens arguments) {
+    String monthInput = arguments.next();
+    if (monthInput == null) {
+      results.expenses(transactionService.getExpensesByCategory());
+      return;
+    }
+
+    YearMonth month = parseYearMonth(monthInput);
+    results.monthSummary(month, transactionService.summarizeMonth(month));
+  }
+
+  private void handleReportCommand(CommandTokens arguments) {
+    String kind = arguments.next();
+    String period = arguments.next();
+    if (period == null || arguments.hasNext()) {
+      throw new IllegalArgumentException(
+          "Формат команды: report monthly <yyyy> или report daily <yyyy-MM>");
+    }
+
+    switch (kind.toLowerCase()) {
+      case "monthly" -> results.periodReport(transactionService.getMonthlyReport(
+          parseYear(period)));
+      case "daily" -> results.periodReport(transactionService.getDailyReport(
+          parseYearMonth(period)));
+      default -> throw new IllegalArgumentException("Неподдерживаемый тип отчёта");
+    }
+  }
+
+  private Transaction.TransactionType parseTransactionType(String typeInput) {
+    return switch (typeInput.toLowerCase()) {
+      case "income" -> Transaction.TransactionType.INCOME;
+      case "expense" -> Transaction.TransactionType.EXPENSE;
+      default -> throw new IllegalArgumentException("Неподдерживаемый тип транзакции");
+    };
+  }
+
+  private Transaction.Category parseTransactionCategory(String categoryInput) {
+    return Transaction.Category.valueOf(categoryInput.toUpperCase());
+  }
+
+  private LocalDate parseDate(String dateInput) {
+    try {
+      return LocalDate.parse(dateInput, DATE_FORMATTER);
+    } catch (DateTimeParseException e) {
+      throw new IllegalArgumentException("Неверный формат даты, ожидается yyyy-MM-dd");
+    }
+  }
+
+  private int parseNumber(String option, String value) {
+    if (value == null) {
+      throw new IllegalArgumentException("Не указано значение для " + option);
+    }
+    try {
+      return Integer.parseInt(value);
+    } catch (NumberFormatException e) {
+      throw new IllegalArgumentException(option + ": ожидается число");
+    }
+  }
+
+  private YearMonth parseYearMonth(String monthInput) {
+    try {
+      return YearMonth.parse(monthInput);
+    } catch (DateTimeParseException e) {
+      throw new IllegalArgumentException("Неверный формат месяца, ожидается yyyy-MM");
+    }
+  }
+
+  private Year parseYear(String yearInput) {
+    try {
+      return Year.parse(yearInput);
+    } catch (DateTimeParseException e) {
+      throw new IllegalArgumentException("Неверный формат года, ожидается yyyy");
+    }
+  }
+
+  private BigDecimal parseTransactionAmount(String amountInput) {
+    try {
+      BigDecimal amount = new BigDecimal(amountInput);
+      if (amount.compareTo(BigDecimal.ZERO) <= 0) {
+        throw new IllegalArgumentException("Сумма должна быть больше нуля");
+      }
+      return amount;
+    } catch (NumberFormatException e) {
+      throw new IllegalArgumentException("Неверный формат суммы");
+    }
+  }
+}
@@ -0,0 +1,57 @@
+package ru.mentee.power.fintrack.cli;
+
+/**
+ * Разбор строки команды на слова, разделённые пробельными символами.
+ *
+ * <p>Слова выделяются по мере запроса проходом по строке без регулярных выражений и без
+ * промежуточного массива, поэтому разбор команды стоит лишь подстрок её слов.
+ */
+final class CommandTokens {
+
+  private final String line;
+  private int position;
+
+  CommandTokens(String line) {
+    this.line = line;
+  }
+
+  /**
+   * Возвращаем следующее слово или null, если слов больше нет.
+   */
+  String next() {
+    skipWhitespace();
+    if (position == line.length()) {
+      return null;
+    }
+    int start = position;
+    while (position < line.length() && !Character.isWhitespace(line.charAt(position))) {
+      position++;
+    }
+    return line.substring(start, position);
+  }
+
+  /**
+   * Возвращаем остаток строки без пробелов по краям; пустую строку, если он пуст.
+   */
+  String rest() {
+    skipWhitespace();
+    int end = line.length();
+    while (end > position && Character.isWhitespace(line.charAt(end - 1))) {
+      end--;
+    }
+    String rest = line.substring(position, end);
+    position = line.length();
+    return rest;
+  }
+
+  boolean hasNext() {
+    skipWhitespace();
+    return position < line.length();
+  }
+
+  private void skipWhitespace() {
+    while (position < line.length() && Character.isWhitespace(line.charAt(position))) {
+      position++;
+    }
+  }
+}
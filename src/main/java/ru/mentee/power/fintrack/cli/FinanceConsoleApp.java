@@ -1,221 +1,232 @@
 package ru.mentee.power.fintrack.cli;
 
-import java.math.BigDecimal;
-import java.time.format.DateTimeFormatter;
-import java.util.List;
-import java.util.Map;
-import java.util.Scanner;
-import ru.mentee.power.fintrack.model.Transaction;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import javax.management.JMException;
+import ru.mentee.power.fintrack.persistence.TransactionJournal;
+import ru.mentee.power.fintrack.service.ServiceMetrics;
 import ru.mentee.power.fintrack.service.TransactionService;
 
 /**
  * Класс для демонстрации работы классов Transaction и TransactionService.
+ *
+ * <p>С параметром {@code --batch} команды читаются из файла или стандартного ввода без
+ * приглашений и приветствия, а результаты копятся в одном буфере и выводятся крупными
+ * блоками. Ошибки не прерывают сценарий и вместе с диагностикой пишутся в stderr, отдельно от
+ * результатов; если они были, приложение завершается с кодом 1.
+ *
+ * <p>С параметром {@code --serve} приложение вместо консоли запускает
+ * {@link FinanceHttpServer} и работает до завершения процесса.
  */
 public class FinanceConsoleApp {
 
-  private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd");
   private static final String COMMAND_PROMPT = "\n> ";
-  private static final String INVALID_COMMAND_MESSAGE = "Неизвестная команда. "
-      + "Введите 'help' для списка команд.";
-
-  private final TransactionService transactionService = new TransactionService();
-  private final Scanner inputScanner = new Scanner(System.in);
-
-  public static void main(String[] args) {
-    new FinanceConsoleApp().startApplication();
-  }
-
-  private void startApplication() {
-    printWelcomeMessage();
-    runCommandLoop();
-    shutdownApplication();
-  }
-
-  private void runCommandLoop() {
-    boolean isRunning = true;
-
-    while (isRunning) {
-      System.out.print(COMMAND_PROMPT);
-      String userInput = inputScanner.nextLine().trim();
-
-      if (userInput.isEmpty()) {
-        continue;
+  private static final int OUTPUT_BUFFER_CHARS = 1 << 16;
+  private static final String JMX_DOMAIN = "ru.mentee.power.fintrack";
+
+  private final TransactionService transactionService;
+  private final TransactionJournal journal;
+  private final Path snapshotPath;
+  private final PrintWriter out;
+  private final ResultWriter results;
+  private final CommandProcessor commands;
+
+  private FinanceConsoleApp(LaunchOptions options) throws IOException {
+    snapshotPath = options.snapshot();
+    transactionService = openService(snapshotPath, options.serve() != null);
+    ServiceMetrics metrics = options.metrics() ? transactionService.enableMetrics() : null;
+    // Архив включается до чтения журнала: записи, уже вынесенные в сегменты, пропускаются.
+    if (options.archive() != null) {
+      transactionService.enableArchive(options.archiveDirectory(), options.archive());
+    }
+    journal = TransactionJournal.open(options.journal(), transactionService,
+        options.fsyncPolicy());
+    if (options.archive() != null) {
+      transactionService.archive();
+    }
+    // Машиночитаемый вывод всегда в UTF-8; таблицы — в кодировке консоли.
+    Charset charset = options.format() == OutputFormat.TABLE
+        ? System.out.charset() : StandardCharsets.UTF_8;
+    out = new PrintWriter(new BufferedWriter(new OutputStreamWriter(
+        new FileOutputStream(FileDescriptor.out), charset), OUTPUT_BUFFER_CHARS));
+    // Без консоли ошибки и диагностика идут в stderr сразу, отдельно от результатов.
+    PrintWriter err = new PrintWriter(new OutputStreamWriter(
+        new FileOutputStream(FileDescriptor.err), charset), true);
+    boolean interactive = options.batch() == null && options.serve() == null;
+    results = interactive ? options.format().writer(out) : options.format().writer(out, err);
+    commands = new CommandProcessor(transactionService, snapshotPath, results);
+    // В TSV и JSON предупреждения о бюджетах идут в stderr в том же формате, чтобы не
+    // смешиваться с результатами. Консоль сбрасывает вывод перед каждой командой, остальные —
+    // сразу. Слушатель вызывается после снятия замков сервиса, у сервера — из разных потоков.
+    PrintWriter alertOut = options.format() == OutputFormat.TABLE ? out : err;
+    ResultWriter alerts = alertOut == out ? results : options.format().writer(alertOut);
+    boolean flushAlerts = options.serve() != null || alertOut != out;
+    transactionService.addBudgetListener(status -> {
+      synchronized (alertOut) {
+        alerts.budgetCrossed(status);
+        if (flushAlerts) {
+          alertOut.flush();
+        }
       }
-
-      String[] inputParts = userInput.split("\\s+", 2);
-      String mainCommand = inputParts[0].toLowerCase();
-      String commandArguments = inputParts.length > 1 ? inputParts[1] : "";
-
+    });
+    if (metrics != null) {
       try {
-        isRunning = processUserCommand(mainCommand, commandArguments);
-      } catch (IllegalArgumentException e) {
-        System.out.println("Ошибка: " + e.getMessage());
+        metrics.registerMBeans(JMX_DOMAIN);
+      } catch (JMException e) {
+        results.error("Метрики не зарегистрированы в JMX: " + e.getMessage());
       }
     }
   }
 
-  private boolean processUserCommand(String command, String arguments) {
-    switch (command) {
-      case "add" -> handleAddCommand(arguments);
-      case "list" -> handleListCommand(arguments);
-      case "balance" -> displayCurrentBalance();
-      case "summary" -> displayExpenseSummary();
-      case "delete" -> handleDeleteCommand(arguments);
-      case "exit" -> {
-        return false;
-      }
-      default -> System.out.println(INVALID_COMMAND_MESSAGE);
+  /**
+   * Серверу нужен сервис, безопасный для одновременных запросов; консоли хватает обычного.
+   */
+  private static TransactionService openService(Path snapshotPath, boolean shared)
+      throws IOException {
+    if (Files.exists(snapshotPath)) {
+      return shared
+          ? TransactionService.openSnapshotConcurrent(snapshotPath)
+          : TransactionService.openSnapshot(snapshotPath);
     }
-    return true;
+    return shared ? TransactionService.concurrent() : new TransactionService();
   }
 
-  private void handleAddCommand(String arguments) {
-    String[] addCommandParts = arguments.split("\\s+", 4);
-
-    if (addCommandParts.length < 3) {
-      throw new IllegalArgumentException(
-          "Формат команды: add [income/expense] [сумма] [категория] [описание]"
-      );
+  /**
+   * Запускаем приложение, восстанавливая транзакции из снимка и журнала.
+   */
+  public static void main(String[] args) {
+    int status = run(args);
+    if (status != 0) {
+      System.exit(status);
     }
-
-    Transaction.TransactionType transactionType = parseTransactionType(addCommandParts[0]);
-    BigDecimal amount = parseTransactionAmount(addCommandParts[1]);
-    Transaction.Category category = parseTransactionCategory(addCommandParts[2]);
-    String description = addCommandParts.length > 3 ? addCommandParts[3] : "";
-
-    transactionService.addTransaction(transactionType, amount, category, description);
-    System.out.println("✅ Транзакция успешно добавлена");
   }
 
-  private void handleListCommand(String arguments) {
-    String[] listCommandParts = arguments.split("\\s+");
-    if (listCommandParts.length < 1) {
-      throw new IllegalArgumentException("Укажите тип списка: all, income или expense");
+  /**
+   * Запускаем приложение и возвращаем код завершения: 1, если оно не запустилось или в пакетном
+   * сценарии были ошибки, иначе 0.
+   */
+  static int run(String[] args) {
+    LaunchOptions options;
+    FinanceConsoleApp app;
+    try {
+      options = LaunchOptions.parse(args);
+      app = new FinanceConsoleApp(options);
+    } catch (IllegalArgumentException | IOException e) {
+      System.err.println("Не удалось запустить приложение: " + e.getMessage());
+      return 1;
     }
-
-    switch (listCommandParts[0].toLowerCase()) {
-      case "all" -> displayTransactions(transactionService.getAllTransactions());
-      case "income" -> displayTransactions(transactionService
-          .getTransactionsByType(Transaction.TransactionType.INCOME));
-      case "expense" -> displayTransactions(transactionService
-          .getTransactionsByType(Transaction.TransactionType.EXPENSE));
-      default -> throw new IllegalArgumentException("Неподдерживаемый тип списка");
+    if (options.serve() != null) {
+      app.serve(options.serve());
+    } else if (options.batch() == null) {
+      app.startApplication();
+    } else if (app.runBatch(options.batch()) > 0) {
+      return 1;
     }
+    return 0;
   }
 
-  private void handleDeleteCommand(String arguments) {
-    if (arguments.isEmpty()) {
-      throw new IllegalArgumentException("Укажите ID транзакции");
-    }
-
-    int transactionId = Integer.parseInt(arguments);
-    boolean isDeleted = transactionService.deleteTransaction(transactionId);
-    System.out.println(isDeleted ? "✅ Транзакция удалена" : "⚠️ Транзакция не найдена");
-  }
-
-  private void displayTransactions(List<Transaction> transactions) {
-    if (transactions.isEmpty()) {
-      System.out.println("\nНет данных для отображения");
+  /**
+   * Запускаем HTTP-сервер. Процесс живёт, пока работает сервер; при завершении сервер
+   * останавливается, а журнал закрывается.
+   */
+  private void serve(int port) {
+    FinanceHttpServer server;
+    try {
+      server = FinanceHttpServer.start(transactionService, port);
+    } catch (IOException e) {
+      results.error("Не удалось запустить сервер: " + e.getMessage());
+      shutdownApplication(false);
+      System.exit(1);
       return;
     }
-
-    System.out
-        .println("\n┌─────┬────────────┬──────────┬────────────┬──────────┬────────────────┐");
-    System.out.println("│ ID │    Дата    │   Тип    │ Категория  │  Сумма   │   Описание     │");
-    System.out.println("├─────┼────────────┼──────────┼────────────┼──────────┼────────────────┤");
-
-    for (Transaction transaction : transactions) {
-      System.out.printf(
-          "│ %-3d │ %-10s │ %-8s │ %-10s │ %8.2f │ %-14s │%n",
-          transaction.getId(),
-          transaction.getDate().format(DATE_FORMATTER),
-          transaction.getTransactionType(),
-          transaction.getCategory(),
-          transaction.getSum(),
-          transaction.getDescription()
-      );
-    }
-    System.out.println("└─────┴────────────┴──────────┴────────────┴──────────┴────────────────┘");
+    Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+      server.close();
+      shutdownApplication(false);
+    }, "fintrack-shutdown"));
+    out.println("Сервер слушает http://" + server.address().getHostString() + ":"
+        + server.address().getPort() + "/commands");
+    out.flush();
   }
 
-  private void displayCurrentBalance() {
-    BigDecimal balance = transactionService.calculateBalance();
-    System.out.printf("\nТекущий баланс: %+.2f\n", balance);
-  }
-
-  private void displayExpenseSummary() {
-    Map<Transaction.Category, BigDecimal> summary = transactionService.getExpensesByCategory();
-
-    if (summary.isEmpty()) {
-      System.out.println("\nНет данных о расходах");
-      return;
+  private void startApplication() {
+    printWelcomeMessage();
+    BufferedReader input = new BufferedReader(
+        new InputStreamReader(System.in, StandardCharsets.UTF_8));
+    try {
+      runCommandLoop(input);
+    } catch (IOException e) {
+      results.error("Не удалось прочитать команду: " + e.getMessage());
     }
-
-    System.out.println("\nКатегория расходов │ Сумма");
-    System.out.println("───────────────────┼──────────");
-    summary.forEach((category, amount) ->
-        System.out.printf(" %-17s │ %8.2f%n", category, amount)
-    );
-  }
-
-  private Transaction.TransactionType parseTransactionType(String typeInput) {
-    return switch (typeInput.toLowerCase()) {
-      case "income" -> Transaction.TransactionType.INCOME;
-      case "expense" -> Transaction.TransactionType.EXPENSE;
-      default -> throw new IllegalArgumentException("Неподдерживаемый тип транзакции");
-    };
+    shutdownApplication(true);
   }
 
-  private Transaction.Category parseTransactionCategory(String categoryInput) {
-    return Transaction.Category.valueOf(categoryInput.toUpperCase());
+  /**
+   * Выполняем сценарий команд и возвращаем число команд, завершившихся ошибкой.
+   */
+  private int runBatch(String source) {
+    int errors;
+    try (BufferedReader input = "-".equals(source)
+        ? new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8))
+        : Files.newBufferedReader(Path.of(source), StandardCharsets.UTF_8)) {
+      errors = commands.executeAll(input);
+    } catch (IOException e) {
+      results.error("Не удалось прочитать сценарий: " + e.getMessage());
+      errors = 1;
+    }
+    shutdownApplication(false);
+    return errors;
   }
 
-  private BigDecimal parseTransactionAmount(String amountInput) {
-    try {
-      BigDecimal amount = new BigDecimal(amountInput);
-      if (amount.compareTo(BigDecimal.ZERO) <= 0) {
-        throw new IllegalArgumentException("Сумма должна быть больше нуля");
+  /**
+   * Читаем и выполняем команды до конца ввода или команды exit, выводя приглашение и
+   * сбрасывая буфер вывода перед каждой командой.
+   */
+  private void runCommandLoop(BufferedReader input) throws IOException {
+    boolean isRunning = true;
+    while (isRunning) {
+      out.print(COMMAND_PROMPT);
+      out.flush();
+      String userInput = input.readLine();
+      if (userInput == null) {
+        break;
+      }
+      try {
+        isRunning = commands.execute(userInput);
+      } catch (RuntimeException e) {
+        results.error(CommandProcessor.describe(e));
       }
-      return amount;
-    } catch (NumberFormatException e) {
-      throw new IllegalArgumentException("Неверный формат суммы");
     }
+    out.flush();
   }
 
   private void printWelcomeMessage() {
-    String helpText = """
+    out.println("""
         ====================================
         🏦 Финансовый менеджер - Версия 1.0
         ====================================
-        
-        Доступные команды:
-        
-        📥 Добавление транзакций:
-          add income <сумма> <категория> [описание]
-          add expense <сумма> <категория> [описание]
-        
-        📊 Просмотр данных:
-          list all      - Все транзакции
-          list income   - Доходы
-          list expense  - Расходы
-          balance       - Текущий баланс
-          summary       - Статистика по расходам
-        
-        🗑 Управление:
-          delete <id>   - Удалить транзакцию
-          exit          - Выход
-        
-        📋 Доступные категории: 
-          • GOODS (Товары)
-          • TRANSPORT (Транспорт)
-          • SALARY (Зарплата)
-          • ENTERTAINMENT (Развлечения)
-        """;
-    System.out.println(helpText);
+        """);
+    commands.printHelp();
   }
 
-  private void shutdownApplication() {
-    inputScanner.close();
-    System.out.println("\nРабота приложения завершена. До свидания! 👋");
+  private void shutdownApplication(boolean interactive) {
+    try {
+      journal.close();
+    } catch (IOException e) {
+      results.error("Ошибка при закрытии журнала: " + e.getMessage());
+    }
+    if (interactive) {
+      out.println("\nРабота приложения завершена. До свидания! 👋");
+    }
+    out.flush();
   }
 }
\ No newline at end of file
@@ -0,0 +1,178 @@
+package ru.mentee.power.fintrack.cli;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import ru.mentee.power.fintrack.service.TransactionService;
+
+/**
+ * HTTP-интерфейс к сервису транзакций на встроенном в JDK {@link HttpServer}.
+ *
+ * <p>{@code POST /commands[?format=json|tsv|table]} принимает в теле команды консольного языка,
+ * по одной в строке, и отвечает их результатами в выбранном формате (по умолчанию JSON Lines).
+ * Ошибки, как и в пакетном режиме, не прерывают запрос и выводятся с номером строки.
+ * {@code GET /health} отвечает {@code ok}.
+ *
+ * <p>Чтобы страницы в браузере не могли управлять реестром, тело должно иметь тип
+ * {@value #COMMANDS_CONTENT_TYPE}: такой запрос браузер не отправит на чужой сайт без
+ * предварительного OPTIONS, на который сервер не отвечает разрешением. Запросы с заголовком
+ * Origin и с Host, отличным от петлевого адреса и порта сервера (подмена DNS), отклоняются.
+ * Команды, работающие с файлами сервера, удалённо недоступны.
+ *
+ * <p>Каждый запрос обрабатывается в своём виртуальном потоке, поэтому поток, ждущий блокировку
+ * полосы или сброс журнала на диск, не занимает поток платформы. Сервис должен быть
+ * потокобезопасным — созданным через {@link TransactionService#concurrent()} или
+ * {@link TransactionService#openSnapshotConcurrent(Path)}. Сервер слушает только петлевой
+ * интерфейс.
+ */
+final class FinanceHttpServer implements AutoCloseable {
+
+  private static final int BACKLOG = 1024;
+  private static final int RESPONSE_BUFFER_CHARS = 1 << 13;
+  static final String COMMANDS_CONTENT_TYPE = "application/x-fintrack-commands";
+
+  private final HttpServer server;
+  private final ExecutorService executor;
+  private final TransactionService transactionService;
+  private final Set<String> allowedHosts;
+
+  private FinanceHttpServer(HttpServer server, ExecutorService executor,
+      TransactionService transactionService) {
+    this.server = server;
+    this.executor = executor;
+    this.transactionService = transactionService;
+    int port = server.getAddress().getPort();
+    this.allowedHosts = Set.of("localhost:" + port, "127.0.0.1:" + port, "[::1]:" + port);
+  }
+
+  /**
+   * Запускаем сервер на порту port петлевого интерфейса; 0 — любой свободный порт.
+   */
+  static FinanceHttpServer start(TransactionService transactionService, int port)
+      throws IOException {
+    HttpServer server = HttpServer.create(
+        new InetSocketAddress(InetAddress.getLoopbackAddress(), port), BACKLOG);
+    ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    FinanceHttpServer httpServer = new FinanceHttpServer(server, executor, transactionService);
+    server.setExecutor(executor);
+    server.createContext("/commands", httpServer::handleCommands);
+    server.createContext("/health", exchange -> respond(exchange, 200, "ok\n"));
+    server.start();
+    return httpServer;
+  }
+
+  InetSocketAddress address() {
+    return server.getAddress();
+  }
+
+  /**
+   * Перестаём принимать соединения и ждём завершения начатых запросов.
+   */
+  @Override
+  public void close() {
+    server.stop(0);
+    executor.close();
+  }
+
+  private void handleCommands(HttpExchange exchange) throws IOException {
+    try (exchange) {
+      if (!isLocalRequest(exchange)) {
+        respond(exchange, 403, "Запросы принимаются только с этого компьютера, не из браузера\n");
+        return;
+      }
+      if (!"POST".equals(exchange.getRequestMethod())) {
+        exchange.getResponseHeaders().set("Allow", "POST");
+        respond(exchange, 405, "Ожидается POST с командами в теле запроса\n");
+        return;
+      }
+      if (!COMMANDS_CONTENT_TYPE.equals(mediaType(exchange))) {
+        respond(exchange, 415, "Ожидается тело типа " + COMMANDS_CONTENT_TYPE + "\n");
+        return;
+      }
+      OutputFormat format;
+      try {
+        format = OutputFormat.parse(queryParameter(exchange, "format", "json"));
+      } catch (IllegalArgumentException e) {
+        respond(exchange, 400, e.getMessage() + "\n");
+        return;
+      }
+
+      exchange.getResponseHeaders().set("Content-Type", contentType(format));
+      // Длина ответа заранее неизвестна: результаты передаются частями по мере выполнения.
+      exchange.sendResponseHeaders(200, 0);
+      try (BufferedReader input = new BufferedReader(
+          new InputStreamReader(exchange.getRequestBody(), StandardCharsets.UTF_8));
+          PrintWriter out = new PrintWriter(new BufferedWriter(new OutputStreamWriter(
+              exchange.getResponseBody(), StandardCharsets.UTF_8), RESPONSE_BUFFER_CHARS))) {
+        CommandProcessor.remote(transactionService, format.writer(out)).executeAll(input);
+      }
+    }
+  }
+
+  /**
+   * Браузер ставит Origin на межсайтовые запросы, а при подмене DNS присылает в Host имя чужого
+   * сайта; клиенты на этом компьютере обращаются к петлевому адресу без Origin.
+   */
+  private boolean isLocalRequest(HttpExchange exchange) {
+    String host = exchange.getRequestHeaders().getFirst("Host");
+    return exchange.getRequestHeaders().getFirst("Origin") == null
+        && host != null && allowedHosts.contains(host.toLowerCase(Locale.ROOT));
+  }
+
+  private static String mediaType(HttpExchange exchange) {
+    String contentType = exchange.getRequestHeaders().getFirst("Content-Type");
+    if (contentType == null) {
+      return null;
+    }
+    int parameters = contentType.indexOf(';');
+    return (parameters < 0 ? contentType : contentType.substring(0, parameters))
+        .strip().toLowerCase(Locale.ROOT);
+  }
+
+  private static String contentType(OutputFormat format) {
+    return switch (format) {
+      case TABLE -> "text/plain; charset=utf-8";
+      case TSV -> "text/tab-separated-values; charset=utf-8";
+      case JSON -> "application/x-ndjson; charset=utf-8";
+    };
+  }
+
+  private static String queryParameter(HttpExchange exchange, String name, String fallback) {
+    String query = exchange.getRequestURI().getRawQuery();
+    if (query == null) {
+      return fallback;
+    }
+    for (String pair : query.split("&")) {
+      int equals = pair.indexOf('=');
+      if (equals > 0 && name.equals(pair.substring(0, equals))) {
+        return URLDecoder.decode(pair.substring(equals + 1), StandardCharsets.UTF_8);
+      }
+    }
+    return fallback;
+  }
+
+  private static void respond(HttpExchange exchange, int status, String body)
+      throws IOException {
+    byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+    exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+    exchange.sendResponseHeaders(status, bytes.length);
+    try (OutputStream response = exchange.getResponseBody()) {
+      response.write(bytes);
+    }
+  }
+}
@@ -0,0 +1,300 @@
+package ru.mentee.power.fintrack.cli;
+
+import java.io.PrintWriter;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import ru.mentee.power.fintrack.model.Transaction;
+import ru.mentee.power.fintrack.service.AmountDistribution;
+import ru.mentee.power.fintrack.service.BudgetStatus;
+import ru.mentee.power.fintrack.service.OperationStats;
+import ru.mentee.power.fintrack.service.QueryCacheStats;
+import ru.mentee.power.fintrack.service.ServiceOperation;
+import ru.mentee.power.fintrack.service.TransactionSummary;
+
+/**
+ * Вывод в формате JSON Lines: результат каждой команды — одно JSON-значение в одной строке.
+ *
+ * <p>Список транзакций — массив объектов с полями {@code id, date, type, category, sum,
+ * description}; итоги — объекты с полями {@code period, income, expense, balance}. Суммы
+ * пишутся числами без округления. Ошибка — объект {@code {"error": "..."}}.
+ */
+final class JsonResultWriter extends ResultWriter {
+
+  JsonResultWriter(PrintWriter out, PrintWriter err) {
+    super(out, err);
+  }
+
+  @Override
+  void transactions(Iterator<Transaction> transactions) {
+    out.print('[');
+    boolean first = true;
+    while (transactions.hasNext()) {
+      if (!first) {
+        out.print(',');
+      }
+      transaction(transactions.next());
+      first = false;
+    }
+    out.println(']');
+  }
+
+  @Override
+  void nextPage(Transaction last) {
+    // Курсор следующей страницы — дата и id последнего элемента массива.
+  }
+
+  @Override
+  void found(int count, long millis) {
+    // Число найденных равно длине массива.
+  }
+
+  @Override
+  void added(Transaction transaction) {
+    transaction(transaction);
+    out.println();
+  }
+
+  @Override
+  void deleted(int id, boolean found) {
+    out.print("{\"id\":");
+    out.print(id);
+    out.print(",\"deleted\":");
+    out.print(found);
+    out.println('}');
+  }
+
+  @Override
+  void balance(LocalDate date, BigDecimal balance) {
+    out.print("{\"date\":");
+    out.print(date == null ? "null" : quote(date.toString()));
+    out.print(",\"balance\":");
+    out.print(balance.toPlainString());
+    out.println('}');
+  }
+
+  @Override
+  void expenses(Map<Transaction.Category, BigDecimal> expenses) {
+    categories(expenses);
+    out.println();
+  }
+
+  @Override
+  void monthSummary(YearMonth month, TransactionSummary summary) {
+    totals(month, summary);
+    out.print(",\"expenses\":");
+    categories(summary.byCategory(Transaction.TransactionType.EXPENSE));
+    out.println('}');
+  }
+
+  @Override
+  void periodReport(Map<?, TransactionSummary> report) {
+    out.print('[');
+    boolean first = true;
+    for (Map.Entry<?, TransactionSummary> entry : report.entrySet()) {
+      if (isEmpty(entry.getValue())) {
+        continue;
+      }
+      if (!first) {
+        out.print(',');
+      }
+      totals(entry.getKey(), entry.getValue());
+      out.print('}');
+      first = false;
+    }
+    out.println(']');
+  }
+
+  @Override
+  void distribution(AmountDistribution distribution) {
+    out.print("{\"count\":");
+    out.print(distribution.count());
+    if (distribution.count() > 0) {
+      for (double q : QUANTILES) {
+        out.print(",\"");
+        out.print(quantileName(q));
+        out.print("\":");
+        out.print(distribution.quantile(q).toPlainString());
+      }
+    }
+    out.println('}');
+  }
+
+  @Override
+  void budgets(List<BudgetStatus> statuses) {
+    out.print('[');
+    for (int i = 0; i < statuses.size(); i++) {
+      if (i > 0) {
+        out.print(',');
+      }
+      budget(statuses.get(i));
+    }
+    out.println(']');
+  }
+
+  @Override
+  void budgetCrossed(BudgetStatus status) {
+    out.print("{\"budgetAlert\":");
+    budget(status);
+    out.println('}');
+  }
+
+  @Override
+  void imported(long count, long millis) {
+    out.print("{\"imported\":");
+    out.print(count);
+    out.print(",\"millis\":");
+    out.print(millis);
+    out.println('}');
+  }
+
+  @Override
+  void exported(long count, long millis) {
+    out.print("{\"exported\":");
+    out.print(count);
+    out.print(",\"millis\":");
+    out.print(millis);
+    out.println('}');
+  }
+
+  @Override
+  void snapshotSaved() {
+    out.println("{\"snapshot\":\"saved\"}");
+  }
+
+  @Override
+  void archived(long count, long millis) {
+    out.print("{\"archived\":");
+    out.print(count);
+    out.print(",\"millis\":");
+    out.print(millis);
+    out.println('}');
+  }
+
+  @Override
+  void stats(Map<ServiceOperation, OperationStats> operations, long transactionCount,
+      QueryCacheStats cache) {
+    out.print("{\"transactions\":");
+    out.print(transactionCount);
+    out.print(",\"cache\":{\"hits\":");
+    out.print(cache.hits());
+    out.print(",\"misses\":");
+    out.print(cache.misses());
+    out.print("},\"operations\":{");
+    boolean first = true;
+    for (Map.Entry<ServiceOperation, OperationStats> entry : operations.entrySet()) {
+      OperationStats stats = entry.getValue();
+      if (!first) {
+        out.print(',');
+      }
+      out.printf("\"%s\":{\"count\":%d,\"p50Nanos\":%d,\"p99Nanos\":%d,\"p999Nanos\":%d,"
+          + "\"maxNanos\":%d,\"allocatedBytes\":%d}", entry.getKey().metricName(), stats.count(),
+          stats.p50Nanos(), stats.p99Nanos(), stats.p999Nanos(), stats.maxNanos(),
+          stats.allocatedBytes());
+      first = false;
+    }
+    out.println("}}");
+  }
+
+  @Override
+  void help(String text) {
+    out.print("{\"help\":");
+    out.print(quote(text));
+    out.println('}');
+  }
+
+  @Override
+  void error(String message) {
+    err.print("{\"error\":");
+    err.print(quote(message));
+    err.println('}');
+  }
+
+  private void budget(BudgetStatus status) {
+    out.print("{\"category\":\"");
+    out.print(status.budget().category());
+    out.print("\",\"period\":\"");
+    out.print(periodName(status));
+    out.print("\",\"limit\":");
+    out.print(status.budget().limit().toPlainString());
+    out.print(",\"spent\":");
+    out.print(status.spent().toPlainString());
+    out.print(",\"exceeded\":");
+    out.print(status.exceeded());
+    out.print('}');
+  }
+
+  private void transaction(Transaction transaction) {
+    out.print("{\"id\":");
+    out.print(transaction.getId());
+    out.print(",\"date\":\"");
+    out.print(transaction.getDate());
+    out.print("\",\"type\":\"");
+    out.print(transaction.getTransactionType());
+    out.print("\",\"category\":\"");
+    out.print(transaction.getCategory());
+    out.print("\",\"sum\":");
+    out.print(transaction.getSum().toPlainString());
+    out.print(",\"description\":");
+    out.print(quote(transaction.getDescription()));
+    out.print('}');
+  }
+
+  /**
+   * Пишем итоги периода как начало объекта; закрывающую скобку ставит вызывающий.
+   */
+  private void totals(Object period, TransactionSummary summary) {
+    out.print("{\"period\":\"");
+    out.print(period);
+    out.print("\",\"income\":");
+    out.print(summary.total(Transaction.TransactionType.INCOME).toPlainString());
+    out.print(",\"expense\":");
+    out.print(summary.total(Transaction.TransactionType.EXPENSE).toPlainString());
+    out.print(",\"balance\":");
+    out.print(summary.balance().toPlainString());
+  }
+
+  private void categories(Map<Transaction.Category, BigDecimal> amounts) {
+    out.print('{');
+    boolean first = true;
+    for (Map.Entry<Transaction.Category, BigDecimal> entry : amounts.entrySet()) {
+      if (!first) {
+        out.print(',');
+      }
+      out.print('"');
+      out.print(entry.getKey());
+      out.print("\":");
+      out.print(entry.getValue().toPlainString());
+      first = false;
+    }
+    out.print('}');
+  }
+
+  private static String quote(String value) {
+    if (value == null) {
+      return "null";
+    }
+    StringBuilder quoted = new StringBuilder(value.length() + 2).append('"');
+    for (int i = 0; i < value.length(); i++) {
+      char c = value.charAt(i);
+      switch (c) {
+        case '"' -> quoted.append("\\\"");
+        case '\\' -> quoted.append("\\\\");
+        case '\n' -> quoted.append("\\n");
+        case '\r' -> quoted.append("\\r");
+        case '\t' -> quoted.append("\\t");
+        default -> {
+          if (c < 0x20) {
+            quoted.append(String.format("\\u%04x", (int) c));
+          } else {
+            quoted.append(c);
+          }
+        }
+      }
+    }
+    return quoted.append('"').toString();
+  }
+}
@@ -0,0 +1,124 @@
+package ru.mentee.power.fintrack.cli;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import ru.mentee.power.fintrack.persistence.FsyncPolicy;
+
+/**
+ * Параметры запуска консольного приложения.
+ *
+ * @param journal          файл журнала транзакций
+ * @param snapshot         файл снимка транзакций
+ * @param fsyncPolicy      политика сброса журнала на диск
+ * @param batch            файл со сценарием команд, {@code -} для стандартного ввода или null
+ *                         для интерактивного режима
+ * @param format           формат вывода результатов команд
+ * @param metrics          собирать ли метрики операций
+ * @param serve            порт HTTP-сервера или null, если сервер не нужен
+ * @param archive          сколько последних месяцев держать в памяти или null, если архив не
+ *                         нужен
+ * @param archiveDirectory каталог архивных сегментов; по умолчанию рядом с журналом
+ */
+record LaunchOptions(Path journal, Path snapshot, FsyncPolicy fsyncPolicy, String batch,
+    OutputFormat format, boolean metrics, Integer serve, Integer archive,
+    Path archiveDirectory) {
+
+  private static final Path DEFAULT_JOURNAL = Path.of("fintrack.journal");
+  private static final Path DEFAULT_SNAPSHOT = Path.of("fintrack.snapshot");
+  private static final String JOURNAL_SUFFIX = ".journal";
+
+  /**
+   * Разбираем аргументы командной строки: --journal файл, --snapshot файл,
+   * --fsync always|os|миллисекунды, --batch файл|-, --format table|tsv|json, --no-metrics,
+   * --serve порт, --archive месяцев, --archive-dir каталог.
+   */
+  static LaunchOptions parse(String[] args) {
+    Path journal = DEFAULT_JOURNAL;
+    Path snapshot = DEFAULT_SNAPSHOT;
+    FsyncPolicy fsyncPolicy = FsyncPolicy.always();
+    String batch = null;
+    OutputFormat format = OutputFormat.TABLE;
+    boolean metrics = true;
+    Integer serve = null;
+    Integer archive = null;
+    Path archiveDirectory = null;
+
+    for (int i = 0; i < args.length; i++) {
+      switch (args[i]) {
+        case "--journal" -> journal = Path.of(requireValue(args, ++i));
+        case "--snapshot" -> snapshot = Path.of(requireValue(args, ++i));
+        case "--fsync" -> fsyncPolicy = parseFsyncPolicy(requireValue(args, ++i));
+        case "--batch" -> batch = requireValue(args, ++i);
+        case "--format" -> format = OutputFormat.parse(requireValue(args, ++i));
+        case "--no-metrics" -> metrics = false;
+        case "--serve" -> serve = parsePort(requireValue(args, ++i));
+        case "--archive" -> archive = parseMonths(requireValue(args, ++i));
+        case "--archive-dir" -> archiveDirectory = Path.of(requireValue(args, ++i));
+        default -> throw new IllegalArgumentException("Неизвестный параметр: " + args[i]);
+      }
+    }
+    if (serve != null && batch != null) {
+      throw new IllegalArgumentException("--serve и --batch нельзя использовать вместе");
+    }
+    if (archiveDirectory != null && archive == null) {
+      throw new IllegalArgumentException("--archive-dir указывается вместе с --archive");
+    }
+    return new LaunchOptions(journal, snapshot, fsyncPolicy, batch, format, metrics, serve,
+        archive, archiveDirectory != null ? archiveDirectory : archiveDirectoryFor(journal));
+  }
+
+  /**
+   * Каталог архива рядом с журналом: {@code ledger.journal} даёт {@code ledger.archive}.
+   */
+  static Path archiveDirectoryFor(Path journal) {
+    String name = journal.getFileName().toString();
+    String stem = name.endsWith(JOURNAL_SUFFIX)
+        ? name.substring(0, name.length() - JOURNAL_SUFFIX.length()) : name;
+    return journal.resolveSibling(stem + ".archive");
+  }
+
+  private static int parseMonths(String value) {
+    try {
+      int months = Integer.parseInt(value);
+      if (months > 0) {
+        return months;
+      }
+    } catch (NumberFormatException e) {
+      // Сообщаем об ошибке ниже.
+    }
+    throw new IllegalArgumentException("--archive: ожидается число месяцев больше нуля");
+  }
+
+  private static int parsePort(String value) {
+    try {
+      int port = Integer.parseInt(value);
+      if (port >= 0 && port <= 65_535) {
+        return port;
+      }
+    } catch (NumberFormatException e) {
+      // Сообщаем об ошибке ниже.
+    }
+    throw new IllegalArgumentException("--serve: ожидается порт от 0 до 65535");
+  }
+
+  private static FsyncPolicy parseFsyncPolicy(String value) {
+    return switch (value.toLowerCase()) {
+      case "always" -> FsyncPolicy.always();
+      case "os" -> FsyncPolicy.osManaged();
+      default -> {
+        try {
+          yield FsyncPolicy.every(Duration.ofMillis(Long.parseLong(value)));
+        } catch (NumberFormatException e) {
+          throw new IllegalArgumentException("--fsync: ожидается always, os или миллисекунды");
+        }
+      }
+    };
+  }
+
+  private static String requireValue(String[] args, int index) {
+    if (index >= args.length) {
+      throw new IllegalArgumentException("Не указано значение для " + args[index - 1]);
+    }
+    return args[index];
+  }
+}
@@ -0,0 +1,48 @@
+package ru.mentee.power.fintrack.cli;
+
+import java.io.PrintWriter;
+
+/**
+ * Формат вывода результатов команд.
+ */
+enum OutputFormat {
+
+  /**
+   * Таблицы и сообщения для человека.
+   */
+  TABLE,
+
+  /**
+   * Значения через табуляцию, по строке на запись.
+   */
+  TSV,
+
+  /**
+   * Одно JSON-значение в строке на каждую команду.
+   */
+  JSON;
+
+  static OutputFormat parse(String value) {
+    return switch (value.toLowerCase()) {
+      case "table" -> TABLE;
+      case "tsv" -> TSV;
+      case "json" -> JSON;
+      default -> throw new IllegalArgumentException("--format: ожидается table, tsv или json");
+    };
+  }
+
+  ResultWriter writer(PrintWriter out) {
+    return writer(out, out);
+  }
+
+  /**
+   * Создаём вывод, который пишет ошибки в err отдельно от результатов.
+   */
+  ResultWriter writer(PrintWriter out, PrintWriter err) {
+    return switch (this) {
+      case TABLE -> new TableResultWriter(out, err);
+      case TSV -> new TsvResultWriter(out, err);
+      case JSON -> new JsonResultWriter(out, err);
+    };
+  }
+}
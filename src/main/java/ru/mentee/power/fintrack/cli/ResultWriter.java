@@ -0,0 +1,131 @@
+package ru.mentee.power.fintrack.cli;
+
+import java.io.PrintWriter;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import ru.mentee.power.fintrack.model.Transaction;
+import ru.mentee.power.fintrack.service.AmountDistribution;
+import ru.mentee.power.fintrack.service.BudgetPeriod;
+import ru.mentee.power.fintrack.service.BudgetStatus;
+import ru.mentee.power.fintrack.service.OperationStats;
+import ru.mentee.power.fintrack.service.QueryCacheStats;
+import ru.mentee.power.fintrack.service.ServiceOperation;
+import ru.mentee.power.fintrack.service.TransactionSummary;
+
+/**
+ * Вывод результатов команд в одном из форматов {@link OutputFormat}.
+ *
+ * <p>Результаты пишутся в буферизованный {@link PrintWriter} out, ошибки — в err, который может
+ * быть тем же out; когда сбрасывать буферы, решает приложение.
+ */
+abstract class ResultWriter {
+
+  /**
+   * Квантили сумм, которые выводит {@link #distribution(AmountDistribution)}.
+   */
+  protected static final double[] QUANTILES = {0.5, 0.9, 0.95, 0.99};
+
+  protected final PrintWriter out;
+  protected final PrintWriter err;
+
+  protected ResultWriter(PrintWriter out, PrintWriter err) {
+    this.out = out;
+    this.err = err;
+  }
+
+  abstract void transactions(Iterator<Transaction> transactions);
+
+  /**
+   * Сообщаем курсор следующей страницы списка — дату и id последней транзакции страницы.
+   */
+  abstract void nextPage(Transaction last);
+
+  /**
+   * Сообщаем число найденных поиском транзакций и время поиска.
+   */
+  abstract void found(int count, long millis);
+
+  abstract void added(Transaction transaction);
+
+  abstract void deleted(int id, boolean found);
+
+  /**
+   * Выводим баланс на конец дня date или текущий, если date равен null.
+   */
+  abstract void balance(LocalDate date, BigDecimal balance);
+
+  abstract void expenses(Map<Transaction.Category, BigDecimal> expenses);
+
+  abstract void monthSummary(YearMonth month, TransactionSummary summary);
+
+  /**
+   * Выводим итоги по периодам отчёта, пропуская периоды без транзакций.
+   */
+  abstract void periodReport(Map<?, TransactionSummary> report);
+
+  /**
+   * Выводим число транзакций и квантили {@link #QUANTILES} их сумм.
+   */
+  abstract void distribution(AmountDistribution distribution);
+
+  /**
+   * Выводим расходы по бюджетам за текущие периоды.
+   */
+  abstract void budgets(List<BudgetStatus> statuses);
+
+  /**
+   * Сообщаем, что расходы периода перешли через лимит бюджета.
+   */
+  abstract void budgetCrossed(BudgetStatus status);
+
+  abstract void imported(long count, long millis);
+
+  /**
+   * Сообщаем число выгруженных в файл транзакций и время выгрузки.
+   */
+  abstract void exported(long count, long millis);
+
+  abstract void snapshotSaved();
+
+  /**
+   * Сообщаем число вынесенных в архив транзакций и время переноса.
+   */
+  abstract void archived(long count, long millis);
+
+  /**
+   * Выводим метрики вызванных операций и размер реестра.
+   */
+  abstract void stats(Map<ServiceOperation, OperationStats> operations, long transactionCount,
+      QueryCacheStats cache);
+
+  /**
+   * Выводим справку по командам.
+   */
+  void help(String text) {
+    out.println(text);
+  }
+
+  abstract void error(String message);
+
+  /**
+   * Называем период бюджета: yyyy-MM для месяца, yyyy для года.
+   */
+  protected static String periodName(BudgetStatus status) {
+    return status.budget().period() == BudgetPeriod.MONTH
+        ? YearMonth.from(status.periodStart()).toString()
+        : String.valueOf(status.periodStart().getYear());
+  }
+
+  protected static String quantileName(double q) {
+    return "p" + Math.round(q * 100);
+  }
+
+  protected static boolean isEmpty(TransactionSummary summary) {
+    return summary.count(Transaction.TransactionType.INCOME)
+        + summary.count(Transaction.TransactionType.EXPENSE) == 0;
+  }
+}
@@ -0,0 +1,200 @@
+package ru.mentee.power.fintrack.cli;
+
+import java.io.PrintWriter;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import ru.mentee.power.fintrack.model.Transaction;
+import ru.mentee.power.fintrack.service.AmountDistribution;
+import ru.mentee.power.fintrack.service.BudgetStatus;
+import ru.mentee.power.fintrack.service.OperationStats;
+import ru.mentee.power.fintrack.service.QueryCacheStats;
+import ru.mentee.power.fintrack.service.ServiceOperation;
+import ru.mentee.power.fintrack.service.TransactionSummary;
+
+/**
+ * Вывод в виде таблиц и сообщений для работы в консоли.
+ */
+final class TableResultWriter extends ResultWriter {
+
+  private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd");
+
+  TableResultWriter(PrintWriter out, PrintWriter err) {
+    super(out, err);
+  }
+
+  @Override
+  void transactions(Iterator<Transaction> transactions) {
+    if (!transactions.hasNext()) {
+      out.println("\nНет данных для отображения");
+      return;
+    }
+
+    out.println("\n┌─────┬────────────┬──────────┬────────────┬──────────┬────────────────┐");
+    out.println("│ ID │    Дата    │   Тип    │ Категория  │  Сумма   │   Описание     │");
+    out.println("├─────┼────────────┼──────────┼────────────┼──────────┼────────────────┤");
+
+    while (transactions.hasNext()) {
+      Transaction transaction = transactions.next();
+      out.printf(
+          "│ %-3d │ %-10s │ %-8s │ %-10s │ %8.2f │ %-14s │%n",
+          transaction.getId(),
+          transaction.getDate().format(DATE_FORMATTER),
+          transaction.getTransactionType(),
+          transaction.getCategory(),
+          transaction.getSum(),
+          transaction.getDescription()
+      );
+    }
+    out.println("└─────┴────────────┴──────────┴────────────┴──────────┴────────────────┘");
+  }
+
+  @Override
+  void nextPage(Transaction last) {
+    out.printf("Следующая страница: --after %s:%d%n", last.getDate(), last.getId());
+  }
+
+  @Override
+  void found(int count, long millis) {
+    out.printf("Найдено: %d за %d мс%n", count, millis);
+  }
+
+  @Override
+  void added(Transaction transaction) {
+    out.println("✅ Транзакция успешно добавлена");
+  }
+
+  @Override
+  void deleted(int id, boolean found) {
+    out.println(found ? "✅ Транзакция удалена" : "⚠️ Транзакция не найдена");
+  }
+
+  @Override
+  void balance(LocalDate date, BigDecimal balance) {
+    if (date == null) {
+      out.printf("%nТекущий баланс: %+.2f%n", balance);
+    } else {
+      out.printf("%nБаланс на %s: %+.2f%n", date.format(DATE_FORMATTER), balance);
+    }
+  }
+
+  @Override
+  void expenses(Map<Transaction.Category, BigDecimal> expenses) {
+    if (expenses.isEmpty()) {
+      out.println("\nНет данных о расходах");
+      return;
+    }
+
+    out.println("\nКатегория расходов │ Сумма");
+    out.println("───────────────────┼──────────");
+    expenses.forEach((category, amount) ->
+        out.printf(" %-17s │ %8.2f%n", category, amount)
+    );
+  }
+
+  @Override
+  void monthSummary(YearMonth month, TransactionSummary summary) {
+    out.printf("%nИтоги за %s: доходы %.2f, расходы %.2f, баланс %+.2f%n", month,
+        summary.total(Transaction.TransactionType.INCOME),
+        summary.total(Transaction.TransactionType.EXPENSE), summary.balance());
+    expenses(summary.byCategory(Transaction.TransactionType.EXPENSE));
+  }
+
+  @Override
+  void periodReport(Map<?, TransactionSummary> report) {
+    out.println("\n  Период    │  Доходы   │  Расходы  │  Баланс");
+    out.println("────────────┼───────────┼───────────┼───────────");
+    report.forEach((period, summary) -> {
+      if (!isEmpty(summary)) {
+        out.printf(" %-10s │ %9.2f │ %9.2f │ %+9.2f%n", period,
+            summary.total(Transaction.TransactionType.INCOME),
+            summary.total(Transaction.TransactionType.EXPENSE), summary.balance());
+      }
+    });
+  }
+
+  @Override
+  void distribution(AmountDistribution distribution) {
+    if (distribution.count() == 0) {
+      out.println("\nНет данных о суммах");
+      return;
+    }
+
+    out.printf("%nТранзакций: %d%n", distribution.count());
+    for (double q : QUANTILES) {
+      out.printf(" %-4s │ %10.2f%n", quantileName(q), distribution.quantile(q));
+    }
+  }
+
+  @Override
+  void budgets(List<BudgetStatus> statuses) {
+    if (statuses.isEmpty()) {
+      out.println("\nБюджеты не заданы");
+      return;
+    }
+
+    out.println("\n Категория     │ Период  │    Лимит │ Потрачено │  Остаток");
+    out.println("───────────────┼─────────┼──────────┼───────────┼──────────");
+    for (BudgetStatus status : statuses) {
+      out.printf(" %-13s │ %-7s │ %8.2f │ %9.2f │ %8.2f%s%n", status.budget().category(),
+          periodName(status), status.budget().limit(), status.spent(), status.remaining(),
+          status.exceeded() ? " ⚠" : "");
+    }
+  }
+
+  @Override
+  void budgetCrossed(BudgetStatus status) {
+    out.printf(status.exceeded()
+            ? "⚠ Бюджет %s за %s превышен: потрачено %.2f из %.2f%n"
+            : "✅ Бюджет %s за %s снова в пределах лимита: потрачено %.2f из %.2f%n",
+        status.budget().category(), periodName(status), status.spent(),
+        status.budget().limit());
+  }
+
+  @Override
+  void imported(long count, long millis) {
+    out.printf("✅ Импортировано транзакций: %d за %d мс%n", count, millis);
+  }
+
+  @Override
+  void exported(long count, long millis) {
+    out.printf("✅ Выгружено транзакций: %d за %d мс%n", count, millis);
+  }
+
+  @Override
+  void snapshotSaved() {
+    out.println("✅ Снимок сохранён, журнал очищен");
+  }
+
+  @Override
+  void archived(long count, long millis) {
+    out.printf("✅ Вынесено в архив транзакций: %d за %d мс%n", count, millis);
+  }
+
+  @Override
+  void stats(Map<ServiceOperation, OperationStats> operations, long transactionCount,
+      QueryCacheStats cache) {
+    out.printf("%nТранзакций: %d, кэш запросов: %d попаданий, %d промахов (%.0f%%)%n",
+        transactionCount, cache.hits(), cache.misses(), cache.hitRate() * 100);
+    if (operations.isEmpty()) {
+      return;
+    }
+    out.println("\n Операция             │  Вызовы  │ p50, мкс │ p99, мкс │ p99.9, мкс │ "
+        + "Байт/вызов");
+    out.println("──────────────────────┼──────────┼──────────┼──────────┼────────────┼"
+        + "───────────");
+    operations.forEach((operation, stats) ->
+        out.printf(" %-20s │ %8d │ %8.1f │ %8.1f │ %10.1f │ %10d%n", operation.metricName(),
+            stats.count(), stats.p50Nanos() / 1000.0, stats.p99Nanos() / 1000.0,
+            stats.p999Nanos() / 1000.0, stats.allocatedBytesPerCall()));
+  }
+
+  @Override
+  void error(String message) {
+    err.println("Ошибка: " + message);
+  }
+}
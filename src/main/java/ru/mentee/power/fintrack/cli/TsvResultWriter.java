@@ -0,0 +1,220 @@
+package ru.mentee.power.fintrack.cli;
+
+import java.io.PrintWriter;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import ru.mentee.power.fintrack.model.Transaction;
+import ru.mentee.power.fintrack.service.AmountDistribution;
+import ru.mentee.power.fintrack.service.BudgetStatus;
+import ru.mentee.power.fintrack.service.OperationStats;
+import ru.mentee.power.fintrack.service.QueryCacheStats;
+import ru.mentee.power.fintrack.service.ServiceOperation;
+import ru.mentee.power.fintrack.service.TransactionSummary;
+
+/**
+ * Вывод значений через табуляцию без заголовков и украшений.
+ *
+ * <p>Транзакция — строка {@code id, дата, тип, категория, сумма, описание}; итоги — строка
+ * {@code период, доходы, расходы, баланс}; метрики операции — строка {@code операция, вызовы,
+ * p50, p99, p99.9, максимум (нс), выделено байт}. Суммы пишутся точно, без округления. Табуляция,
+ * переводы строки и обратная косая черта в описании экранируются как {@code \t}, {@code \n},
+ * {@code \r} и {@code \\}. Ошибка — строка {@code error} и текст ошибки.
+ */
+final class TsvResultWriter extends ResultWriter {
+
+  TsvResultWriter(PrintWriter out, PrintWriter err) {
+    super(out, err);
+  }
+
+  @Override
+  void transactions(Iterator<Transaction> transactions) {
+    while (transactions.hasNext()) {
+      row(transactions.next());
+    }
+  }
+
+  @Override
+  void nextPage(Transaction last) {
+    // Курсор следующей страницы — дата и id последней строки, отдельной строки не нужно.
+  }
+
+  @Override
+  void found(int count, long millis) {
+    // Число найденных равно числу строк.
+  }
+
+  @Override
+  void added(Transaction transaction) {
+    row(transaction);
+  }
+
+  @Override
+  void deleted(int id, boolean found) {
+    out.print(id);
+    out.print('\t');
+    out.println(found ? "deleted" : "not-found");
+  }
+
+  @Override
+  void balance(LocalDate date, BigDecimal balance) {
+    out.println(balance.toPlainString());
+  }
+
+  @Override
+  void expenses(Map<Transaction.Category, BigDecimal> expenses) {
+    expenses.forEach((category, amount) -> {
+      out.print(category);
+      out.print('\t');
+      out.println(amount.toPlainString());
+    });
+  }
+
+  @Override
+  void monthSummary(YearMonth month, TransactionSummary summary) {
+    totals(month, summary);
+  }
+
+  @Override
+  void periodReport(Map<?, TransactionSummary> report) {
+    report.forEach((period, summary) -> {
+      if (!isEmpty(summary)) {
+        totals(period, summary);
+      }
+    });
+  }
+
+  @Override
+  void distribution(AmountDistribution distribution) {
+    out.print("count\t");
+    out.println(distribution.count());
+    if (distribution.count() == 0) {
+      return;
+    }
+    for (double q : QUANTILES) {
+      out.print(quantileName(q));
+      out.print('\t');
+      out.println(distribution.quantile(q).toPlainString());
+    }
+  }
+
+  @Override
+  void budgets(List<BudgetStatus> statuses) {
+    for (BudgetStatus status : statuses) {
+      budget(status);
+    }
+  }
+
+  @Override
+  void budgetCrossed(BudgetStatus status) {
+    out.print("alert\t");
+    budget(status);
+  }
+
+  @Override
+  void imported(long count, long millis) {
+    out.println(count);
+  }
+
+  @Override
+  void exported(long count, long millis) {
+    out.println(count);
+  }
+
+  @Override
+  void snapshotSaved() {
+    out.println("saved");
+  }
+
+  @Override
+  void archived(long count, long millis) {
+    out.println(count);
+  }
+
+  @Override
+  void stats(Map<ServiceOperation, OperationStats> operations, long transactionCount,
+      QueryCacheStats cache) {
+    out.print("transactions\t");
+    out.println(transactionCount);
+    out.print("cache\t");
+    out.print(cache.hits());
+    out.print('\t');
+    out.println(cache.misses());
+    operations.forEach((operation, stats) -> {
+      out.print(operation.metricName());
+      for (long value : new long[] {stats.count(), stats.p50Nanos(), stats.p99Nanos(),
+          stats.p999Nanos(), stats.maxNanos(), stats.allocatedBytes()}) {
+        out.print('\t');
+        out.print(value);
+      }
+      out.println();
+    });
+  }
+
+  @Override
+  void error(String message) {
+    err.print("error\t");
+    err.println(escape(message));
+  }
+
+  private void budget(BudgetStatus status) {
+    out.print(status.budget().category());
+    out.print('\t');
+    out.print(periodName(status));
+    out.print('\t');
+    out.print(status.budget().limit().toPlainString());
+    out.print('\t');
+    out.print(status.spent().toPlainString());
+    out.print('\t');
+    out.println(status.exceeded() ? "exceeded" : "ok");
+  }
+
+  private void row(Transaction transaction) {
+    out.print(transaction.getId());
+    out.print('\t');
+    out.print(transaction.getDate());
+    out.print('\t');
+    out.print(transaction.getTransactionType());
+    out.print('\t');
+    out.print(transaction.getCategory());
+    out.print('\t');
+    out.print(transaction.getSum().toPlainString());
+    out.print('\t');
+    out.println(escape(transaction.getDescription()));
+  }
+
+  private void totals(Object period, TransactionSummary summary) {
+    out.print(period);
+    out.print('\t');
+    out.print(summary.total(Transaction.TransactionType.INCOME).toPlainString());
+    out.print('\t');
+    out.print(summary.total(Transaction.TransactionType.EXPENSE).toPlainString());
+    out.print('\t');
+    out.println(summary.balance().toPlainString());
+  }
+
+  private static String escape(String value) {
+    if (value == null) {
+      return "";
+    }
+    if (value.indexOf('\t') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0
+        && value.indexOf('\\') < 0) {
+      return value;
+    }
+    StringBuilder escaped = new StringBuilder(value.length() + 8);
+    for (int i = 0; i < value.length(); i++) {
+      char c = value.charAt(i);
+      switch (c) {
+        case '\t' -> escaped.append("\\t");
+        case '\n' -> escaped.append("\\n");
+        case '\r' -> escaped.append("\\r");
+        case '\\' -> escaped.append("\\\\");
+        default -> escaped.append(c);
+      }
+    }
+    return escaped.toString();
+  }
+}
@@ -5,15 +5,18 @@ import java.time.LocalDate;
 
 /**
  * Данный класс описывает характеристики и поведение транзакций.
+ *
+ * <p>Транзакция неизменяема: сервис отдаёт одни и те же объекты многим читателям, в том числе
+ * из старых версий реестра, поэтому менять их на месте нельзя.
  */
 public class Transaction {
 
-  private int id;
-  private String description;
-  private BigDecimal sum;
-  private LocalDate date;
-  private Category category;
-  private TransactionType transactionType;
+  private final int id;
+  private final String description;
+  private final BigDecimal sum;
+  private final LocalDate date;
+  private final Category category;
+  private final TransactionType transactionType;
 
   /**
    * Описание основных категорий для трат/расходов.
@@ -46,47 +49,23 @@ public class Transaction {
     return id;
   }
 
-  public void setId(int id) {
-    this.id = id;
-  }
-
   public String getDescription() {
     return description;
   }
 
-  public void setDescription(String description) {
-    this.description = description;
-  }
-
   public BigDecimal getSum() {
     return sum;
   }
 
-  public void setSum(BigDecimal sum) {
-    this.sum = sum;
-  }
-
   public LocalDate getDate() {
     return date;
   }
 
-  public void setDate(LocalDate date) {
-    this.date = date;
-  }
-
   public Category getCategory() {
     return category;
   }
 
-  public void setCategory(Category category) {
-    this.category = category;
-  }
-
   public TransactionType getTransactionType() {
     return transactionType;
   }
-
-  public void setTransactionType(TransactionType transactionType) {
-    this.transactionType = transactionType;
-  }
 }
\ No newline at end of file
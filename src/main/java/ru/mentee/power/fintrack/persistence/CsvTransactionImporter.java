@@ -0,0 +1,266 @@
+package ru.mentee.power.fintrack.persistence;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.Reader;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import ru.mentee.power.fintrack.model.Transaction;
+import ru.mentee.power.fintrack.model.Transaction.Category;
+import ru.mentee.power.fintrack.model.Transaction.TransactionType;
+import ru.mentee.power.fintrack.service.TransactionService;
+
+/**
+ * Импорт транзакций из CSV-выписки.
+ *
+ * <p>Формат строки: {@code дата,тип,сумма,категория,описание}, например
+ * {@code 2025-03-01,expense,1500.00,GOODS,Продукты}. Описание — всё после четвёртой запятой,
+ * его можно взять в кавычки; внутри кавычек кавычка удваивается, а переводы строк сохраняются,
+ * так что такая запись занимает несколько строк файла. Первая строка, начинающаяся с
+ * {@code date}, считается заголовком.
+ *
+ * <p>Файл читается потоково и режется на куски строк. Куски разбираются параллельно, но
+ * добавляются в сервис по порядку, каждый одним вызовом
+ * {@link TransactionService#addTransactions}. Одновременно в памяти держится лишь несколько
+ * кусков. При ошибке разбора импорт останавливается; уже добавленные куски остаются.
+ */
+public final class CsvTransactionImporter {
+
+  private static final int DEFAULT_CHUNK_LINES = 16_384;
+
+  private final int chunkLines;
+  private final int parallelism;
+
+  /**
+   * Создаём импортёр, разбирающий куски во всех доступных процессорах.
+   */
+  public CsvTransactionImporter() {
+    this(DEFAULT_CHUNK_LINES, Runtime.getRuntime().availableProcessors());
+  }
+
+  CsvTransactionImporter(int chunkLines, int parallelism) {
+    if (chunkLines <= 0 || parallelism <= 0) {
+      throw new IllegalArgumentException("Размер куска и число потоков должны быть больше нуля");
+    }
+    this.chunkLines = chunkLines;
+    this.parallelism = parallelism;
+  }
+
+  /**
+   * Импортируем файл в сервис и возвращаем число добавленных транзакций.
+   */
+  public long importFile(Path file, TransactionService service) throws IOException {
+    ExecutorService parsers = Executors.newFixedThreadPool(parallelism, runnable -> {
+      Thread thread = new Thread(runnable, "csv-parser");
+      thread.setDaemon(true);
+      return thread;
+    });
+    Deque<Future<List<Transaction>>> inFlight = new ArrayDeque<>();
+    long imported = 0;
+    try (Reader source = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+      RecordReader reader = new RecordReader(source);
+      long lineNumber = 0;
+      long chunkStart = 1;
+      List<String> chunk = new ArrayList<>(chunkLines);
+      String line;
+      while ((line = reader.next()) != null) {
+        lineNumber += physicalLines(line);
+        if (lineNumber == 1 && line.regionMatches(true, 0, "date", 0, 4)) {
+          chunkStart = 2;
+          continue;
+        }
+        chunk.add(line);
+        if (chunk.size() == chunkLines) {
+          inFlight.add(submit(parsers, chunk, chunkStart));
+          chunk = new ArrayList<>(chunkLines);
+          chunkStart = lineNumber + 1;
+          if (inFlight.size() > parallelism * 2) {
+            imported += service.addTransactions(await(inFlight.poll())).size();
+          }
+        }
+      }
+      if (!chunk.isEmpty()) {
+        inFlight.add(submit(parsers, chunk, chunkStart));
+      }
+      while (!inFlight.isEmpty()) {
+        imported += service.addTransactions(await(inFlight.poll())).size();
+      }
+      return imported;
+    } finally {
+      parsers.shutdownNow();
+    }
+  }
+
+  private static Future<List<Transaction>> submit(ExecutorService parsers, List<String> chunk,
+      long firstLine) {
+    return parsers.submit(() -> parseChunk(chunk, firstLine));
+  }
+
+  private static List<Transaction> await(Future<List<Transaction>> parsed) throws IOException {
+    try {
+      return parsed.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Импорт прерван");
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof RuntimeException cause) {
+        throw cause;
+      }
+      throw new IOException("Не удалось разобрать файл", e.getCause());
+    }
+  }
+
+  private static List<Transaction> parseChunk(List<String> lines, long firstLine) {
+    List<Transaction> parsed = new ArrayList<>(lines.size());
+    long lineNumber = firstLine;
+    for (String line : lines) {
+      if (!line.isBlank()) {
+        parsed.add(parseLine(line, lineNumber));
+      }
+      lineNumber += physicalLines(line);
+    }
+    return parsed;
+  }
+
+  /**
+   * Считаем строки файла, занятые записью: описание в кавычках может содержать переводы строк.
+   */
+  private static int physicalLines(String record) {
+    if (record.indexOf('\n') < 0 && record.indexOf('\r') < 0) {
+      return 1;
+    }
+    int lines = 1;
+    for (int i = 0; i < record.length(); i++) {
+      char c = record.charAt(i);
+      if (c == '\n' || c == '\r' && (i + 1 == record.length() || record.charAt(i + 1) != '\n')) {
+        lines++;
+      }
+    }
+    return lines;
+  }
+
+  /**
+   * Разбираем строку без split: поля режем по позициям запятых.
+   */
+  private static Transaction parseLine(String line, long lineNumber) {
+    int dateEnd = line.indexOf(',');
+    int typeEnd = dateEnd < 0 ? -1 : line.indexOf(',', dateEnd + 1);
+    int sumEnd = typeEnd < 0 ? -1 : line.indexOf(',', typeEnd + 1);
+    int categoryEnd = sumEnd < 0 ? -1 : line.indexOf(',', sumEnd + 1);
+    if (sumEnd < 0) {
+      throw lineError(lineNumber, "ожидается дата,тип,сумма,категория[,описание]");
+    }
+    if (categoryEnd < 0) {
+      categoryEnd = line.length();
+    }
+
+    LocalDate date;
+    TransactionType type;
+    BigDecimal sum;
+    Category category;
+    try {
+      date = LocalDate.parse(line.substring(0, dateEnd).trim());
+      type = TransactionType.valueOf(line.substring(dateEnd + 1, typeEnd).trim().toUpperCase());
+      sum = new BigDecimal(line.substring(typeEnd + 1, sumEnd).trim());
+      category = Category.valueOf(line.substring(sumEnd + 1, categoryEnd).trim().toUpperCase());
+    } catch (DateTimeParseException e) {
+      throw lineError(lineNumber, "неверный формат даты, ожидается yyyy-MM-dd");
+    } catch (NumberFormatException e) {
+      throw lineError(lineNumber, "неверный формат суммы");
+    } catch (IllegalArgumentException e) {
+      throw lineError(lineNumber, "неизвестный тип или категория");
+    }
+    if (sum.compareTo(BigDecimal.ZERO) <= 0) {
+      throw lineError(lineNumber, "сумма должна быть больше нуля");
+    }
+    String description = categoryEnd < line.length()
+        ? unquote(line.substring(categoryEnd + 1).trim()) : "";
+    return new Transaction(0, description, sum, date, category, type);
+  }
+
+  private static String unquote(String value) {
+    if (value.length() >= 2 && value.startsWith("\"") && value.endsWith("\"")) {
+      return value.substring(1, value.length() - 1).replace("\"\"", "\"");
+    }
+    return value;
+  }
+
+  private static IllegalArgumentException lineError(long lineNumber, String reason) {
+    return new IllegalArgumentException("Строка " + lineNumber + ": " + reason);
+  }
+
+  /**
+   * Читаем файл по записям. Запись кончается переводом строки ({@code \n}, {@code \r\n} или
+   * {@code \r}) вне кавычек; поле, открытое кавычкой, тянется до закрывающей кавычки вместе с
+   * переводами строк. Кавычка в середине поля без кавычек — обычный символ, как в {@link #unquote}.
+   */
+  private static final class RecordReader {
+
+    private final Reader in;
+    private final char[] buffer = new char[8192];
+    private final StringBuilder record = new StringBuilder();
+    private int position;
+    private int limit;
+    private boolean skipLineFeed;
+
+    private RecordReader(Reader in) {
+      this.in = in;
+    }
+
+    /**
+     * Возвращаем следующую запись без завершающего перевода строки или null в конце файла.
+     */
+    String next() throws IOException {
+      record.setLength(0);
+      boolean read = false;
+      boolean fieldStart = true;
+      boolean quoted = false;
+      boolean quoteSeen = false;
+      while (position < limit || fill()) {
+        char c = buffer[position++];
+        if (skipLineFeed) {
+          skipLineFeed = false;
+          if (c == '\n') {
+            continue;
+          }
+        }
+        read = true;
+        if (quoted) {
+          if (!quoteSeen || c == '"') {
+            record.append(c);
+            quoteSeen = !quoteSeen && c == '"';
+            continue;
+          }
+          quoted = false;
+          quoteSeen = false;
+        }
+        if (c == '\n' || c == '\r') {
+          skipLineFeed = c == '\r';
+          return record.toString();
+        }
+        record.append(c);
+        quoted = fieldStart && c == '"';
+        fieldStart = c == ',' || fieldStart && (c == ' ' || c == '\t');
+      }
+      return read ? record.toString() : null;
+    }
+
+    private boolean fill() throws IOException {
+      limit = in.read(buffer);
+      position = 0;
+      return limit > 0;
+    }
+  }
+}
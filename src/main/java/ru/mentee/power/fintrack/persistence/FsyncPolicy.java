@@ -0,0 +1,45 @@
+package ru.mentee.power.fintrack.persistence;
+
+import java.time.Duration;
+
+/**
+ * Политика сброса журнала на диск.
+ *
+ * @param mode     когда вызывать fsync
+ * @param interval период сброса для режима {@link Mode#INTERVAL}
+ */
+public record FsyncPolicy(Mode mode, Duration interval) {
+
+  /**
+   * Режимы сброса журнала.
+   */
+  public enum Mode {
+    /** Операция возвращается только после fsync пачки, в которую попала её запись. */
+    ALWAYS,
+    /** Записи копятся в памяти и сбрасываются с fsync раз в заданный интервал. */
+    INTERVAL,
+    /** Записи сразу передаются ОС, момент записи на диск выбирает ОС. */
+    OS_MANAGED
+  }
+
+  /**
+   * Создаём политику с проверкой интервала для периодического сброса.
+   */
+  public FsyncPolicy {
+    if (mode == Mode.INTERVAL && (interval == null || interval.isZero() || interval.isNegative())) {
+      throw new IllegalArgumentException("Интервал сброса должен быть положительным");
+    }
+  }
+
+  public static FsyncPolicy always() {
+    return new FsyncPolicy(Mode.ALWAYS, null);
+  }
+
+  public static FsyncPolicy every(Duration interval) {
+    return new FsyncPolicy(Mode.INTERVAL, interval);
+  }
+
+  public static FsyncPolicy osManaged() {
+    return new FsyncPolicy(Mode.OS_MANAGED, null);
+  }
+}
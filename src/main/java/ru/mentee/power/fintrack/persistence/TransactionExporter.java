@@ -0,0 +1,355 @@
+package ru.mentee.power.fintrack.persistence;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.stream.Stream;
+import ru.mentee.power.fintrack.model.Transaction;
+import ru.mentee.power.fintrack.model.Transaction.Category;
+import ru.mentee.power.fintrack.model.Transaction.TransactionType;
+import ru.mentee.power.fintrack.service.TransactionFilter;
+import ru.mentee.power.fintrack.service.TransactionService;
+
+/**
+ * Потоковая выгрузка транзакций в CSV или JSON.
+ *
+ * <p>CSV пишется в формате {@link CsvTransactionImporter} с заголовком, поэтому выгрузку можно
+ * импортировать обратно. JSON — массив объектов с теми же полями, что у {@code --format json}
+ * консоли, по объекту на строку.
+ *
+ * <p>Транзакции берутся из {@link TransactionService#stream} по одной, кодируются в UTF-8 прямо
+ * в прямой буфер без промежуточных строк и сбрасываются в {@link FileChannel}, когда буфер
+ * заполнен. Поэтому память не зависит от размера выгрузки. Файл пишется во временный и
+ * подменяет целевой только после успешной записи.
+ */
+public final class TransactionExporter {
+
+  private static final int DEFAULT_BUFFER_BYTES = 1 << 20;
+  private static final int MIN_BUFFER_BYTES = 64;
+  private static final int LONG_DIGITS = 20;
+  private static final byte[] CSV_HEADER = ascii("date,type,sum,category,description\n");
+  private static final byte[] HEX = ascii("0123456789abcdef");
+  private static final byte[] JSON_FIRST = ascii("\n{\"id\":");
+  private static final byte[] JSON_NEXT = ascii(",\n{\"id\":");
+  private static final byte[] JSON_DATE = ascii(",\"date\":\"");
+  private static final byte[] JSON_TYPE = ascii("\",\"type\":\"");
+  private static final byte[] JSON_CATEGORY = ascii("\",\"category\":\"");
+  private static final byte[] JSON_SUM = ascii("\",\"sum\":");
+  private static final byte[] JSON_DESCRIPTION = ascii(",\"description\":");
+  private static final byte[] JSON_END = ascii("\n]\n");
+  private static final byte[] JSON_NULL = ascii("null");
+  private static final byte[][] CSV_TYPES = names(TransactionType.values(), true);
+  private static final byte[][] JSON_TYPES = names(TransactionType.values(), false);
+  private static final byte[][] CATEGORIES = names(Category.values(), false);
+
+  /**
+   * Формат выгрузки.
+   */
+  public enum Format {
+    CSV,
+    JSON
+  }
+
+  private final Format format;
+  private final int bufferBytes;
+
+  public TransactionExporter(Format format) {
+    this(format, DEFAULT_BUFFER_BYTES);
+  }
+
+  TransactionExporter(Format format, int bufferBytes) {
+    if (bufferBytes < MIN_BUFFER_BYTES) {
+      throw new IllegalArgumentException("Буфер должен быть не меньше " + MIN_BUFFER_BYTES
+          + " байт");
+    }
+    this.format = format;
+    this.bufferBytes = bufferBytes;
+  }
+
+  /**
+   * Выгружаем подходящие под фильтр транзакции в файл и возвращаем их число.
+   */
+  public long export(TransactionService service, TransactionFilter filter, Path file)
+      throws IOException {
+    Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+    long exported;
+    try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE,
+        StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+        Stream<Transaction> transactions = service.stream(filter)) {
+      Encoder encoder = new Encoder(channel, ByteBuffer.allocateDirect(bufferBytes));
+      exported = format == Format.CSV
+          ? encoder.csv(transactions.iterator()) : encoder.json(transactions.iterator());
+      encoder.flush();
+    } catch (IOException | RuntimeException e) {
+      Files.deleteIfExists(temporary);
+      throw e;
+    }
+    Files.move(temporary, file, StandardCopyOption.ATOMIC_MOVE,
+        StandardCopyOption.REPLACE_EXISTING);
+    return exported;
+  }
+
+  private static byte[] ascii(String value) {
+    return value.getBytes(StandardCharsets.US_ASCII);
+  }
+
+  private static byte[][] names(Enum<?>[] values, boolean lowerCase) {
+    byte[][] names = new byte[values.length][];
+    for (Enum<?> value : values) {
+      String name = value.name();
+      names[value.ordinal()] = ascii(lowerCase ? name.toLowerCase(Locale.ROOT) : name);
+    }
+    return names;
+  }
+
+  /**
+   * Кодирование полей в буфер; перед каждой записью проверяется, что в буфере есть место.
+   */
+  private static final class Encoder {
+
+    private final FileChannel channel;
+    private final ByteBuffer buffer;
+    private final byte[] digits = new byte[LONG_DIGITS];
+
+    Encoder(FileChannel channel, ByteBuffer buffer) {
+      this.channel = channel;
+      this.buffer = buffer;
+    }
+
+    long csv(Iterator<Transaction> transactions) throws IOException {
+      put(CSV_HEADER);
+      long count = 0;
+      while (transactions.hasNext()) {
+        Transaction transaction = transactions.next();
+        putDate(transaction.getDate());
+        putByte(',');
+        put(CSV_TYPES[transaction.getTransactionType().ordinal()]);
+        putByte(',');
+        putAmount(transaction.getSum());
+        putByte(',');
+        put(CATEGORIES[transaction.getCategory().ordinal()]);
+        putByte(',');
+        putCsvText(transaction.getDescription());
+        putByte('\n');
+        count++;
+      }
+      return count;
+    }
+
+    long json(Iterator<Transaction> transactions) throws IOException {
+      putByte('[');
+      long count = 0;
+      while (transactions.hasNext()) {
+        Transaction transaction = transactions.next();
+        put(count == 0 ? JSON_FIRST : JSON_NEXT);
+        putLong(transaction.getId());
+        put(JSON_DATE);
+        putDate(transaction.getDate());
+        put(JSON_TYPE);
+        put(JSON_TYPES[transaction.getTransactionType().ordinal()]);
+        put(JSON_CATEGORY);
+        put(CATEGORIES[transaction.getCategory().ordinal()]);
+        put(JSON_SUM);
+        putAmount(transaction.getSum());
+        put(JSON_DESCRIPTION);
+        putJsonText(transaction.getDescription());
+        putByte('}');
+        count++;
+      }
+      put(JSON_END);
+      return count;
+    }
+
+    void flush() throws IOException {
+      buffer.flip();
+      while (buffer.hasRemaining()) {
+        channel.write(buffer);
+      }
+      buffer.clear();
+    }
+
+    private void ensure(int bytes) throws IOException {
+      if (buffer.remaining() < bytes) {
+        flush();
+      }
+    }
+
+    private void putByte(char c) throws IOException {
+      ensure(1);
+      buffer.put((byte) c);
+    }
+
+    private void put(byte[] bytes) throws IOException {
+      ensure(bytes.length);
+      buffer.put(bytes);
+    }
+
+    /**
+     * Пишем дату как yyyy-MM-dd; годы вне 0–9999 — через {@link LocalDate#toString()}.
+     */
+    private void putDate(LocalDate date) throws IOException {
+      int year = date.getYear();
+      if (year < 0 || year > 9999) {
+        put(ascii(date.toString()));
+        return;
+      }
+      ensure(10);
+      putDigits(year, 4);
+      buffer.put((byte) '-');
+      putDigits(date.getMonthValue(), 2);
+      buffer.put((byte) '-');
+      putDigits(date.getDayOfMonth(), 2);
+    }
+
+    private void putDigits(int value, int width) {
+      for (int divisor = width == 4 ? 1000 : 10; divisor > 0; divisor /= 10) {
+        buffer.put((byte) ('0' + value / divisor % 10));
+      }
+    }
+
+    /**
+     * Пишем сумму как {@link BigDecimal#toPlainString()}: цифры немасштабированного значения
+     * с точкой перед последними scale цифрами.
+     */
+    private void putAmount(BigDecimal amount) throws IOException {
+      int scale = amount.scale();
+      BigInteger unscaled = amount.unscaledValue();
+      if (scale < 0 || scale >= LONG_DIGITS - 1 || unscaled.bitLength() >= Long.SIZE - 1) {
+        putUtf8(amount.toPlainString(), false);
+        return;
+      }
+      long value = unscaled.longValue();
+      boolean negative = value < 0;
+      int position = toDigits(Math.abs(value));
+      while (digits.length - position <= scale) {
+        digits[--position] = '0';
+      }
+      int integerDigits = digits.length - position - scale;
+      ensure(digits.length + 2);
+      if (negative) {
+        buffer.put((byte) '-');
+      }
+      buffer.put(digits, position, integerDigits);
+      if (scale > 0) {
+        buffer.put((byte) '.');
+        buffer.put(digits, position + integerDigits, scale);
+      }
+    }
+
+    private void putLong(long value) throws IOException {
+      int position = toDigits(value);
+      ensure(digits.length - position);
+      buffer.put(digits, position, digits.length - position);
+    }
+
+    /**
+     * Пишем десятичные цифры неотрицательного числа в конец digits и возвращаем первую.
+     */
+    private int toDigits(long value) {
+      int position = digits.length;
+      do {
+        digits[--position] = (byte) ('0' + value % 10);
+        value /= 10;
+      } while (value > 0);
+      return position;
+    }
+
+    /**
+     * Пишем описание как поле CSV; в кавычки берём, только если без них импорт его исказит.
+     */
+    private void putCsvText(String value) throws IOException {
+      if (value == null) {
+        return;
+      }
+      if (!needsCsvQuotes(value)) {
+        putUtf8(value, false);
+        return;
+      }
+      putByte('"');
+      putUtf8(value, false);
+      putByte('"');
+    }
+
+    private static boolean needsCsvQuotes(String value) {
+      if (value.isEmpty()) {
+        return false;
+      }
+      if (Character.isWhitespace(value.charAt(0))
+          || Character.isWhitespace(value.charAt(value.length() - 1))) {
+        return true;
+      }
+      for (int i = 0; i < value.length(); i++) {
+        char c = value.charAt(i);
+        if (c == ',' || c == '"' || c == '\n' || c == '\r') {
+          return true;
+        }
+      }
+      return false;
+    }
+
+    private void putJsonText(String value) throws IOException {
+      if (value == null) {
+        put(JSON_NULL);
+        return;
+      }
+      putByte('"');
+      putUtf8(value, true);
+      putByte('"');
+    }
+
+    /**
+     * Кодируем строку в UTF-8 по символам: для JSON экранируем кавычки, обратную косую черту
+     * и управляющие символы, для CSV удваиваем кавычки.
+     */
+    private void putUtf8(String value, boolean json) throws IOException {
+      for (int i = 0; i < value.length(); i++) {
+        char c = value.charAt(i);
+        ensure(6);
+        if (c == '"') {
+          buffer.put(json ? (byte) '\\' : (byte) '"').put((byte) '"');
+        } else if (json && c == '\\') {
+          buffer.put((byte) '\\').put((byte) '\\');
+        } else if (json && c < 0x20) {
+          putJsonControl(c);
+        } else if (c < 0x80) {
+          buffer.put((byte) c);
+        } else if (c < 0x800) {
+          buffer.put((byte) (0xc0 | c >> 6)).put((byte) (0x80 | c & 0x3f));
+        } else if (Character.isHighSurrogate(c) && i + 1 < value.length()
+            && Character.isLowSurrogate(value.charAt(i + 1))) {
+          int codePoint = Character.toCodePoint(c, value.charAt(++i));
+          buffer.put((byte) (0xf0 | codePoint >> 18))
+              .put((byte) (0x80 | codePoint >> 12 & 0x3f))
+              .put((byte) (0x80 | codePoint >> 6 & 0x3f))
+              .put((byte) (0x80 | codePoint & 0x3f));
+        } else if (Character.isSurrogate(c)) {
+          buffer.put((byte) '?');
+        } else {
+          buffer.put((byte) (0xe0 | c >> 12))
+              .put((byte) (0x80 | c >> 6 & 0x3f))
+              .put((byte) (0x80 | c & 0x3f));
+        }
+      }
+    }
+
+    private void putJsonControl(char c) {
+      switch (c) {
+        case '\n' -> buffer.put((byte) '\\').put((byte) 'n');
+        case '\r' -> buffer.put((byte) '\\').put((byte) 'r');
+        case '\t' -> buffer.put((byte) '\\').put((byte) 't');
+        default -> buffer.put((byte) '\\').put((byte) 'u').put((byte) '0').put((byte) '0')
+            .put(HEX[c >> 4]).put(HEX[c & 0xf]);
+      }
+    }
+  }
+}
@@ -0,0 +1,483 @@
+package ru.mentee.power.fintrack.persistence;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32;
+import ru.mentee.power.fintrack.model.Transaction;
+import ru.mentee.power.fintrack.model.Transaction.Category;
+import ru.mentee.power.fintrack.model.Transaction.TransactionType;
+import ru.mentee.power.fintrack.service.TransactionListener;
+import ru.mentee.power.fintrack.service.TransactionService;
+
+/**
+ * Двоичный журнал добавлений и удалений транзакций только на дозапись.
+ *
+ * <p>Формат: заголовок (magic, версия, номер контрольной точки), затем записи
+ * {@code [длина][CRC32][данные]}. Записи от
+ * параллельных писателей копятся в общем буфере и уходят на диск одной парой
+ * {@code write + force} (group commit): первый ожидающий поток становится ведущим и сбрасывает
+ * всё накопленное, остальные ждут его. При открытии журнал проигрывается в сервис; первая
+ * недописанная или повреждённая запись считается концом журнала и отрезается.
+ *
+ * <p>При сохранении снимка сервиса журнал обнуляется и получает номер новой контрольной точки.
+ * Журнал со старым номером уже целиком вошёл в снимок и при открытии не проигрывается.
+ *
+ * <p>Журнал первой версии, без номера контрольной точки, проигрывается в сервис без снимка и
+ * тут же переписывается в текущий формат; записи в обеих версиях одинаковы.
+ */
+public final class TransactionJournal implements TransactionListener, Closeable {
+
+  private static final int MAGIC = 0x46544A31;
+  private static final int VERSION = 2;
+  private static final int VERSION_WITHOUT_GENERATION = 1;
+  private static final int FILE_HEADER_BYTES = 16;
+  private static final int FILE_HEADER_WITHOUT_GENERATION_BYTES = 8;
+  private static final int RECORD_HEADER_BYTES = 8;
+  private static final int MAX_PAYLOAD_BYTES = 1 << 20;
+  private static final int INITIAL_BUFFER_BYTES = 64 * 1024;
+  private static final byte OP_ADD = 1;
+  private static final byte OP_DELETE = 2;
+
+  private final FileChannel channel;
+  private final FsyncPolicy policy;
+  private final ScheduledExecutorService flusher;
+  private final ReentrantLock lock = new ReentrantLock();
+  private final Condition flushed = lock.newCondition();
+  private final CRC32 crc = new CRC32();
+  private ByteBuffer pending = ByteBuffer.allocate(INITIAL_BUFFER_BYTES);
+  private ByteBuffer spare = ByteBuffer.allocate(INITIAL_BUFFER_BYTES);
+  private long appendedSeq;
+  private long flushedSeq;
+  private boolean flushing;
+  private boolean unforced;
+  private boolean closed;
+  private IOException failure;
+
+  private TransactionJournal(FileChannel channel, FsyncPolicy policy) {
+    this.channel = channel;
+    this.policy = policy;
+    if (policy.mode() == FsyncPolicy.Mode.INTERVAL) {
+      long millis = policy.interval().toMillis();
+      flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "journal-flusher");
+        thread.setDaemon(true);
+        return thread;
+      });
+      flusher.scheduleWithFixedDelay(this::flushOnTimer, millis, millis, TimeUnit.MILLISECONDS);
+    } else {
+      flusher = null;
+    }
+  }
+
+  /**
+   * Открываем журнал: проигрываем его в сервис, отрезаем недописанный хвост и подписываемся
+   * на дальнейшие изменения сервиса.
+   */
+  public static TransactionJournal open(Path path, TransactionService service, FsyncPolicy policy)
+      throws IOException {
+    long generation = service.getSnapshotGeneration();
+    long validBytes = Files.exists(path) ? replay(path, service, generation) : 0;
+
+    FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE,
+        StandardOpenOption.READ, StandardOpenOption.WRITE);
+    try {
+      if (validBytes < FILE_HEADER_BYTES) {
+        reset(channel, generation);
+        validBytes = FILE_HEADER_BYTES;
+      } else if (channel.size() > validBytes) {
+        channel.truncate(validBytes);
+        channel.force(true);
+      }
+      channel.position(validBytes);
+    } catch (IOException e) {
+      channel.close();
+      throw e;
+    }
+
+    TransactionJournal journal = new TransactionJournal(channel, policy);
+    service.addListener(journal);
+    return journal;
+  }
+
+  @Override
+  public void onAdd(Transaction transaction) {
+    byte[] description = descriptionBytes(transaction);
+    byte[] unscaled = transaction.getSum().unscaledValue().toByteArray();
+
+    lock.lock();
+    try {
+      appendAdd(transaction, description, unscaled);
+      awaitDurable();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Пачку дописываем целиком и ждём сброса один раз, а не после каждой записи.
+   */
+  @Override
+  public void onAddAll(List<Transaction> transactions) {
+    lock.lock();
+    try {
+      for (Transaction transaction : transactions) {
+        appendAdd(transaction, descriptionBytes(transaction),
+            transaction.getSum().unscaledValue().toByteArray());
+      }
+      awaitDurable();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public void onDelete(Transaction transaction) {
+    lock.lock();
+    try {
+      int payloadBytes = 1 + 4;
+      ByteBuffer buffer = beginRecord(payloadBytes);
+      buffer.put(OP_DELETE).putInt(transaction.getId());
+      sealRecord(buffer, payloadBytes);
+      awaitDurable();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Все записи журнала вошли в снимок: дописываем накопленное и обнуляем файл с новым номером.
+   * Закрытый журнал не трогаем — при следующем открытии он окажется старше снимка.
+   */
+  @Override
+  public void onCheckpoint(long generation) {
+    lock.lock();
+    try {
+      if (closed) {
+        return;
+      }
+      awaitFlushed(appendedSeq);
+      reset(channel, generation);
+      channel.position(FILE_HEADER_BYTES);
+      unforced = false;
+    } catch (IOException e) {
+      failure = e;
+      throw new UncheckedIOException("Не удалось обнулить журнал", e);
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Сбрасываем накопленные записи на диск с fsync.
+   */
+  public void flush() {
+    lock.lock();
+    try {
+      awaitFlushed(appendedSeq);
+      if (unforced) {
+        forceChannel();
+      }
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public void close() throws IOException {
+    if (flusher != null) {
+      flusher.shutdownNow();
+    }
+    lock.lock();
+    try {
+      if (closed) {
+        return;
+      }
+      try {
+        flush();
+      } finally {
+        closed = true;
+        channel.close();
+      }
+    } catch (UncheckedIOException e) {
+      throw e.getCause();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  private static void reset(FileChannel channel, long generation) throws IOException {
+    channel.truncate(0);
+    channel.write(header(generation), 0);
+    channel.force(true);
+  }
+
+  private static ByteBuffer header(long generation) {
+    return ByteBuffer.allocate(FILE_HEADER_BYTES)
+        .putInt(MAGIC).putInt(VERSION).putLong(generation)
+        .flip();
+  }
+
+  private ByteBuffer beginRecord(int payloadBytes) {
+    if (closed) {
+      throw new IllegalStateException("Журнал закрыт");
+    }
+    if (failure != null) {
+      throw new UncheckedIOException("Журнал недоступен после ошибки записи", failure);
+    }
+    int required = RECORD_HEADER_BYTES + payloadBytes;
+    if (pending.remaining() < required) {
+      int capacity = Math.max(pending.capacity() * 2, pending.position() + required);
+      pending = ByteBuffer.allocate(capacity).put(pending.flip());
+    }
+    return pending.putInt(payloadBytes).putInt(0);
+  }
+
+  private static byte[] descriptionBytes(Transaction transaction) {
+    return transaction.getDescription() == null ? new byte[0]
+        : transaction.getDescription().getBytes(StandardCharsets.UTF_8);
+  }
+
+  private void appendAdd(Transaction transaction, byte[] description, byte[] unscaled) {
+    int payloadBytes = 1 + 4 + 4 + 1 + 1 + 4 + 2 + unscaled.length + 4 + description.length;
+    ByteBuffer buffer = beginRecord(payloadBytes);
+    buffer.put(OP_ADD)
+        .putInt(transaction.getId())
+        .putInt(Math.toIntExact(transaction.getDate().toEpochDay()))
+        .put((byte) transaction.getTransactionType().ordinal())
+        .put((byte) transaction.getCategory().ordinal())
+        .putInt(transaction.getSum().scale())
+        .putShort((short) unscaled.length)
+        .put(unscaled)
+        .putInt(description.length)
+        .put(description);
+    sealRecord(buffer, payloadBytes);
+  }
+
+  private void sealRecord(ByteBuffer buffer, int payloadBytes) {
+    int payloadStart = buffer.position() - payloadBytes;
+    crc.reset();
+    crc.update(buffer.array(), payloadStart, payloadBytes);
+    buffer.putInt(payloadStart - 4, (int) crc.getValue());
+    appendedSeq++;
+  }
+
+  /**
+   * Вне режима INTERVAL ждём, пока все дописанные записи уйдут в файл.
+   */
+  private void awaitDurable() {
+    if (policy.mode() != FsyncPolicy.Mode.INTERVAL) {
+      awaitFlushed(appendedSeq);
+    }
+  }
+
+  /**
+   * Ждём, пока запись с данным номером уйдёт в файл. Если сброс никто не выполняет, текущий
+   * поток сам становится ведущим и пишет всю накопленную пачку. Вызывается под замком.
+   */
+  private void awaitFlushed(long seq) {
+    while (flushedSeq < seq) {
+      if (failure != null) {
+        throw new UncheckedIOException("Не удалось записать журнал", failure);
+      }
+      if (flushing) {
+        flushed.awaitUninterruptibly();
+      } else {
+        flushBatch(policy.mode() != FsyncPolicy.Mode.OS_MANAGED);
+      }
+    }
+  }
+
+  private void flushBatch(boolean force) {
+    ByteBuffer batch = pending;
+    pending = spare;
+    long batchSeq = appendedSeq;
+    flushing = true;
+    lock.unlock();
+    IOException error = null;
+    try {
+      batch.flip();
+      while (batch.hasRemaining()) {
+        channel.write(batch);
+      }
+      if (force) {
+        channel.force(false);
+      }
+    } catch (IOException e) {
+      error = e;
+    } finally {
+      lock.lock();
+      spare = batch.clear();
+      flushing = false;
+      if (error == null) {
+        flushedSeq = batchSeq;
+        unforced = !force;
+      } else {
+        failure = error;
+      }
+      flushed.signalAll();
+    }
+  }
+
+  private void forceChannel() {
+    try {
+      channel.force(false);
+      unforced = false;
+    } catch (IOException e) {
+      failure = e;
+      throw new UncheckedIOException("Не удалось записать журнал", e);
+    }
+  }
+
+  private void flushOnTimer() {
+    lock.lock();
+    try {
+      if (!closed && failure == null && !flushing && flushedSeq < appendedSeq) {
+        flushBatch(true);
+      }
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Проигрываем записи журнала в сервис и возвращаем длину корректной части файла; 0 значит,
+   * что журнал пуст или уже вошёл в снимок и его нужно начать заново.
+   */
+  private static long replay(Path path, TransactionService service, long generation)
+      throws IOException {
+    int version;
+    long validBytes;
+    try (DataInputStream in = new DataInputStream(
+        new BufferedInputStream(Files.newInputStream(path), INITIAL_BUFFER_BYTES))) {
+      long journalGeneration;
+      try {
+        if (in.readInt() != MAGIC) {
+          throw new IOException("Файл " + path + " не является журналом транзакций");
+        }
+        version = in.readInt();
+        if (version == VERSION) {
+          journalGeneration = in.readLong();
+        } else if (version == VERSION_WITHOUT_GENERATION) {
+          journalGeneration = 0;
+        } else {
+          throw new IOException("Журнал " + path + " версии " + version
+              + " не поддерживается");
+        }
+      } catch (EOFException e) {
+        return 0;
+      }
+      if (version == VERSION_WITHOUT_GENERATION && generation > 0) {
+        throw new IOException("Журнал " + path + " первой версии не может продолжать снимок: "
+            + "откройте его без снимка");
+      }
+      if (journalGeneration < generation) {
+        return 0;
+      }
+      if (journalGeneration > generation) {
+        throw new IOException("Журнал " + path + " новее снимка: контрольная точка "
+            + journalGeneration + ", а в снимке " + generation);
+      }
+      validBytes = replayRecords(in, service, version == VERSION
+          ? FILE_HEADER_BYTES : FILE_HEADER_WITHOUT_GENERATION_BYTES);
+    }
+    return version == VERSION ? validBytes : upgrade(path, validBytes, generation);
+  }
+
+  /**
+   * Проигрываем записи, идущие за заголовком длиной headerBytes, и возвращаем длину корректной
+   * части файла.
+   */
+  private static long replayRecords(DataInputStream in, TransactionService service,
+      int headerBytes) throws IOException {
+    long validBytes = headerBytes;
+    byte[] payload = new byte[256];
+    CRC32 checksum = new CRC32();
+    while (true) {
+      int length;
+      int expectedCrc;
+      try {
+        length = in.readInt();
+        expectedCrc = in.readInt();
+        if (length <= 0 || length > MAX_PAYLOAD_BYTES) {
+          return validBytes;
+        }
+        if (payload.length < length) {
+          payload = new byte[Math.max(length, payload.length * 2)];
+        }
+        in.readFully(payload, 0, length);
+      } catch (EOFException e) {
+        return validBytes;
+      }
+      checksum.reset();
+      checksum.update(payload, 0, length);
+      if ((int) checksum.getValue() != expectedCrc) {
+        return validBytes;
+      }
+      apply(ByteBuffer.wrap(payload, 0, length), service);
+      validBytes += RECORD_HEADER_BYTES + length;
+    }
+  }
+
+  /**
+   * Переписываем журнал первой версии в текущий формат: записи копируются как есть, заголовок
+   * получает номер контрольной точки. Файл подменяется атомарно, так что сбой оставляет прежний
+   * журнал, который при следующем открытии проиграется снова.
+   */
+  private static long upgrade(Path path, long validBytes, long generation) throws IOException {
+    long recordBytes = validBytes - FILE_HEADER_WITHOUT_GENERATION_BYTES;
+    Path temporary = path.resolveSibling(path.getFileName() + ".tmp");
+    try (FileChannel source = FileChannel.open(path, StandardOpenOption.READ);
+        FileChannel target = FileChannel.open(temporary, StandardOpenOption.CREATE,
+            StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+      target.write(header(generation));
+      for (long copied = 0; copied < recordBytes; ) {
+        copied += source.transferTo(FILE_HEADER_WITHOUT_GENERATION_BYTES + copied,
+            recordBytes - copied, target);
+      }
+      target.force(true);
+    }
+    Files.move(temporary, path, StandardCopyOption.ATOMIC_MOVE,
+        StandardCopyOption.REPLACE_EXISTING);
+    return FILE_HEADER_BYTES + recordBytes;
+  }
+
+  private static void apply(ByteBuffer record, TransactionService service) {
+    byte op = record.get();
+    int id = record.getInt();
+    if (op == OP_DELETE) {
+      service.deleteTransaction(id);
+      return;
+    }
+    LocalDate date = LocalDate.ofEpochDay(record.getInt());
+    TransactionType type = TransactionType.values()[record.get()];
+    Category category = Category.values()[record.get()];
+    int scale = record.getInt();
+    byte[] unscaled = new byte[record.getShort()];
+    record.get(unscaled);
+    byte[] description = new byte[record.getInt()];
+    record.get(description);
+
+    service.restoreTransaction(new Transaction(id, new String(description, StandardCharsets.UTF_8),
+        new BigDecimal(new BigInteger(unscaled), scale), date, category, type));
+  }
+}
@@ -0,0 +1,30 @@
+package ru.mentee.power.fintrack.service;
+
+import java.math.BigDecimal;
+
+/**
+ * Распределение сумм транзакций, полученное из {@link TransactionService}: число транзакций
+ * и квантили с погрешностью не больше 1%.
+ */
+public final class AmountDistribution {
+
+  private final AmountSketch sketch;
+
+  AmountDistribution(AmountSketch sketch) {
+    this.sketch = sketch;
+  }
+
+  public long count() {
+    return sketch.count();
+  }
+
+  /**
+   * Возвращаем сумму, не больше которой доля q транзакций, или null, если транзакций нет.
+   */
+  public BigDecimal quantile(double q) {
+    if (q < 0 || q > 1) {
+      throw new IllegalArgumentException("Квантиль должен быть от 0 до 1");
+    }
+    return sketch.quantile(q);
+  }
+}
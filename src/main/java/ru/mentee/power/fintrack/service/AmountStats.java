@@ -0,0 +1,101 @@
+package ru.mentee.power.fintrack.service;
+
+import java.util.List;
+import ru.mentee.power.fintrack.model.Transaction;
+import ru.mentee.power.fintrack.model.Transaction.Category;
+import ru.mentee.power.fintrack.model.Transaction.TransactionType;
+
+/**
+ * Распределение сумм и самые крупные транзакции по каждой паре тип–категория.
+ *
+ * <p>Обновляется при добавлении и удалении за O(log {@value TopAmounts#CAPACITY}) и занимает
+ * фиксированную память на пару, сколько бы транзакций в ней ни было.
+ */
+final class AmountStats {
+
+  private static final TransactionType[] TYPES = TransactionType.values();
+  private static final Category[] CATEGORIES = Category.values();
+
+  private final AmountSketch[] sketches = new AmountSketch[TYPES.length * CATEGORIES.length];
+  private final TopAmounts[] tops = new TopAmounts[sketches.length];
+
+  AmountStats() {
+    for (int cell = 0; cell < sketches.length; cell++) {
+      sketches[cell] = new AmountSketch();
+      tops[cell] = new TopAmounts();
+    }
+  }
+
+  void add(Transaction transaction) {
+    int cell = cellOf(transaction.getTransactionType(), transaction.getCategory());
+    sketches[cell].add(transaction.getSum());
+    tops[cell].add(transaction);
+  }
+
+  void remove(Transaction transaction) {
+    int cell = cellOf(transaction.getTransactionType(), transaction.getCategory());
+    sketches[cell].remove(transaction.getSum());
+    tops[cell].remove(transaction);
+  }
+
+  /**
+   * Добавляем в sketch распределения подходящих пар; null означает любое значение.
+   */
+  void mergeInto(AmountSketch sketch, TransactionType type, Category category) {
+    for (TransactionType cellType : TYPES) {
+      for (Category cellCategory : CATEGORIES) {
+        if (matches(cellType, cellCategory, type, category)) {
+          sketch.merge(sketches[cellOf(cellType, cellCategory)]);
+        }
+      }
+    }
+  }
+
+  /**
+   * Добавляем в candidates вершины подходящих куч и возвращаем false, если какая-то из них не
+   * знает limit своих лучших транзакций.
+   */
+  boolean collectTop(List<Transaction> candidates, TransactionType type, Category category,
+      int limit) {
+    boolean covered = true;
+    for (TransactionType cellType : TYPES) {
+      for (Category cellCategory : CATEGORIES) {
+        if (matches(cellType, cellCategory, type, category)) {
+          TopAmounts top = tops[cellOf(cellType, cellCategory)];
+          top.copyTo(candidates);
+          covered &= top.covers(limit);
+        }
+      }
+    }
+    return covered;
+  }
+
+  /**
+   * Очищаем кучи подходящих пар перед перестройкой; распределения не меняются.
+   */
+  void clearTop(TransactionType type, Category category) {
+    for (TransactionType cellType : TYPES) {
+      for (Category cellCategory : CATEGORIES) {
+        if (matches(cellType, cellCategory, type, category)) {
+          tops[cellOf(cellType, cellCategory)].clear();
+        }
+      }
+    }
+  }
+
+  /**
+   * Добавляем транзакцию только в кучу её пары при перестройке.
+   */
+  void addTop(Transaction transaction) {
+    tops[cellOf(transaction.getTransactionType(), transaction.getCategory())].add(transaction);
+  }
+
+  private static boolean matches(TransactionType cellType, Category cellCategory,
+      TransactionType type, Category category) {
+    return (type == null || type == cellType) && (category == null || category == cellCategory);
+  }
+
+  private static int cellOf(TransactionType type, Category category) {
+    return type.ordinal() * CATEGORIES.length + category.ordinal();
+  }
+}
@@ -0,0 +1,363 @@
+package ru.mentee.power.fintrack.service;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+import ru.mentee.power.fintrack.model.Transaction;
+import ru.mentee.power.fintrack.model.Transaction.Category;
+import ru.mentee.power.fintrack.model.Transaction.TransactionType;
+
+/**
+ * Неизменяемый сжатый файл с транзакциями одного месяца.
+ *
+ * <p>Формат: {@code magic, version}, затем записи в порядке {@link TransactionKey}, сжатые
+ * Deflate, затем несжатый подвал: месяц, число записей, наименьший и наибольший id и итоги по
+ * типам и категориям; в конце — смещение подвала. Подвал держится в памяти, поэтому выборки
+ * пропускают сегменты без подходящих записей, не читая файл. Записи разбираются по требованию
+ * и кэшируются в {@link ArchiveStore}.
+ */
+final class ArchiveSegment {
+
+  private static final int MAGIC = 0x46544131;
+  private static final int VERSION = 1;
+  private static final int HEADER_BYTES = 8;
+  private static final int TRAILER_BYTES = 12;
+  private static final TransactionType[] TYPES = TransactionType.values();
+  private static final Category[] CATEGORIES = Category.values();
+
+  private final Path path;
+  private final YearMonth month;
+  private final int rowCount;
+  private final int minId;
+  private final int maxId;
+  private final CategoryTotals totals;
+
+  private ArchiveSegment(Path path, YearMonth month, int rowCount, int minId, int maxId,
+      CategoryTotals totals) {
+    this.path = path;
+    this.month = month;
+    this.rowCount = rowCount;
+    this.minId = minId;
+    this.maxId = maxId;
+    this.totals = totals;
+  }
+
+  /**
+   * Пишем отсортированные по ключу транзакции месяца в файл и возвращаем сегмент.
+   */
+  static ArchiveSegment write(Path path, YearMonth month, List<Transaction> sorted)
+      throws IOException {
+    CategoryTotals totals = new CategoryTotals();
+    int minId = Integer.MAX_VALUE;
+    int maxId = Integer.MIN_VALUE;
+    Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+    try (DataOutputStream out = new DataOutputStream(
+        new BufferedOutputStream(Files.newOutputStream(path)))) {
+      out.writeInt(MAGIC);
+      out.writeInt(VERSION);
+      DeflaterOutputStream deflated = new DeflaterOutputStream(out, deflater);
+      DataOutputStream rows = new DataOutputStream(deflated);
+      for (Transaction transaction : sorted) {
+        writeRow(rows, transaction);
+        totals.add(transaction);
+        minId = Math.min(minId, transaction.getId());
+        maxId = Math.max(maxId, transaction.getId());
+      }
+      deflated.finish();
+
+      long footerOffset = out.size();
+      out.writeInt(month.getYear());
+      out.writeInt(month.getMonthValue());
+      out.writeInt(sorted.size());
+      out.writeInt(minId);
+      out.writeInt(maxId);
+      writeTotals(out, totals);
+      out.writeLong(footerOffset);
+      out.writeInt(MAGIC);
+    } finally {
+      deflater.end();
+    }
+    return new ArchiveSegment(path, month, sorted.size(), minId, maxId, totals);
+  }
+
+  /**
+   * Открываем сегмент, записанный раньше: читается только подвал, записи не разбираются.
+   */
+  static ArchiveSegment open(Path path) throws IOException {
+    try (FileChannel channel = FileChannel.open(path)) {
+      long size = channel.size();
+      ByteBuffer trailer = ByteBuffer.allocate(TRAILER_BYTES);
+      if (size < HEADER_BYTES + TRAILER_BYTES
+          || channel.read(trailer, size - TRAILER_BYTES) != TRAILER_BYTES
+          || trailer.getInt(8) != MAGIC) {
+        throw new IOException("Файл не является архивным сегментом: " + path);
+      }
+      long footerOffset = trailer.getLong(0);
+      if (footerOffset < HEADER_BYTES || footerOffset > size - TRAILER_BYTES) {
+        throw new IOException("Повреждён подвал архивного сегмента: " + path);
+      }
+      ByteBuffer footer = ByteBuffer.allocate((int) (size - TRAILER_BYTES - footerOffset));
+      while (footer.hasRemaining()) {
+        if (channel.read(footer, footerOffset + footer.position()) < 0) {
+          throw new IOException("Повреждён подвал архивного сегмента: " + path);
+        }
+      }
+      try (DataInputStream in = new DataInputStream(
+          new ByteArrayInputStream(footer.array()))) {
+        YearMonth month = YearMonth.of(in.readInt(), in.readInt());
+        int rowCount = in.readInt();
+        int minId = in.readInt();
+        int maxId = in.readInt();
+        return new ArchiveSegment(path, month, rowCount, minId, maxId, readTotals(in));
+      }
+    }
+  }
+
+  Path path() {
+    return path;
+  }
+
+  YearMonth month() {
+    return month;
+  }
+
+  int rowCount() {
+    return rowCount;
+  }
+
+  /**
+   * Итоги сегмента из подвала; записи для них не разбираются.
+   */
+  CategoryTotals totals() {
+    return totals;
+  }
+
+  /**
+   * Может ли в сегменте быть транзакция с таким id.
+   */
+  boolean mayContain(int id) {
+    return id >= minId && id <= maxId;
+  }
+
+  /**
+   * Есть ли в сегменте записи с таким типом и категорией; null означает любое значение.
+   */
+  boolean mayMatch(TransactionType type, Category category) {
+    for (TransactionType rowType : TYPES) {
+      for (Category rowCategory : CATEGORIES) {
+        if ((type == null || type == rowType) && (category == null || category == rowCategory)
+            && totals.count(rowType, rowCategory) > 0) {
+          return true;
+        }
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Читаем файл и разбираем записи.
+   */
+  Rows decode() throws IOException {
+    byte[] bytes = Files.readAllBytes(path);
+    ByteBuffer buffer = ByteBuffer.wrap(bytes);
+    if (bytes.length < HEADER_BYTES + TRAILER_BYTES || buffer.getInt(0) != MAGIC
+        || buffer.getInt(bytes.length - 4) != MAGIC) {
+      throw new IOException("Файл не является архивным сегментом: " + path);
+    }
+    if (buffer.getInt(4) != VERSION) {
+      throw new IOException("Неподдерживаемая версия сегмента: " + buffer.getInt(4));
+    }
+    int footerOffset = (int) buffer.getLong(bytes.length - TRAILER_BYTES);
+    int count = buffer.getInt(footerOffset + 8);
+    if (count != rowCount) {
+      throw new IOException("Подвал сегмента не совпадает с записанным: " + path);
+    }
+
+    Transaction[] rows = new Transaction[count];
+    try (DataInputStream input = new DataInputStream(new BufferedInputStream(
+        new InflaterInputStream(new ByteArrayInputStream(bytes, HEADER_BYTES,
+            footerOffset - HEADER_BYTES))))) {
+      for (int i = 0; i < count; i++) {
+        rows[i] = readRow(input);
+      }
+    }
+    return new Rows(rows);
+  }
+
+  private static void writeRow(DataOutputStream out, Transaction transaction)
+      throws IOException {
+    out.writeInt(transaction.getId());
+    out.writeInt(Math.toIntExact(transaction.getDate().toEpochDay()));
+    out.writeByte(transaction.getTransactionType().ordinal());
+    out.writeByte(transaction.getCategory().ordinal());
+    writeDecimal(out, transaction.getSum());
+    byte[] description = transaction.getDescription() == null ? new byte[0]
+        : transaction.getDescription().getBytes(StandardCharsets.UTF_8);
+    out.writeInt(description.length);
+    out.write(description);
+  }
+
+  private static Transaction readRow(DataInputStream in) throws IOException {
+    int id = in.readInt();
+    LocalDate date = LocalDate.ofEpochDay(in.readInt());
+    TransactionType type = TYPES[in.readUnsignedByte()];
+    Category category = CATEGORIES[in.readUnsignedByte()];
+    BigDecimal sum = readDecimal(in);
+    byte[] description = new byte[in.readInt()];
+    in.readFully(description);
+    return new Transaction(id, new String(description, StandardCharsets.UTF_8), sum, date,
+        category, type);
+  }
+
+  private static void writeTotals(DataOutputStream out, CategoryTotals totals)
+      throws IOException {
+    for (TransactionType type : TYPES) {
+      for (Category category : CATEGORIES) {
+        out.writeInt(totals.count(type, category));
+        writeDecimal(out, totals.sum(type, category));
+      }
+    }
+  }
+
+  private static CategoryTotals readTotals(DataInputStream in) throws IOException {
+    CategoryTotals totals = new CategoryTotals();
+    for (TransactionType type : TYPES) {
+      for (Category category : CATEGORIES) {
+        int count = in.readInt();
+        totals.add(type, category, readDecimal(in), count);
+      }
+    }
+    return totals;
+  }
+
+  private static void writeDecimal(DataOutputStream out, BigDecimal value) throws IOException {
+    byte[] unscaled = value.unscaledValue().toByteArray();
+    out.writeInt(value.scale());
+    out.writeShort(unscaled.length);
+    out.write(unscaled);
+  }
+
+  private static BigDecimal readDecimal(DataInputStream in) throws IOException {
+    int scale = in.readInt();
+    byte[] unscaled = new byte[in.readUnsignedShort()];
+    in.readFully(unscaled);
+    return new BigDecimal(new BigInteger(unscaled), scale);
+  }
+
+  /**
+   * Разобранные записи сегмента в порядке ключей и индекс их позиций по id.
+   */
+  static final class Rows {
+
+    private final Transaction[] byKey;
+    private final long[] idPositions;
+
+    private Rows(Transaction[] byKey) {
+      this.byKey = byKey;
+      this.idPositions = new long[byKey.length];
+      for (int i = 0; i < byKey.length; i++) {
+        idPositions[i] = (long) byKey[i].getId() << 32 | i;
+      }
+      Arrays.sort(idPositions);
+    }
+
+    /**
+     * Находим запись по id двоичным поиском или возвращаем null.
+     */
+    Transaction find(int id) {
+      int low = 0;
+      int high = idPositions.length - 1;
+      while (low <= high) {
+        int middle = (low + high) >>> 1;
+        int middleId = (int) (idPositions[middle] >> 32);
+        if (middleId < id) {
+          low = middle + 1;
+        } else if (middleId > id) {
+          high = middle - 1;
+        } else {
+          return byKey[(int) idPositions[middle]];
+        }
+      }
+      return null;
+    }
+
+    /**
+     * Обходим записи с номерами [from, to) в порядке ключей.
+     */
+    Iterator<Transaction> range(int from, int to) {
+      return Arrays.asList(byKey).subList(from, to).iterator();
+    }
+
+    /**
+     * Обходим записи с ключами в (after, upTo] с подходящими типом и категорией.
+     */
+    Iterator<Transaction> select(TransactionType type, Category category, TransactionKey after,
+        TransactionKey upTo) {
+      int from = after == null ? 0 : firstAfter(after);
+      int to = upTo == null ? byKey.length : firstAfter(upTo);
+      if (from >= to) {
+        return Collections.emptyIterator();
+      }
+      return new Iterator<>() {
+        private int next = skip(from);
+
+        @Override
+        public boolean hasNext() {
+          return next < to;
+        }
+
+        @Override
+        public Transaction next() {
+          if (next >= to) {
+            throw new NoSuchElementException();
+          }
+          Transaction transaction = byKey[next];
+          next = skip(next + 1);
+          return transaction;
+        }
+
+        private int skip(int position) {
+          while (position < to && (type != null && byKey[position].getTransactionType() != type
+              || category != null && byKey[position].getCategory() != category)) {
+            position++;
+          }
+          return position;
+        }
+      };
+    }
+
+    private int firstAfter(TransactionKey key) {
+      int low = 0;
+      int high = byKey.length;
+      while (low < high) {
+        int middle = (low + high) >>> 1;
+        if (key.compareTo(byKey[middle]) >= 0) {
+          low = middle + 1;
+        } else {
+          high = middle;
+        }
+      }
+      return low;
+    }
+  }
+}
@@ -0,0 +1,250 @@
+package ru.mentee.power.fintrack.service;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import ru.mentee.power.fintrack.model.Transaction;
+
+/**
+ * Каталог архивных сегментов и LRU-кэш их разобранных записей.
+ *
+ * <p>В памяти одновременно держится не больше capacity разобранных сегментов; давно не
+ * читанный вытесняется первым.
+ *
+ * <p>Сегменты переживают перезапуск: оглавление {@value #MANIFEST} перечисляет их вместе с
+ * номером контрольной точки снимка, поверх которого они вынесены. Снимок включает и архивные
+ * транзакции, поэтому после его сохранения оглавление обнуляется, а оглавление с чужим номером
+ * при открытии отбрасывается вместе с сегментами. Файлы сегментов, которых нет в оглавлении,
+ * — остатки прерванного выноса или прежних контрольных точек — при открытии удаляются. Всё,
+ * что лежит в архиве, есть и в журнале, поэтому повреждённое оглавление тоже отбрасывается:
+ * журнал вернёт эти транзакции в память.
+ */
+final class ArchiveStore {
+
+  private static final String SUFFIX = ".segment";
+  private static final String MANIFEST = "archive.manifest";
+  private static final int MANIFEST_MAGIC = 0x46544D31;
+  private static final int MANIFEST_VERSION = 1;
+
+  private final Path directory;
+  private final int capacity;
+  private final Map<ArchiveSegment, ArchiveSegment.Rows> decoded;
+  private final AtomicInteger sequence;
+  private final LongAdder decodes = new LongAdder();
+  private final List<ArchiveSegment> restored;
+  private final BitSet restoredIds = new BitSet();
+  private final List<ArchiveSegment> persisted;
+  private long generation;
+
+  private ArchiveStore(Path directory, int capacity, long generation,
+      List<ArchiveSegment> restored, int nextSequence) {
+    this.directory = directory;
+    this.capacity = capacity;
+    this.generation = generation;
+    this.restored = List.copyOf(restored);
+    this.persisted = new ArrayList<>(restored);
+    this.sequence = new AtomicInteger(nextSequence);
+    this.decoded = new LinkedHashMap<>(16, 0.75f, true) {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<ArchiveSegment, ArchiveSegment.Rows> eldest) {
+        return size() > ArchiveStore.this.capacity;
+      }
+    };
+  }
+
+  /**
+   * Открываем каталог архива, создавая его при необходимости. Сегменты из оглавления с номером
+   * контрольной точки generation сохраняются (см. {@link #restored()}), остальные удаляются.
+   */
+  static ArchiveStore open(Path directory, int capacity, long generation) throws IOException {
+    if (capacity <= 0) {
+      throw new IllegalArgumentException("Размер кэша сегментов должен быть больше нуля");
+    }
+    Files.createDirectories(directory);
+    List<ArchiveSegment> kept = readManifest(directory, generation);
+    Set<Path> keptPaths = new HashSet<>();
+    int nextSequence = 0;
+    for (ArchiveSegment segment : kept) {
+      keptPaths.add(segment.path());
+      nextSequence = Math.max(nextSequence, sequenceOf(segment.path()) + 1);
+    }
+    try (DirectoryStream<Path> stale = Files.newDirectoryStream(directory, "*" + SUFFIX)) {
+      for (Path segment : stale) {
+        if (!keptPaths.contains(segment)) {
+          Files.delete(segment);
+        }
+      }
+    }
+    ArchiveStore store = new ArchiveStore(directory, capacity, generation, kept, nextSequence);
+    store.writeManifest();
+    return store;
+  }
+
+  /**
+   * Сегменты прежних запусков, сохранённые при открытии, от нового месяца к старому.
+   */
+  List<ArchiveSegment> restored() {
+    return restored;
+  }
+
+  /**
+   * Отмечаем id транзакции из сегмента прежнего запуска; вызывается при загрузке архива.
+   */
+  void markRestored(int id) {
+    restoredIds.set(id);
+  }
+
+  /**
+   * Лежит ли транзакция в сегменте прежнего запуска — тогда её запись в журнале пропускается.
+   */
+  boolean isRestored(int id) {
+    return id >= 0 && restoredIds.get(id);
+  }
+
+  /**
+   * Пишем транзакции месяца, отсортированные по ключу, в новый сегмент. В оглавление он
+   * попадает только после {@link #commit(List)}.
+   */
+  ArchiveSegment write(YearMonth month, List<Transaction> sorted) throws IOException {
+    Path path = directory.resolve(month + "-" + sequence.getAndIncrement() + SUFFIX);
+    return ArchiveSegment.write(path, month, sorted);
+  }
+
+  /**
+   * Вносим записанные сегменты в оглавление. Вызывается под замками всех полос сервиса.
+   */
+  void commit(List<ArchiveSegment> segments) throws IOException {
+    persisted.addAll(segments);
+    writeManifest();
+  }
+
+  /**
+   * Сохранён снимок с номером generation: все архивные транзакции вошли в него, поэтому
+   * оглавление обнуляется. Файлы остаются, пока их читает этот запуск, и удаляются при
+   * следующем открытии. Вызывается под замками всех полос сервиса.
+   */
+  void checkpoint(long generation) throws IOException {
+    this.generation = generation;
+    persisted.clear();
+    writeManifest();
+  }
+
+  /**
+   * Возвращаем записи сегмента из кэша, разбирая файл при промахе. Файл читается вне замка,
+   * поэтому промахи по разным сегментам не ждут друг друга.
+   */
+  ArchiveSegment.Rows rows(ArchiveSegment segment) {
+    synchronized (decoded) {
+      ArchiveSegment.Rows rows = decoded.get(segment);
+      if (rows != null) {
+        return rows;
+      }
+    }
+    ArchiveSegment.Rows rows;
+    try {
+      rows = segment.decode();
+    } catch (IOException e) {
+      throw new UncheckedIOException("Не удалось прочитать архивный сегмент", e);
+    }
+    decodes.increment();
+    synchronized (decoded) {
+      decoded.put(segment, rows);
+    }
+    return rows;
+  }
+
+  /**
+   * Сколько раз сегменты читались с диска.
+   */
+  long decodes() {
+    return decodes.sum();
+  }
+
+  /**
+   * Читаем сегменты из оглавления; пустой список, если оглавления нет, оно с другим номером
+   * контрольной точки или его либо сегменты не удаётся прочитать.
+   */
+  private static List<ArchiveSegment> readManifest(Path directory, long generation) {
+    Path manifest = directory.resolve(MANIFEST);
+    if (!Files.exists(manifest)) {
+      return List.of();
+    }
+    try (DataInputStream in = new DataInputStream(
+        new BufferedInputStream(Files.newInputStream(manifest)))) {
+      if (in.readInt() != MANIFEST_MAGIC || in.readInt() != MANIFEST_VERSION
+          || in.readLong() != generation) {
+        return List.of();
+      }
+      int count = in.readInt();
+      List<ArchiveSegment> segments = new ArrayList<>(count);
+      for (int i = 0; i < count; i++) {
+        segments.add(ArchiveSegment.open(directory.resolve(in.readUTF())));
+      }
+      segments.sort(LedgerView.NEWEST_MONTH_FIRST);
+      return segments;
+    } catch (IOException e) {
+      return List.of();
+    }
+  }
+
+  /**
+   * Переписываем оглавление во временный файл и атомарно подменяем им прежнее.
+   */
+  private void writeManifest() throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try (DataOutputStream out = new DataOutputStream(bytes)) {
+      out.writeInt(MANIFEST_MAGIC);
+      out.writeInt(MANIFEST_VERSION);
+      out.writeLong(generation);
+      out.writeInt(persisted.size());
+      for (ArchiveSegment segment : persisted) {
+        out.writeUTF(segment.path().getFileName().toString());
+      }
+    }
+    Path manifest = directory.resolve(MANIFEST);
+    Path temporary = manifest.resolveSibling(MANIFEST + ".tmp");
+    try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE,
+        StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+      ByteBuffer buffer = ByteBuffer.wrap(bytes.toByteArray());
+      while (buffer.hasRemaining()) {
+        channel.write(buffer);
+      }
+      channel.force(true);
+    }
+    Files.move(temporary, manifest, StandardCopyOption.ATOMIC_MOVE,
+        StandardCopyOption.REPLACE_EXISTING);
+  }
+
+  /**
+   * Порядковый номер из имени файла {@code <месяц>-<номер>.segment}.
+   */
+  private static int sequenceOf(Path segment) {
+    String name = segment.getFileName().toString();
+    String stem = name.substring(0, name.length() - SUFFIX.length());
+    try {
+      return Integer.parseInt(stem.substring(stem.lastIndexOf('-') + 1));
+    } catch (NumberFormatException e) {
+      return -1;
+    }
+  }
+}
@@ -0,0 +1,19 @@
+package ru.mentee.power.fintrack.service;
+
+import java.math.BigDecimal;
+import ru.mentee.power.fintrack.model.Transaction.Category;
+
+/**
+ * Лимит расходов по категории за каждый период.
+ */
+public record Budget(Category category, BudgetPeriod period, BigDecimal limit) {
+
+  public Budget {
+    if (category == null || period == null) {
+      throw new IllegalArgumentException("Категория и период бюджета обязательны");
+    }
+    if (limit == null || limit.signum() <= 0) {
+      throw new IllegalArgumentException("Лимит бюджета должен быть положительным");
+    }
+  }
+}
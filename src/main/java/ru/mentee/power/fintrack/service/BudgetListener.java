@@ -0,0 +1,19 @@
+package ru.mentee.power.fintrack.service;
+
+/**
+ * Слушатель превышения бюджетов в {@link TransactionService}.
+ *
+ * <p>Вызывается в потоке писателя после изменения, когда замки полос уже сняты, поэтому может
+ * писать в медленный вывод и обращаться к сервису. Переходы из разных потоков могут прийти не в
+ * том порядке, в каком менялись счётчики; текущее состояние — {@link
+ * TransactionService#getBudgetStatus}.
+ */
+@FunctionalInterface
+public interface BudgetListener {
+
+  /**
+   * Расходы периода перешли через лимит: превысили его при добавлении
+   * ({@link BudgetStatus#exceeded()}) или вернулись в него при удалении.
+   */
+  void onBudgetCrossed(BudgetStatus status);
+}
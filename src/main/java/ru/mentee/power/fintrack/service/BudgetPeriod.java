@@ -0,0 +1,26 @@
+package ru.mentee.power.fintrack.service;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+
+/**
+ * Период, за который действует лимит бюджета: календарный месяц или год.
+ */
+public enum BudgetPeriod {
+  MONTH,
+  YEAR;
+
+  /**
+   * Возвращаем первый день периода, в который попадает date.
+   */
+  public LocalDate start(LocalDate date) {
+    return this == MONTH ? date.withDayOfMonth(1) : date.withDayOfYear(1);
+  }
+
+  /**
+   * Возвращаем первый день периода, в который попадает month.
+   */
+  LocalDate start(YearMonth month) {
+    return start(month.atDay(1));
+  }
+}
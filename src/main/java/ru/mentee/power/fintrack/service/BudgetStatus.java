@@ -0,0 +1,21 @@
+package ru.mentee.power.fintrack.service;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * Расходы по бюджету за период, начинающийся с periodStart.
+ */
+public record BudgetStatus(Budget budget, LocalDate periodStart, BigDecimal spent) {
+
+  /**
+   * Сколько ещё можно потратить; отрицательно, если лимит превышен.
+   */
+  public BigDecimal remaining() {
+    return budget.limit().subtract(spent);
+  }
+
+  public boolean exceeded() {
+    return spent.compareTo(budget.limit()) > 0;
+  }
+}
@@ -0,0 +1,68 @@
+package ru.mentee.power.fintrack.service;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import ru.mentee.power.fintrack.model.Transaction;
+
+/**
+ * Счётчики расходов бюджета по периодам.
+ *
+ * <p>Счётчики заводятся при установке бюджета по месячным суммам и дальше меняются на сумму
+ * каждой добавленной или удалённой транзакции, поэтому проверка лимита стоит O(1) при любом
+ * размере реестра. Писатели из разных полос меняют один счётчик под его собственным замком.
+ */
+final class BudgetTracker {
+
+  private final Budget budget;
+  private final Map<LocalDate, Spent> byPeriod = new ConcurrentHashMap<>();
+
+  /**
+   * Заводим счётчики по расходам категории бюджета за каждый месяц.
+   */
+  BudgetTracker(Budget budget, Map<YearMonth, BigDecimal> monthlyExpenses) {
+    this.budget = budget;
+    monthlyExpenses.forEach((month, amount) ->
+        byPeriod.computeIfAbsent(budget.period().start(month), start -> new Spent()).add(amount));
+  }
+
+  Budget budget() {
+    return budget;
+  }
+
+  /**
+   * Учитываем изменение расходов на delta по транзакции и возвращаем состояние бюджета, если
+   * расходы её периода перешли через лимит, иначе null.
+   */
+  BudgetStatus record(Transaction transaction, BigDecimal delta) {
+    LocalDate start = budget.period().start(transaction.getDate());
+    Spent spent = byPeriod.computeIfAbsent(start, key -> new Spent());
+    synchronized (spent) {
+      boolean wasExceeded = spent.amount.compareTo(budget.limit()) > 0;
+      spent.add(delta);
+      BudgetStatus status = new BudgetStatus(budget, start, spent.amount);
+      return status.exceeded() == wasExceeded ? null : status;
+    }
+  }
+
+  BudgetStatus status(LocalDate date) {
+    LocalDate start = budget.period().start(date);
+    Spent spent = byPeriod.get(start);
+    if (spent == null) {
+      return new BudgetStatus(budget, start, BigDecimal.ZERO);
+    }
+    synchronized (spent) {
+      return new BudgetStatus(budget, start, spent.amount);
+    }
+  }
+
+  private static final class Spent {
+    private BigDecimal amount = BigDecimal.ZERO;
+
+    private void add(BigDecimal delta) {
+      amount = amount.add(delta);
+    }
+  }
+}
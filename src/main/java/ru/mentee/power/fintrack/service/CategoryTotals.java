@@ -0,0 +1,167 @@
+package ru.mentee.power.fintrack.service;
+
+import java.math.BigDecimal;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.Map;
+import ru.mentee.power.fintrack.model.Transaction;
+import ru.mentee.power.fintrack.model.Transaction.Category;
+import ru.mentee.power.fintrack.model.Transaction.TransactionType;
+
+/**
+ * Накопительные суммы транзакций по типу и категории, обновляемые при добавлении и удалении.
+ */
+class CategoryTotals {
+
+  private final Map<TransactionType, EnumMap<Category, Cell>> cells =
+      new EnumMap<>(TransactionType.class);
+  private final Map<TransactionType, BigDecimal> typeTotals = new EnumMap<>(TransactionType.class);
+
+  CategoryTotals() {
+    for (TransactionType type : TransactionType.values()) {
+      EnumMap<Category, Cell> byCategory = new EnumMap<>(Category.class);
+      for (Category category : Category.values()) {
+        byCategory.put(category, new Cell());
+      }
+      cells.put(type, byCategory);
+      typeTotals.put(type, BigDecimal.ZERO);
+    }
+  }
+
+  /**
+   * Пересчитываем суммы с нуля полным проходом по транзакциям.
+   */
+  static CategoryTotals recompute(Collection<Transaction> transactions) {
+    CategoryTotals totals = new CategoryTotals();
+    transactions.forEach(totals::add);
+    return totals;
+  }
+
+  /**
+   * Учитываем транзакцию в суммах.
+   */
+  void add(Transaction transaction) {
+    TransactionType type = transaction.getTransactionType();
+    Cell cell = cells.get(type).get(transaction.getCategory());
+    cell.sum = cell.sum.add(transaction.getSum());
+    cell.count++;
+    typeTotals.merge(type, transaction.getSum(), BigDecimal::add);
+  }
+
+  /**
+   * Исключаем транзакцию из сумм.
+   */
+  void remove(Transaction transaction) {
+    TransactionType type = transaction.getTransactionType();
+    Cell cell = cells.get(type).get(transaction.getCategory());
+    cell.count--;
+    cell.sum = cell.count == 0 ? BigDecimal.ZERO : cell.sum.subtract(transaction.getSum());
+
+    boolean typeEmpty = cells.get(type).values().stream().allMatch(c -> c.count == 0);
+    typeTotals.put(type, typeEmpty ? BigDecimal.ZERO
+        : typeTotals.get(type).subtract(transaction.getSum()));
+  }
+
+  /**
+   * Добавляем к своим суммам суммы другого набора, например при сведении полос записи.
+   */
+  void merge(CategoryTotals other) {
+    for (TransactionType type : TransactionType.values()) {
+      for (Category category : Category.values()) {
+        Cell mine = cells.get(type).get(category);
+        Cell theirs = other.cells.get(type).get(category);
+        mine.sum = mine.sum.add(theirs.sum);
+        mine.count += theirs.count;
+      }
+      typeTotals.merge(type, other.typeTotals.get(type), BigDecimal::add);
+    }
+  }
+
+  /**
+   * Вычитаем из своих сумм суммы другого набора.
+   */
+  void subtract(CategoryTotals other) {
+    for (TransactionType type : TransactionType.values()) {
+      for (Category category : Category.values()) {
+        Cell mine = cells.get(type).get(category);
+        Cell theirs = other.cells.get(type).get(category);
+        mine.sum = mine.sum.subtract(theirs.sum);
+        mine.count -= theirs.count;
+      }
+      typeTotals.merge(type, other.typeTotals.get(type), BigDecimal::subtract);
+    }
+  }
+
+  /**
+   * Добавляем в ячейку готовую сумму и количество, например прочитанные из снимка.
+   */
+  void add(TransactionType type, Category category, BigDecimal sum, int count) {
+    Cell cell = cells.get(type).get(category);
+    cell.sum = cell.sum.add(sum);
+    cell.count += count;
+    typeTotals.merge(type, sum, BigDecimal::add);
+  }
+
+  BigDecimal sum(TransactionType type, Category category) {
+    return cells.get(type).get(category).sum;
+  }
+
+  int count(TransactionType type, Category category) {
+    return cells.get(type).get(category).count;
+  }
+
+  BigDecimal total(TransactionType type) {
+    return typeTotals.get(type);
+  }
+
+  /**
+   * Возвращаем суммы по категориям, в которых есть хотя бы одна транзакция данного типа.
+   */
+  Map<Category, BigDecimal> byCategory(TransactionType type) {
+    Map<Category, BigDecimal> result = new EnumMap<>(Category.class);
+    cells.get(type).forEach((category, cell) -> {
+      if (cell.count > 0) {
+        result.put(category, cell.sum);
+      }
+    });
+    return result;
+  }
+
+  /**
+   * Проверяем, что в наборе не учтено ни одной транзакции.
+   */
+  boolean isEmpty() {
+    for (EnumMap<Category, Cell> byCategory : cells.values()) {
+      for (Cell cell : byCategory.values()) {
+        if (cell.count != 0) {
+          return false;
+        }
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Сравниваем суммы и количества по всем ячейкам без учёта масштаба BigDecimal.
+   */
+  boolean matches(CategoryTotals other) {
+    for (TransactionType type : TransactionType.values()) {
+      if (typeTotals.get(type).compareTo(other.typeTotals.get(type)) != 0) {
+        return false;
+      }
+      for (Category category : Category.values()) {
+        Cell mine = cells.get(type).get(category);
+        Cell theirs = other.cells.get(type).get(category);
+        if (mine.count != theirs.count || mine.sum.compareTo(theirs.sum) != 0) {
+          return false;
+        }
+      }
+    }
+    return true;
+  }
+
+  private static final class Cell {
+    private BigDecimal sum = BigDecimal.ZERO;
+    private int count;
+  }
+}
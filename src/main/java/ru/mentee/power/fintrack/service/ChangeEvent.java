@@ -0,0 +1,14 @@
+package ru.mentee.power.fintrack.service;
+
+import ru.mentee.power.fintrack.model.Transaction;
+
+/**
+ * Изменение реестра в ленте {@link ChangeFeed}: номер по порядку, вид и транзакция.
+ */
+public record ChangeEvent(long sequence, Type type, Transaction transaction) {
+
+  public enum Type {
+    ADD,
+    DELETE
+  }
+}
@@ -0,0 +1,193 @@
+package ru.mentee.power.fintrack.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import ru.mentee.power.fintrack.model.Transaction;
+
+/**
+ * Лента изменений реестра с номерами по порядку в кольцевом буфере ограниченной ёмкости.
+ *
+ * <p>Писатель кладёт событие в буфер под коротким замком и никого не ждёт: когда буфер полон,
+ * самое старое событие вытесняется. Каждая подписка читает буфер в своём виртуальном потоке
+ * пачками не больше заданного размера и в своём темпе — медленный подписчик тормозит только
+ * себя, а если отстанет больше чем на ёмкость, получит {@link ChangeSubscriber#onMissed}.
+ * Номера начинаются с 1 и действуют в пределах процесса.
+ *
+ * <p>Буфер держит транзакции последних событий, в том числе уже удалённые или вынесенные в
+ * архив, пока их не вытеснят новые события, поэтому ёмкость ограничивает и эту память.
+ */
+public final class ChangeFeed {
+
+  private static final AtomicInteger SUBSCRIPTIONS = new AtomicInteger();
+
+  private final ChangeEvent[] slots;
+  private final int mask;
+  private final ReentrantLock lock = new ReentrantLock();
+  private final Condition published = lock.newCondition();
+  private long last;
+
+  ChangeFeed(int capacity) {
+    if (Integer.bitCount(capacity) != 1) {
+      throw new IllegalArgumentException("Ёмкость ленты должна быть степенью двойки");
+    }
+    this.slots = new ChangeEvent[capacity];
+    this.mask = capacity - 1;
+  }
+
+  void publish(ChangeEvent.Type type, Transaction transaction) {
+    lock.lock();
+    try {
+      append(type, transaction);
+      published.signalAll();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  void publishAll(List<Transaction> added) {
+    lock.lock();
+    try {
+      for (Transaction transaction : added) {
+        append(ChangeEvent.Type.ADD, transaction);
+      }
+      published.signalAll();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Возвращаем номер последнего изменения (0, если изменений не было).
+   */
+  public long lastSequence() {
+    lock.lock();
+    try {
+      return last;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Подписываемся на изменения начиная с номера from и получаем их пачками не больше maxBatch.
+   */
+  public Subscription subscribe(long from, int maxBatch, ChangeSubscriber subscriber) {
+    if (from <= 0 || maxBatch <= 0) {
+      throw new IllegalArgumentException("Номер и размер пачки должны быть больше нуля");
+    }
+    Subscription subscription = new Subscription(from, maxBatch, subscriber);
+    subscription.worker.start();
+    return subscription;
+  }
+
+  private void append(ChangeEvent.Type type, Transaction transaction) {
+    last++;
+    slots[(int) (last & mask)] = new ChangeEvent(last, type, transaction);
+  }
+
+  /**
+   * Подписка на ленту; закрытие останавливает доставку после текущей пачки.
+   */
+  public final class Subscription implements AutoCloseable {
+
+    private final int maxBatch;
+    private final ChangeSubscriber subscriber;
+    private volatile long position;
+    private volatile boolean closed;
+    private volatile RuntimeException failure;
+    private final Thread worker;
+
+    private Subscription(long from, int maxBatch, ChangeSubscriber subscriber) {
+      this.position = from;
+      this.maxBatch = maxBatch;
+      this.subscriber = subscriber;
+      this.worker = Thread.ofVirtual()
+          .name("change-feed-" + SUBSCRIPTIONS.incrementAndGet())
+          .unstarted(this::deliver);
+    }
+
+    /**
+     * Номер следующего недоставленного изменения: с него подписку можно возобновить.
+     */
+    public long position() {
+      return position;
+    }
+
+    /**
+     * Исключение подписчика, остановившее доставку, или null.
+     */
+    public RuntimeException failure() {
+      return failure;
+    }
+
+    public boolean isActive() {
+      return !closed && failure == null;
+    }
+
+    /**
+     * Останавливаем подписку и ждём, пока подписчик обработает текущую пачку.
+     */
+    @Override
+    public void close() {
+      closed = true;
+      lock.lock();
+      try {
+        published.signalAll();
+      } finally {
+        lock.unlock();
+      }
+      if (Thread.currentThread() != worker) {
+        try {
+          worker.join();
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+      }
+    }
+
+    private void deliver() {
+      try {
+        while (!closed) {
+          long next = position;
+          long missedTo = 0;
+          List<ChangeEvent> batch;
+          lock.lock();
+          try {
+            while (!closed && next > last) {
+              published.await();
+            }
+            if (closed) {
+              return;
+            }
+            long oldest = Math.max(1, last - slots.length + 1);
+            if (next < oldest) {
+              missedTo = oldest - 1;
+            }
+            long first = Math.max(next, oldest);
+            int count = (int) Math.min(maxBatch, last - first + 1);
+            batch = new ArrayList<>(count);
+            for (long sequence = first; sequence < first + count; sequence++) {
+              batch.add(slots[(int) (sequence & mask)]);
+            }
+          } finally {
+            lock.unlock();
+          }
+
+          if (missedTo > 0) {
+            subscriber.onMissed(next, missedTo);
+            position = missedTo + 1;
+          }
+          subscriber.onEvents(batch);
+          position = batch.get(batch.size() - 1).sequence() + 1;
+        }
+      } catch (InterruptedException e) {
+        closed = true;
+      } catch (RuntimeException e) {
+        failure = e;
+      }
+    }
+  }
+}
@@ -0,0 +1,26 @@
+package ru.mentee.power.fintrack.service;
+
+import java.util.List;
+
+/**
+ * Подписчик ленты изменений {@link ChangeFeed}.
+ *
+ * <p>Методы вызываются из потока подписки по очереди, пачки идут по возрастанию номеров без
+ * пропусков, кроме сообщённых через {@link #onMissed(long, long)}.
+ */
+@FunctionalInterface
+public interface ChangeSubscriber {
+
+  /**
+   * Получаем очередную пачку изменений. Исключение останавливает подписку, и её можно
+   * возобновить с первого изменения этой пачки (см. {@link ChangeFeed.Subscription#position()}).
+   */
+  void onEvents(List<ChangeEvent> events);
+
+  /**
+   * Подписчик отстал больше, чем на ёмкость ленты, и изменения с номерами [from, to] уже
+   * вытеснены; чтобы не разойтись с реестром, ему нужно перечитать его целиком.
+   */
+  default void onMissed(long from, long to) {
+  }
+}
@@ -0,0 +1,307 @@
+package ru.mentee.power.fintrack.service;
+
+import java.io.Serial;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.IntPredicate;
+import ru.mentee.power.fintrack.model.Transaction;
+import ru.mentee.power.fintrack.model.Transaction.Category;
+import ru.mentee.power.fintrack.model.Transaction.TransactionType;
+
+/**
+ * Колоночное хранилище транзакций в параллельных примитивных массивах.
+ *
+ * <p>Сумма хранится в копейках ({@code long}), дата — номером дня от эпохи ({@code int}), тип и
+ * категория — порядковыми номерами ({@code byte}), описание — номером строки в общем пуле.
+ * Id транзакции совпадает с номером строки, поэтому отдельная колонка id не нужна, а удаление
+ * только помечает строку. Агрегаты считаются проходом по массивам без создания объектов,
+ * {@link Transaction} создаются лишь для возвращаемых результатов. Класс не потокобезопасен.
+ *
+ * <p>Агрегаты по хранилищу больше {@value #PARALLEL_THRESHOLD} строк считаются в общем
+ * {@link ForkJoinPool}: каждый кусок строк копит суммы в собственном массиве, массивы
+ * складываются в конце. Целочисленные копейки складываются точно, поэтому результат совпадает
+ * с последовательным проходом.
+ */
+public class ColumnarLedger {
+
+  private static final int MINOR_UNITS_SCALE = 2;
+  private static final TransactionType[] TYPES = TransactionType.values();
+  private static final Category[] CATEGORIES = Category.values();
+  private static final int CELLS = TYPES.length * CATEGORIES.length;
+  private static final int PARALLEL_THRESHOLD = 1 << 16;
+
+  private long[] amounts;
+  private int[] epochDays;
+  private byte[] types;
+  private byte[] categories;
+  private int[] descriptions;
+  private long[] deleted;
+  private final DescriptionPool descriptionPool = new DescriptionPool();
+  private int rows;
+  private int deletedRows;
+
+  /**
+   * Создаём пустое хранилище.
+   */
+  public ColumnarLedger() {
+    this(1024);
+  }
+
+  /**
+   * Создаём хранилище с запасом места под ожидаемое число строк.
+   */
+  public ColumnarLedger(int expectedRows) {
+    int capacity = Math.max(expectedRows, 16);
+    amounts = new long[capacity];
+    epochDays = new int[capacity];
+    types = new byte[capacity];
+    categories = new byte[capacity];
+    descriptions = new int[capacity];
+    deleted = new long[(capacity + 63) >>> 6];
+  }
+
+  /**
+   * Добавляем транзакцию и возвращаем её id. Сумма должна укладываться в копейки.
+   */
+  public int addTransaction(TransactionType type, BigDecimal sum, Category category,
+      String description, LocalDate date) {
+    if (sum.compareTo(BigDecimal.ZERO) <= 0) {
+      throw new IllegalArgumentException("Сумма должна быть положительной");
+    }
+    if (type == null) {
+      throw new IllegalArgumentException("Тип транзакции обязателен");
+    }
+    if (category == null) {
+      throw new IllegalArgumentException("Категория обязательна");
+    }
+    if (date == null) {
+      throw new IllegalArgumentException("Дата обязательна");
+    }
+
+    ensureCapacity(rows + 1);
+    int row = rows++;
+    amounts[row] = toMinorUnits(sum);
+    epochDays[row] = Math.toIntExact(date.toEpochDay());
+    types[row] = (byte) type.ordinal();
+    categories[row] = (byte) category.ordinal();
+    descriptions[row] = descriptionPool.encode(description);
+    return row;
+  }
+
+  /**
+   * Помечаем транзакцию удалённой.
+   */
+  public boolean deleteTransaction(int id) {
+    if (!isLive(id)) {
+      return false;
+    }
+    deleted[id >>> 6] |= 1L << id;
+    deletedRows++;
+    return true;
+  }
+
+  /**
+   * Находим транзакцию по id.
+   */
+  public Optional<Transaction> getTransaction(int id) {
+    return isLive(id) ? Optional.of(materialize(id)) : Optional.empty();
+  }
+
+  public int size() {
+    return rows - deletedRows;
+  }
+
+  public List<Transaction> getAllTransactions() {
+    return select(row -> true);
+  }
+
+  public List<Transaction> getTransactionsByType(TransactionType type) {
+    byte ordinal = (byte) type.ordinal();
+    return select(row -> types[row] == ordinal);
+  }
+
+  public List<Transaction> getTransactionsByCategory(Category category) {
+    byte ordinal = (byte) category.ordinal();
+    return select(row -> categories[row] == ordinal);
+  }
+
+  /**
+   * Считаем баланс в копейках одним проходом по колонкам.
+   */
+  public long balanceMinorUnits() {
+    long[] totals = aggregate(PARALLEL_THRESHOLD);
+    long balance = 0;
+    for (Category category : CATEGORIES) {
+      balance += totals[slot(TransactionType.INCOME.ordinal(), category.ordinal())]
+          - totals[slot(TransactionType.EXPENSE.ordinal(), category.ordinal())];
+    }
+    return balance;
+  }
+
+  public BigDecimal calculateBalance() {
+    return fromMinorUnits(balanceMinorUnits());
+  }
+
+  /**
+   * Складываем суммы строк данного типа по категориям в переданные массивы, индексы — ordinal.
+   */
+  public void sumByCategory(TransactionType type, long[] sums, long[] counts) {
+    long[] totals = aggregate(PARALLEL_THRESHOLD);
+    for (Category category : CATEGORIES) {
+      int slot = slot(type.ordinal(), category.ordinal());
+      sums[category.ordinal()] += totals[slot];
+      counts[category.ordinal()] += totals[CELLS + slot];
+    }
+  }
+
+  /**
+   * Возвращаем суммы расходов по категориям, в которых есть хотя бы один расход.
+   */
+  public Map<Category, BigDecimal> getExpensesByCategory() {
+    long[] sums = new long[CATEGORIES.length];
+    long[] counts = new long[CATEGORIES.length];
+    sumByCategory(TransactionType.EXPENSE, sums, counts);
+
+    Map<Category, BigDecimal> result = new EnumMap<>(Category.class);
+    for (Category category : CATEGORIES) {
+      if (counts[category.ordinal()] > 0) {
+        result.put(category, fromMinorUnits(sums[category.ordinal()]));
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Переводим сумму в копейки; суммы с долями копейки не поддерживаются.
+   */
+  static long toMinorUnits(BigDecimal sum) {
+    try {
+      return sum.movePointRight(MINOR_UNITS_SCALE).longValueExact();
+    } catch (ArithmeticException e) {
+      throw new IllegalArgumentException("Сумма должна быть не точнее копейки");
+    }
+  }
+
+  static BigDecimal fromMinorUnits(long minorUnits) {
+    return BigDecimal.valueOf(minorUnits, MINOR_UNITS_SCALE);
+  }
+
+  /**
+   * Считаем суммы (первые {@link #CELLS} ячеек) и количества (следующие) по типу и категории;
+   * хранилище больше parallelThreshold строк делится между потоками.
+   */
+  long[] aggregate(int parallelThreshold) {
+    if (rows <= parallelThreshold) {
+      return aggregateRows(0, rows);
+    }
+    return ForkJoinPool.commonPool().invoke(new Aggregation(0, rows, parallelThreshold));
+  }
+
+  private long[] aggregateRows(int from, int to) {
+    long[] totals = new long[2 * CELLS];
+    for (int row = from; row < to; row++) {
+      if (!isDeleted(row)) {
+        int slot = slot(types[row], categories[row]);
+        totals[slot] += amounts[row];
+        totals[CELLS + slot]++;
+      }
+    }
+    return totals;
+  }
+
+  private static int slot(int type, int category) {
+    return type * CATEGORIES.length + category;
+  }
+
+  private List<Transaction> select(IntPredicate filter) {
+    long[] keys = new long[64];
+    int matched = 0;
+    for (int row = 0; row < rows; row++) {
+      if (!isDeleted(row) && filter.test(row)) {
+        if (matched == keys.length) {
+          keys = Arrays.copyOf(keys, matched * 2);
+        }
+        // Старшие 32 бита — инвертированная дата (новые раньше), младшие — id по возрастанию.
+        keys[matched++] = ((long) ~epochDays[row] << 32) | row;
+      }
+    }
+    Arrays.sort(keys, 0, matched);
+
+    List<Transaction> result = new ArrayList<>(matched);
+    for (int i = 0; i < matched; i++) {
+      result.add(materialize((int) keys[i]));
+    }
+    return result;
+  }
+
+  private Transaction materialize(int row) {
+    return new Transaction(row, descriptionPool.decode(descriptions[row]),
+        fromMinorUnits(amounts[row]), LocalDate.ofEpochDay(epochDays[row]),
+        CATEGORIES[categories[row]], TYPES[types[row]]);
+  }
+
+  private boolean isLive(int id) {
+    return id >= 0 && id < rows && !isDeleted(id);
+  }
+
+  private boolean isDeleted(int row) {
+    return (deleted[row >>> 6] & (1L << row)) != 0;
+  }
+
+  private void ensureCapacity(int required) {
+    if (required <= amounts.length) {
+      return;
+    }
+    int capacity = Math.max(required, amounts.length + (amounts.length >> 1));
+    amounts = Arrays.copyOf(amounts, capacity);
+    epochDays = Arrays.copyOf(epochDays, capacity);
+    types = Arrays.copyOf(types, capacity);
+    categories = Arrays.copyOf(categories, capacity);
+    descriptions = Arrays.copyOf(descriptions, capacity);
+    deleted = Arrays.copyOf(deleted, (capacity + 63) >>> 6);
+  }
+
+  /**
+   * Агрегирует строки [from, to): большой диапазон делится пополам, у каждой половины свой
+   * массив сумм, при слиянии массивы складываются.
+   */
+  private final class Aggregation extends RecursiveTask<long[]> {
+
+    @Serial
+    private static final long serialVersionUID = 1L;
+
+    private final int from;
+    private final int to;
+    private final int threshold;
+
+    private Aggregation(int from, int to, int threshold) {
+      this.from = from;
+      this.to = to;
+      this.threshold = threshold;
+    }
+
+    @Override
+    protected long[] compute() {
+      if (to - from <= threshold) {
+        return aggregateRows(from, to);
+      }
+      int middle = (from + to) >>> 1;
+      Aggregation left = new Aggregation(from, middle, threshold);
+      left.fork();
+      long[] right = new Aggregation(middle, to, threshold).compute();
+      long[] totals = left.join();
+      for (int i = 0; i < totals.length; i++) {
+        totals[i] += right[i];
+      }
+      return totals;
+    }
+  }
+}
@@ -0,0 +1,97 @@
+package ru.mentee.power.fintrack.service;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.TreeMap;
+import ru.mentee.power.fintrack.model.Transaction;
+import ru.mentee.power.fintrack.model.Transaction.TransactionType;
+
+/**
+ * Чистый поток (доходы минус расходы) по дням с префиксными суммами.
+ *
+ * <p>Дни делятся на куски по {@value #CHUNK_DAYS}; кусок заводится при первой транзакции в нём
+ * и хранит дерево Фенвика по своим дням и свой итог. Поэтому память растёт с числом занятых
+ * кусков, а не с разбросом дат: одна транзакция, датированная первым годом нашей эры, стоит
+ * одного куска. Изменение дня стоит O(log {@value #CHUNK_DAYS}), сумма до даты — столько же
+ * плюс сложение итогов предыдущих кусков (их единицы для реальных реестров).
+ */
+final class DailyFlowIndex {
+
+  private static final int CHUNK_DAYS = 1024;
+
+  private final TreeMap<Long, Chunk> chunks = new TreeMap<>();
+
+  void add(Transaction transaction) {
+    add(transaction.getDate(), transaction.getTransactionType(), transaction.getSum());
+  }
+
+  void remove(Transaction transaction) {
+    add(transaction.getDate(), transaction.getTransactionType(), transaction.getSum().negate());
+  }
+
+  /**
+   * Заводим кусок для даты заранее, чтобы последующий {@link #add} не выделял память.
+   */
+  void reserve(LocalDate date) {
+    chunkOf(date.toEpochDay());
+  }
+
+  /**
+   * Учитываем сумму в потоке за день: доход со знаком плюс, расход со знаком минус.
+   */
+  void add(LocalDate date, TransactionType type, BigDecimal sum) {
+    long day = date.toEpochDay();
+    chunkOf(day).add(Math.floorMod(day, CHUNK_DAYS),
+        type == TransactionType.INCOME ? sum : sum.negate());
+  }
+
+  /**
+   * Возвращаем сумму потоков за все дни не позже date.
+   */
+  BigDecimal sumThrough(LocalDate date) {
+    long day = date.toEpochDay();
+    long chunkIndex = Math.floorDiv(day, CHUNK_DAYS);
+    BigDecimal sum = BigDecimal.ZERO;
+    for (Chunk before : chunks.headMap(chunkIndex).values()) {
+      sum = sum.add(before.total);
+    }
+    Chunk own = chunks.get(chunkIndex);
+    if (own != null) {
+      sum = sum.add(own.sumThrough(Math.floorMod(day, CHUNK_DAYS)));
+    }
+    return sum;
+  }
+
+  private Chunk chunkOf(long day) {
+    return chunks.computeIfAbsent(Math.floorDiv(day, CHUNK_DAYS), key -> new Chunk());
+  }
+
+  /**
+   * Дерево Фенвика по дням одного куска.
+   */
+  private static final class Chunk {
+
+    private final BigDecimal[] tree = new BigDecimal[CHUNK_DAYS + 1];
+    private BigDecimal total = BigDecimal.ZERO;
+
+    Chunk() {
+      Arrays.fill(tree, BigDecimal.ZERO);
+    }
+
+    void add(int index, BigDecimal delta) {
+      for (int node = index + 1; node < tree.length; node += node & -node) {
+        tree[node] = tree[node].add(delta);
+      }
+      total = total.add(delta);
+    }
+
+    BigDecimal sumThrough(int index) {
+      BigDecimal sum = BigDecimal.ZERO;
+      for (int node = index + 1; node > 0; node -= node & -node) {
+        sum = sum.add(tree[node]);
+      }
+      return sum;
+    }
+  }
+}
@@ -0,0 +1,191 @@
+package ru.mentee.power.fintrack.service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.function.Function;
+import ru.mentee.power.fintrack.model.Transaction;
+
+/**
+ * Обратный индекс описаний: слово → отсортированный массив id транзакций, в описании которых
+ * оно встречается.
+ *
+ * <p>Слова — непрерывные последовательности букв и цифр (кириллица и латиница) в нижнем
+ * регистре, «ё» приравнивается к «е». Слова запроса ищутся как префиксы: каждому соответствует
+ * объединение списков всех слов индекса с этим началом, а списки разных слов запроса
+ * пересекаются, начиная с самого короткого.
+ */
+final class DescriptionIndex {
+
+  private static final int[] NO_IDS = new int[0];
+
+  private final NavigableMap<String, Postings> postings = new TreeMap<>();
+
+  void add(Transaction transaction) {
+    add(transaction.getId(), transaction.getDescription());
+  }
+
+  void add(int id, String description) {
+    for (String token : tokens(description)) {
+      postings.computeIfAbsent(token, ignored -> new Postings()).add(id);
+    }
+  }
+
+  void remove(Transaction transaction) {
+    for (String token : tokens(transaction.getDescription())) {
+      Postings ids = postings.get(token);
+      if (ids != null && ids.remove(transaction.getId()) && ids.size == 0) {
+        postings.remove(token);
+      }
+    }
+  }
+
+  /**
+   * Возвращаем по возрастанию id транзакций, описания которых содержат слова, начинающиеся
+   * с каждого из terms.
+   */
+  int[] search(List<String> terms) {
+    return search(terms, this::withPrefix);
+  }
+
+  /**
+   * Пересекаем списки id слов запроса, начиная с самого короткого; withPrefix возвращает
+   * по возрастанию id всех слов индекса с данным началом.
+   */
+  static int[] search(List<String> terms, Function<String, int[]> withPrefix) {
+    List<int[]> matches = new ArrayList<>(terms.size());
+    for (String term : terms) {
+      int[] ids = withPrefix.apply(term);
+      if (ids.length == 0) {
+        return NO_IDS;
+      }
+      matches.add(ids);
+    }
+    matches.sort(Comparator.comparingInt(ids -> ids.length));
+    int[] result = matches.get(0);
+    for (int i = 1; i < matches.size() && result.length > 0; i++) {
+      result = intersect(result, matches.get(i));
+    }
+    return result;
+  }
+
+  /**
+   * Разбиваем текст на нормализованные слова без повторов в порядке появления.
+   */
+  static List<String> tokens(String text) {
+    if (text == null || text.isEmpty()) {
+      return List.of();
+    }
+    Set<String> tokens = new LinkedHashSet<>();
+    String normalized = text.toLowerCase(Locale.ROOT).replace('ё', 'е');
+    int start = -1;
+    for (int i = 0; i <= normalized.length(); i++) {
+      boolean wordChar = i < normalized.length()
+          && Character.isLetterOrDigit(normalized.charAt(i));
+      if (wordChar && start < 0) {
+        start = i;
+      } else if (!wordChar && start >= 0) {
+        tokens.add(normalized.substring(start, i));
+        start = -1;
+      }
+    }
+    return new ArrayList<>(tokens);
+  }
+
+  private int[] withPrefix(String prefix) {
+    NavigableMap<String, Postings> words =
+        postings.subMap(prefix, true, prefix + Character.MAX_VALUE, false);
+    if (words.size() == 1) {
+      Postings only = words.firstEntry().getValue();
+      return Arrays.copyOf(only.ids, only.size);
+    }
+    int total = 0;
+    for (Postings ids : words.values()) {
+      total += ids.size;
+    }
+    int[] merged = new int[total];
+    int offset = 0;
+    for (Postings ids : words.values()) {
+      System.arraycopy(ids.ids, 0, merged, offset, ids.size);
+      offset += ids.size;
+    }
+    return sortedUnique(merged);
+  }
+
+  /**
+   * Сортируем объединённые списки id и убираем повторы.
+   */
+  static int[] sortedUnique(int[] merged) {
+    Arrays.sort(merged);
+    int unique = 0;
+    for (int i = 0; i < merged.length; i++) {
+      if (i == 0 || merged[i] != merged[i - 1]) {
+        merged[unique++] = merged[i];
+      }
+    }
+    return Arrays.copyOf(merged, unique);
+  }
+
+  private static int[] intersect(int[] first, int[] second) {
+    int[] common = new int[Math.min(first.length, second.length)];
+    int size = 0;
+    for (int i = 0, j = 0; i < first.length && j < second.length; ) {
+      if (first[i] < second[j]) {
+        i++;
+      } else if (first[i] > second[j]) {
+        j++;
+      } else {
+        common[size++] = first[i];
+        i++;
+        j++;
+      }
+    }
+    return Arrays.copyOf(common, size);
+  }
+
+  /**
+   * Отсортированный список id. Id выдаются по возрастанию, поэтому добавление почти всегда
+   * дописывает в конец.
+   */
+  private static final class Postings {
+    private int[] ids = new int[4];
+    private int size;
+
+    void add(int id) {
+      if (size > 0 && ids[size - 1] >= id) {
+        int position = Arrays.binarySearch(ids, 0, size, id);
+        if (position >= 0) {
+          return;
+        }
+        insertAt(-position - 1, id);
+        return;
+      }
+      insertAt(size, id);
+    }
+
+    boolean remove(int id) {
+      int position = Arrays.binarySearch(ids, 0, size, id);
+      if (position < 0) {
+        return false;
+      }
+      System.arraycopy(ids, position + 1, ids, position, size - position - 1);
+      size--;
+      return true;
+    }
+
+    private void insertAt(int position, int id) {
+      if (size == ids.length) {
+        ids = Arrays.copyOf(ids, size * 2);
+      }
+      System.arraycopy(ids, position, ids, position + 1, size - position);
+      ids[position] = id;
+      size++;
+    }
+  }
+}
@@ -0,0 +1,40 @@
+package ru.mentee.power.fintrack.service;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Общий пул описаний: одинаковые строки хранятся один раз, строки ссылаются на них по номеру.
+ */
+class DescriptionPool {
+
+  private final Map<String, Integer> codes = new HashMap<>();
+  private String[] descriptions = new String[16];
+  private int size;
+
+  /**
+   * Возвращаем номер описания, добавляя его в пул при первом появлении.
+   */
+  int encode(String description) {
+    String value = description == null ? "" : description;
+    Integer code = codes.get(value);
+    if (code != null) {
+      return code;
+    }
+    if (size == descriptions.length) {
+      descriptions = Arrays.copyOf(descriptions, size * 2);
+    }
+    descriptions[size] = value;
+    codes.put(value, size);
+    return size++;
+  }
+
+  String decode(int code) {
+    return descriptions[code];
+  }
+
+  int size() {
+    return size;
+  }
+}
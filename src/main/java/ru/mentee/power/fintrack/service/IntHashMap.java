@@ -0,0 +1,123 @@
+package ru.mentee.power.fintrack.service;
+
+/**
+ * Хеш-таблица с открытой адресацией и примитивными int-ключами без упаковки в Integer.
+ *
+ * <p>Коллизии разрешаются линейным пробированием, удаление выполняется обратным сдвигом,
+ * поэтому таблица не накапливает «надгробий» и поиск остаётся O(1) даже после массовых удалений.
+ */
+class IntHashMap<V> {
+
+  private static final int DEFAULT_CAPACITY = 16;
+  private static final int GOLDEN_RATIO = 0x9E3779B9;
+
+  private int[] keys;
+  private Object[] values;
+  private int mask;
+  private int size;
+
+  IntHashMap() {
+    this(DEFAULT_CAPACITY);
+  }
+
+  IntHashMap(int expectedSize) {
+    int capacity = Integer.highestOneBit(Math.max(expectedSize * 2 - 1, DEFAULT_CAPACITY)) << 1;
+    allocate(capacity);
+  }
+
+  int size() {
+    return size;
+  }
+
+  @SuppressWarnings("unchecked")
+  V get(int key) {
+    for (int slot = slot(key); values[slot] != null; slot = (slot + 1) & mask) {
+      if (keys[slot] == key) {
+        return (V) values[slot];
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Кладём значение по ключу и возвращаем предыдущее значение или null.
+   */
+  @SuppressWarnings("unchecked")
+  V put(int key, V value) {
+    if (value == null) {
+      throw new IllegalArgumentException("Значение не может быть null");
+    }
+    int slot = slot(key);
+    for (; values[slot] != null; slot = (slot + 1) & mask) {
+      if (keys[slot] == key) {
+        V previous = (V) values[slot];
+        values[slot] = value;
+        return previous;
+      }
+    }
+    keys[slot] = key;
+    values[slot] = value;
+    if (++size * 2 > keys.length) {
+      resize(keys.length << 1);
+    }
+    return null;
+  }
+
+  /**
+   * Удаляем значение по ключу и возвращаем его или null, если ключа не было.
+   */
+  @SuppressWarnings("unchecked")
+  V remove(int key) {
+    int slot = slot(key);
+    for (; values[slot] != null; slot = (slot + 1) & mask) {
+      if (keys[slot] == key) {
+        V removed = (V) values[slot];
+        shiftBack(slot);
+        size--;
+        return removed;
+      }
+    }
+    return null;
+  }
+
+  private void shiftBack(int freed) {
+    int gap = freed;
+    for (int slot = (gap + 1) & mask; values[slot] != null; slot = (slot + 1) & mask) {
+      int home = slot(keys[slot]);
+      // Сдвигаем элемент в «дыру», только если она лежит между его домашним слотом и им самим.
+      if (((slot - home) & mask) >= ((slot - gap) & mask)) {
+        keys[gap] = keys[slot];
+        values[gap] = values[slot];
+        gap = slot;
+      }
+    }
+    values[gap] = null;
+  }
+
+  private void resize(int capacity) {
+    int[] oldKeys = keys;
+    Object[] oldValues = values;
+    allocate(capacity);
+    for (int i = 0; i < oldKeys.length; i++) {
+      if (oldValues[i] != null) {
+        int slot = slot(oldKeys[i]);
+        while (values[slot] != null) {
+          slot = (slot + 1) & mask;
+        }
+        keys[slot] = oldKeys[i];
+        values[slot] = oldValues[i];
+      }
+    }
+  }
+
+  private void allocate(int capacity) {
+    keys = new int[capacity];
+    values = new Object[capacity];
+    mask = capacity - 1;
+  }
+
+  private int slot(int key) {
+    int hash = key * GOLDEN_RATIO;
+    return (hash ^ (hash >>> 16)) & mask;
+  }
+}
@@ -0,0 +1,17 @@
+package ru.mentee.power.fintrack.service;
+
+/**
+ * Показатели размера реестра и кэша запросов {@link TransactionService} в JMX.
+ */
+public interface LedgerMXBean {
+
+  long getTransactionCount();
+
+  long getSnapshotGeneration();
+
+  long getQueryCacheHits();
+
+  long getQueryCacheMisses();
+
+  int getQueryCacheSize();
+}
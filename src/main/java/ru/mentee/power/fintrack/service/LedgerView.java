@@ -0,0 +1,178 @@
+package ru.mentee.power.fintrack.service;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import ru.mentee.power.fintrack.model.Transaction;
+import ru.mentee.power.fintrack.model.Transaction.Category;
+import ru.mentee.power.fintrack.model.Transaction.TransactionType;
+
+/**
+ * Неизменяемая версия упорядоченных индексов реестра: все транзакции, они же по типу и по
+ * категории, удалённые записи снимка, архивные сегменты и удалённые из них записи.
+ *
+ * <p>Писатель строит из текущей версии новую и публикует её целиком; читатель берёт версию
+ * одним чтением и обходит её без замков, не видя изменений, сделанных после этого. Узлы,
+ * общие с прежней версией, не копируются (см. {@link PersistentIndex}).
+ */
+final class LedgerView {
+
+  static final LedgerView EMPTY = new LedgerView(PersistentIndex.EMPTY,
+      filled(TransactionType.values().length), filled(Category.values().length),
+      PersistentIndex.EMPTY, List.of(), PersistentIndex.EMPTY);
+
+  static final Comparator<ArchiveSegment> NEWEST_MONTH_FIRST =
+      Comparator.comparing(ArchiveSegment::month).reversed();
+
+  private final PersistentIndex all;
+  private final PersistentIndex[] byType;
+  private final PersistentIndex[] byCategory;
+  private final PersistentIndex removedFromSnapshot;
+  private final List<ArchiveSegment> archive;
+  private final PersistentIndex removedFromArchive;
+
+  private LedgerView(PersistentIndex all, PersistentIndex[] byType, PersistentIndex[] byCategory,
+      PersistentIndex removedFromSnapshot, List<ArchiveSegment> archive,
+      PersistentIndex removedFromArchive) {
+    this.all = all;
+    this.byType = byType;
+    this.byCategory = byCategory;
+    this.removedFromSnapshot = removedFromSnapshot;
+    this.archive = archive;
+    this.removedFromArchive = removedFromArchive;
+  }
+
+  LedgerView with(Transaction transaction) {
+    PersistentIndex[] types = byType.clone();
+    PersistentIndex[] categories = byCategory.clone();
+    types[transaction.getTransactionType().ordinal()] =
+        types[transaction.getTransactionType().ordinal()].with(transaction);
+    categories[transaction.getCategory().ordinal()] =
+        categories[transaction.getCategory().ordinal()].with(transaction);
+    return new LedgerView(all.with(transaction), types, categories, removedFromSnapshot,
+        archive, removedFromArchive);
+  }
+
+  LedgerView without(Transaction transaction) {
+    PersistentIndex[] types = byType.clone();
+    PersistentIndex[] categories = byCategory.clone();
+    types[transaction.getTransactionType().ordinal()] =
+        types[transaction.getTransactionType().ordinal()].without(transaction);
+    categories[transaction.getCategory().ordinal()] =
+        categories[transaction.getCategory().ordinal()].without(transaction);
+    return new LedgerView(all.without(transaction), types, categories, removedFromSnapshot,
+        archive, removedFromArchive);
+  }
+
+  /**
+   * Добавляем пачку, отсортированную в порядке ключей.
+   */
+  LedgerView withAll(List<Transaction> sorted) {
+    List<List<Transaction>> sortedByType = partition(byType.length);
+    List<List<Transaction>> sortedByCategory = partition(byCategory.length);
+    for (Transaction transaction : sorted) {
+      sortedByType.get(transaction.getTransactionType().ordinal()).add(transaction);
+      sortedByCategory.get(transaction.getCategory().ordinal()).add(transaction);
+    }
+    PersistentIndex[] types = new PersistentIndex[byType.length];
+    for (int i = 0; i < types.length; i++) {
+      types[i] = byType[i].withAll(sortedByType.get(i));
+    }
+    PersistentIndex[] categories = new PersistentIndex[byCategory.length];
+    for (int i = 0; i < categories.length; i++) {
+      categories[i] = byCategory[i].withAll(sortedByCategory.get(i));
+    }
+    return new LedgerView(all.withAll(sorted), types, categories, removedFromSnapshot,
+        archive, removedFromArchive);
+  }
+
+  /**
+   * Отмечаем запись снимка удалённой; прочитанная из снимка транзакция служит ключом.
+   */
+  LedgerView withRemovedFromSnapshot(Transaction transaction) {
+    return new LedgerView(all, byType, byCategory, removedFromSnapshot.with(transaction),
+        archive, removedFromArchive);
+  }
+
+  /**
+   * Переносим в архив транзакции с датой раньше before. В порядке ключей они идут последними,
+   * поэтому отрезаются от каждого индекса одним разрезом; сегменты дополняют архив.
+   */
+  LedgerView withArchived(LocalDate before, List<ArchiveSegment> segments) {
+    TransactionKey keep = TransactionKey.lastOf(before);
+    PersistentIndex[] types = new PersistentIndex[byType.length];
+    for (int i = 0; i < types.length; i++) {
+      types[i] = byType[i].headTo(keep);
+    }
+    PersistentIndex[] categories = new PersistentIndex[byCategory.length];
+    for (int i = 0; i < categories.length; i++) {
+      categories[i] = byCategory[i].headTo(keep);
+    }
+    return new LedgerView(all.headTo(keep), types, categories, removedFromSnapshot,
+        merged(segments), removedFromArchive);
+  }
+
+  /**
+   * Дополняем архив сегментами прежних запусков; их транзакций в индексах нет.
+   */
+  LedgerView withArchive(List<ArchiveSegment> segments) {
+    return new LedgerView(all, byType, byCategory, removedFromSnapshot, merged(segments),
+        removedFromArchive);
+  }
+
+  /**
+   * Отмечаем архивную транзакцию удалённой.
+   */
+  LedgerView withRemovedFromArchive(Transaction transaction) {
+    return new LedgerView(all, byType, byCategory, removedFromSnapshot, archive,
+        removedFromArchive.with(transaction));
+  }
+
+  /**
+   * Выбираем индекс по типу, иначе по категории, иначе общий.
+   */
+  PersistentIndex index(TransactionType type, Category category) {
+    if (type != null) {
+      return byType[type.ordinal()];
+    }
+    return category != null ? byCategory[category.ordinal()] : all;
+  }
+
+  PersistentIndex removedFromSnapshot() {
+    return removedFromSnapshot;
+  }
+
+  /**
+   * Архивные сегменты от нового месяца к старому.
+   */
+  List<ArchiveSegment> archive() {
+    return archive;
+  }
+
+  PersistentIndex removedFromArchive() {
+    return removedFromArchive;
+  }
+
+  private List<ArchiveSegment> merged(List<ArchiveSegment> segments) {
+    List<ArchiveSegment> merged = new ArrayList<>(archive);
+    merged.addAll(segments);
+    merged.sort(NEWEST_MONTH_FIRST);
+    return List.copyOf(merged);
+  }
+
+  private static PersistentIndex[] filled(int length) {
+    PersistentIndex[] indexes = new PersistentIndex[length];
+    Arrays.fill(indexes, PersistentIndex.EMPTY);
+    return indexes;
+  }
+
+  private static List<List<Transaction>> partition(int count) {
+    List<List<Transaction>> parts = new ArrayList<>(count);
+    for (int i = 0; i < count; i++) {
+      parts.add(new ArrayList<>());
+    }
+    return parts;
+  }
+}
@@ -0,0 +1,45 @@
+package ru.mentee.power.fintrack.service;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import ru.mentee.power.fintrack.model.Transaction;
+
+/**
+ * Сливает две последовательности, уже упорядоченные по {@link TransactionKey}, в одну.
+ */
+final class MergingIterator implements Iterator<Transaction> {
+
+  private final Iterator<Transaction> first;
+  private final Iterator<Transaction> second;
+  private Transaction firstHead;
+  private Transaction secondHead;
+
+  MergingIterator(Iterator<Transaction> first, Iterator<Transaction> second) {
+    this.first = first;
+    this.second = second;
+    this.firstHead = first.hasNext() ? first.next() : null;
+    this.secondHead = second.hasNext() ? second.next() : null;
+  }
+
+  @Override
+  public boolean hasNext() {
+    return firstHead != null || secondHead != null;
+  }
+
+  @Override
+  public Transaction next() {
+    if (!hasNext()) {
+      throw new NoSuchElementException();
+    }
+    Transaction result;
+    if (secondHead == null
+        || firstHead != null && TransactionKey.compare(firstHead, secondHead) <= 0) {
+      result = firstHead;
+      firstHead = first.hasNext() ? first.next() : null;
+    } else {
+      result = secondHead;
+      secondHead = second.hasNext() ? second.next() : null;
+    }
+    return result;
+  }
+}
@@ -0,0 +1,19 @@
+package ru.mentee.power.fintrack.service;
+
+/**
+ * Метрики одной операции {@link TransactionService} в JMX.
+ */
+public interface OperationMXBean {
+
+  long getCount();
+
+  long getP50Nanos();
+
+  long getP99Nanos();
+
+  long getP999Nanos();
+
+  long getMaxNanos();
+
+  long getAllocatedBytes();
+}
@@ -0,0 +1,22 @@
+package ru.mentee.power.fintrack.service;
+
+/**
+ * Снимок метрик одной операции: число вызовов, квантили и максимум задержки в наносекундах
+ * и суммарный объём памяти, выделенной вызовами в куче.
+ *
+ * <p>Выделенная память считается по счётчику потока HotSpot; если JVM его не поддерживает,
+ * allocatedBytes равен -1.
+ */
+public record OperationStats(long count, long p50Nanos, long p99Nanos, long p999Nanos,
+    long maxNanos, long allocatedBytes) {
+
+  /**
+   * Возвращаем среднее число байт, выделенных за вызов (-1, если неизвестно).
+   */
+  public long allocatedBytesPerCall() {
+    if (allocatedBytes < 0) {
+      return -1;
+    }
+    return count == 0 ? 0 : allocatedBytes / count;
+  }
+}
@@ -0,0 +1,79 @@
+package ru.mentee.power.fintrack.service;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import ru.mentee.power.fintrack.model.Transaction;
+import ru.mentee.power.fintrack.model.Transaction.Category;
+import ru.mentee.power.fintrack.model.Transaction.TransactionType;
+
+/**
+ * Суммы транзакций по дням и по месяцам, обновляемые при добавлении и удалении.
+ *
+ * <p>Итоги за период собираются из корзин: полные месяцы берутся из месячных корзин, неполные
+ * края периода — из дневных, поэтому время запроса зависит от числа корзин, а не транзакций.
+ * Пустые корзины удаляются.
+ */
+final class PeriodRollups {
+
+  private final NavigableMap<LocalDate, CategoryTotals> days = new TreeMap<>();
+  private final NavigableMap<YearMonth, CategoryTotals> months = new TreeMap<>();
+
+  void add(Transaction transaction) {
+    add(transaction.getDate(), transaction.getTransactionType(), transaction.getCategory(),
+        transaction.getSum());
+  }
+
+  void add(LocalDate date, TransactionType type, Category category, BigDecimal sum) {
+    days.computeIfAbsent(date, day -> new CategoryTotals()).add(type, category, sum, 1);
+    months.computeIfAbsent(YearMonth.from(date), month -> new CategoryTotals())
+        .add(type, category, sum, 1);
+  }
+
+  void remove(Transaction transaction) {
+    remove(days, transaction.getDate(), transaction);
+    remove(months, YearMonth.from(transaction.getDate()), transaction);
+  }
+
+  /**
+   * Передаём в sink корзины, которые вместе покрывают период [from, to] ровно один раз.
+   */
+  void collect(LocalDate from, LocalDate to, Consumer<CategoryTotals> sink) {
+    YearMonth first = YearMonth.from(from);
+    YearMonth last = YearMonth.from(to);
+    YearMonth fullFrom = first;
+    YearMonth fullTo = last;
+    if (from.getDayOfMonth() != 1) {
+      LocalDate headEnd = first.equals(last) ? to : first.atEndOfMonth();
+      days.subMap(from, true, headEnd, true).values().forEach(sink);
+      fullFrom = first.plusMonths(1);
+    }
+    if (!to.equals(last.atEndOfMonth()) && !fullFrom.isAfter(last)) {
+      days.subMap(last.atDay(1), true, to, true).values().forEach(sink);
+      fullTo = last.minusMonths(1);
+    }
+    if (!fullFrom.isAfter(fullTo)) {
+      months.subMap(fullFrom, true, fullTo, true).values().forEach(sink);
+    }
+  }
+
+  /**
+   * Передаём в sink месячные корзины по порядку месяцев.
+   */
+  void forEachMonth(BiConsumer<YearMonth, CategoryTotals> sink) {
+    months.forEach(sink);
+  }
+
+  private static <K> void remove(NavigableMap<K, CategoryTotals> buckets, K key,
+      Transaction transaction) {
+    CategoryTotals bucket = buckets.get(key);
+    bucket.remove(transaction);
+    if (bucket.isEmpty()) {
+      buckets.remove(key);
+    }
+  }
+}
@@ -0,0 +1,366 @@
+package ru.mentee.power.fintrack.service;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import ru.mentee.power.fintrack.model.Transaction;
+
+/**
+ * Неизменяемое упорядоченное множество транзакций в порядке {@link TransactionKey}.
+ *
+ * <p>Хранится декартовым деревом: изменение копирует только путь от корня, остальные узлы
+ * общие с прежней версией, поэтому вставка и удаление стоят O(log n) времени и памяти, а старая
+ * версия остаётся целой, пока её обходит читатель. Приоритет узла — перемешанный id, так что
+ * форма дерева зависит только от набора транзакций. Узел помнит размер поддерева, поэтому
+ * диапазон ключей переводится в отрезок номеров за O(log n), и его можно делить на части.
+ */
+final class PersistentIndex {
+
+  static final PersistentIndex EMPTY = new PersistentIndex(null);
+
+  private final Node root;
+
+  private PersistentIndex(Node root) {
+    this.root = root;
+  }
+
+  boolean isEmpty() {
+    return root == null;
+  }
+
+  int size() {
+    return size(root);
+  }
+
+  /**
+   * Считаем транзакции с ключами не больше key; null означает «ни одной».
+   */
+  int countThrough(TransactionKey key) {
+    int count = 0;
+    Node node = key == null ? null : root;
+    while (node != null) {
+      if (key.compareTo(node.value) < 0) {
+        node = node.left;
+      } else {
+        count += size(node.left) + 1;
+        node = node.right;
+      }
+    }
+    return count;
+  }
+
+  PersistentIndex with(Transaction transaction) {
+    return new PersistentIndex(insert(root, transaction));
+  }
+
+  PersistentIndex without(Transaction transaction) {
+    Node updated = remove(root, transaction);
+    return updated == root ? this : new PersistentIndex(updated);
+  }
+
+  /**
+   * Добавляем пачку, уже отсортированную в порядке ключей: строим из неё дерево за линейное
+   * время и сливаем с текущим за O(m log(n / m + 1)).
+   */
+  PersistentIndex withAll(List<Transaction> sorted) {
+    return sorted.isEmpty() ? this : new PersistentIndex(union(root, build(sorted)));
+  }
+
+  /**
+   * Оставляем только транзакции с ключами не больше upTo; остальные узлы отрезаются за
+   * O(log n) без обхода.
+   */
+  PersistentIndex headTo(TransactionKey upTo) {
+    Node updated = head(root, upTo);
+    return updated == root ? this : new PersistentIndex(updated);
+  }
+
+  /**
+   * Возвращаем хранимую транзакцию с тем же ключом, что у probe, или null.
+   */
+  Transaction find(Transaction probe) {
+    Node node = root;
+    while (node != null) {
+      int byKey = TransactionKey.compare(probe, node.value);
+      if (byKey == 0) {
+        return node.value;
+      }
+      node = byKey < 0 ? node.left : node.right;
+    }
+    return null;
+  }
+
+  /**
+   * Обходим транзакции с ключами в (after, upTo]; null снимает границу.
+   */
+  Iterator<Transaction> iterator(TransactionKey after, TransactionKey upTo) {
+    return new RangeIterator(root, after, upTo);
+  }
+
+  /**
+   * Обходим транзакции с номерами [from, to) в порядке ключей.
+   */
+  Iterator<Transaction> iterator(int from, int to) {
+    return new RankIterator(root, from, to);
+  }
+
+  private static Node insert(Node node, Transaction transaction) {
+    if (node == null) {
+      return new Node(transaction, null, null);
+    }
+    if (priority(transaction) > priority(node.value)) {
+      Split parts = split(node, transaction);
+      return new Node(transaction, parts.less, parts.greater);
+    }
+    int byKey = TransactionKey.compare(transaction, node.value);
+    if (byKey == 0) {
+      return new Node(transaction, node.left, node.right);
+    }
+    return byKey < 0
+        ? new Node(node.value, insert(node.left, transaction), node.right)
+        : new Node(node.value, node.left, insert(node.right, transaction));
+  }
+
+  private static Node remove(Node node, Transaction transaction) {
+    if (node == null) {
+      return null;
+    }
+    int byKey = TransactionKey.compare(transaction, node.value);
+    if (byKey == 0) {
+      return merge(node.left, node.right);
+    }
+    if (byKey < 0) {
+      Node left = remove(node.left, transaction);
+      return left == node.left ? node : new Node(node.value, left, node.right);
+    }
+    Node right = remove(node.right, transaction);
+    return right == node.right ? node : new Node(node.value, node.left, right);
+  }
+
+  private static Node head(Node node, TransactionKey upTo) {
+    if (node == null) {
+      return null;
+    }
+    if (upTo.compareTo(node.value) < 0) {
+      return head(node.left, upTo);
+    }
+    Node right = head(node.right, upTo);
+    return right == node.right ? node : new Node(node.value, node.left, right);
+  }
+
+  /**
+   * Делим дерево на ключи меньше и больше ключа транзакции; равный ключ отбрасывается.
+   */
+  private static Split split(Node node, Transaction key) {
+    if (node == null) {
+      return Split.EMPTY;
+    }
+    int byKey = TransactionKey.compare(key, node.value);
+    if (byKey == 0) {
+      return new Split(node.left, node.right);
+    }
+    if (byKey > 0) {
+      Split right = split(node.right, key);
+      return new Split(new Node(node.value, node.left, right.less), right.greater);
+    }
+    Split left = split(node.left, key);
+    return new Split(left.less, new Node(node.value, left.greater, node.right));
+  }
+
+  /**
+   * Склеиваем деревья, где все ключи less меньше ключей greater.
+   */
+  private static Node merge(Node less, Node greater) {
+    if (less == null) {
+      return greater;
+    }
+    if (greater == null) {
+      return less;
+    }
+    return priority(less.value) > priority(greater.value)
+        ? new Node(less.value, less.left, merge(less.right, greater))
+        : new Node(greater.value, merge(less, greater.left), greater.right);
+  }
+
+  private static Node union(Node first, Node second) {
+    if (first == null) {
+      return second;
+    }
+    if (second == null) {
+      return first;
+    }
+    if (priority(first.value) < priority(second.value)) {
+      Node swap = first;
+      first = second;
+      second = swap;
+    }
+    Split parts = split(second, first.value);
+    return new Node(first.value, union(first.left, parts.less),
+        union(first.right, parts.greater));
+  }
+
+  /**
+   * Строим дерево по отсортированному списку стеком правой ветви, затем создаём узлы снизу.
+   */
+  private static Node build(List<Transaction> sorted) {
+    int count = sorted.size();
+    int[] left = new int[count];
+    int[] right = new int[count];
+    int[] stack = new int[count];
+    int top = 0;
+    for (int i = 0; i < count; i++) {
+      int priority = priority(sorted.get(i));
+      int last = -1;
+      while (top > 0 && priority(sorted.get(stack[top - 1])) < priority) {
+        last = stack[--top];
+      }
+      left[i] = last;
+      right[i] = -1;
+      if (top > 0) {
+        right[stack[top - 1]] = i;
+      }
+      stack[top++] = i;
+    }
+    return freeze(sorted, left, right, stack[0]);
+  }
+
+  private static Node freeze(List<Transaction> sorted, int[] left, int[] right, int index) {
+    if (index < 0) {
+      return null;
+    }
+    return new Node(sorted.get(index), freeze(sorted, left, right, left[index]),
+        freeze(sorted, left, right, right[index]));
+  }
+
+  /**
+   * Перемешиваем id обратимой функцией (финализатор MurmurHash3): у разных id разные
+   * приоритеты.
+   */
+  private static int priority(Transaction transaction) {
+    int hash = transaction.getId();
+    hash ^= hash >>> 16;
+    hash *= 0x85ebca6b;
+    hash ^= hash >>> 13;
+    hash *= 0xc2b2ae35;
+    hash ^= hash >>> 16;
+    return hash;
+  }
+
+  private static int size(Node node) {
+    return node == null ? 0 : node.size;
+  }
+
+  private static final class Node {
+    private final Transaction value;
+    private final Node left;
+    private final Node right;
+    private final int size;
+
+    private Node(Transaction value, Node left, Node right) {
+      this.value = value;
+      this.left = left;
+      this.right = right;
+      this.size = size(left) + 1 + size(right);
+    }
+  }
+
+  private record Split(Node less, Node greater) {
+    private static final Split EMPTY = new Split(null, null);
+  }
+
+  /**
+   * Симметричный обход со стеком пути: до следующего элемента в среднем O(1) шагов.
+   */
+  private static final class RangeIterator implements Iterator<Transaction> {
+
+    private final Deque<Node> path = new ArrayDeque<>();
+    private final TransactionKey upTo;
+
+    private RangeIterator(Node root, TransactionKey after, TransactionKey upTo) {
+      this.upTo = upTo;
+      Node node = root;
+      while (node != null) {
+        if (after == null || after.compareTo(node.value) < 0) {
+          path.push(node);
+          node = node.left;
+        } else {
+          node = node.right;
+        }
+      }
+      stopPastUpperBound();
+    }
+
+    @Override
+    public boolean hasNext() {
+      return !path.isEmpty();
+    }
+
+    @Override
+    public Transaction next() {
+      if (path.isEmpty()) {
+        throw new NoSuchElementException();
+      }
+      Node node = path.pop();
+      for (Node next = node.right; next != null; next = next.left) {
+        path.push(next);
+      }
+      stopPastUpperBound();
+      return node.value;
+    }
+
+    private void stopPastUpperBound() {
+      if (upTo != null && !path.isEmpty() && upTo.compareTo(path.peek().value) < 0) {
+        path.clear();
+      }
+    }
+  }
+
+  /**
+   * Симметричный обход с номера from: спуск к нему по размерам поддеревьев, дальше как в
+   * {@link RangeIterator}, пока не выдано to - from транзакций.
+   */
+  private static final class RankIterator implements Iterator<Transaction> {
+
+    private final Deque<Node> path = new ArrayDeque<>();
+    private int remaining;
+
+    private RankIterator(Node root, int from, int to) {
+      this.remaining = Math.max(0, to - from);
+      Node node = root;
+      int skip = from;
+      while (node != null) {
+        int leftSize = size(node.left);
+        if (skip < leftSize) {
+          path.push(node);
+          node = node.left;
+        } else if (skip == leftSize) {
+          path.push(node);
+          break;
+        } else {
+          skip -= leftSize + 1;
+          node = node.right;
+        }
+      }
+    }
+
+    @Override
+    public boolean hasNext() {
+      return remaining > 0 && !path.isEmpty();
+    }
+
+    @Override
+    public Transaction next() {
+      if (!hasNext()) {
+        throw new NoSuchElementException();
+      }
+      Node node = path.pop();
+      for (Node next = node.right; next != null; next = next.left) {
+        path.push(next);
+      }
+      remaining--;
+      return node.value;
+    }
+  }
+}
@@ -0,0 +1,86 @@
+package ru.mentee.power.fintrack.service;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Кэш результатов запросов с вытеснением давно не использованных (LRU).
+ *
+ * <p>Каждый результат помечается версией реестра, при которой его начали считать. Любое
+ * изменение реестра лишь увеличивает версию, поэтому инвалидация не ждёт читателей, а записи
+ * со старой версией считаются промахом и перезаписываются или вытесняются. Запрос считается
+ * вне замка кэша: замок держится только на время чтения и записи карты.
+ */
+final class QueryCache {
+
+  private final AtomicLong version = new AtomicLong();
+  private final LongAdder hits = new LongAdder();
+  private final LongAdder misses = new LongAdder();
+  private final LinkedHashMap<Object, Entry> entries = new LinkedHashMap<>(16, 0.75f, true) {
+    @Override
+    protected boolean removeEldestEntry(Map.Entry<Object, Entry> eldest) {
+      return size() > capacity;
+    }
+  };
+  private int capacity;
+
+  QueryCache(int capacity) {
+    setCapacity(capacity);
+  }
+
+  /**
+   * Возвращаем результат запроса из кэша, если реестр с тех пор не менялся, иначе считаем
+   * его заново и запоминаем.
+   */
+  @SuppressWarnings("unchecked")
+  <T> T get(Object key, Supplier<T> query) {
+    long current = version.get();
+    synchronized (entries) {
+      Entry cached = capacity > 0 ? entries.get(key) : null;
+      if (cached != null && cached.version == current) {
+        hits.increment();
+        return (T) cached.value;
+      }
+    }
+    misses.increment();
+    T value = query.get();
+    synchronized (entries) {
+      Entry cached = entries.get(key);
+      if (capacity > 0 && (cached == null || cached.version < current)) {
+        entries.put(key, new Entry(current, value));
+      }
+    }
+    return value;
+  }
+
+  /**
+   * Отмечаем изменение реестра: все ранее посчитанные результаты устаревают.
+   */
+  void invalidate() {
+    version.incrementAndGet();
+  }
+
+  void setCapacity(int capacity) {
+    if (capacity < 0) {
+      throw new IllegalArgumentException("Размер кэша не может быть отрицательным");
+    }
+    synchronized (entries) {
+      this.capacity = capacity;
+      while (entries.size() > capacity) {
+        entries.remove(entries.keySet().iterator().next());
+      }
+    }
+  }
+
+  QueryCacheStats stats() {
+    synchronized (entries) {
+      return new QueryCacheStats(hits.sum(), misses.sum(), entries.size(), capacity);
+    }
+  }
+
+  private record Entry(long version, Object value) {
+  }
+}
@@ -0,0 +1,16 @@
+package ru.mentee.power.fintrack.service;
+
+/**
+ * Счётчики кэша запросов {@link TransactionService}: попадания, промахи, число записей
+ * и их предел.
+ */
+public record QueryCacheStats(long hits, long misses, int size, int capacity) {
+
+  /**
+   * Возвращаем долю попаданий среди всех обращений (0, если обращений не было).
+   */
+  public double hitRate() {
+    long requests = hits + misses;
+    return requests == 0 ? 0 : (double) hits / requests;
+  }
+}
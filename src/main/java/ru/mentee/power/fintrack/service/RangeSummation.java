@@ -0,0 +1,103 @@
+package ru.mentee.power.fintrack.service;
+
+import java.io.Serial;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.Predicate;
+import ru.mentee.power.fintrack.model.Transaction;
+
+/**
+ * Итоги по записям с номерами [from, to) упорядоченного хранилища — индекса в памяти, снимка
+ * или архивного сегмента. Как в {@link ColumnarLedger}, отрезок длиннее порога делится пополам,
+ * каждая половина копит суммы в своём {@link CategoryTotals}, при слиянии итоги складываются;
+ * BigDecimal складывается точно, поэтому результат не зависит от разбиения.
+ */
+final class RangeSummation extends RecursiveTask<CategoryTotals> {
+
+  @Serial
+  private static final long serialVersionUID = 1L;
+
+  /**
+   * Чтение записей хранилища с номерами [from, to).
+   */
+  @FunctionalInterface
+  interface Rows {
+    Iterator<Transaction> read(int from, int to);
+  }
+
+  private final transient Rows rows;
+  private final transient Predicate<Transaction> filter;
+  private final int from;
+  private final int to;
+  private final int threshold;
+
+  /**
+   * Создаём задачу по отрезку; в итоги попадают записи, прошедшие filter.
+   */
+  RangeSummation(Rows rows, int from, int to, Predicate<Transaction> filter, int threshold) {
+    this.rows = rows;
+    this.from = from;
+    this.to = Math.max(from, to);
+    this.filter = filter;
+    this.threshold = threshold;
+  }
+
+  /**
+   * Число записей отрезка — верхняя оценка числа подходящих.
+   */
+  int size() {
+    return to - from;
+  }
+
+  /**
+   * Складываем итоги частей: последовательно, если в них вместе не больше порога записей,
+   * иначе всеми задачами в общем пуле {@link ForkJoinPool}.
+   */
+  static CategoryTotals sum(List<RangeSummation> parts, int threshold) {
+    long selected = 0;
+    for (RangeSummation part : parts) {
+      selected += part.size();
+    }
+    CategoryTotals totals = new CategoryTotals();
+    if (selected <= threshold) {
+      for (RangeSummation part : parts) {
+        totals.merge(part.sumRows(part.from, part.to));
+      }
+      return totals;
+    }
+    ForkJoinPool.commonPool().invoke(ForkJoinTask.adapt(() -> invokeAll(parts)));
+    for (RangeSummation part : parts) {
+      totals.merge(part.join());
+    }
+    return totals;
+  }
+
+  @Override
+  protected CategoryTotals compute() {
+    if (to - from <= threshold) {
+      return sumRows(from, to);
+    }
+    int middle = (from + to) >>> 1;
+    RangeSummation left = new RangeSummation(rows, from, middle, filter, threshold);
+    left.fork();
+    CategoryTotals totals = new RangeSummation(rows, middle, to, filter, threshold).compute();
+    totals.merge(left.join());
+    return totals;
+  }
+
+  private CategoryTotals sumRows(int first, int end) {
+    CategoryTotals totals = new CategoryTotals();
+    if (first < end) {
+      for (Iterator<Transaction> range = rows.read(first, end); range.hasNext(); ) {
+        Transaction row = range.next();
+        if (filter.test(row)) {
+          totals.add(row);
+        }
+      }
+    }
+    return totals;
+  }
+}
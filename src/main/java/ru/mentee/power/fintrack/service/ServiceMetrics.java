@@ -0,0 +1,246 @@
+package ru.mentee.power.fintrack.service;
+
+import java.lang.management.ManagementFactory;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Метрики операций {@link TransactionService}: число вызовов, гистограмма задержек и
+ * выделенная память по каждой {@link ServiceOperation}.
+ *
+ * <p>Выключенные метрики — общий объект, у которого замер не читает часы и ничего не создаёт,
+ * поэтому вызов сводится к проверке поля, которую JIT убирает из горячего пути. Включённые
+ * метрики пишут в счётчики без блокировок и могут быть зарегистрированы в JMX.
+ */
+public final class ServiceMetrics {
+
+  static final ServiceMetrics DISABLED = new ServiceMetrics(null);
+
+  private static final Sample NO_SAMPLE = () -> {};
+
+  private final TransactionService service;
+  private final Map<ServiceOperation, Recorder> recorders;
+
+  private ServiceMetrics(TransactionService service) {
+    this.service = service;
+    if (service == null) {
+      recorders = null;
+      return;
+    }
+    recorders = new EnumMap<>(ServiceOperation.class);
+    for (ServiceOperation operation : ServiceOperation.values()) {
+      recorders.put(operation, new Recorder());
+    }
+  }
+
+  static ServiceMetrics enabledFor(TransactionService service) {
+    return new ServiceMetrics(service);
+  }
+
+  /**
+   * Начинаем замер операции; замер завершается вызовом {@link Sample#stop()}.
+   */
+  Sample start(ServiceOperation operation) {
+    if (recorders == null) {
+      return NO_SAMPLE;
+    }
+    Recorder recorder = recorders.get(operation);
+    return new ActiveSample(recorder, System.nanoTime(), Allocations.currentThread());
+  }
+
+  public boolean isEnabled() {
+    return recorders != null;
+  }
+
+  /**
+   * Возвращаем снимок метрик операции.
+   */
+  public OperationStats stats(ServiceOperation operation) {
+    if (recorders == null) {
+      return new OperationStats(0, 0, 0, 0, 0, -1);
+    }
+    return recorders.get(operation).stats();
+  }
+
+  /**
+   * Возвращаем снимки метрик всех операций, которые вызывались хотя бы раз.
+   */
+  public Map<ServiceOperation, OperationStats> snapshot() {
+    Map<ServiceOperation, OperationStats> snapshot = new EnumMap<>(ServiceOperation.class);
+    for (ServiceOperation operation : ServiceOperation.values()) {
+      OperationStats stats = stats(operation);
+      if (stats.count() > 0) {
+        snapshot.put(operation, stats);
+      }
+    }
+    return Collections.unmodifiableMap(snapshot);
+  }
+
+  /**
+   * Обнуляем метрики всех операций.
+   */
+  public void reset() {
+    if (recorders != null) {
+      recorders.values().forEach(Recorder::reset);
+    }
+  }
+
+  /**
+   * Регистрируем в платформенном MBeanServer бины {@code <domain>:type=Operation,name=<имя>}
+   * для каждой операции и {@code <domain>:type=Ledger} с размером реестра.
+   */
+  public void registerMBeans(String domain) throws JMException {
+    if (recorders == null) {
+      throw new IllegalStateException("Метрики выключены");
+    }
+    MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+    for (ServiceOperation operation : ServiceOperation.values()) {
+      server.registerMBean(new OperationBean(operation),
+          new ObjectName(domain + ":type=Operation,name=" + operation.metricName()));
+    }
+    server.registerMBean(new LedgerBean(), new ObjectName(domain + ":type=Ledger"));
+  }
+
+  /**
+   * Незавершённый замер операции.
+   */
+  interface Sample {
+    void stop();
+  }
+
+  private record ActiveSample(Recorder recorder, long startedNanos, long startedAllocated)
+      implements Sample {
+
+    @Override
+    public void stop() {
+      long allocated = startedAllocated < 0 ? -1 : Allocations.currentThread() - startedAllocated;
+      recorder.record(System.nanoTime() - startedNanos, allocated);
+    }
+  }
+
+  private static final class Recorder {
+    private final LongAdder count = new LongAdder();
+    private final LongAdder allocatedBytes = new LongAdder();
+    private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+    private final LatencyHistogram latencies = new LatencyHistogram();
+
+    void record(long nanos, long allocated) {
+      count.increment();
+      maxNanos.accumulate(nanos);
+      latencies.record(nanos);
+      if (allocated > 0) {
+        allocatedBytes.add(allocated);
+      }
+    }
+
+    OperationStats stats() {
+      return new OperationStats(count.sum(), latencies.quantile(0.5), latencies.quantile(0.99),
+          latencies.quantile(0.999), maxNanos.get(),
+          Allocations.supported() ? allocatedBytes.sum() : -1);
+    }
+
+    void reset() {
+      count.reset();
+      allocatedBytes.reset();
+      maxNanos.reset();
+      latencies.reset();
+    }
+  }
+
+  /**
+   * Счётчик памяти, выделенной текущим потоком. Класс загружается при первом замере, чтобы
+   * выключенные метрики не трогали подсистему управления JVM.
+   */
+  private static final class Allocations {
+    private static final com.sun.management.ThreadMXBean THREADS = threads();
+
+    static boolean supported() {
+      return THREADS != null;
+    }
+
+    static long currentThread() {
+      return THREADS == null ? -1 : THREADS.getCurrentThreadAllocatedBytes();
+    }
+
+    private static com.sun.management.ThreadMXBean threads() {
+      if (ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean threads
+          && threads.isThreadAllocatedMemorySupported()
+          && threads.isThreadAllocatedMemoryEnabled()) {
+        return threads;
+      }
+      return null;
+    }
+  }
+
+  private final class OperationBean implements OperationMXBean {
+    private final ServiceOperation operation;
+
+    OperationBean(ServiceOperation operation) {
+      this.operation = operation;
+    }
+
+    @Override
+    public long getCount() {
+      return stats(operation).count();
+    }
+
+    @Override
+    public long getP50Nanos() {
+      return stats(operation).p50Nanos();
+    }
+
+    @Override
+    public long getP99Nanos() {
+      return stats(operation).p99Nanos();
+    }
+
+    @Override
+    public long getP999Nanos() {
+      return stats(operation).p999Nanos();
+    }
+
+    @Override
+    public long getMaxNanos() {
+      return stats(operation).maxNanos();
+    }
+
+    @Override
+    public long getAllocatedBytes() {
+      return stats(operation).allocatedBytes();
+    }
+  }
+
+  private final class LedgerBean implements LedgerMXBean {
+
+    @Override
+    public long getTransactionCount() {
+      return service.getTransactionCount();
+    }
+
+    @Override
+    public long getSnapshotGeneration() {
+      return service.getSnapshotGeneration();
+    }
+
+    @Override
+    public long getQueryCacheHits() {
+      return service.getQueryCacheStats().hits();
+    }
+
+    @Override
+    public long getQueryCacheMisses() {
+      return service.getQueryCacheStats().misses();
+    }
+
+    @Override
+    public int getQueryCacheSize() {
+      return service.getQueryCacheStats().size();
+    }
+  }
+}
@@ -0,0 +1,33 @@
+package ru.mentee.power.fintrack.service;
+
+import java.util.Locale;
+
+/**
+ * Операции {@link TransactionService}, для которых собираются метрики.
+ */
+public enum ServiceOperation {
+  ADD,
+  ADD_BATCH,
+  DELETE,
+  GET,
+  SELECT,
+  PAGE,
+  SEARCH,
+  SUMMARIZE,
+  SUMMARIZE_PERIOD,
+  BALANCE,
+  BALANCE_AS_OF,
+  NET_FLOW,
+  EXPENSES_BY_CATEGORY,
+  SNAPSHOT,
+  ARCHIVE,
+  TOP_TRANSACTIONS,
+  AMOUNT_DISTRIBUTION;
+
+  /**
+   * Возвращаем имя операции для вывода и JMX, например {@code balance_as_of}.
+   */
+  public String metricName() {
+    return name().toLowerCase(Locale.ROOT);
+  }
+}
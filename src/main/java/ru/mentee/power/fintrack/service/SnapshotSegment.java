@@ -0,0 +1,644 @@
+package ru.mentee.power.fintrack.service;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.IntUnaryOperator;
+import java.util.function.Predicate;
+import ru.mentee.power.fintrack.model.Transaction;
+import ru.mentee.power.fintrack.model.Transaction.Category;
+import ru.mentee.power.fintrack.model.Transaction.TransactionType;
+
+/**
+ * Неизменяемый снимок транзакций в файле, отображённом в память через {@link MappedByteBuffer}.
+ *
+ * <p>Формат (версия 2): заголовок на 64 байта; записи по 24 байта в порядке
+ * {@link TransactionKey}; индекс id → номер записи; списки номеров записей по типу и категории;
+ * пул описаний в UTF-8; накопленные суммы по типу и категории; обратный индекс описаний —
+ * отсортированные слова со списками id. При открытии читаются только заголовок и суммы,
+ * поэтому баланс доступен сразу, а {@link Transaction} создаются лишь для запрошенных записей.
+ * Удалённые после снимка записи отмечаются в памяти. Размер файла ограничен 2 ГБ — пределом
+ * одного {@link MappedByteBuffer}.
+ *
+ * <p>Снимки версии 1 без индекса описаний тоже открываются; для них индекс строится в памяти
+ * при первом поиске по описанию за один проход по всем записям.
+ */
+final class SnapshotSegment {
+
+  private static final int MAGIC = 0x46545331;
+  private static final int VERSION = 2;
+  private static final int VERSION_WITHOUT_WORDS = 1;
+  private static final int WORD_ENTRY_BYTES = 12;
+  private static final int HEADER_BYTES = 64;
+  private static final int RECORD_BYTES = 24;
+  private static final int NO_RECORD = -1;
+  private static final TransactionType[] TYPES = TransactionType.values();
+  private static final Category[] CATEGORIES = Category.values();
+
+  private final MappedByteBuffer buffer;
+  private final long generation;
+  private final int rowCount;
+  private final int nextId;
+  private final int idIndexOffset;
+  private final int poolOffset;
+  private final int wordsOffset;
+  private final int[] typePostings = new int[TYPES.length];
+  private final int[] categoryPostings = new int[CATEGORIES.length];
+  private final CategoryTotals totals = new CategoryTotals();
+  private final AtomicLongArray deleted;
+  private volatile PeriodIndexes periodIndexes;
+  private volatile DescriptionIndex descriptions;
+
+  private SnapshotSegment(MappedByteBuffer buffer) throws IOException {
+    this.buffer = buffer;
+    if (buffer.capacity() < HEADER_BYTES || buffer.getInt(0) != MAGIC) {
+      throw new IOException("Файл не является снимком транзакций");
+    }
+    int version = buffer.getInt(4);
+    if (version != VERSION && version != VERSION_WITHOUT_WORDS) {
+      throw new IOException("Неподдерживаемая версия снимка: " + version);
+    }
+    generation = buffer.getLong(8);
+    rowCount = buffer.getInt(16);
+    nextId = buffer.getInt(20);
+    idIndexOffset = buffer.getInt(24);
+    int postingsOffset = buffer.getInt(28);
+    poolOffset = buffer.getInt(32);
+    int totalsOffset = buffer.getInt(36);
+    wordsOffset = version == VERSION ? buffer.getInt(40) : 0;
+
+    int offset = postingsOffset;
+    for (int i = 0; i < typePostings.length; i++) {
+      typePostings[i] = offset;
+      offset += 4 + 4 * buffer.getInt(offset);
+    }
+    for (int i = 0; i < categoryPostings.length; i++) {
+      categoryPostings[i] = offset;
+      offset += 4 + 4 * buffer.getInt(offset);
+    }
+    readTotals(totalsOffset);
+    deleted = new AtomicLongArray((rowCount + 63) >>> 6);
+  }
+
+  /**
+   * Отображаем файл снимка в память, читая только заголовок и накопленные суммы.
+   */
+  static SnapshotSegment open(Path path) throws IOException {
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+      if (channel.size() > Integer.MAX_VALUE) {
+        throw new IOException("Снимок больше 2 ГБ не поддерживается");
+      }
+      return new SnapshotSegment(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+    }
+  }
+
+  /**
+   * Записываем снимок во временный файл и атомарно подменяем им целевой.
+   */
+  static void write(Path path, Iterator<Transaction> rows, CategoryTotals totals, int nextId,
+      long generation) throws IOException {
+    Path temporary = path.resolveSibling(path.getFileName() + ".tmp");
+    try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE,
+        StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+      new Writer(channel, nextId).write(rows, totals, generation);
+      channel.force(true);
+    }
+    Files.move(temporary, path, StandardCopyOption.ATOMIC_MOVE,
+        StandardCopyOption.REPLACE_EXISTING);
+  }
+
+  long generation() {
+    return generation;
+  }
+
+  int nextId() {
+    return nextId;
+  }
+
+  CategoryTotals totals() {
+    return totals;
+  }
+
+  /**
+   * Возвращаем суммы по дням и месяцам для всех записей снимка, включая удалённые после него.
+   */
+  PeriodRollups rollups() {
+    return periodIndexes().rollups();
+  }
+
+  /**
+   * Возвращаем чистый поток по дням для всех записей снимка, включая удалённые после него.
+   */
+  DailyFlowIndex flows() {
+    return periodIndexes().flows();
+  }
+
+  /**
+   * Строим суммы по периодам один раз при первом запросе проходом по записям без создания
+   * транзакций.
+   */
+  private PeriodIndexes periodIndexes() {
+    PeriodIndexes built = periodIndexes;
+    if (built == null) {
+      synchronized (this) {
+        built = periodIndexes;
+        if (built == null) {
+          built = new PeriodIndexes(new PeriodRollups(), new DailyFlowIndex());
+          for (int position = 0; position < rowCount; position++) {
+            int offset = HEADER_BYTES + position * RECORD_BYTES;
+            LocalDate date = LocalDate.ofEpochDay(buffer.getInt(offset + 4));
+            TransactionType type = TYPES[buffer.get(offset + 17)];
+            BigDecimal sum =
+                BigDecimal.valueOf(buffer.getLong(offset + 8), buffer.get(offset + 16));
+            built.rollups().add(date, type, CATEGORIES[buffer.get(offset + 18)], sum);
+            built.flows().add(date, type, sum);
+          }
+          periodIndexes = built;
+        }
+      }
+    }
+    return built;
+  }
+
+  /**
+   * Возвращаем по возрастанию id записей снимка, включая удалённые после него, описания
+   * которых содержат слова, начинающиеся с каждого из terms. Слова ищутся бинарным поиском по
+   * индексу в файле, в память читаются только списки id найденных слов.
+   */
+  int[] searchDescriptions(List<String> terms) {
+    if (wordsOffset == 0) {
+      return descriptions().search(terms);
+    }
+    return DescriptionIndex.search(terms, this::idsWithPrefix);
+  }
+
+  private int[] idsWithPrefix(String prefix) {
+    int from = firstWordAtLeast(prefix);
+    int to = firstWordAtLeast(prefix + Character.MAX_VALUE);
+    int total = 0;
+    for (int word = from; word < to; word++) {
+      total += buffer.getInt(wordEntry(word) + 8);
+    }
+    int[] ids = new int[total];
+    int filled = 0;
+    for (int word = from; word < to; word++) {
+      int postings = buffer.getInt(wordEntry(word) + 4);
+      int count = buffer.getInt(wordEntry(word) + 8);
+      for (int i = 0; i < count; i++) {
+        ids[filled++] = buffer.getInt(postings + 4 * i);
+      }
+    }
+    return to - from > 1 ? DescriptionIndex.sortedUnique(ids) : ids;
+  }
+
+  private int firstWordAtLeast(String key) {
+    int low = 0;
+    int high = buffer.getInt(wordsOffset);
+    while (low < high) {
+      int middle = (low + high) >>> 1;
+      if (word(middle).compareTo(key) < 0) {
+        low = middle + 1;
+      } else {
+        high = middle;
+      }
+    }
+    return low;
+  }
+
+  private int wordEntry(int word) {
+    return wordsOffset + 4 + word * WORD_ENTRY_BYTES;
+  }
+
+  private String word(int word) {
+    int offset = buffer.getInt(wordEntry(word));
+    byte[] bytes = new byte[buffer.getInt(offset)];
+    buffer.get(offset + 4, bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+
+  /**
+   * Строим в памяти обратный индекс описаний снимка версии 1, где его нет в файле: один раз
+   * при первом поиске обходом всех записей по возрастанию id.
+   */
+  private DescriptionIndex descriptions() {
+    DescriptionIndex built = descriptions;
+    if (built == null) {
+      synchronized (this) {
+        built = descriptions;
+        if (built == null) {
+          built = new DescriptionIndex();
+          for (int id = 0; id < nextId; id++) {
+            int position = positionOf(id);
+            if (position >= 0) {
+              built.add(id, description(HEADER_BYTES + position * RECORD_BYTES));
+            }
+          }
+          descriptions = built;
+        }
+      }
+    }
+    return built;
+  }
+
+  /**
+   * Возвращаем номер записи с данным id или -1, если её нет в снимке.
+   */
+  int positionOf(int id) {
+    if (id < 0 || id >= nextId) {
+      return NO_RECORD;
+    }
+    return buffer.getInt(idIndexOffset + 4 * id);
+  }
+
+  boolean isDeleted(int position) {
+    return (deleted.get(position >>> 6) & (1L << position)) != 0;
+  }
+
+  void markDeleted(int position) {
+    deleted.getAndAccumulate(position >>> 6, 1L << position, (bits, mask) -> bits | mask);
+  }
+
+  /**
+   * Читаем запись и создаём по ней транзакцию.
+   */
+  Transaction read(int position) {
+    int offset = HEADER_BYTES + position * RECORD_BYTES;
+    return new Transaction(
+        buffer.getInt(offset),
+        description(offset),
+        BigDecimal.valueOf(buffer.getLong(offset + 8), buffer.get(offset + 16)),
+        LocalDate.ofEpochDay(buffer.getInt(offset + 4)),
+        CATEGORIES[buffer.get(offset + 18)],
+        TYPES[buffer.get(offset + 17)]);
+  }
+
+  private String description(int recordOffset) {
+    int descriptionOffset = poolOffset + buffer.getInt(recordOffset + 20);
+    byte[] description = new byte[buffer.getInt(descriptionOffset)];
+    buffer.get(descriptionOffset + 4, description);
+    return new String(description, StandardCharsets.UTF_8);
+  }
+
+  /**
+   * Возвращаем записи выборки по типу, иначе по категории, иначе все, с ключами в
+   * (after, upTo]. Записи и списки номеров отсортированы, поэтому границы ищем бинарно.
+   * Удалённые записи не пропускаются: какие из них видны, решает версия реестра у читателя.
+   */
+  Iterator<Transaction> select(TransactionType type, Category category, TransactionKey after,
+      TransactionKey upTo) {
+    IntUnaryOperator position = positions(type, category);
+    int count = count(type, category);
+    int start = after == null ? 0 : firstAfter(after, count, position);
+    int end = upTo == null ? count : firstAfter(upTo, count, position);
+    return new RowIterator(start, Math.max(start, end), position);
+  }
+
+  /**
+   * Берём тот же отрезок, что {@link #select}, как задачу подсчёта итогов по записям,
+   * прошедшим filter; части отрезка читаются независимо.
+   */
+  RangeSummation summation(TransactionType type, Category category, TransactionKey after,
+      TransactionKey upTo, Predicate<Transaction> filter, int threshold) {
+    IntUnaryOperator position = positions(type, category);
+    int count = count(type, category);
+    int start = after == null ? 0 : firstAfter(after, count, position);
+    int end = upTo == null ? count : firstAfter(upTo, count, position);
+    return new RangeSummation((from, to) -> new RowIterator(from, to, position), start, end,
+        filter, threshold);
+  }
+
+  /**
+   * Номера записей выборки: список по типу, иначе по категории, иначе все записи подряд.
+   */
+  private IntUnaryOperator positions(TransactionType type, Category category) {
+    if (type == null && category == null) {
+      return IntUnaryOperator.identity();
+    }
+    int offset = postingsOffset(type, category);
+    return i -> buffer.getInt(offset + 4 + 4 * i);
+  }
+
+  private int count(TransactionType type, Category category) {
+    return type == null && category == null
+        ? rowCount : buffer.getInt(postingsOffset(type, category));
+  }
+
+  private int postingsOffset(TransactionType type, Category category) {
+    return type != null ? typePostings[type.ordinal()] : categoryPostings[category.ordinal()];
+  }
+
+  private int firstAfter(TransactionKey key, int count, IntUnaryOperator position) {
+    long epochDay = key.date().toEpochDay();
+    int low = 0;
+    int high = count;
+    while (low < high) {
+      int middle = (low + high) >>> 1;
+      int offset = HEADER_BYTES + position.applyAsInt(middle) * RECORD_BYTES;
+      int day = buffer.getInt(offset + 4);
+      if (day > epochDay || day == epochDay && buffer.getInt(offset) <= key.id()) {
+        low = middle + 1;
+      } else {
+        high = middle;
+      }
+    }
+    return low;
+  }
+
+  private void readTotals(int offset) {
+    for (TransactionType type : TYPES) {
+      for (Category category : CATEGORIES) {
+        int count = buffer.getInt(offset);
+        int scale = buffer.getInt(offset + 4);
+        byte[] unscaled = new byte[buffer.getShort(offset + 8)];
+        buffer.get(offset + 10, unscaled);
+        offset += 10 + unscaled.length;
+        if (count > 0) {
+          totals.add(type, category, new BigDecimal(new BigInteger(unscaled), scale), count);
+        }
+      }
+    }
+  }
+
+  /**
+   * Обходит записи с номерами position(i) для i из [from, to).
+   */
+  private final class RowIterator implements Iterator<Transaction> {
+
+    private final int end;
+    private final IntUnaryOperator position;
+    private int next;
+
+    private RowIterator(int from, int to, IntUnaryOperator position) {
+      this.end = to;
+      this.position = position;
+      this.next = from;
+    }
+
+    @Override
+    public boolean hasNext() {
+      return next < end;
+    }
+
+    @Override
+    public Transaction next() {
+      if (!hasNext()) {
+        throw new NoSuchElementException();
+      }
+      return read(position.applyAsInt(next++));
+    }
+  }
+
+  /**
+   * Последовательно пишет разделы снимка через буфер, заголовок — в конце, когда известны смещения.
+   */
+  private static final class Writer {
+
+    private final FileChannel channel;
+    private final ByteBuffer out = ByteBuffer.allocateDirect(1 << 20);
+    private final int[] idIndex;
+    private final IntList[] typePostings = new IntList[TYPES.length];
+    private final IntList[] categoryPostings = new IntList[CATEGORIES.length];
+    private final Map<String, Integer> poolOffsets = new HashMap<>();
+    private final Map<String, IntList> words = new TreeMap<>();
+    private final ByteArrayOutputStream pool = new ByteArrayOutputStream();
+    private final int nextId;
+    private long written = HEADER_BYTES;
+
+    private Writer(FileChannel channel, int nextId) {
+      this.channel = channel;
+      this.nextId = nextId;
+      this.idIndex = new int[nextId];
+      Arrays.fill(idIndex, NO_RECORD);
+      Arrays.setAll(typePostings, i -> new IntList());
+      Arrays.setAll(categoryPostings, i -> new IntList());
+    }
+
+    private void write(Iterator<Transaction> rows, CategoryTotals totals, long generation)
+        throws IOException {
+      channel.position(HEADER_BYTES);
+      int rowCount = 0;
+      while (rows.hasNext()) {
+        writeRecord(rows.next(), rowCount++);
+      }
+
+      int idIndexOffset = checkedOffset();
+      for (int position : idIndex) {
+        putInt(position);
+      }
+      int postingsOffset = checkedOffset();
+      for (IntList postings : typePostings) {
+        postings.writeTo(this);
+      }
+      for (IntList postings : categoryPostings) {
+        postings.writeTo(this);
+      }
+      int poolOffset = checkedOffset();
+      drain();
+      ByteBuffer poolBytes = ByteBuffer.wrap(pool.toByteArray());
+      while (poolBytes.hasRemaining()) {
+        written += channel.write(poolBytes);
+      }
+      int totalsOffset = checkedOffset();
+      writeTotals(totals);
+      int wordsOffset = checkedOffset();
+      writeWords(wordsOffset);
+      drain();
+
+      ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES)
+          .putInt(MAGIC).putInt(VERSION).putLong(generation)
+          .putInt(rowCount).putInt(nextId)
+          .putInt(idIndexOffset).putInt(postingsOffset).putInt(poolOffset).putInt(totalsOffset)
+          .putInt(wordsOffset);
+      channel.write(header.clear(), 0);
+    }
+
+    private void writeRecord(Transaction transaction, int position) throws IOException {
+      long unscaled;
+      try {
+        unscaled = transaction.getSum().unscaledValue().longValueExact();
+      } catch (ArithmeticException e) {
+        throw new IllegalStateException("Сумма транзакции " + transaction.getId()
+            + " не помещается в снимок");
+      }
+      int scale = transaction.getSum().scale();
+      if (scale < Byte.MIN_VALUE || scale > Byte.MAX_VALUE) {
+        throw new IllegalStateException("Точность суммы транзакции " + transaction.getId()
+            + " не помещается в снимок");
+      }
+
+      ensureRoom(RECORD_BYTES);
+      out.putInt(transaction.getId())
+          .putInt(Math.toIntExact(transaction.getDate().toEpochDay()))
+          .putLong(unscaled)
+          .put((byte) scale)
+          .put((byte) transaction.getTransactionType().ordinal())
+          .put((byte) transaction.getCategory().ordinal())
+          .put((byte) 0)
+          .putInt(internDescription(transaction.getDescription()));
+      written += RECORD_BYTES;
+
+      idIndex[transaction.getId()] = position;
+      typePostings[transaction.getTransactionType().ordinal()].add(position);
+      categoryPostings[transaction.getCategory().ordinal()].add(position);
+      for (String word : DescriptionIndex.tokens(transaction.getDescription())) {
+        words.computeIfAbsent(word, ignored -> new IntList(4)).add(transaction.getId());
+      }
+    }
+
+    /**
+     * Пишем обратный индекс описаний: число слов, по слову запись (смещение слова, смещение и
+     * длина списка id), затем списки id по возрастанию и сами слова в UTF-8 с длиной.
+     */
+    private void writeWords(int offset) throws IOException {
+      int postings = offset + 4 + words.size() * WORD_ENTRY_BYTES;
+      long text = postings;
+      for (IntList ids : words.values()) {
+        text += 4L * ids.size;
+      }
+      List<byte[]> encoded = new ArrayList<>(words.size());
+      putInt(words.size());
+      for (Map.Entry<String, IntList> word : words.entrySet()) {
+        byte[] bytes = word.getKey().getBytes(StandardCharsets.UTF_8);
+        encoded.add(bytes);
+        putInt((int) text);
+        putInt(postings);
+        putInt(word.getValue().size);
+        text += 4 + bytes.length;
+        postings += 4 * word.getValue().size;
+      }
+      for (IntList ids : words.values()) {
+        Arrays.sort(ids.values, 0, ids.size);
+        for (int i = 0; i < ids.size; i++) {
+          putInt(ids.values[i]);
+        }
+      }
+      for (byte[] bytes : encoded) {
+        putInt(bytes.length);
+        putBytes(bytes);
+      }
+      checkedOffset();
+    }
+
+    private int internDescription(String description) {
+      String value = description == null ? "" : description;
+      Integer offset = poolOffsets.get(value);
+      if (offset == null) {
+        offset = pool.size();
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        pool.writeBytes(ByteBuffer.allocate(4).putInt(bytes.length).array());
+        pool.writeBytes(bytes);
+        poolOffsets.put(value, offset);
+      }
+      return offset;
+    }
+
+    private void writeTotals(CategoryTotals totals) throws IOException {
+      for (TransactionType type : TYPES) {
+        for (Category category : CATEGORIES) {
+          BigDecimal sum = totals.sum(type, category);
+          byte[] unscaled = sum.unscaledValue().toByteArray();
+          ensureRoom(10 + unscaled.length);
+          out.putInt(totals.count(type, category))
+              .putInt(sum.scale())
+              .putShort((short) unscaled.length)
+              .put(unscaled);
+          written += 10 + unscaled.length;
+        }
+      }
+    }
+
+    private void putInt(int value) throws IOException {
+      ensureRoom(4);
+      out.putInt(value);
+      written += 4;
+    }
+
+    private void putBytes(byte[] bytes) throws IOException {
+      if (bytes.length > out.capacity()) {
+        drain();
+        ByteBuffer large = ByteBuffer.wrap(bytes);
+        while (large.hasRemaining()) {
+          channel.write(large);
+        }
+      } else {
+        ensureRoom(bytes.length);
+        out.put(bytes);
+      }
+      written += bytes.length;
+    }
+
+    private int checkedOffset() throws IOException {
+      if (written > Integer.MAX_VALUE) {
+        throw new IOException("Снимок больше 2 ГБ не поддерживается");
+      }
+      return (int) written;
+    }
+
+    private void ensureRoom(int bytes) throws IOException {
+      if (out.remaining() < bytes) {
+        drain();
+      }
+    }
+
+    private void drain() throws IOException {
+      out.flip();
+      while (out.hasRemaining()) {
+        channel.write(out);
+      }
+      out.clear();
+    }
+  }
+
+  /**
+   * Растущий массив int для списков номеров записей.
+   */
+  private static final class IntList {
+
+    private int[] values;
+    private int size;
+
+    private IntList() {
+      this(64);
+    }
+
+    private IntList(int capacity) {
+      values = new int[capacity];
+    }
+
+    private void add(int value) {
+      if (size == values.length) {
+        values = Arrays.copyOf(values, size * 2);
+      }
+      values[size++] = value;
+    }
+
+    private void writeTo(Writer writer) throws IOException {
+      writer.putInt(size);
+      for (int i = 0; i < size; i++) {
+        writer.putInt(values[i]);
+      }
+    }
+  }
+
+  private record PeriodIndexes(PeriodRollups rollups, DailyFlowIndex flows) {
+  }
+}
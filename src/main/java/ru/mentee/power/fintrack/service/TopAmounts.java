@@ -0,0 +1,90 @@
+package ru.mentee.power.fintrack.service;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import ru.mentee.power.fintrack.model.Transaction;
+
+/**
+ * Не больше {@value #CAPACITY} самых крупных транзакций в куче, где наверху самая мелкая.
+ *
+ * <p>Кроме кучи хранится порог — лучшая из транзакций, которые в кучу не попали или были из неё
+ * вытеснены: все транзакции вне кучи не лучше порога, а все в куче лучше него. Удаление из кучи
+ * порог не сдвигает, поэтому куча остаётся точной вершиной, пока в ней хватает транзакций;
+ * если после удалений их меньше запрошенного, сервис перестраивает её обходом транзакций.
+ */
+final class TopAmounts {
+
+  static final int CAPACITY = 100;
+
+  /**
+   * Сначала крупные суммы, при равных — в порядке {@link TransactionKey}.
+   */
+  static final Comparator<Transaction> BY_AMOUNT = Comparator
+      .comparing(Transaction::getSum, Comparator.reverseOrder())
+      .thenComparing(TransactionKey::compare);
+
+  private final PriorityQueue<Transaction> heap =
+      new PriorityQueue<>(CAPACITY, BY_AMOUNT.reversed());
+  private Transaction threshold;
+
+  void add(Transaction transaction) {
+    if (heap.size() < CAPACITY) {
+      if (threshold == null || BY_AMOUNT.compare(transaction, threshold) < 0) {
+        heap.add(transaction);
+      }
+      return;
+    }
+    Transaction weakest = heap.peek();
+    if (BY_AMOUNT.compare(transaction, weakest) < 0) {
+      heap.poll();
+      heap.add(transaction);
+      raiseThreshold(weakest);
+    } else {
+      raiseThreshold(transaction);
+    }
+  }
+
+  /**
+   * Убираем транзакцию по id: прочитанная заново из снимка или архива транзакция — другой
+   * объект.
+   */
+  void remove(Transaction transaction) {
+    heap.removeIf(held -> held.getId() == transaction.getId());
+  }
+
+  void clear() {
+    heap.clear();
+    threshold = null;
+  }
+
+  /**
+   * Точно ли куча знает limit лучших транзакций.
+   */
+  boolean covers(int limit) {
+    return threshold == null || heap.size() >= limit;
+  }
+
+  /**
+   * Добавляем транзакции кучи в список кандидатов.
+   */
+  void copyTo(List<Transaction> candidates) {
+    candidates.addAll(heap);
+  }
+
+  /**
+   * Выбираем limit лучших из кандидатов разных куч.
+   */
+  static List<Transaction> best(List<Transaction> candidates, int limit) {
+    List<Transaction> sorted = new ArrayList<>(candidates);
+    sorted.sort(BY_AMOUNT);
+    return List.copyOf(sorted.subList(0, Math.min(limit, sorted.size())));
+  }
+
+  private void raiseThreshold(Transaction outside) {
+    if (threshold == null || BY_AMOUNT.compare(outside, threshold) < 0) {
+      threshold = outside;
+    }
+  }
+}
@@ -0,0 +1,55 @@
+package ru.mentee.power.fintrack.service;
+
+import java.time.LocalDate;
+import ru.mentee.power.fintrack.model.Transaction;
+import ru.mentee.power.fintrack.model.Transaction.Category;
+import ru.mentee.power.fintrack.model.Transaction.TransactionType;
+
+/**
+ * Условие выборки транзакций; null в любом поле означает «без ограничения».
+ *
+ * @param type     тип транзакции
+ * @param category категория
+ * @param from     первая дата периода включительно
+ * @param to       последняя дата периода включительно
+ */
+public record TransactionFilter(TransactionType type, Category category, LocalDate from,
+    LocalDate to) {
+
+  private static final TransactionFilter ALL = new TransactionFilter(null, null, null, null);
+
+  /**
+   * Проверяем, что период не перевёрнут.
+   */
+  public TransactionFilter {
+    if (from != null && to != null && from.isAfter(to)) {
+      throw new IllegalArgumentException("Начало периода позже его окончания");
+    }
+  }
+
+  public static TransactionFilter all() {
+    return ALL;
+  }
+
+  public static TransactionFilter byType(TransactionType type) {
+    return new TransactionFilter(type, null, null, null);
+  }
+
+  public static TransactionFilter byCategory(Category category) {
+    return new TransactionFilter(null, category, null, null);
+  }
+
+  public static TransactionFilter between(LocalDate from, LocalDate to) {
+    return new TransactionFilter(null, null, from, to);
+  }
+
+  /**
+   * Проверяем, подходит ли транзакция под все заданные условия.
+   */
+  public boolean matches(Transaction transaction) {
+    return (type == null || transaction.getTransactionType() == type)
+        && (category == null || transaction.getCategory() == category)
+        && (from == null || !transaction.getDate().isBefore(from))
+        && (to == null || !transaction.getDate().isAfter(to));
+  }
+}
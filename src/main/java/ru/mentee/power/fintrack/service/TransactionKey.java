@@ -0,0 +1,50 @@
+package ru.mentee.power.fintrack.service;
+
+import java.time.LocalDate;
+import ru.mentee.power.fintrack.model.Transaction;
+
+/**
+ * Ключ упорядочивания транзакций: сначала самые новые, при равной дате по возрастанию id.
+ */
+record TransactionKey(LocalDate date, int id) implements Comparable<TransactionKey> {
+
+  static TransactionKey of(Transaction transaction) {
+    return new TransactionKey(transaction.getDate(), transaction.getId());
+  }
+
+  /**
+   * Ключ, после которого идут только транзакции с датой не позже date.
+   */
+  static TransactionKey newerThan(LocalDate date) {
+    return new TransactionKey(date.plusDays(1), Integer.MAX_VALUE);
+  }
+
+  /**
+   * Последний возможный ключ транзакции с датой date.
+   */
+  static TransactionKey lastOf(LocalDate date) {
+    return new TransactionKey(date, Integer.MAX_VALUE);
+  }
+
+  @Override
+  public int compareTo(TransactionKey other) {
+    int byDate = other.date.compareTo(date);
+    return byDate != 0 ? byDate : Integer.compare(id, other.id);
+  }
+
+  /**
+   * Сравниваем ключ с ключом транзакции, не создавая его.
+   */
+  int compareTo(Transaction transaction) {
+    int byDate = transaction.getDate().compareTo(date);
+    return byDate != 0 ? byDate : Integer.compare(id, transaction.getId());
+  }
+
+  /**
+   * Сравниваем транзакции в том же порядке, не создавая ключей.
+   */
+  static int compare(Transaction first, Transaction second) {
+    int byDate = second.getDate().compareTo(first.getDate());
+    return byDate != 0 ? byDate : Integer.compare(first.getId(), second.getId());
+  }
+}
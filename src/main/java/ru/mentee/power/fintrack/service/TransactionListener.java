@@ -0,0 +1,31 @@
+package ru.mentee.power.fintrack.service;
+
+import java.util.List;
+import ru.mentee.power.fintrack.model.Transaction;
+
+/**
+ * Слушатель изменений в {@link TransactionService}.
+ *
+ * <p>Методы вызываются под замком полосы, к которой относится id транзакции, до того как
+ * изменение станет видно в сервисе, поэтому события по одному id приходят строго по порядку.
+ * Исключение из слушателя отменяет изменение — так журнал может работать как write-ahead log.
+ */
+public interface TransactionListener {
+
+  void onAdd(Transaction transaction);
+
+  void onDelete(Transaction transaction);
+
+  /**
+   * Добавлена пачка транзакций; вызывается под замками всех полос.
+   */
+  default void onAddAll(List<Transaction> transactions) {
+    transactions.forEach(this::onAdd);
+  }
+
+  /**
+   * Все транзакции сохранены в снимок с данным номером контрольной точки.
+   */
+  default void onCheckpoint(long generation) {
+  }
+}
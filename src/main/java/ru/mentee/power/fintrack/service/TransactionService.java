@@ -1,113 +1,1381 @@
 package ru.mentee.power.fintrack.service;
 
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
 import java.math.BigDecimal;
+import java.nio.file.Path;
 import java.time.LocalDate;
+import java.time.Year;
+import java.time.YearMonth;
 import java.util.ArrayList;
-import java.util.Comparator;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.stream.Collectors;
+import java.util.Optional;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BiConsumer;
+import java.util.function.Supplier;
+import java.util.function.UnaryOperator;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 import ru.mentee.power.fintrack.model.Transaction;
 import ru.mentee.power.fintrack.model.Transaction.Category;
 
 /**
  * Описываем основное поведение для объектов класса Transaction.
+ *
+ * <p>Все изменения транзакции с данным id выполняются под замком её полосы (stripe). Полоса
+ * хранит свою часть индекса по id и свои накопленные суммы, а упорядоченные индексы общие.
+ * Обычный сервис работает с одной полосой; сервис, созданный через {@link #concurrent()}, делит
+ * запись на много полос, поэтому писатели с разными id не ждут друг друга.
+ *
+ * <p>Упорядоченные индексы хранятся неизменяемыми версиями ({@link LedgerView}): писатель
+ * публикует новую версию, а выборки и потоки обходят версию, взятую в начале, без замков.
+ * Поэтому долгий отчёт видит реестр на момент своего начала, не мешает писателям и не ломается
+ * от их изменений.
+ *
+ * <p>Сервис, открытый через {@link #openSnapshot(Path)}, читает ранее сохранённые транзакции
+ * прямо из отображённого в память снимка, а новые держит в памяти; запросы сливают оба слоя.
+ *
+ * <p>После {@link #enableArchive(Path, int)} старые месяцы можно вынести из кучи в сжатые
+ * архивные сегменты (см. {@link #archive()}); выборки читают их прозрачно, а накопленные итоги
+ * хранятся по дням и категориям и сегментов не касаются.
+ *
+ * <p>Результаты выборок и итогов кэшируются до следующего изменения реестра (см.
+ * {@link #getQueryCacheStats()}); возвращаемые из кэша списки и карты неизменяемы.
  */
 public class TransactionService {
 
-  private List<Transaction> transactions = new ArrayList<>();
-  private int lastId = 0;
+  private static final int PARALLEL_THRESHOLD = 1 << 16;
+  private static final int QUERY_CACHE_CAPACITY = 256;
+  private static final int ARCHIVE_CACHE_SEGMENTS = 12;
+  private static final int CHANGE_FEED_CAPACITY = 1 << 14;
+  private static final VarHandle VIEW;
+
+  static {
+    try {
+      VIEW = MethodHandles.lookup().findVarHandle(TransactionService.class, "view",
+          LedgerView.class);
+    } catch (ReflectiveOperationException e) {
+      throw new ExceptionInInitializerError(e);
+    }
+  }
+
+  private final Stripe[] stripes;
+  private volatile LedgerView view = LedgerView.EMPTY;
+  private volatile ArchiveStore archiveStore;
+  private volatile int recentMonths;
+  private final AtomicInteger lastId = new AtomicInteger();
+  private final List<TransactionListener> listeners = new CopyOnWriteArrayList<>();
+  private final List<BudgetListener> budgetListeners = new CopyOnWriteArrayList<>();
+  private volatile Map<Category, List<BudgetTracker>> budgets = Map.of();
+  private final ChangeFeed changes = new ChangeFeed(CHANGE_FEED_CAPACITY);
+  private final SnapshotSegment snapshot;
+  private final QueryCache queryCache = new QueryCache(QUERY_CACHE_CAPACITY);
+  private volatile ServiceMetrics metrics = ServiceMetrics.DISABLED;
+  private volatile long snapshotGeneration;
+  private volatile boolean snapshotAmountsLoaded;
+
+  /**
+   * Создаём сервис с одной полосой записи: писатели идут по очереди, читатели их не ждут.
+   */
+  public TransactionService() {
+    this(1, null);
+  }
+
+  private TransactionService(int stripeCount, SnapshotSegment snapshot) {
+    this.stripes = new Stripe[stripeCount];
+    for (int i = 0; i < stripeCount; i++) {
+      stripes[i] = new Stripe();
+    }
+    this.snapshot = snapshot;
+    this.snapshotAmountsLoaded = snapshot == null;
+    if (snapshot != null) {
+      lastId.set(snapshot.nextId());
+      snapshotGeneration = snapshot.generation();
+    }
+  }
+
+  /**
+   * Создаём потокобезопасный сервис для параллельной записи из многих потоков.
+   */
+  public static TransactionService concurrent() {
+    return new TransactionService(concurrentStripeCount(), null);
+  }
+
+  /**
+   * Открываем сервис поверх снимка: читаются только заголовок и итоги, записи — по требованию.
+   */
+  public static TransactionService openSnapshot(Path path) throws IOException {
+    return new TransactionService(1, SnapshotSegment.open(path));
+  }
+
+  /**
+   * Открываем снимок так же, как {@link #openSnapshot(Path)}, но для работы из многих потоков,
+   * как у сервиса из {@link #concurrent()}.
+   */
+  public static TransactionService openSnapshotConcurrent(Path path) throws IOException {
+    return new TransactionService(concurrentStripeCount(), SnapshotSegment.open(path));
+  }
+
+  private static int concurrentStripeCount() {
+    return Integer.highestOneBit(Runtime.getRuntime().availableProcessors() * 8 - 1);
+  }
 
   /**
    * Метод для добавления новой транзакции в transactions с валидацией ввода.
    */
   public Transaction addTransaction(Transaction.TransactionType type,
       BigDecimal sum, Transaction.Category category, String description) {
+    return addTransaction(type, sum, category, description, LocalDate.now());
+  }
 
-    if (sum.compareTo(BigDecimal.ZERO) <= 0) {
-      throw new IllegalArgumentException("Сумма должна быть положительной");
+  /**
+   * Добавляем транзакцию с явно указанной датой, например при загрузке истории.
+   */
+  public Transaction addTransaction(Transaction.TransactionType type,
+      BigDecimal sum, Transaction.Category category, String description, LocalDate date) {
+    validate(sum, category, date);
+
+    ServiceMetrics.Sample sample = metrics.start(ServiceOperation.ADD);
+    try {
+      int newId = lastId.getAndIncrement();
+
+      Transaction transaction = new Transaction(newId, description, sum, date, category, type);
+      insert(transaction);
+      return transaction;
+    } finally {
+      sample.stop();
     }
-    if (category == null) {
-      throw new IllegalArgumentException("Категория обязательна");
+  }
+
+  /**
+   * Добавляем пачку транзакций одной операцией, например при импорте выписки.
+   *
+   * <p>Id исходных объектов не используются: пачка получает подряд идущие id в порядке обхода
+   * коллекции. Слушатели получают всю пачку одним вызовом, индексы дополняются заранее
+   * отсортированной пачкой. Если хотя бы одна транзакция некорректна, не добавляется ни одна.
+   */
+  public List<Transaction> addTransactions(Collection<Transaction> drafts) {
+    for (Transaction draft : drafts) {
+      validate(draft.getSum(), draft.getCategory(), draft.getDate());
+    }
+    if (drafts.isEmpty()) {
+      return List.of();
+    }
+
+    ServiceMetrics.Sample sample = metrics.start(ServiceOperation.ADD_BATCH);
+    int nextId = lastId.getAndAdd(drafts.size());
+    List<Transaction> batch = new ArrayList<>(drafts.size());
+    for (Transaction draft : drafts) {
+      batch.add(new Transaction(nextId++, draft.getDescription(), draft.getSum(),
+          draft.getDate(), draft.getCategory(), draft.getTransactionType()));
+    }
+    List<Transaction> added = Collections.unmodifiableList(batch);
+    List<BudgetStatus> crossed = new ArrayList<>();
+
+    lockAll();
+    try {
+      for (Transaction transaction : batch) {
+        stripeFor(transaction.getId()).flows.reserve(transaction.getDate());
+      }
+      listeners.forEach(listener -> listener.onAddAll(added));
+      for (Transaction transaction : batch) {
+        Stripe stripe = stripeFor(transaction.getId());
+        stripe.byId.put(transaction.getId(), transaction);
+        stripe.totals.add(transaction);
+        stripe.rollups.add(transaction);
+        stripe.flows.add(transaction);
+        stripe.descriptions.add(transaction);
+        stripe.amounts.add(transaction);
+        trackBudgets(transaction, transaction.getSum(), crossed);
+      }
+      indexAll(batch);
+      queryCache.invalidate();
+      changes.publishAll(added);
+    } finally {
+      unlockAll();
+      sample.stop();
+    }
+    notifyBudgetListeners(crossed);
+    return added;
+  }
+
+  /**
+   * Восстанавливаем транзакцию с уже выданным id, например при чтении журнала. Транзакция,
+   * которая уже лежит в архивном сегменте прежнего запуска, пропускается.
+   */
+  public void restoreTransaction(Transaction transaction) {
+    lastId.accumulateAndGet(transaction.getId() + 1, Math::max);
+    ArchiveStore store = archiveStore;
+    if (store == null || !store.isRestored(transaction.getId())) {
+      insert(transaction);
     }
+  }
+
+  /**
+   * Подписываем слушателя на добавление и удаление транзакций.
+   */
+  public void addListener(TransactionListener listener) {
+    listeners.add(listener);
+  }
+
+  public void removeListener(TransactionListener listener) {
+    listeners.remove(listener);
+  }
+
+  /**
+   * Подписываем слушателя на переход расходов через лимиты бюджетов.
+   */
+  public void addBudgetListener(BudgetListener listener) {
+    budgetListeners.add(listener);
+  }
+
+  public void removeBudgetListener(BudgetListener listener) {
+    budgetListeners.remove(listener);
+  }
+
+  /**
+   * Подписываемся на ленту добавлений и удалений начиная с номера from.
+   *
+   * <p>В отличие от {@link TransactionListener} подписчик получает только применённые изменения
+   * пачками не больше maxBatch в своём потоке и не задерживает запись: лента хранит последние
+   * {@value #CHANGE_FEED_CAPACITY} изменений — столько же, сколько строк в куске импорта CSV, —
+   * об отставании сверх этого подписчик узнаёт через {@link ChangeSubscriber#onMissed}. Вместе
+   * с изменениями лента держит в памяти их транзакции, включая удалённые и вынесенные в архив.
+   * Изменения одной транзакции идут по порядку, изменения разных полос — в порядке записи в
+   * ленту.
+   *
+   * <p>Журнал при открытии проигрывается обычными добавлениями и удалениями, поэтому они тоже
+   * получают номера в ленте. Чтобы получать только новые изменения, передайте
+   * {@link #getLastChangeSequence()} + 1; чтобы возобновить закрытую подписку —
+   * {@link ChangeFeed.Subscription#position()}.
+   */
+  public ChangeFeed.Subscription subscribeChanges(long from, int maxBatch,
+      ChangeSubscriber subscriber) {
+    return changes.subscribe(from, maxBatch, subscriber);
+  }
+
+  /**
+   * Возвращаем номер последнего изменения в ленте (0, если изменений не было).
+   */
+  public long getLastChangeSequence() {
+    return changes.lastSequence();
+  }
 
-    int newId = lastId++;
-    LocalDate currentDate = LocalDate.now();
+  /**
+   * Устанавливаем или заменяем бюджет категории на период.
+   *
+   * <p>Расходы по уже внесённым транзакциям берутся из сумм по месяцам за O(число месяцев);
+   * дальше каждое добавление и удаление расхода меняет счётчик своего периода за O(1) и
+   * вызывает {@link BudgetListener}, если расходы перешли через лимит.
+   */
+  public void setBudget(Category category, BudgetPeriod period, BigDecimal limit) {
+    Budget budget = new Budget(category, period, limit);
+    lockAll();
+    try {
+      BudgetTracker tracker = new BudgetTracker(budget, monthlyExpenses(category));
+      Map<Category, List<BudgetTracker>> updated = new EnumMap<>(Category.class);
+      updated.putAll(budgets);
+      List<BudgetTracker> trackers = new ArrayList<>(updated.getOrDefault(category, List.of()));
+      trackers.removeIf(existing -> existing.budget().period() == period);
+      trackers.add(tracker);
+      updated.put(category, List.copyOf(trackers));
+      budgets = updated;
+    } finally {
+      unlockAll();
+    }
+  }
 
-    Transaction transaction = new Transaction(newId, description, sum, currentDate, category,
-        type);
+  /**
+   * Снимаем бюджет категории на период и возвращаем false, если его не было.
+   */
+  public boolean removeBudget(Category category, BudgetPeriod period) {
+    lockAll();
+    try {
+      List<BudgetTracker> trackers = budgets.getOrDefault(category, List.of());
+      List<BudgetTracker> kept = trackers.stream()
+          .filter(tracker -> tracker.budget().period() != period)
+          .toList();
+      if (kept.size() == trackers.size()) {
+        return false;
+      }
+      Map<Category, List<BudgetTracker>> updated = new EnumMap<>(Category.class);
+      updated.putAll(budgets);
+      updated.put(category, kept);
+      budgets = updated;
+      return true;
+    } finally {
+      unlockAll();
+    }
+  }
 
-    transactions.add(transaction);
-    return transaction;
+  /**
+   * Возвращаем расходы по всем бюджетам за периоды, в которые попадает date.
+   */
+  public List<BudgetStatus> getBudgetStatus(LocalDate date) {
+    List<BudgetStatus> statuses = new ArrayList<>();
+    for (List<BudgetTracker> trackers : budgets.values()) {
+      for (BudgetTracker tracker : trackers) {
+        statuses.add(tracker.status(date));
+      }
+    }
+    return statuses;
   }
 
   /**
    * Возвращаем все транзакции по дате от самой новой к самой старой.
    */
   public List<Transaction> getAllTransactions() {
-    return transactions.stream()
-        .sorted(Comparator.comparing(Transaction::getDate).reversed())
-        .collect(Collectors.toList());
+    return selectCached(TransactionFilter.all());
+  }
+
+  /**
+   * Ищем транзакции, в описании которых есть слова, начинающиеся с каждого слова запроса,
+   * и возвращаем их от самой новой к самой старой. Регистр и «ё»/«е» не различаются.
+   */
+  public List<Transaction> search(String query) {
+    List<String> terms = DescriptionIndex.tokens(query);
+    if (terms.isEmpty()) {
+      return List.of();
+    }
+    return query(ServiceOperation.SEARCH,
+        () -> Collections.unmodifiableList(findByDescription(terms)), terms);
+  }
+
+  private List<Transaction> findByDescription(List<String> terms) {
+    List<Transaction> found = new ArrayList<>();
+    if (snapshot != null) {
+      for (int id : snapshot.searchDescriptions(terms)) {
+        int position = livePositionInSnapshot(id);
+        if (position >= 0) {
+          found.add(snapshot.read(position));
+        }
+      }
+    }
+    List<Integer> archived = new ArrayList<>();
+    for (Stripe stripe : stripes) {
+      stripe.lock.lock();
+      try {
+        for (int id : stripe.descriptions.search(terms)) {
+          Transaction transaction = stripe.byId.get(id);
+          if (transaction != null) {
+            found.add(transaction);
+          } else {
+            archived.add(id);
+          }
+        }
+      } finally {
+        stripe.lock.unlock();
+      }
+    }
+    LedgerView current = view;
+    for (int id : archived) {
+      Transaction transaction = findArchived(current, id);
+      if (transaction != null) {
+        found.add(transaction);
+      }
+    }
+    found.sort(TransactionKey::compare);
+    return found;
   }
 
   /**
-   * Возвращаем транзакции по типу и фильтруем по дате от самой новой к самой старой.
+   * Возвращаем ленивый поток транзакций по фильтру, от самой новой к самой старой.
+   *
+   * <p>Транзакции читаются по мере обхода, список целиком не строится. Поток обходит версию
+   * реестра на момент вызова: изменения, сделанные во время обхода, в него не попадают.
+   */
+  public Stream<Transaction> stream(TransactionFilter filter) {
+    return asStream(select(filter, null));
+  }
+
+  /**
+   * Возвращаем страницу из не более чем pageSize транзакций, идущих после транзакции after.
+   *
+   * <p>Страница ищется по ключу (дата, id), а не по смещению, поэтому следующая страница
+   * строится без обхода предыдущих и не сдвигается, если между запросами что-то удалили.
+   * Для первой страницы after равен null, для следующей — последний элемент текущей.
+   */
+  public List<Transaction> page(TransactionFilter filter, int pageSize, Transaction after) {
+    return after == null ? page(filter, pageSize, null, 0)
+        : page(filter, pageSize, after.getDate(), after.getId());
+  }
+
+  /**
+   * Возвращаем страницу после ключа (afterDate, afterId) — даты и id последнего элемента
+   * предыдущей страницы. Курсор — сам ключ, поэтому страница строится, даже если эту
+   * транзакцию уже удалили. Для первой страницы afterDate равен null.
+   */
+  public List<Transaction> page(TransactionFilter filter, int pageSize, LocalDate afterDate,
+      int afterId) {
+    if (pageSize <= 0) {
+      throw new IllegalArgumentException("Размер страницы должен быть больше нуля");
+    }
+    TransactionKey afterKey = afterDate == null ? null : new TransactionKey(afterDate, afterId);
+    return query(ServiceOperation.PAGE,
+        () -> Collections.unmodifiableList(readPage(filter, pageSize, afterKey)),
+        filter, pageSize, afterKey);
+  }
+
+  private List<Transaction> readPage(TransactionFilter filter, int pageSize,
+      TransactionKey after) {
+    Iterator<Transaction> matches = select(filter, after);
+    List<Transaction> page = new ArrayList<>(Math.min(pageSize, 1024));
+    while (page.size() < pageSize && matches.hasNext()) {
+      page.add(matches.next());
+    }
+    return page;
+  }
+
+  /**
+   * Находим транзакцию по id за O(1).
+   */
+  public Optional<Transaction> getTransaction(int id) {
+    ServiceMetrics.Sample sample = metrics.start(ServiceOperation.GET);
+    Stripe stripe = stripeFor(id);
+    Transaction transaction;
+    stripe.lock.lock();
+    try {
+      transaction = stripe.byId.get(id);
+      if (transaction == null) {
+        int position = livePositionInSnapshot(id);
+        transaction = position < 0 ? null : snapshot.read(position);
+      }
+    } finally {
+      stripe.lock.unlock();
+    }
+    try {
+      // Архивный сегмент может читаться с диска, поэтому ищем в нём уже без замка полосы.
+      return Optional.ofNullable(transaction != null ? transaction : findArchived(view, id));
+    } finally {
+      sample.stop();
+    }
+  }
+
+  /**
+   * Возвращаем транзакции с датой в диапазоне [from, to] от самой новой к самой старой.
+   */
+  public List<Transaction> getTransactionsBetween(LocalDate from, LocalDate to) {
+    return selectCached(TransactionFilter.between(from, to));
+  }
+
+  /**
+   * Возвращаем транзакции по типу из индекса, уже упорядоченного от самой новой к самой старой.
    */
   public List<Transaction> getTransactionsByType(Transaction.TransactionType type) {
-    return transactions.stream()
-        .filter(t -> t.getTransactionType() == type)
-        .sorted(Comparator.comparing(Transaction::getDate).reversed())
-        .collect(Collectors.toList());
+    return selectCached(TransactionFilter.byType(type));
   }
 
   /**
-   * Возвращаем транзакции по типу и фильтруем по дате от самой новой к самой старой.
+   * Возвращаем транзакции по категории из индекса, упорядоченного от самой новой к самой старой.
    */
   public List<Transaction> getTransactionsByCategory(Transaction.Category category) {
-    return transactions.stream()
-        .filter(t -> t.getCategory() == category)
-        .sorted(Comparator.comparing(Transaction::getDate).reversed())
-        .collect(Collectors.toList());
+    return selectCached(TransactionFilter.byCategory(category));
   }
 
   /**
-   * Проходим по коллекции находим доходы/расходы суммируем и вычитаем из доходов расходы.
+   * Вычитаем из накопленной суммы доходов накопленную сумму расходов.
    */
   public BigDecimal calculateBalance() {
-    BigDecimal income = transactions.stream()
-        .filter(t -> t.getTransactionType() == Transaction.TransactionType.INCOME)
-        .map(Transaction::getSum)
-        .reduce(BigDecimal.ZERO, BigDecimal::add);
+    return query(ServiceOperation.BALANCE, () -> {
+      CategoryTotals totals = collectTotals();
+      return totals.total(Transaction.TransactionType.INCOME)
+          .subtract(totals.total(Transaction.TransactionType.EXPENSE));
+    });
+  }
 
-    BigDecimal expense = transactions.stream()
-        .filter(t -> t.getTransactionType() == Transaction.TransactionType.EXPENSE)
-        .map(Transaction::getSum)
-        .reduce(BigDecimal.ZERO, BigDecimal::add);
+  /**
+   * Возвращаем накопленные суммы расходов по категориям.
+   */
+  public Map<Category, BigDecimal> getExpensesByCategory() {
+    return query(ServiceOperation.EXPENSES_BY_CATEGORY, () -> Collections.unmodifiableMap(
+        collectTotals().byCategory(Transaction.TransactionType.EXPENSE)));
+  }
 
-    return income.subtract(expense);
+  /**
+   * Считаем итоги по выборке. Для выборки без условий итоги уже накоплены; иначе транзакции
+   * обходятся, и если в выборке больше {@value #PARALLEL_THRESHOLD} записей, обход идёт
+   * параллельно.
+   */
+  public TransactionSummary summarize(TransactionFilter filter) {
+    return query(ServiceOperation.SUMMARIZE, () -> summarize(filter, PARALLEL_THRESHOLD), filter);
   }
 
   /**
-   * Возвращаем транзакции по категории.
+   * Считаем итоги с заданным порогом параллельного обхода. Порядок для сумм не важен, поэтому
+   * выборка не сливается, как в {@link #select}: отрезок индекса версии, отрезок снимка и каждый
+   * подходящий архивный сегмент считаются отдельными задачами {@link RangeSummation}, которые
+   * делятся пополам до порога. Размер выборки — сумма длин отрезков, она известна за
+   * O(log n) без обхода.
    */
-  public Map<Category, BigDecimal> getExpensesByCategory() {
-    return transactions.stream()
-        .filter(t -> t.getTransactionType() == Transaction.TransactionType.EXPENSE)
-        .collect(Collectors.groupingBy(
-            Transaction::getCategory,
-            Collectors.reducing(
-                BigDecimal.ZERO,
-                Transaction::getSum,
-                BigDecimal::add
-            )
-        ));
+  TransactionSummary summarize(TransactionFilter filter, int parallelThreshold) {
+    if (filter.equals(TransactionFilter.all())) {
+      return new TransactionSummary(collectTotals());
+    }
+    TransactionKey lower = lowerBound(filter, null);
+    TransactionKey upper = upperBound(filter);
+    LedgerView current = view;
+    List<RangeSummation> parts = new ArrayList<>();
+
+    PersistentIndex index = current.index(filter.type(), filter.category());
+    parts.add(new RangeSummation(index::iterator, index.countThrough(lower),
+        upper == null ? index.size() : index.countThrough(upper), filter::matches,
+        parallelThreshold));
+    if (snapshot != null) {
+      PersistentIndex removed = current.removedFromSnapshot();
+      parts.add(snapshot.summation(filter.type(), filter.category(), lower, upper,
+          row -> filter.matches(row) && (removed.isEmpty() || removed.find(row) == null),
+          parallelThreshold));
+    }
+    ArchiveStore store = archiveStore;
+    PersistentIndex removedFromArchive = current.removedFromArchive();
+    for (ArchiveSegment segment : archiveSegments(current, filter.type(), filter.category(),
+        lower, upper)) {
+      parts.add(new RangeSummation((from, to) -> store.rows(segment).range(from, to), 0,
+          segment.rowCount(), row -> filter.matches(row)
+              && (removedFromArchive.isEmpty() || removedFromArchive.find(row) == null),
+          parallelThreshold));
+    }
+    return new TransactionSummary(RangeSummation.sum(parts, parallelThreshold));
+  }
+
+  /**
+   * Считаем итоги за период [from, to] по суммам за дни и месяцы, не обходя транзакции.
+   */
+  public TransactionSummary summarizePeriod(LocalDate from, LocalDate to) {
+    if (from.isAfter(to)) {
+      throw new IllegalArgumentException("Начало периода позже его окончания");
+    }
+    return query(ServiceOperation.SUMMARIZE_PERIOD, () -> collectPeriod(from, to), from, to);
+  }
+
+  private TransactionSummary collectPeriod(LocalDate from, LocalDate to) {
+    CategoryTotals totals = new CategoryTotals();
+    if (snapshot != null) {
+      snapshot.rollups().collect(from, to, totals::merge);
+    }
+    for (Stripe stripe : stripes) {
+      stripe.lock.lock();
+      try {
+        stripe.rollups.collect(from, to, totals::merge);
+        if (snapshot != null) {
+          stripe.removedFromSnapshotRollups.collect(from, to, totals::subtract);
+        }
+      } finally {
+        stripe.lock.unlock();
+      }
+    }
+    return new TransactionSummary(totals);
+  }
+
+  /**
+   * Считаем итоги за календарный месяц.
+   */
+  public TransactionSummary summarizeMonth(YearMonth month) {
+    return summarizePeriod(month.atDay(1), month.atEndOfMonth());
+  }
+
+  /**
+   * Возвращаем итоги по каждому месяцу года по порядку.
+   */
+  public Map<YearMonth, TransactionSummary> getMonthlyReport(Year year) {
+    Map<YearMonth, TransactionSummary> report = new LinkedHashMap<>();
+    for (int month = 1; month <= 12; month++) {
+      report.put(year.atMonth(month), summarizeMonth(year.atMonth(month)));
+    }
+    return report;
+  }
+
+  /**
+   * Возвращаем итоги по каждому дню месяца по порядку.
+   */
+  public Map<LocalDate, TransactionSummary> getDailyReport(YearMonth month) {
+    Map<LocalDate, TransactionSummary> report = new LinkedHashMap<>();
+    for (int day = 1; day <= month.lengthOfMonth(); day++) {
+      report.put(month.atDay(day), summarizePeriod(month.atDay(day), month.atDay(day)));
+    }
+    return report;
+  }
+
+  /**
+   * Возвращаем до limit самых крупных транзакций с данными типом и категорией (null означает
+   * любые) от крупной к мелкой. Ответ собирается из ограниченных куч полос, поэтому его время
+   * не зависит от размера реестра.
+   *
+   * <p>Худший случай — удаления опустошили кучу какой-то пары ниже limit. Тогда кучи подходящих
+   * пар перестраиваются обходом всех их транзакций под замками всех полос: запрос стоит O(n) и
+   * всё это время задерживает запись. После перестройки кучи снова полны, до
+   * {@value TopAmounts#CAPACITY} транзакций, так что следующая перестройка понадобится лишь
+   * после новых удалений из их вершин.
+   */
+  public List<Transaction> getTopTransactions(Transaction.TransactionType type,
+      Category category, int limit) {
+    if (limit <= 0 || limit > TopAmounts.CAPACITY) {
+      throw new IllegalArgumentException(
+          "Число транзакций должно быть от 1 до " + TopAmounts.CAPACITY);
+    }
+    return query(ServiceOperation.TOP_TRANSACTIONS, () -> collectTop(type, category, limit),
+        type, category, limit);
+  }
+
+  private List<Transaction> collectTop(Transaction.TransactionType type, Category category,
+      int limit) {
+    loadSnapshotAmounts();
+    List<Transaction> candidates = new ArrayList<>();
+    boolean covered = true;
+    for (Stripe stripe : stripes) {
+      stripe.lock.lock();
+      try {
+        covered &= stripe.amounts.collectTop(candidates, type, category, limit);
+      } finally {
+        stripe.lock.unlock();
+      }
+    }
+    if (covered) {
+      return TopAmounts.best(candidates, limit);
+    }
+
+    lockAll();
+    try {
+      for (Stripe stripe : stripes) {
+        stripe.amounts.clearTop(type, category);
+      }
+      select(new TransactionFilter(type, category, null, null), null).forEachRemaining(
+          transaction -> stripeFor(transaction.getId()).amounts.addTop(transaction));
+      candidates.clear();
+      for (Stripe stripe : stripes) {
+        stripe.amounts.collectTop(candidates, type, category, limit);
+      }
+      return TopAmounts.best(candidates, limit);
+    } finally {
+      unlockAll();
+    }
+  }
+
+  /**
+   * Возвращаем распределение сумм транзакций с данными типом и категорией (null означает
+   * любые). Распределения полос складываются за время, не зависящее от размера реестра.
+   */
+  public AmountDistribution getAmountDistribution(Transaction.TransactionType type,
+      Category category) {
+    return query(ServiceOperation.AMOUNT_DISTRIBUTION, () -> {
+      loadSnapshotAmounts();
+      AmountSketch sketch = new AmountSketch();
+      for (Stripe stripe : stripes) {
+        stripe.lock.lock();
+        try {
+          stripe.amounts.mergeInto(sketch, type, category);
+        } finally {
+          stripe.lock.unlock();
+        }
+      }
+      return new AmountDistribution(sketch);
+    }, type, category);
+  }
+
+  /**
+   * Учитываем записи снимка в распределениях и кучах полос один раз при первом запросе, чтобы
+   * открытие снимка не обходило его записи.
+   */
+  private void loadSnapshotAmounts() {
+    if (snapshotAmountsLoaded) {
+      return;
+    }
+    lockAll();
+    try {
+      if (!snapshotAmountsLoaded) {
+        liveInSnapshot(view, snapshot.select(null, null, null, null)).forEachRemaining(
+            transaction -> stripeFor(transaction.getId()).amounts.add(transaction));
+        snapshotAmountsLoaded = true;
+      }
+    } finally {
+      unlockAll();
+    }
+  }
+
+  /**
+   * Возвращаем баланс на конец дня date: доходы минус расходы за все дни не позже него.
+   * Стоит O(log n) на полосу, где n — число дней между самой ранней и самой поздней датой.
+   */
+  public BigDecimal balanceAsOf(LocalDate date) {
+    return query(ServiceOperation.BALANCE_AS_OF, () -> sumFlowsThrough(date), date);
+  }
+
+  private BigDecimal sumFlowsThrough(LocalDate date) {
+    BigDecimal balance = snapshot != null ? snapshot.flows().sumThrough(date) : BigDecimal.ZERO;
+    for (Stripe stripe : stripes) {
+      stripe.lock.lock();
+      try {
+        balance = balance.add(stripe.flows.sumThrough(date));
+      } finally {
+        stripe.lock.unlock();
+      }
+    }
+    return balance;
+  }
+
+  /**
+   * Возвращаем чистый поток за период [from, to]: доходы минус расходы за эти дни.
+   */
+  public BigDecimal netFlowBetween(LocalDate from, LocalDate to) {
+    if (from.isAfter(to)) {
+      throw new IllegalArgumentException("Начало периода позже его окончания");
+    }
+    return query(ServiceOperation.NET_FLOW, () -> sumFlowsBetween(from, to), from, to);
+  }
+
+  private BigDecimal sumFlowsBetween(LocalDate from, LocalDate to) {
+    LocalDate before = from.minusDays(1);
+    BigDecimal flow = BigDecimal.ZERO;
+    if (snapshot != null) {
+      DailyFlowIndex flows = snapshot.flows();
+      flow = flows.sumThrough(to).subtract(flows.sumThrough(before));
+    }
+    for (Stripe stripe : stripes) {
+      stripe.lock.lock();
+      try {
+        flow = flow.add(stripe.flows.sumThrough(to)).subtract(stripe.flows.sumThrough(before));
+      } finally {
+        stripe.lock.unlock();
+      }
+    }
+    return flow;
   }
 
   /**
    * Удалить транзакцию по id.
    */
   public boolean deleteTransaction(int id) {
-    return transactions.removeIf(t -> t.getId() == id);
+    ServiceMetrics.Sample sample = metrics.start(ServiceOperation.DELETE);
+    List<BudgetStatus> crossed = new ArrayList<>();
+    Stripe stripe = stripeFor(id);
+    stripe.lock.lock();
+    try {
+      Transaction transaction = stripe.byId.get(id);
+      if (transaction == null) {
+        return deleteFromSnapshot(stripe, id, crossed) || deleteFromArchive(stripe, id, crossed);
+      }
+      listeners.forEach(listener -> listener.onDelete(transaction));
+      stripe.byId.remove(id);
+      stripe.totals.remove(transaction);
+      stripe.rollups.remove(transaction);
+      stripe.flows.remove(transaction);
+      stripe.descriptions.remove(transaction);
+      stripe.amounts.remove(transaction);
+      trackBudgets(transaction, transaction.getSum().negate(), crossed);
+      publish(current -> current.without(transaction));
+      queryCache.invalidate();
+      changes.publish(ChangeEvent.Type.DELETE, transaction);
+      return true;
+    } finally {
+      stripe.lock.unlock();
+      sample.stop();
+      notifyBudgetListeners(crossed);
+    }
+  }
+
+  /**
+   * Сохраняем все транзакции в снимок и сообщаем слушателям номер новой контрольной точки.
+   *
+   * <p>На время записи блокируются все полосы, поэтому снимок согласован, а журнал можно
+   * безопасно обнулить в {@link TransactionListener#onCheckpoint(long)}.
+   */
+  public void saveSnapshot(Path path) throws IOException {
+    ServiceMetrics.Sample sample = metrics.start(ServiceOperation.SNAPSHOT);
+    lockAll();
+    try {
+      long generation = snapshotGeneration + 1;
+      SnapshotSegment.write(path, select(TransactionFilter.all(), null),
+          collectTotals(), lastId.get(), generation);
+      snapshotGeneration = generation;
+      listeners.forEach(listener -> listener.onCheckpoint(generation));
+      if (archiveStore != null) {
+        archiveStore.checkpoint(generation);
+      }
+    } finally {
+      unlockAll();
+      sample.stop();
+    }
+  }
+
+  /**
+   * Включаем архив в каталоге directory: в памяти остаются транзакции последних recentMonths
+   * месяцев, включая текущий, более старые выносит {@link #archive()}.
+   *
+   * <p>Сегменты, вынесенные прежними запусками поверх текущего снимка, подхватываются: их
+   * транзакции снова читаются из архива, а их записи в журнале {@link #restoreTransaction}
+   * пропускает. Поэтому архив включается до чтения журнала и до добавления транзакций. После
+   * {@link #saveSnapshot(Path)} архивные транзакции лежат в снимке, и сегменты при следующем
+   * включении удаляются.
+   */
+  public void enableArchive(Path directory, int recentMonths) throws IOException {
+    if (recentMonths <= 0) {
+      throw new IllegalArgumentException("Число месяцев в памяти должно быть больше нуля");
+    }
+    if (archiveStore == null) {
+      restoreArchive(ArchiveStore.open(directory, ARCHIVE_CACHE_SEGMENTS, snapshotGeneration));
+    }
+    this.recentMonths = recentMonths;
+  }
+
+  /**
+   * Подключаем архив и учитываем транзакции его сегментов в итогах полос. Сегменты разбираются
+   * по одному и в кэш не попадают.
+   */
+  private void restoreArchive(ArchiveStore store) throws IOException {
+    lockAll();
+    try {
+      List<ArchiveSegment> segments = store.restored();
+      if (!segments.isEmpty() && !view.index(null, null).isEmpty()) {
+        throw new IllegalStateException(
+            "Архив с сегментами включается до чтения журнала и добавления транзакций");
+      }
+      for (ArchiveSegment segment : segments) {
+        Iterator<Transaction> rows = segment.decode().range(0, segment.rowCount());
+        while (rows.hasNext()) {
+          Transaction transaction = rows.next();
+          Stripe stripe = stripeFor(transaction.getId());
+          stripe.totals.add(transaction);
+          stripe.rollups.add(transaction);
+          stripe.flows.add(transaction);
+          stripe.descriptions.add(transaction);
+          stripe.amounts.add(transaction);
+          store.markRestored(transaction.getId());
+          lastId.accumulateAndGet(transaction.getId() + 1, Math::max);
+        }
+      }
+      archiveStore = store;
+      if (!segments.isEmpty()) {
+        publish(current -> current.withArchive(segments));
+        queryCache.invalidate();
+      }
+    } finally {
+      unlockAll();
+    }
+  }
+
+  /**
+   * Выносим транзакции старше заданного в {@link #enableArchive(Path, int)} числа месяцев
+   * в архивные сегменты по месяцам и возвращаем их число.
+   */
+  public int archive() throws IOException {
+    if (archiveStore == null) {
+      throw new IllegalStateException("Архив не включён");
+    }
+    return archiveBefore(YearMonth.now().minusMonths(recentMonths - 1L).atDay(1));
+  }
+
+  /**
+   * Выносим в архив транзакции из памяти с датой раньше before. Записи снимка и так лежат вне
+   * кучи и не переносятся. На время записи сегментов блокируются все полосы; читатели не ждут.
+   */
+  int archiveBefore(LocalDate before) throws IOException {
+    ServiceMetrics.Sample sample = metrics.start(ServiceOperation.ARCHIVE);
+    lockAll();
+    try {
+      Map<YearMonth, List<Transaction>> byMonth = new LinkedHashMap<>();
+      Iterator<Transaction> old = view.index(null, null)
+          .iterator(TransactionKey.lastOf(before), null);
+      while (old.hasNext()) {
+        Transaction transaction = old.next();
+        byMonth.computeIfAbsent(YearMonth.from(transaction.getDate()),
+            month -> new ArrayList<>()).add(transaction);
+      }
+      if (byMonth.isEmpty()) {
+        return 0;
+      }
+
+      List<ArchiveSegment> segments = new ArrayList<>(byMonth.size());
+      int archived = 0;
+      for (Map.Entry<YearMonth, List<Transaction>> month : byMonth.entrySet()) {
+        segments.add(archiveStore.write(month.getKey(), month.getValue()));
+        archived += month.getValue().size();
+      }
+      archiveStore.commit(segments);
+      publish(current -> current.withArchived(before, segments));
+      for (List<Transaction> month : byMonth.values()) {
+        for (Transaction transaction : month) {
+          stripeFor(transaction.getId()).byId.remove(transaction.getId());
+        }
+      }
+      // Закэшированные выборки держат ссылки на вынесенные транзакции.
+      queryCache.invalidate();
+      return archived;
+    } finally {
+      unlockAll();
+      sample.stop();
+    }
+  }
+
+  /**
+   * Сколько раз архивные сегменты читались с диска; 0, если архив не включён.
+   */
+  long getArchiveDecodes() {
+    return archiveStore == null ? 0 : archiveStore.decodes();
+  }
+
+  /**
+   * Задаём предельное число результатов в кэше запросов; 0 выключает кэш.
+   */
+  public void setQueryCacheCapacity(int capacity) {
+    queryCache.setCapacity(capacity);
+  }
+
+  /**
+   * Возвращаем счётчики попаданий и промахов кэша запросов.
+   */
+  public QueryCacheStats getQueryCacheStats() {
+    return queryCache.stats();
   }
 
-}
\ No newline at end of file
+  /**
+   * Включаем сбор метрик операций и возвращаем их. Можно вызывать и во время работы: операции,
+   * начатые до включения, в метрики не попадут. Пока метрики выключены, замеры ничего не стоят.
+   */
+  public synchronized ServiceMetrics enableMetrics() {
+    if (!metrics.isEnabled()) {
+      metrics = ServiceMetrics.enabledFor(this);
+    }
+    return metrics;
+  }
+
+  /**
+   * Возвращаем метрики операций; если они не включены, все счётчики пусты.
+   */
+  public ServiceMetrics getMetrics() {
+    return metrics;
+  }
+
+  /**
+   * Возвращаем число транзакций в реестре по накопленным суммам, не обходя транзакции.
+   */
+  public long getTransactionCount() {
+    CategoryTotals totals = collectTotals();
+    long count = 0;
+    for (Transaction.TransactionType type : Transaction.TransactionType.values()) {
+      for (Category category : Category.values()) {
+        count += totals.count(type, category);
+      }
+    }
+    return count;
+  }
+
+  /**
+   * Возвращаем номер последней контрольной точки (0, если снимков ещё не было).
+   */
+  public long getSnapshotGeneration() {
+    return snapshotGeneration;
+  }
+
+  /**
+   * Меняем счётчики бюджетов категории расхода на delta и добавляем в crossed бюджеты, чьи
+   * расходы перешли через лимит. Вызывается под замком полосы; слушателям переходы передаёт
+   * {@link #notifyBudgetListeners} после снятия замков.
+   */
+  private void trackBudgets(Transaction transaction, BigDecimal delta,
+      List<BudgetStatus> crossed) {
+    if (transaction.getTransactionType() != Transaction.TransactionType.EXPENSE) {
+      return;
+    }
+    for (BudgetTracker tracker : budgets.getOrDefault(transaction.getCategory(), List.of())) {
+      BudgetStatus status = tracker.record(transaction, delta);
+      if (status != null) {
+        crossed.add(status);
+      }
+    }
+  }
+
+  private void notifyBudgetListeners(List<BudgetStatus> crossed) {
+    for (BudgetStatus status : crossed) {
+      budgetListeners.forEach(listener -> listener.onBudgetCrossed(status));
+    }
+  }
+
+  /**
+   * Собираем расходы категории по месяцам из сумм снимка и полос; вызывается под замками всех
+   * полос.
+   */
+  private Map<YearMonth, BigDecimal> monthlyExpenses(Category category) {
+    Map<YearMonth, BigDecimal> months = new HashMap<>();
+    BiConsumer<YearMonth, CategoryTotals> add = (month, totals) -> months.merge(month,
+        totals.sum(Transaction.TransactionType.EXPENSE, category), BigDecimal::add);
+    if (snapshot != null) {
+      snapshot.rollups().forEachMonth(add);
+    }
+    for (Stripe stripe : stripes) {
+      stripe.rollups.forEachMonth(add);
+      stripe.removedFromSnapshotRollups.forEachMonth((month, totals) -> months.merge(month,
+          totals.sum(Transaction.TransactionType.EXPENSE, category).negate(), BigDecimal::add));
+    }
+    return months;
+  }
+
+  /**
+   * Проверяем, что накопленные суммы совпадают с полным пересчётом по всем транзакциям.
+   */
+  boolean totalsMatchRecompute() {
+    return collectTotals().matches(CategoryTotals.recompute(getAllTransactions()));
+  }
+
+  /**
+   * Проверяем, что индекс по id и индексы по типу и категории содержат ровно основное хранилище.
+   */
+  boolean indexesMatchStore() {
+    LedgerView current = view;
+    int identified = Arrays.stream(stripes).mapToInt(stripe -> stripe.byId.size()).sum();
+    int typed = 0;
+    for (Transaction.TransactionType type : Transaction.TransactionType.values()) {
+      typed += count(current.index(type, null).iterator(null, null));
+    }
+    int categorized = 0;
+    for (Category category : Category.values()) {
+      categorized += count(current.index(null, category).iterator(null, null));
+    }
+    int size = 0;
+    for (Iterator<Transaction> all = current.index(null, null).iterator(null, null);
+        all.hasNext(); size++) {
+      Transaction transaction = all.next();
+      if (stripeFor(transaction.getId()).byId.get(transaction.getId()) != transaction
+          || current.index(transaction.getTransactionType(), null).find(transaction) != transaction
+          || current.index(null, transaction.getCategory()).find(transaction) != transaction) {
+        return false;
+      }
+    }
+    return identified == size && typed == size && categorized == size;
+  }
+
+  private static int count(Iterator<Transaction> iterator) {
+    int count = 0;
+    for (; iterator.hasNext(); iterator.next()) {
+      count++;
+    }
+    return count;
+  }
+
+  private void insert(Transaction transaction) {
+    List<BudgetStatus> crossed = new ArrayList<>();
+    Stripe stripe = stripeFor(transaction.getId());
+    stripe.lock.lock();
+    try {
+      if (stripe.byId.get(transaction.getId()) != null
+          || livePositionInSnapshot(transaction.getId()) >= 0
+          || findArchived(view, transaction.getId()) != null) {
+        throw new IllegalStateException("Транзакция с id " + transaction.getId() + " уже есть");
+      }
+      stripe.flows.reserve(transaction.getDate());
+      listeners.forEach(listener -> listener.onAdd(transaction));
+      stripe.byId.put(transaction.getId(), transaction);
+      stripe.totals.add(transaction);
+      stripe.rollups.add(transaction);
+      stripe.flows.add(transaction);
+      stripe.descriptions.add(transaction);
+      stripe.amounts.add(transaction);
+      trackBudgets(transaction, transaction.getSum(), crossed);
+      publish(current -> current.with(transaction));
+      queryCache.invalidate();
+      changes.publish(ChangeEvent.Type.ADD, transaction);
+    } finally {
+      stripe.lock.unlock();
+    }
+    notifyBudgetListeners(crossed);
+  }
+
+  private static void validate(BigDecimal sum, Category category, LocalDate date) {
+    if (sum.compareTo(BigDecimal.ZERO) <= 0) {
+      throw new IllegalArgumentException("Сумма должна быть положительной");
+    }
+    if (category == null) {
+      throw new IllegalArgumentException("Категория обязательна");
+    }
+    if (date == null) {
+      throw new IllegalArgumentException("Дата обязательна");
+    }
+  }
+
+  private void lockAll() {
+    for (Stripe stripe : stripes) {
+      stripe.lock.lock();
+    }
+  }
+
+  private void unlockAll() {
+    for (Stripe stripe : stripes) {
+      stripe.lock.unlock();
+    }
+  }
+
+  private boolean deleteFromSnapshot(Stripe stripe, int id, List<BudgetStatus> crossed) {
+    int position = livePositionInSnapshot(id);
+    if (position < 0) {
+      return false;
+    }
+    Transaction transaction = snapshot.read(position);
+    stripe.flows.reserve(transaction.getDate());
+    listeners.forEach(listener -> listener.onDelete(transaction));
+    snapshot.markDeleted(position);
+    publish(current -> current.withRemovedFromSnapshot(transaction));
+    stripe.removedFromSnapshot.add(transaction);
+    stripe.removedFromSnapshotRollups.add(transaction);
+    stripe.flows.remove(transaction);
+    if (snapshotAmountsLoaded) {
+      stripe.amounts.remove(transaction);
+    }
+    trackBudgets(transaction, transaction.getSum().negate(), crossed);
+    queryCache.invalidate();
+    changes.publish(ChangeEvent.Type.DELETE, transaction);
+    return true;
+  }
+
+  private boolean deleteFromArchive(Stripe stripe, int id, List<BudgetStatus> crossed) {
+    Transaction transaction = findArchived(view, id);
+    if (transaction == null) {
+      return false;
+    }
+    stripe.flows.reserve(transaction.getDate());
+    listeners.forEach(listener -> listener.onDelete(transaction));
+    stripe.totals.remove(transaction);
+    stripe.rollups.remove(transaction);
+    stripe.flows.remove(transaction);
+    stripe.descriptions.remove(transaction);
+    stripe.amounts.remove(transaction);
+    trackBudgets(transaction, transaction.getSum().negate(), crossed);
+    publish(current -> current.withRemovedFromArchive(transaction));
+    queryCache.invalidate();
+    changes.publish(ChangeEvent.Type.DELETE, transaction);
+    return true;
+  }
+
+  /**
+   * Ищем неудалённую транзакцию в архиве версии current; по подвалам читаются только сегменты,
+   * в диапазон id которых она попадает.
+   */
+  private Transaction findArchived(LedgerView current, int id) {
+    for (ArchiveSegment segment : current.archive()) {
+      if (segment.mayContain(id)) {
+        Transaction transaction = archiveStore.rows(segment).find(id);
+        if (transaction != null) {
+          return current.removedFromArchive().find(transaction) == null ? transaction : null;
+        }
+      }
+    }
+    return null;
+  }
+
+  private int livePositionInSnapshot(int id) {
+    if (snapshot == null) {
+      return -1;
+    }
+    int position = snapshot.positionOf(id);
+    return position < 0 || snapshot.isDeleted(position) ? -1 : position;
+  }
+
+  /**
+   * Обходим транзакции по фильтру с ключами после after: основной индекс выбираем по типу или
+   * категории, период и after превращаем в границы диапазона ключей.
+   */
+  private Iterator<Transaction> select(TransactionFilter filter, TransactionKey after) {
+    TransactionKey lower = lowerBound(filter, after);
+    TransactionKey upper = upperBound(filter);
+
+    LedgerView current = view;
+    Iterator<Transaction> inMemory = lower != null && upper != null && lower.compareTo(upper) > 0
+        ? Collections.emptyIterator()
+        : current.index(filter.type(), filter.category()).iterator(lower, upper);
+    if (!current.archive().isEmpty()) {
+      inMemory = new MergingIterator(inMemory,
+          selectArchive(current, filter.type(), filter.category(), lower, upper));
+    }
+    Iterator<Transaction> merged = snapshot == null ? inMemory : new MergingIterator(
+        liveInSnapshot(current, snapshot.select(filter.type(), filter.category(), lower, upper)),
+        inMemory);
+    if (filter.type() != null && filter.category() != null) {
+      return asStream(merged).filter(filter::matches).iterator();
+    }
+    return merged;
+  }
+
+  /**
+   * Обходим архив версии current: сегменты идут от нового месяца к старому, сегменты одного
+   * месяца сливаются. Месяцы вне границ и сегменты без записей нужного типа и категории
+   * пропускаются по подвалам, не читаясь с диска; остальные читаются по мере обхода.
+   */
+  private Iterator<Transaction> selectArchive(LedgerView current,
+      Transaction.TransactionType type, Category category, TransactionKey after,
+      TransactionKey upTo) {
+    Map<YearMonth, List<ArchiveSegment>> byMonth = new LinkedHashMap<>();
+    for (ArchiveSegment segment : archiveSegments(current, type, category, after, upTo)) {
+      byMonth.computeIfAbsent(segment.month(), month -> new ArrayList<>()).add(segment);
+    }
+    ArchiveStore store = archiveStore;
+    Iterator<Transaction> rows = byMonth.values().stream().flatMap(segments -> {
+      Iterator<Transaction> month = Collections.emptyIterator();
+      for (ArchiveSegment segment : segments) {
+        month = new MergingIterator(month,
+            store.rows(segment).select(type, category, after, upTo));
+      }
+      return asStream(month);
+    }).iterator();
+    PersistentIndex removed = current.removedFromArchive();
+    return removed.isEmpty() ? rows
+        : asStream(rows).filter(row -> removed.find(row) == null).iterator();
+  }
+
+  /**
+   * Выбираем архивные сегменты версии current с месяцами в границах (after, upTo], где по
+   * подвалу могут быть записи нужного типа и категории.
+   */
+  private static List<ArchiveSegment> archiveSegments(LedgerView current,
+      Transaction.TransactionType type, Category category, TransactionKey after,
+      TransactionKey upTo) {
+    YearMonth newest = after == null ? null : YearMonth.from(after.date());
+    YearMonth oldest = upTo == null ? null : YearMonth.from(upTo.date());
+    List<ArchiveSegment> segments = new ArrayList<>();
+    for (ArchiveSegment segment : current.archive()) {
+      if ((newest == null || !segment.month().isAfter(newest))
+          && (oldest == null || !segment.month().isBefore(oldest))
+          && segment.mayMatch(type, category)) {
+        segments.add(segment);
+      }
+    }
+    return segments;
+  }
+
+  /**
+   * Нижняя граница ключей выборки: курсор after или первый ключ после конца периода.
+   */
+  private static TransactionKey lowerBound(TransactionFilter filter, TransactionKey after) {
+    TransactionKey lower = after;
+    if (filter.to() != null) {
+      TransactionKey newer = TransactionKey.newerThan(filter.to());
+      if (lower == null || newer.compareTo(lower) > 0) {
+        lower = newer;
+      }
+    }
+    return lower;
+  }
+
+  private static TransactionKey upperBound(TransactionFilter filter) {
+    return filter.from() == null ? null : TransactionKey.lastOf(filter.from());
+  }
+
+  /**
+   * Пропускаем записи снимка, удалённые к моменту версии view.
+   */
+  private static Iterator<Transaction> liveInSnapshot(LedgerView view,
+      Iterator<Transaction> rows) {
+    PersistentIndex removed = view.removedFromSnapshot();
+    if (removed.isEmpty()) {
+      return rows;
+    }
+    return asStream(rows).filter(row -> removed.find(row) == null).iterator();
+  }
+
+  private static Stream<Transaction> asStream(Iterator<Transaction> iterator) {
+    return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iterator,
+        Spliterator.ORDERED | Spliterator.NONNULL), false);
+  }
+
+  private List<Transaction> selectCached(TransactionFilter filter) {
+    return query(ServiceOperation.SELECT,
+        () -> Collections.unmodifiableList(toList(select(filter, null))), filter);
+  }
+
+  /**
+   * Выполняем запрос через кэш с замером в метриках. Ключ кэша — операция и параметры
+   * запроса; параметры могут быть null.
+   */
+  private <T> T query(ServiceOperation operation, Supplier<T> query, Object... parameters) {
+    ServiceMetrics.Sample sample = metrics.start(operation);
+    try {
+      return queryCache.get(List.of(operation, Arrays.asList(parameters)), query);
+    } finally {
+      sample.stop();
+    }
+  }
+
+  private static List<Transaction> toList(Iterator<Transaction> iterator) {
+    List<Transaction> result = new ArrayList<>();
+    iterator.forEachRemaining(result::add);
+    return result;
+  }
+
+  private CategoryTotals collectTotals() {
+    CategoryTotals totals = new CategoryTotals();
+    if (snapshot != null) {
+      totals.merge(snapshot.totals());
+    }
+    for (Stripe stripe : stripes) {
+      stripe.lock.lock();
+      try {
+        totals.merge(stripe.totals);
+        if (snapshot != null) {
+          totals.subtract(stripe.removedFromSnapshot);
+        }
+      } finally {
+        stripe.lock.unlock();
+      }
+    }
+    return totals;
+  }
+
+  private Stripe stripeFor(int id) {
+    return stripes[id & (stripes.length - 1)];
+  }
+
+  /**
+   * Публикуем новую версию индексов без общего замка: строим её из текущей и подменяем
+   * сравнением с обменом, а если другой писатель успел раньше, повторяем с его версии.
+   * Изменения разных полос касаются разных транзакций, поэтому порядок их применения не важен;
+   * change не должен иметь побочных эффектов. Читатели не ждут.
+   */
+  private void publish(UnaryOperator<LedgerView> change) {
+    LedgerView current;
+    LedgerView updated;
+    do {
+      current = view;
+      updated = change.apply(current);
+    } while (!VIEW.compareAndSet(this, current, updated));
+  }
+
+  /**
+   * Дополняем индексы пачкой: сортируем её один раз и вливаем в каждый индекс слиянием
+   * деревьев, а не поштучной вставкой.
+   */
+  private void indexAll(List<Transaction> batch) {
+    List<Transaction> sorted = new ArrayList<>(batch);
+    sorted.sort(TransactionKey::compare);
+    publish(current -> current.withAll(sorted));
+  }
+
+  /**
+   * Полоса записи: замок, часть индекса по id, накопленные суммы и суммы по дням и месяцам
+   * для транзакций этой полосы, индекс их описаний, распределение сумм и самые крупные из них.
+   * Поток по дням хранит и удаления из снимка со знаком минус.
+   *
+   * <p>Куски потока по дням заводятся через {@link DailyFlowIndex#reserve} до вызова слушателей:
+   * после записи в журнал изменение полосы не должно падать на выделении памяти под новую дату.
+   */
+  private static final class Stripe {
+    private final ReentrantLock lock = new ReentrantLock();
+    private final IntHashMap<Transaction> byId = new IntHashMap<>();
+    private final CategoryTotals totals = new CategoryTotals();
+    private final CategoryTotals removedFromSnapshot = new CategoryTotals();
+    private final PeriodRollups rollups = new PeriodRollups();
+    private final PeriodRollups removedFromSnapshotRollups = new PeriodRollups();
+    private final DailyFlowIndex flows = new DailyFlowIndex();
+    private final DescriptionIndex descriptions = new DescriptionIndex();
+    private final AmountStats amounts = new AmountStats();
+  }
+}
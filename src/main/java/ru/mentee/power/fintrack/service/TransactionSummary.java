@@ -0,0 +1,55 @@
+package ru.mentee.power.fintrack.service;
+
+import java.math.BigDecimal;
+import java.util.Collections;
+import java.util.Map;
+import ru.mentee.power.fintrack.model.Transaction.Category;
+import ru.mentee.power.fintrack.model.Transaction.TransactionType;
+
+/**
+ * Итоги по выборке транзакций: суммы и количества по типу и категории.
+ */
+public final class TransactionSummary {
+
+  private final CategoryTotals totals;
+
+  TransactionSummary(CategoryTotals totals) {
+    this.totals = totals;
+  }
+
+  /**
+   * Возвращаем сумму всех транзакций данного типа.
+   */
+  public BigDecimal total(TransactionType type) {
+    return totals.total(type);
+  }
+
+  /**
+   * Вычитаем из суммы доходов сумму расходов.
+   */
+  public BigDecimal balance() {
+    return total(TransactionType.INCOME).subtract(total(TransactionType.EXPENSE));
+  }
+
+  /**
+   * Возвращаем суммы по категориям, в которых есть хотя бы одна транзакция данного типа.
+   */
+  public Map<Category, BigDecimal> byCategory(TransactionType type) {
+    return Collections.unmodifiableMap(totals.byCategory(type));
+  }
+
+  /**
+   * Возвращаем число транзакций данного типа.
+   */
+  public int count(TransactionType type) {
+    int count = 0;
+    for (Category category : Category.values()) {
+      count += totals.count(type, category);
+    }
+    return count;
+  }
+
+  boolean matches(TransactionSummary other) {
+    return totals.matches(other.totals);
+  }
+}
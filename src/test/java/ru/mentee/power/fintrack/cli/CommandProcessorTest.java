@@ -0,0 +1,55 @@
+package ru.mentee.power.fintrack.cli;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.nio.file.Path;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import ru.mentee.power.fintrack.service.TransactionService;
+
+class CommandProcessorTest {
+
+  @TempDir
+  Path tempDir;
+
+  private final StringWriter out = new StringWriter();
+  private final StringWriter err = new StringWriter();
+
+  private int executeAll(String script) throws IOException {
+    CommandProcessor commands = new CommandProcessor(new TransactionService(),
+        tempDir.resolve("ledger.snapshot"),
+        OutputFormat.TSV.writer(new PrintWriter(out, true), new PrintWriter(err, true)));
+    return commands.executeAll(new BufferedReader(new StringReader(script)));
+  }
+
+  @Test
+  @DisplayName("Пакет продолжается после ошибок, ошибки нумеруются строками сценария")
+  void executeAll_Errors_NumberedByLineAndCounted() throws IOException {
+    int errors = executeAll("""
+        # комментарий
+        add expense 10 GOODS Хлеб
+
+        add expense десять GOODS Сыр
+        unknown
+        add income 100 SALARY Аванс
+        exit
+        add expense 1 GOODS после выхода
+        """);
+
+    assertThat(errors).isEqualTo(2);
+    assertThat(err.toString().lines())
+        .hasSize(2)
+        .satisfiesExactly(
+            line -> assertThat(line).startsWith("error\tСтрока 4: "),
+            line -> assertThat(line).startsWith("error\tСтрока 5: "));
+    assertThat(out.toString().lines())
+        .hasSize(2)
+        .allMatch(line -> !line.startsWith("error"));
+  }
+}
@@ -0,0 +1,42 @@
+package ru.mentee.power.fintrack.cli;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+class CommandTokensTest {
+
+  @Test
+  @DisplayName("Слова делятся любыми пробельными символами, пустые слова не выделяются")
+  void next_MixedWhitespace_SplitsIntoWords() {
+    CommandTokens tokens = new CommandTokens("  add\texpense   150.50 \t GOODS  ");
+
+    assertThat(tokens.next()).isEqualTo("add");
+    assertThat(tokens.next()).isEqualTo("expense");
+    assertThat(tokens.next()).isEqualTo("150.50");
+    assertThat(tokens.hasNext()).isTrue();
+    assertThat(tokens.next()).isEqualTo("GOODS");
+    assertThat(tokens.hasNext()).isFalse();
+    assertThat(tokens.next()).isNull();
+  }
+
+  @Test
+  @DisplayName("Остаток строки сохраняет внутренние пробелы и обрезается по краям")
+  void rest_AfterWords_KeepsInnerWhitespace() {
+    CommandTokens tokens = new CommandTokens("search  кофе  с  собой \t");
+
+    assertThat(tokens.next()).isEqualTo("search");
+    assertThat(tokens.rest()).isEqualTo("кофе  с  собой");
+    assertThat(tokens.rest()).isEmpty();
+    assertThat(tokens.next()).isNull();
+  }
+
+  @Test
+  @DisplayName("Пустая и пробельная строки не содержат слов")
+  void next_BlankLine_ReturnsNull() {
+    assertThat(new CommandTokens("").next()).isNull();
+    assertThat(new CommandTokens(" \t ").hasNext()).isFalse();
+    assertThat(new CommandTokens(" \t ").rest()).isEmpty();
+  }
+}
@@ -0,0 +1,43 @@
+package ru.mentee.power.fintrack.cli;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class FinanceConsoleAppTest {
+
+  @TempDir
+  Path tempDir;
+
+  private int runBatch(String script) throws IOException {
+    Path batch = Files.writeString(tempDir.resolve("script.txt"), script);
+    return FinanceConsoleApp.run(new String[] {
+        "--batch", batch.toString(), "--format", "tsv", "--no-metrics",
+        "--journal", tempDir.resolve("fintrack.journal").toString(),
+        "--snapshot", tempDir.resolve("fintrack.snapshot").toString()});
+  }
+
+  @Test
+  @DisplayName("Пакет без ошибок завершается с кодом 0")
+  void run_BatchWithoutErrors_ReturnsZero() throws IOException {
+    assertThat(runBatch("add expense 10 GOODS Хлеб\nbalance\n")).isZero();
+  }
+
+  @Test
+  @DisplayName("Пакет с ошибкой выполняется до конца и завершается с кодом 1")
+  void run_BatchWithError_ReturnsOne() throws IOException {
+    assertThat(runBatch("add expense десять GOODS Сыр\nadd income 5 SALARY Аванс\n"))
+        .isEqualTo(1);
+  }
+
+  @Test
+  @DisplayName("Неверные параметры запуска дают код 1")
+  void run_UnknownOption_ReturnsOne() {
+    assertThat(FinanceConsoleApp.run(new String[] {"--format", "xml"})).isEqualTo(1);
+  }
+}
@@ -0,0 +1,212 @@
+package ru.mentee.power.fintrack.cli;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import ru.mentee.power.fintrack.model.Transaction;
+import ru.mentee.power.fintrack.service.TransactionListener;
+import ru.mentee.power.fintrack.service.TransactionService;
+
+class FinanceHttpServerTest {
+
+  @TempDir
+  Path tempDir;
+
+  private final HttpClient client = HttpClient.newBuilder()
+      .version(HttpClient.Version.HTTP_1_1)
+      .build();
+  private final TransactionService service = TransactionService.concurrent();
+  private FinanceHttpServer server;
+
+  @BeforeEach
+  void startServer() throws IOException {
+    server = FinanceHttpServer.start(service, 0);
+  }
+
+  @AfterEach
+  void stopServer() {
+    server.close();
+  }
+
+  private HttpResponse<String> send(String method, String path, String body)
+      throws IOException, InterruptedException {
+    return send(method, path, body, FinanceHttpServer.COMMANDS_CONTENT_TYPE, null);
+  }
+
+  private HttpResponse<String> send(String method, String path, String body,
+      String contentType, String origin) throws IOException, InterruptedException {
+    URI uri = URI.create("http://127.0.0.1:" + server.address().getPort() + path);
+    HttpRequest.Builder request = HttpRequest.newBuilder(uri)
+        .method(method, body == null ? HttpRequest.BodyPublishers.noBody()
+            : HttpRequest.BodyPublishers.ofString(body, StandardCharsets.UTF_8));
+    if (body != null) {
+      request.header("Content-Type", contentType);
+    }
+    if (origin != null) {
+      request.header("Origin", origin);
+    }
+    return client.send(request.build(),
+        HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8));
+  }
+
+  /**
+   * Отправляем запрос вручную: HttpClient не даёт подменить заголовок Host.
+   */
+  private String statusLineWithHost(String host) throws IOException {
+    try (Socket socket = new Socket(server.address().getAddress(), server.address().getPort())) {
+      OutputStream request = socket.getOutputStream();
+      request.write(("POST /commands HTTP/1.1\r\n"
+          + "Host: " + host + "\r\n"
+          + "Content-Type: " + FinanceHttpServer.COMMANDS_CONTENT_TYPE + "\r\n"
+          + "Content-Length: 8\r\n"
+          + "Connection: close\r\n"
+          + "\r\n"
+          + "balance\n").getBytes(StandardCharsets.US_ASCII));
+      request.flush();
+      return new BufferedReader(new InputStreamReader(socket.getInputStream(),
+          StandardCharsets.US_ASCII)).readLine();
+    }
+  }
+
+  @Test
+  @DisplayName("POST выполняет команды и отвечает результатами с ошибками по номерам строк")
+  void commands_Post_RespondsWithResultsAndNumberedErrors()
+      throws IOException, InterruptedException {
+    HttpResponse<String> response = send("POST", "/commands?format=tsv",
+        "add expense 10 GOODS Хлеб\nadd expense десять GOODS Сыр\nbalance\n");
+
+    assertThat(response.statusCode()).isEqualTo(200);
+    assertThat(response.headers().firstValue("Content-Type"))
+        .hasValue("text/tab-separated-values; charset=utf-8");
+    assertThat(response.body().lines()).satisfiesExactly(
+        line -> assertThat(line).endsWith("\tEXPENSE\tGOODS\t10\tХлеб"),
+        line -> assertThat(line).startsWith("error\tСтрока 2: "),
+        line -> assertThat(line).isEqualTo("-10"));
+  }
+
+  @Test
+  @DisplayName("По умолчанию ответ в JSON Lines, изменения видны следующим запросам")
+  void commands_DefaultFormat_IsJsonLinesOverSharedService()
+      throws IOException, InterruptedException {
+    send("POST", "/commands", "add income 5000 SALARY Аванс\n");
+
+    HttpResponse<String> response = send("POST", "/commands", "balance\n");
+
+    assertThat(response.statusCode()).isEqualTo(200);
+    assertThat(response.headers().firstValue("Content-Type"))
+        .hasValue("application/x-ndjson; charset=utf-8");
+    assertThat(response.body()).startsWith("{").contains("5000");
+  }
+
+  @Test
+  @DisplayName("Запрос не методом POST получает 405 и заголовок Allow")
+  void commands_Get_RespondsMethodNotAllowed() throws IOException, InterruptedException {
+    HttpResponse<String> response = send("GET", "/commands", null);
+
+    assertThat(response.statusCode()).isEqualTo(405);
+    assertThat(response.headers().firstValue("Allow")).hasValue("POST");
+  }
+
+  @Test
+  @DisplayName("Неизвестный формат получает 400 с текстом ошибки")
+  void commands_UnknownFormat_RespondsBadRequest() throws IOException, InterruptedException {
+    HttpResponse<String> response = send("POST", "/commands?format=xml", "balance\n");
+
+    assertThat(response.statusCode()).isEqualTo(400);
+    assertThat(response.body()).contains("--format");
+  }
+
+  @Test
+  @DisplayName("Проверка здоровья отвечает ok")
+  void health_Get_RespondsOk() throws IOException, InterruptedException {
+    HttpResponse<String> response = send("GET", "/health", null);
+
+    assertThat(response.statusCode()).isEqualTo(200);
+    assertThat(response.body()).isEqualTo("ok\n");
+  }
+
+  @Test
+  @DisplayName("Тело простого типа, который браузер шлёт на чужой сайт без проверки, отклоняется")
+  void commands_PlainTextBody_RespondsUnsupportedMediaType()
+      throws IOException, InterruptedException {
+    HttpResponse<String> response = send("POST", "/commands", "delete 0\n",
+        "text/plain", null);
+
+    assertThat(response.statusCode()).isEqualTo(415);
+    assertThat(response.body()).contains(FinanceHttpServer.COMMANDS_CONTENT_TYPE);
+  }
+
+  @Test
+  @DisplayName("Запрос с заголовком Origin из браузера отклоняется")
+  void commands_OriginHeader_RespondsForbidden() throws IOException, InterruptedException {
+    HttpResponse<String> response = send("POST", "/commands", "balance\n",
+        FinanceHttpServer.COMMANDS_CONTENT_TYPE, "http://evil.example");
+
+    assertThat(response.statusCode()).isEqualTo(403);
+  }
+
+  @Test
+  @DisplayName("Запрос с чужим Host (подмена DNS) отклоняется, с петлевым — выполняется")
+  void commands_ForeignHost_RespondsForbidden() throws IOException {
+    int port = server.address().getPort();
+
+    assertThat(statusLineWithHost("evil.example:" + port)).contains(" 403 ");
+    assertThat(statusLineWithHost("127.0.0.1:" + (port + 1))).contains(" 403 ");
+    assertThat(statusLineWithHost("localhost:" + port)).contains(" 200 ");
+  }
+
+  @Test
+  @DisplayName("Команды, работающие с файлами сервера, по HTTP недоступны")
+  void commands_ServerFileCommands_AreRefused() throws IOException, InterruptedException {
+    Path target = tempDir.resolve("export.csv");
+    HttpResponse<String> response = send("POST", "/commands?format=tsv",
+        "import " + tempDir.resolve("ledger.csv") + "\nexport " + target + "\nsnapshot\n");
+
+    assertThat(response.statusCode()).isEqualTo(200);
+    assertThat(response.body().lines()).satisfiesExactly(
+        line -> assertThat(line).startsWith("error\tСтрока 1: Команда import"),
+        line -> assertThat(line).startsWith("error\tСтрока 2: Команда export"),
+        line -> assertThat(line).startsWith("error\tСтрока 3: Команда snapshot"));
+    assertThat(Files.exists(target)).isFalse();
+  }
+
+  @Test
+  @DisplayName("Сбой сервиса в команде выводится строкой ошибки, ответ не обрывается")
+  void commands_ServiceFailure_ReportedInlineAndResponseCompletes()
+      throws IOException, InterruptedException {
+    service.addListener(new TransactionListener() {
+      @Override
+      public void onAdd(Transaction transaction) {
+        throw new IllegalStateException("Журнал закрыт");
+      }
+
+      @Override
+      public void onDelete(Transaction transaction) {
+      }
+    });
+
+    HttpResponse<String> response = send("POST", "/commands?format=tsv",
+        "add expense 10 GOODS Хлеб\nbalance\n");
+
+    assertThat(response.statusCode()).isEqualTo(200);
+    assertThat(response.body().lines()).satisfiesExactly(
+        line -> assertThat(line).isEqualTo("error\tСтрока 1: Журнал закрыт"),
+        line -> assertThat(line).isEqualTo("0"));
+  }
+}
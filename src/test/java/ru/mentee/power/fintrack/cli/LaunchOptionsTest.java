@@ -0,0 +1,39 @@
+package ru.mentee.power.fintrack.cli;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.nio.file.Path;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+class LaunchOptionsTest {
+
+  @Test
+  @DisplayName("Каталог архива по умолчанию лежит рядом с журналом")
+  void parse_ArchiveWithoutDirectory_DerivesDirectoryFromJournal() {
+    LaunchOptions options = LaunchOptions.parse(
+        new String[] {"--journal", "/var/lib/fintrack/ledger.journal", "--archive", "3"});
+
+    assertThat(options.archiveDirectory()).isEqualTo(Path.of("/var/lib/fintrack/ledger.archive"));
+    assertThat(LaunchOptions.parse(new String[0]).archiveDirectory())
+        .isEqualTo(Path.of("fintrack.archive"));
+  }
+
+  @Test
+  @DisplayName("--archive-dir задаёт каталог архива явно")
+  void parse_ArchiveDirectory_OverridesDefault() {
+    LaunchOptions options = LaunchOptions.parse(
+        new String[] {"--archive", "3", "--archive-dir", "/data/archive"});
+
+    assertThat(options.archiveDirectory()).isEqualTo(Path.of("/data/archive"));
+  }
+
+  @Test
+  @DisplayName("--archive-dir без --archive отклоняется")
+  void parse_ArchiveDirectoryWithoutArchive_ThrowsException() {
+    assertThatThrownBy(() -> LaunchOptions.parse(new String[] {"--archive-dir", "archive"}))
+        .isInstanceOf(IllegalArgumentException.class)
+        .hasMessageContaining("--archive-dir");
+  }
+}
@@ -0,0 +1,58 @@
+package ru.mentee.power.fintrack.cli;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import ru.mentee.power.fintrack.model.Transaction;
+import ru.mentee.power.fintrack.model.Transaction.Category;
+import ru.mentee.power.fintrack.model.Transaction.TransactionType;
+
+class ResultWriterTest {
+
+  private static final Transaction TRANSACTION = new Transaction(7, "a\tb\nc\rd\\e\"f\u0001",
+      new BigDecimal("12.30"), LocalDate.of(2025, 3, 1), Category.GOODS,
+      TransactionType.EXPENSE);
+
+  private final StringWriter out = new StringWriter();
+  private final StringWriter err = new StringWriter();
+
+  private ResultWriter writer(OutputFormat format) {
+    return format.writer(new PrintWriter(out, true), new PrintWriter(err, true));
+  }
+
+  @Test
+  @DisplayName("TSV экранирует табуляцию, переводы строк и обратную косую черту в описании")
+  void tsvTransactions_SpecialCharacters_AreEscaped() {
+    writer(OutputFormat.TSV).transactions(List.of(TRANSACTION).iterator());
+
+    assertThat(out.toString())
+        .isEqualTo("7\t2025-03-01\tEXPENSE\tGOODS\t12.30\ta\\tb\\nc\\rd\\\\e\"f\u0001\n");
+  }
+
+  @Test
+  @DisplayName("JSON экранирует кавычки, обратную косую черту и управляющие символы")
+  void jsonTransactions_SpecialCharacters_AreEscaped() {
+    writer(OutputFormat.JSON).transactions(List.of(TRANSACTION).iterator());
+
+    assertThat(out.toString()).isEqualTo("[{\"id\":7,\"date\":\"2025-03-01\",\"type\":\"EXPENSE\","
+        + "\"category\":\"GOODS\",\"sum\":12.30,"
+        + "\"description\":\"a\\tb\\nc\\rd\\\\e\\\"f\\u0001\"}]\n");
+  }
+
+  @Test
+  @DisplayName("Ошибки пишутся в отдельный поток с экранированием формата")
+  void error_SeparateStream_KeepsResultsClean() {
+    writer(OutputFormat.TSV).error("Строка 2:\tнет\nсуммы");
+    writer(OutputFormat.JSON).error("Строка 3: \"x\"");
+
+    assertThat(out.toString()).isEmpty();
+    assertThat(err.toString())
+        .isEqualTo("error\tСтрока 2:\\tнет\\nсуммы\n{\"error\":\"Строка 3: \\\"x\\\"\"}\n");
+  }
+}
@@ -0,0 +1,110 @@
+package ru.mentee.power.fintrack.persistence;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import ru.mentee.power.fintrack.model.Transaction;
+import ru.mentee.power.fintrack.model.Transaction.Category;
+import ru.mentee.power.fintrack.service.TransactionService;
+
+class CsvTransactionImporterTest {
+
+  @TempDir
+  Path tempDir;
+
+  @Test
+  @DisplayName("Импорт кусками в несколько потоков сохраняет порядок строк и суммы")
+  void importFile_ManyChunks_KeepsFileOrderAndTotals() throws IOException {
+    Path file = tempDir.resolve("statement.csv");
+    List<String> lines = new ArrayList<>();
+    lines.add("date,type,sum,category,description");
+    for (int i = 0; i < 1_000; i++) {
+      lines.add(LocalDate.of(2025, 1, 1).plusDays(i % 90) + ",expense,1.50,"
+          + (i % 2 == 0 ? "goods" : "TRANSPORT") + ",\"Покупка, №" + i + "\"");
+    }
+    lines.add("");
+    lines.add("2025-04-01,income,5000,SALARY");
+    Files.write(file, lines);
+
+    TransactionService service = new TransactionService();
+    long imported = new CsvTransactionImporter(64, 3).importFile(file, service);
+
+    assertThat(imported).isEqualTo(1_001);
+    assertThat(service.getTransaction(0).orElseThrow().getDescription())
+        .isEqualTo("Покупка, №0");
+    assertThat(service.getTransaction(999).orElseThrow().getDescription())
+        .isEqualTo("Покупка, №999");
+    assertThat(service.getTransaction(1_000).orElseThrow().getDescription()).isEmpty();
+    assertThat(service.calculateBalance()).isEqualByComparingTo("3500.00");
+    assertThat(service.getExpensesByCategory().get(Category.GOODS))
+        .isEqualByComparingTo("750.00");
+  }
+
+  @Test
+  @DisplayName("Ошибка разбора сообщает номер строки файла")
+  void importFile_MalformedLine_ReportsLineNumber() throws IOException {
+    Path file = tempDir.resolve("broken.csv");
+    Files.write(file, List.of(
+        "2025-03-01,expense,10.00,GOODS,Хлеб",
+        "2025-03-02,expense,10.00,GOODS,Молоко",
+        "2025-03-03,expense,десять,GOODS,Сыр"));
+
+    assertThatThrownBy(() -> new CsvTransactionImporter(2, 2)
+        .importFile(file, new TransactionService()))
+        .isInstanceOf(IllegalArgumentException.class)
+        .hasMessageStartingWith("Строка 3");
+  }
+
+  @Test
+  @DisplayName("Номер строки в ошибке учитывает многострочные описания в кавычках")
+  void importFile_QuotedLineBreaks_CountsPhysicalLines() throws IOException {
+    Path file = tempDir.resolve("multiline.csv");
+    Files.writeString(file, "2025-03-01,expense,10.00,GOODS,\"Хлеб\r\nи \"\"батон\"\"\"\n"
+        + "2025-03-02,expense,10.00,GOODS,Молоко \"Вкусное\"\r\n"
+        + "2025-03-03,expense,десять,GOODS,Сыр\n");
+    TransactionService service = new TransactionService();
+
+    assertThatThrownBy(() -> new CsvTransactionImporter(1, 2).importFile(file, service))
+        .isInstanceOf(IllegalArgumentException.class)
+        .hasMessageStartingWith("Строка 4");
+    assertThat(service.getTransaction(0).orElseThrow().getDescription())
+        .isEqualTo("Хлеб\r\nи \"батон\"");
+    assertThat(service.getTransaction(1).orElseThrow().getDescription())
+        .isEqualTo("Молоко \"Вкусное\"");
+  }
+
+  @Test
+  @DisplayName("Импортированная пачка попадает в журнал и восстанавливается")
+  void importFile_WithJournal_RestoresAfterReopen() throws IOException {
+    Path file = tempDir.resolve("statement.csv");
+    Files.write(file, List.of(
+        "2025-03-01,income,100.00,SALARY,Аванс",
+        "2025-03-02,expense,40.00,ENTERTAINMENT,Кино"));
+    Path journalFile = tempDir.resolve("ledger.journal");
+
+    TransactionService service = new TransactionService();
+    try (TransactionJournal journal = TransactionJournal.open(journalFile, service,
+        FsyncPolicy.always())) {
+      new CsvTransactionImporter().importFile(file, service);
+    }
+
+    TransactionService restored = new TransactionService();
+    try (TransactionJournal journal = TransactionJournal.open(journalFile, restored,
+        FsyncPolicy.always())) {
+      assertThat(restored.getAllTransactions())
+          .extracting(Transaction::getDescription)
+          .containsExactly("Кино", "Аванс");
+      assertThat(restored.calculateBalance()).isEqualByComparingTo(new BigDecimal("60.00"));
+    }
+  }
+}
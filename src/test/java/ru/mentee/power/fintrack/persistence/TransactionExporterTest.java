@@ -0,0 +1,118 @@
+package ru.mentee.power.fintrack.persistence;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import ru.mentee.power.fintrack.model.Transaction.Category;
+import ru.mentee.power.fintrack.model.Transaction.TransactionType;
+import ru.mentee.power.fintrack.service.TransactionFilter;
+import ru.mentee.power.fintrack.service.TransactionService;
+
+class TransactionExporterTest {
+
+  private static final LocalDate DATE = LocalDate.of(2025, 3, 1);
+
+  @TempDir
+  Path tempDir;
+
+  @Test
+  @DisplayName("CSV-выгрузка через маленький буфер импортируется обратно без искажений")
+  void export_Csv_RoundTripsThroughImporter() throws IOException {
+    TransactionService original = new TransactionService();
+    String[] descriptions = {"Хлеб, молоко", "Кафе \"Ёлка\" 🎄", " отступ", ""};
+    for (int i = 0; i < 400; i++) {
+      original.addTransaction(i % 3 == 0 ? TransactionType.INCOME : TransactionType.EXPENSE,
+          new BigDecimal(i + 1).movePointLeft(i % 4), Category.values()[i % 4],
+          descriptions[i % descriptions.length], DATE.plusDays(i));
+    }
+    Path file = tempDir.resolve("ledger.csv");
+
+    long exported = new TransactionExporter(TransactionExporter.Format.CSV, 64)
+        .export(original, TransactionFilter.all(), file);
+    TransactionService restored = new TransactionService();
+    long imported = new CsvTransactionImporter().importFile(file, restored);
+
+    assertThat(exported).isEqualTo(400);
+    assertThat(imported).isEqualTo(400);
+    assertThat(restored.getAllTransactions())
+        .usingRecursiveFieldByFieldElementComparatorIgnoringFields("id")
+        .containsExactlyElementsOf(original.getAllTransactions());
+    assertThat(Files.readAllLines(file)).startsWith("date,type,sum,category,description")
+        .contains("2025-03-01,income,1,GOODS,\"Хлеб, молоко\"",
+            "2025-03-03,expense,0.03,SALARY,\" отступ\"");
+    assertThat(tempDir.resolve("ledger.csv.tmp")).doesNotExist();
+  }
+
+  @Test
+  @DisplayName("Описания с переводами строк переживают выгрузку в CSV и импорт")
+  void export_CsvWithLineBreaks_RoundTripsThroughImporter() throws IOException {
+    TransactionService original = new TransactionService();
+    String[] descriptions = {"две\nстроки", "windows\r\nстрока", "mac\rстрока",
+        "\"цитата\"\n, запятая\n", "\n"};
+    for (int i = 0; i < 50; i++) {
+      original.addTransaction(TransactionType.EXPENSE, new BigDecimal(i + 1), Category.GOODS,
+          descriptions[i % descriptions.length], DATE.plusDays(i));
+    }
+    Path file = tempDir.resolve("multiline.csv");
+
+    new TransactionExporter(TransactionExporter.Format.CSV, 64)
+        .export(original, TransactionFilter.all(), file);
+    TransactionService restored = new TransactionService();
+    long imported = new CsvTransactionImporter(3, 2).importFile(file, restored);
+
+    assertThat(imported).isEqualTo(50);
+    assertThat(restored.getAllTransactions())
+        .usingRecursiveFieldByFieldElementComparatorIgnoringFields("id")
+        .containsExactlyElementsOf(original.getAllTransactions());
+  }
+
+  @Test
+  @DisplayName("JSON-выгрузка с фильтром пишет массив по объекту на строку с экранированием")
+  void export_JsonWithFilter_WritesOnlyMatchingRows() throws IOException {
+    TransactionService service = new TransactionService();
+    service.addTransaction(TransactionType.EXPENSE, new BigDecimal("0.05"), Category.GOODS,
+        "a\"b\\c\td\u0001", DATE);
+    service.addTransaction(TransactionType.INCOME, new BigDecimal("5000"), Category.SALARY,
+        "", DATE);
+    service.addTransaction(TransactionType.EXPENSE, new BigDecimal("12.30"), Category.GOODS,
+        "Сыр", DATE.plusMonths(1));
+    Path file = tempDir.resolve("ledger.json");
+
+    long exported = new TransactionExporter(TransactionExporter.Format.JSON)
+        .export(service, new TransactionFilter(TransactionType.EXPENSE, null, null, null), file);
+
+    assertThat(exported).isEqualTo(2);
+    assertThat(Files.readString(file, StandardCharsets.UTF_8)).isEqualTo("""
+        [
+        {"id":2,"date":"2025-04-01","type":"EXPENSE","category":"GOODS","sum":12.30,\
+        "description":"Сыр"},
+        {"id":0,"date":"2025-03-01","type":"EXPENSE","category":"GOODS","sum":0.05,\
+        "description":"a\\"b\\\\c\\td\\u0001"}
+        ]
+        """);
+  }
+
+  @Test
+  @DisplayName("Пустая выгрузка даёт заголовок CSV и пустой массив JSON")
+  void export_NoTransactions_WritesEmptyDocument() throws IOException {
+    TransactionService service = new TransactionService();
+    Path csv = tempDir.resolve("empty.csv");
+    Path json = tempDir.resolve("empty.json");
+
+    new TransactionExporter(TransactionExporter.Format.CSV).export(service,
+        TransactionFilter.all(), csv);
+    new TransactionExporter(TransactionExporter.Format.JSON).export(service,
+        TransactionFilter.all(), json);
+
+    assertThat(Files.readString(csv)).isEqualTo("date,type,sum,category,description\n");
+    assertThat(Files.readString(json)).isEqualTo("[\n]\n");
+  }
+}
@@ -0,0 +1,248 @@
+package ru.mentee.power.fintrack.persistence;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import ru.mentee.power.fintrack.model.Transaction;
+import ru.mentee.power.fintrack.model.Transaction.Category;
+import ru.mentee.power.fintrack.model.Transaction.TransactionType;
+import ru.mentee.power.fintrack.service.TransactionService;
+
+class TransactionJournalTest {
+
+  @TempDir
+  Path tempDir;
+
+  @Test
+  @DisplayName("Повторное открытие журнала восстанавливает транзакции, удаления и счётчик id")
+  void open_ExistingJournal_RestoresStateAndLastId() throws IOException {
+    Path file = tempDir.resolve("ledger.journal");
+    TransactionService service = new TransactionService();
+    try (TransactionJournal journal = TransactionJournal.open(file, service,
+        FsyncPolicy.always())) {
+      service.addTransaction(TransactionType.INCOME, new BigDecimal("1000.00"), Category.SALARY,
+          "Зарплата", LocalDate.of(2025, 3, 1));
+      Transaction deleted = service.addTransaction(TransactionType.EXPENSE,
+          new BigDecimal("15.5"), Category.TRANSPORT, "Такси", LocalDate.of(2025, 3, 2));
+      service.addTransaction(TransactionType.EXPENSE, new BigDecimal("200.00"), Category.GOODS,
+          "Продукты", LocalDate.of(2025, 3, 3));
+      service.deleteTransaction(deleted.getId());
+    }
+
+    TransactionService restored = new TransactionService();
+    try (TransactionJournal journal = TransactionJournal.open(file, restored,
+        FsyncPolicy.always())) {
+      assertThat(restored.getAllTransactions())
+          .extracting(Transaction::getDescription)
+          .containsExactly("Продукты", "Зарплата");
+      assertThat(restored.calculateBalance()).isEqualByComparingTo("800.00");
+      assertThat(restored.addTransaction(TransactionType.INCOME, BigDecimal.ONE,
+          Category.SALARY, "").getId()).isEqualTo(3);
+    }
+  }
+
+  @Test
+  @DisplayName("Недописанная последняя запись отбрасывается при восстановлении")
+  void open_TornFinalRecord_IgnoresTailAndKeepsAppending() throws IOException {
+    Path file = tempDir.resolve("torn.journal");
+    TransactionService service = new TransactionService();
+    try (TransactionJournal journal = TransactionJournal.open(file, service,
+        FsyncPolicy.osManaged())) {
+      service.addTransaction(TransactionType.INCOME, new BigDecimal("10.00"), Category.SALARY,
+          "first");
+      service.addTransaction(TransactionType.INCOME, new BigDecimal("20.00"), Category.SALARY,
+          "second");
+    }
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+      channel.truncate(channel.size() - 3);
+    }
+
+    TransactionService restored = new TransactionService();
+    try (TransactionJournal journal = TransactionJournal.open(file, restored,
+        FsyncPolicy.always())) {
+      assertThat(restored.getAllTransactions()).extracting(Transaction::getDescription)
+          .containsExactly("first");
+      restored.addTransaction(TransactionType.EXPENSE, new BigDecimal("5.00"), Category.GOODS,
+          "third");
+    }
+
+    TransactionService reopened = new TransactionService();
+    TransactionJournal.open(file, reopened, FsyncPolicy.always()).close();
+    assertThat(reopened.calculateBalance()).isEqualByComparingTo("5.00");
+  }
+
+  @Test
+  @DisplayName("Параллельные писатели с fsync на каждую операцию ничего не теряют")
+  void groupCommit_ConcurrentWriters_AllRecordsDurable() throws Exception {
+    Path file = tempDir.resolve("concurrent.journal");
+    TransactionService service = TransactionService.concurrent();
+    ExecutorService executor = Executors.newFixedThreadPool(8);
+    try (TransactionJournal journal = TransactionJournal.open(file, service,
+        FsyncPolicy.always())) {
+      List<Future<?>> futures = new ArrayList<>();
+      for (int thread = 0; thread < 8; thread++) {
+        futures.add(executor.submit(() -> {
+          for (int i = 0; i < 200; i++) {
+            service.addTransaction(TransactionType.INCOME, new BigDecimal("1.00"),
+                Category.SALARY, "");
+          }
+        }));
+      }
+      for (Future<?> future : futures) {
+        future.get();
+      }
+    } finally {
+      executor.shutdown();
+    }
+
+    TransactionService restored = new TransactionService();
+    TransactionJournal.open(file, restored, FsyncPolicy.always()).close();
+    assertThat(restored.getAllTransactions()).hasSize(1_600);
+    assertThat(restored.calculateBalance()).isEqualByComparingTo("1600.00");
+  }
+
+  @Test
+  @DisplayName("Периодический сброс сохраняет записи при закрытии журнала")
+  void intervalPolicy_CloseFlushesPendingRecords() throws IOException {
+    Path file = tempDir.resolve("interval.journal");
+    TransactionService service = new TransactionService();
+    try (TransactionJournal journal = TransactionJournal.open(file, service,
+        FsyncPolicy.every(Duration.ofSeconds(30)))) {
+      service.addTransaction(TransactionType.EXPENSE, new BigDecimal("7.00"), Category.GOODS, "");
+    }
+
+    assertThat(Files.size(file)).isGreaterThan(8);
+    TransactionService restored = new TransactionService();
+    TransactionJournal.open(file, restored, FsyncPolicy.always()).close();
+    assertThat(restored.calculateBalance()).isEqualByComparingTo("-7.00");
+  }
+
+  @Test
+  @DisplayName("После снимка журнал очищается, а при запуске проигрываются только новые операции")
+  void onCheckpoint_SnapshotSaved_JournalKeepsOnlyLaterOperations() throws IOException {
+    Path file = tempDir.resolve("ledger.journal");
+    Path snapshot = tempDir.resolve("ledger.snapshot");
+    TransactionService service = new TransactionService();
+    try (TransactionJournal journal = TransactionJournal.open(file, service,
+        FsyncPolicy.always())) {
+      service.addTransaction(TransactionType.INCOME, new BigDecimal("1000.00"), Category.SALARY,
+          "Зарплата", LocalDate.of(2025, 3, 1));
+      service.addTransaction(TransactionType.EXPENSE, new BigDecimal("200.00"), Category.GOODS,
+          "Продукты", LocalDate.of(2025, 3, 3));
+      service.saveSnapshot(snapshot);
+      long afterCheckpoint = Files.size(file);
+      service.deleteTransaction(0);
+      service.addTransaction(TransactionType.EXPENSE, new BigDecimal("15.50"),
+          Category.TRANSPORT, "Такси", LocalDate.of(2025, 3, 5));
+      assertThat(afterCheckpoint).isLessThan(Files.size(file));
+    }
+
+    TransactionService restored = TransactionService.openSnapshot(snapshot);
+    try (TransactionJournal journal = TransactionJournal.open(file, restored,
+        FsyncPolicy.always())) {
+      assertThat(restored.getAllTransactions())
+          .extracting(Transaction::getDescription)
+          .containsExactly("Такси", "Продукты");
+      assertThat(restored.calculateBalance()).isEqualByComparingTo("-215.50");
+    }
+  }
+
+  @Test
+  @DisplayName("Журнал, уже вошедший в более новый снимок, не проигрывается повторно")
+  void open_JournalOlderThanSnapshot_SkipsReplay() throws IOException {
+    Path file = tempDir.resolve("ledger.journal");
+    Path snapshot = tempDir.resolve("ledger.snapshot");
+    TransactionService service = new TransactionService();
+    try (TransactionJournal journal = TransactionJournal.open(file, service,
+        FsyncPolicy.always())) {
+      service.addTransaction(TransactionType.INCOME, new BigDecimal("1000.00"), Category.SALARY,
+          "Зарплата", LocalDate.of(2025, 3, 1));
+    }
+    service.saveSnapshot(snapshot);
+
+    TransactionService restored = TransactionService.openSnapshot(snapshot);
+    try (TransactionJournal journal = TransactionJournal.open(file, restored,
+        FsyncPolicy.always())) {
+      assertThat(restored.getAllTransactions()).hasSize(1);
+    }
+  }
+
+  @Test
+  @DisplayName("Журнал первой версии проигрывается и переписывается в текущий формат")
+  void open_VersionOneJournal_ReplaysAndUpgrades() throws IOException {
+    Path file = tempDir.resolve("ledger.journal");
+    TransactionService service = new TransactionService();
+    try (TransactionJournal journal = TransactionJournal.open(file, service,
+        FsyncPolicy.always())) {
+      service.addTransaction(TransactionType.INCOME, new BigDecimal("1000.00"), Category.SALARY,
+          "Зарплата", LocalDate.of(2025, 3, 1));
+      service.addTransaction(TransactionType.EXPENSE, new BigDecimal("200.00"), Category.GOODS,
+          "Продукты", LocalDate.of(2025, 3, 3));
+    }
+    writeVersionOne(file);
+
+    TransactionService restored = new TransactionService();
+    try (TransactionJournal journal = TransactionJournal.open(file, restored,
+        FsyncPolicy.always())) {
+      assertThat(restored.calculateBalance()).isEqualByComparingTo("800.00");
+      restored.addTransaction(TransactionType.EXPENSE, new BigDecimal("15.50"),
+          Category.TRANSPORT, "Такси", LocalDate.of(2025, 3, 5));
+    }
+    assertThat(ByteBuffer.wrap(Files.readAllBytes(file)).getInt(4)).isEqualTo(2);
+
+    TransactionService reopened = new TransactionService();
+    TransactionJournal.open(file, reopened, FsyncPolicy.always()).close();
+    assertThat(reopened.getAllTransactions())
+        .extracting(Transaction::getDescription)
+        .containsExactly("Такси", "Продукты", "Зарплата");
+  }
+
+  @Test
+  @DisplayName("Журнал первой версии не проигрывается поверх снимка")
+  void open_VersionOneJournalWithSnapshot_Throws() throws IOException {
+    Path file = tempDir.resolve("ledger.journal");
+    Path snapshot = tempDir.resolve("ledger.snapshot");
+    TransactionService service = new TransactionService();
+    try (TransactionJournal journal = TransactionJournal.open(file, service,
+        FsyncPolicy.always())) {
+      service.addTransaction(TransactionType.INCOME, new BigDecimal("1000.00"), Category.SALARY,
+          "Зарплата", LocalDate.of(2025, 3, 1));
+    }
+    service.saveSnapshot(snapshot);
+    writeVersionOne(file);
+
+    TransactionService restored = TransactionService.openSnapshot(snapshot);
+    assertThatThrownBy(() -> TransactionJournal.open(file, restored, FsyncPolicy.always()))
+        .isInstanceOf(IOException.class)
+        .hasMessageContaining("первой версии");
+  }
+
+  /**
+   * Переписываем журнал в формат первой версии: без номера контрольной точки в заголовке.
+   */
+  private static void writeVersionOne(Path file) throws IOException {
+    byte[] current = Files.readAllBytes(file);
+    ByteBuffer legacy = ByteBuffer.allocate(current.length - 8)
+        .put(current, 0, 4)
+        .putInt(1)
+        .put(current, 16, current.length - 16);
+    Files.write(file, legacy.array());
+  }
+}
@@ -0,0 +1,58 @@
+package ru.mentee.power.fintrack.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+class AmountSketchTest {
+
+  @Test
+  @DisplayName("Квантили после удалений и слияния отличаются от точных не больше чем на 1%")
+  void quantile_AddRemoveMerge_WithinRelativeError() {
+    AmountSketch first = new AmountSketch();
+    AmountSketch second = new AmountSketch();
+    Random random = new Random(42);
+    List<BigDecimal> kept = new ArrayList<>();
+    for (int i = 0; i < 50_000; i++) {
+      // Логнормальное распределение от рублей до сотен тысяч.
+      BigDecimal amount = BigDecimal.valueOf(Math.exp(6 + 2 * random.nextGaussian()))
+          .setScale(2, RoundingMode.HALF_UP).max(BigDecimal.ONE);
+      AmountSketch sketch = i % 2 == 0 ? first : second;
+      sketch.add(amount);
+      if (i % 3 == 0) {
+        sketch.remove(amount);
+      } else {
+        kept.add(amount);
+      }
+    }
+    kept.sort(null);
+    AmountSketch merged = new AmountSketch();
+    merged.merge(first);
+    merged.merge(second);
+
+    assertThat(merged.count()).isEqualTo(kept.size());
+    for (double q : new double[] {0.01, 0.5, 0.95, 0.99, 1}) {
+      BigDecimal exact = kept.get((int) Math.ceil(q * kept.size()) - 1);
+      BigDecimal error = exact.multiply(new BigDecimal("0.01")).add(new BigDecimal("0.01"));
+      assertThat(merged.quantile(q)).as("q=%s", q)
+          .isBetween(exact.subtract(error), exact.add(error));
+    }
+  }
+
+  @Test
+  @DisplayName("Пустое распределение не даёт квантилей")
+  void quantile_Empty_ReturnsNull() {
+    AmountSketch sketch = new AmountSketch();
+    sketch.add(BigDecimal.TEN);
+    sketch.remove(BigDecimal.TEN);
+
+    assertThat(sketch.count()).isZero();
+    assertThat(sketch.quantile(0.5)).isNull();
+  }
+}
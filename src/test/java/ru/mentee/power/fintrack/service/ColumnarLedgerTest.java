@@ -0,0 +1,103 @@
+package ru.mentee.power.fintrack.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Random;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import ru.mentee.power.fintrack.model.Transaction;
+import ru.mentee.power.fintrack.model.Transaction.Category;
+import ru.mentee.power.fintrack.model.Transaction.TransactionType;
+
+class ColumnarLedgerTest {
+
+  @Test
+  @DisplayName("Колоночное хранилище отвечает так же, как TransactionService")
+  void queries_MatchTransactionService() {
+    ColumnarLedger ledger = new ColumnarLedger(16);
+    TransactionService service = new TransactionService();
+    Random random = new Random(7);
+
+    for (int i = 0; i < 5_000; i++) {
+      TransactionType type = TransactionType.values()[random.nextInt(2)];
+      Category category = Category.values()[random.nextInt(Category.values().length)];
+      BigDecimal sum = BigDecimal.valueOf(random.nextInt(100_000) + 1, 2);
+      LocalDate date = LocalDate.of(2024, 1, 1).plusDays(random.nextInt(400));
+      String description = "d" + random.nextInt(50);
+
+      int id = ledger.addTransaction(type, sum, category, description, date);
+      service.addTransaction(type, sum, category, description, date);
+      if (random.nextInt(5) == 0) {
+        assertThat(ledger.deleteTransaction(id)).isTrue();
+        assertThat(service.deleteTransaction(id)).isTrue();
+      }
+    }
+
+    assertThat(ledger.size()).isEqualTo(service.getAllTransactions().size());
+    assertThat(ledger.calculateBalance()).isEqualByComparingTo(service.calculateBalance());
+    assertThat(ledger.getExpensesByCategory()).isEqualTo(service.getExpensesByCategory());
+    assertThat(ledger.getAllTransactions()).extracting(Transaction::getId)
+        .containsExactlyElementsOf(service.getAllTransactions().stream()
+            .map(Transaction::getId).toList());
+    assertThat(ledger.getTransactionsByCategory(Category.GOODS)).extracting(Transaction::getId)
+        .containsExactlyElementsOf(service.getTransactionsByCategory(Category.GOODS).stream()
+            .map(Transaction::getId).toList());
+  }
+
+  @Test
+  @DisplayName("Транзакция создаётся из колонок только при выдаче результата")
+  void getTransaction_MaterializesStoredRow() {
+    ColumnarLedger ledger = new ColumnarLedger();
+    int id = ledger.addTransaction(TransactionType.EXPENSE, new BigDecimal("12.3"),
+        Category.TRANSPORT, "Метро", LocalDate.of(2025, 3, 1));
+
+    assertThat(ledger.getTransaction(id)).hasValueSatisfying(t -> {
+      assertThat(t.getSum()).isEqualByComparingTo("12.30");
+      assertThat(t.getDate()).isEqualTo(LocalDate.of(2025, 3, 1));
+      assertThat(t.getDescription()).isEqualTo("Метро");
+    });
+    assertThat(ledger.deleteTransaction(id)).isTrue();
+    assertThat(ledger.getTransaction(id)).isEmpty();
+    assertThat(ledger.deleteTransaction(id)).isFalse();
+  }
+
+  @Test
+  @DisplayName("Сумма с долями копейки отклоняется")
+  void addTransaction_FractionalMinorUnits_ThrowsException() {
+    assertThatThrownBy(() -> new ColumnarLedger().addTransaction(TransactionType.INCOME,
+        new BigDecimal("0.001"), Category.SALARY, "", LocalDate.now()))
+        .isInstanceOf(IllegalArgumentException.class);
+  }
+
+  @Test
+  @DisplayName("Транзакция без типа отклоняется")
+  void addTransaction_NullType_ThrowsException() {
+    ColumnarLedger ledger = new ColumnarLedger();
+
+    assertThatThrownBy(() -> ledger.addTransaction(null, BigDecimal.TEN, Category.GOODS, "",
+        LocalDate.now()))
+        .isInstanceOf(IllegalArgumentException.class)
+        .hasMessageContaining("Тип");
+    assertThat(ledger.size()).isZero();
+  }
+
+  @Test
+  @DisplayName("Параллельная агрегация по кускам совпадает с последовательным проходом")
+  void aggregate_ParallelChunks_MatchSequential() {
+    ColumnarLedger ledger = new ColumnarLedger();
+    Random random = new Random(11);
+    for (int i = 0; i < 100_000; i++) {
+      int id = ledger.addTransaction(TransactionType.values()[random.nextInt(2)],
+          BigDecimal.valueOf(random.nextInt(1_000_000) + 1, 2),
+          Category.values()[random.nextInt(Category.values().length)], "", LocalDate.now());
+      if (random.nextInt(10) == 0) {
+        ledger.deleteTransaction(id);
+      }
+    }
+
+    assertThat(ledger.aggregate(1_000)).containsExactly(ledger.aggregate(Integer.MAX_VALUE));
+  }
+}
@@ -10,6 +10,11 @@ import static ru.mentee.power.fintrack.model.Transaction.TransactionType.EXPENSE
 import static ru.mentee.power.fintrack.model.Transaction.TransactionType.INCOME;
 
 import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.Year;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
 import java.util.Map;
 import org.junit.jupiter.api.BeforeEach;
@@ -244,4 +249,350 @@ class FinanceServiceTest {
         .extracting(Transaction::getId)
         .startsWith(testIncome.getId(), testExpense.getId(), oldest.getId());
   }
+
+  @Test
+  @DisplayName("Накопленные суммы совпадают с полным пересчётом после добавлений и удалений")
+  void totals_AfterAddsAndDeletes_MatchFullRecompute() {
+    Transaction taxi = transactionService.addTransaction(
+        EXPENSE,
+        new BigDecimal("150.125"),
+        TRANSPORT,
+        "Taxi"
+    );
+    transactionService.addTransaction(INCOME, new BigDecimal("42.10"), SALARY, "Bonus");
+    transactionService.deleteTransaction(taxi.getId());
+    transactionService.deleteTransaction(testExpense.getId());
+
+    assertThat(transactionService.totalsMatchRecompute()).isTrue();
+    assertThat(transactionService.calculateBalance()).isEqualByComparingTo("1042.10");
+    assertThat(transactionService.getExpensesByCategory()).isEmpty();
+  }
+
+  @Test
+  @DisplayName("Индексы по типу и категории обновляются при удалении и сохраняют порядок по id")
+  void indexes_AfterDelete_KeepOrderAndDropDeleted() {
+    Transaction taxi = transactionService.addTransaction(
+        EXPENSE, new BigDecimal("150.00"), TRANSPORT, "Taxi");
+    Transaction bus = transactionService.addTransaction(
+        EXPENSE, new BigDecimal("50.00"), TRANSPORT, "Bus");
+
+    transactionService.deleteTransaction(testExpense.getId());
+
+    assertThat(transactionService.getTransactionsByType(EXPENSE))
+        .extracting(Transaction::getId)
+        .containsExactly(taxi.getId(), bus.getId());
+    assertThat(transactionService.getTransactionsByCategory(GOODS)).isEmpty();
+  }
+
+  @Test
+  @DisplayName("Транзакции с явной датой возвращаются по периоду от новых к старым")
+  void getTransactionsBetween_BackdatedTransactions_ReturnsRangeNewestFirst() {
+    Transaction march = transactionService.addTransaction(
+        EXPENSE, new BigDecimal("10.00"), GOODS, "March", LocalDate.of(2025, 3, 15));
+    Transaction january = transactionService.addTransaction(
+        EXPENSE, new BigDecimal("20.00"), GOODS, "January", LocalDate.of(2025, 1, 31));
+    transactionService.addTransaction(
+        INCOME, new BigDecimal("30.00"), SALARY, "December", LocalDate.of(2024, 12, 31));
+
+    assertThat(transactionService.getTransactionsBetween(
+        LocalDate.of(2025, 1, 1), LocalDate.of(2025, 3, 31)))
+        .extracting(Transaction::getId)
+        .containsExactly(march.getId(), january.getId());
+    assertThat(transactionService.getAllTransactions())
+        .extracting(Transaction::getDescription)
+        .endsWith("March", "January", "December");
+  }
+
+  @Test
+  @DisplayName("Период с началом позже окончания вызывает исключение")
+  void getTransactionsBetween_InvertedRange_ThrowsException() {
+    assertThatThrownBy(() -> transactionService.getTransactionsBetween(
+        LocalDate.of(2025, 2, 1), LocalDate.of(2025, 1, 1)))
+        .isInstanceOf(IllegalArgumentException.class);
+  }
+
+  @Test
+  @DisplayName("Поиск транзакции по id и массовое удаление сохраняют согласованность индексов")
+  void getTransaction_AfterBulkDelete_IndexesStayConsistent() {
+    for (int i = 0; i < 1_000; i++) {
+      transactionService.addTransaction(
+          EXPENSE, new BigDecimal("1.00"), TRANSPORT, "Bus", LocalDate.of(2025, 1, 1 + i % 28));
+    }
+    for (int id = 2; id < 1_002; id += 2) {
+      assertThat(transactionService.deleteTransaction(id)).isTrue();
+    }
+
+    assertThat(transactionService.getTransaction(testIncome.getId())).contains(testIncome);
+    assertThat(transactionService.getTransaction(2)).isEmpty();
+    assertThat(transactionService.getAllTransactions()).hasSize(502);
+    assertThat(transactionService.indexesMatchStore()).isTrue();
+    assertThat(transactionService.totalsMatchRecompute()).isTrue();
+  }
+
+  @Test
+  @DisplayName("Пакетное добавление выдаёт id подряд и обновляет индексы и суммы")
+  void addTransactions_Batch_AssignsSequentialIdsAndUpdatesIndexes() {
+    List<Transaction> added = transactionService.addTransactions(List.of(
+        new Transaction(0, "Taxi", new BigDecimal("15.00"), LocalDate.of(2025, 1, 2),
+            TRANSPORT, EXPENSE),
+        new Transaction(0, "Bonus", new BigDecimal("300.00"), LocalDate.of(2025, 1, 1),
+            SALARY, INCOME)));
+
+    assertThat(added).extracting(Transaction::getId).containsExactly(2, 3);
+    assertThat(transactionService.getTransactionsByCategory(TRANSPORT))
+        .extracting(Transaction::getDescription)
+        .containsExactly("Taxi");
+    assertThat(transactionService.calculateBalance()).isEqualByComparingTo("1084.50");
+    assertThat(transactionService.indexesMatchStore()).isTrue();
+    assertThat(transactionService.totalsMatchRecompute()).isTrue();
+  }
+
+  @Test
+  @DisplayName("Пакет с некорректной транзакцией не добавляется целиком")
+  void addTransactions_InvalidEntry_AddsNothing() {
+    List<Transaction> drafts = List.of(
+        new Transaction(0, "Taxi", new BigDecimal("15.00"), LocalDate.of(2025, 1, 2),
+            TRANSPORT, EXPENSE),
+        new Transaction(0, "Broken", new BigDecimal("-1.00"), LocalDate.of(2025, 1, 1),
+            GOODS, EXPENSE));
+
+    assertThatThrownBy(() -> transactionService.addTransactions(drafts))
+        .isInstanceOf(IllegalArgumentException.class);
+    assertThat(transactionService.getAllTransactions()).hasSize(2);
+  }
+
+  @Test
+  @DisplayName("Страницы по ключу обходят выборку без пропусков и повторов")
+  void page_WalkWithAfter_CoversFilterInOrder() {
+    for (int i = 0; i < 25; i++) {
+      transactionService.addTransaction(
+          EXPENSE, new BigDecimal("1.00"), i % 2 == 0 ? GOODS : TRANSPORT, "Item " + i,
+          LocalDate.of(2025, 1, 1 + i % 5));
+    }
+    TransactionFilter filter = new TransactionFilter(EXPENSE, GOODS,
+        LocalDate.of(2025, 1, 2), LocalDate.of(2025, 1, 4));
+
+    List<Transaction> walked = new ArrayList<>();
+    List<Transaction> page = transactionService.page(filter, 2, null);
+    while (!page.isEmpty()) {
+      walked.addAll(page);
+      page = transactionService.page(filter, 2, page.get(page.size() - 1));
+    }
+
+    assertThat(walked).isEqualTo(transactionService.stream(filter).toList());
+    assertThat(walked).hasSize(7).allMatch(filter::matches);
+    assertThat(walked).extracting(Transaction::getDate)
+        .isSortedAccordingTo(Comparator.reverseOrder());
+  }
+
+  @Test
+  @DisplayName("Следующая страница строится после удалённой транзакции-курсора")
+  void page_CursorDeleted_ContinuesAfterItsKey() {
+    List<Transaction> first = transactionService.page(TransactionFilter.all(), 1, null);
+    transactionService.deleteTransaction(first.get(0).getId());
+
+    assertThat(transactionService.page(TransactionFilter.all(), 10, first.get(0)))
+        .containsExactly(testExpense);
+    assertThat(transactionService.page(TransactionFilter.all(), 10, first.get(0).getDate(),
+        first.get(0).getId())).containsExactly(testExpense);
+  }
+
+  @Test
+  @DisplayName("Параллельные итоги по выборке совпадают с последовательными")
+  void summarize_ParallelPath_MatchesSequential() {
+    for (int i = 0; i < 20_000; i++) {
+      transactionService.addTransaction(i % 3 == 0 ? INCOME : EXPENSE,
+          BigDecimal.valueOf(i % 997 + 1, i % 3), i % 2 == 0 ? GOODS : TRANSPORT, "",
+          LocalDate.of(2025, 1, 1).plusDays(i % 365));
+    }
+    TransactionFilter march = TransactionFilter.between(
+        LocalDate.of(2025, 3, 1), LocalDate.of(2025, 3, 31));
+
+    TransactionSummary parallel = transactionService.summarize(march, 1);
+    TransactionSummary sequential = transactionService.summarize(march, Integer.MAX_VALUE);
+
+    assertThat(parallel.matches(sequential)).isTrue();
+    assertThat(parallel.byCategory(EXPENSE)).isEqualTo(sequential.byCategory(EXPENSE));
+    BigDecimal expectedBalance = transactionService.stream(march)
+        .map(t -> t.getTransactionType() == INCOME ? t.getSum() : t.getSum().negate())
+        .reduce(BigDecimal.ZERO, BigDecimal::add);
+    assertThat(parallel.balance()).isEqualTo(expectedBalance);
+  }
+
+  @Test
+  @DisplayName("Итоги без условий совпадают с балансом и сводкой расходов")
+  void summarize_AllFilter_MatchesAccumulatedTotals() {
+    TransactionSummary summary = transactionService.summarize(TransactionFilter.all());
+
+    assertThat(summary.balance()).isEqualByComparingTo(transactionService.calculateBalance());
+    assertThat(summary.byCategory(EXPENSE))
+        .isEqualTo(transactionService.getExpensesByCategory());
+    assertThat(summary.count(INCOME)).isEqualTo(1);
+  }
+
+  @Test
+  @DisplayName("Итоги за период по дням и месяцам совпадают с обходом транзакций")
+  void summarizePeriod_AfterAddsAndDeletes_MatchesScan() {
+    for (int i = 0; i < 3_000; i++) {
+      Transaction transaction = transactionService.addTransaction(i % 4 == 0 ? INCOME : EXPENSE,
+          BigDecimal.valueOf(i % 500 + 1, 2), i % 3 == 0 ? GOODS : TRANSPORT, "",
+          LocalDate.of(2025, 1, 1).plusDays(i % 400));
+      if (i % 7 == 0) {
+        transactionService.deleteTransaction(transaction.getId());
+      }
+    }
+
+    List<LocalDate[]> periods = List.of(
+        new LocalDate[] {LocalDate.of(2025, 3, 1), LocalDate.of(2025, 3, 31)},
+        new LocalDate[] {LocalDate.of(2025, 3, 5), LocalDate.of(2025, 3, 20)},
+        new LocalDate[] {LocalDate.of(2025, 1, 15), LocalDate.of(2025, 5, 10)},
+        new LocalDate[] {LocalDate.of(2025, 2, 1), LocalDate.of(2025, 2, 14)},
+        new LocalDate[] {LocalDate.of(2024, 12, 20), LocalDate.of(2026, 2, 28)});
+    for (LocalDate[] period : periods) {
+      assertThat(transactionService.summarizePeriod(period[0], period[1])
+          .matches(transactionService.summarize(TransactionFilter.between(period[0], period[1]))))
+          .as("%s..%s", period[0], period[1])
+          .isTrue();
+    }
+  }
+
+  @Test
+  @DisplayName("Отчёт по месяцам содержит все месяцы года по порядку")
+  void getMonthlyReport_ReturnsTwelveMonthsInOrder() {
+    transactionService.addTransaction(
+        EXPENSE, new BigDecimal("40.00"), GOODS, "March", LocalDate.of(2025, 3, 10));
+    transactionService.addTransaction(
+        INCOME, new BigDecimal("100.00"), SALARY, "March", LocalDate.of(2025, 3, 31));
+
+    Map<YearMonth, TransactionSummary> report =
+        transactionService.getMonthlyReport(Year.of(2025));
+
+    assertThat(report.keySet()).hasSize(12).first().isEqualTo(YearMonth.of(2025, 1));
+    assertThat(report.get(YearMonth.of(2025, 3)).balance()).isEqualByComparingTo("60.00");
+    assertThat(report.get(YearMonth.of(2025, 4)).count(EXPENSE)).isZero();
+  }
+
+  @Test
+  @DisplayName("Баланс на дату и поток за период совпадают с обходом при датах вразнобой")
+  void balanceAsOf_OutOfOrderAddsAndDeletes_MatchesScan() {
+    LocalDate origin = LocalDate.of(2025, 6, 1);
+    for (int i = 0; i < 2_000; i++) {
+      // Даты скачут на годы в обе стороны, чтобы задеть много кусков индекса по дням.
+      long offset = (i * 7919L) % 4_001 - 2_000;
+      Transaction transaction = transactionService.addTransaction(i % 3 == 0 ? INCOME : EXPENSE,
+          BigDecimal.valueOf(i % 900 + 1, 2), GOODS, "", origin.plusDays(offset));
+      if (i % 5 == 0) {
+        transactionService.deleteTransaction(transaction.getId());
+      }
+    }
+
+    List<Transaction> all = transactionService.getAllTransactions();
+    for (LocalDate date : List.of(origin.minusDays(3_000), origin.minusDays(1_999), origin,
+        origin.plusDays(17), origin.plusDays(2_000), LocalDate.now().plusYears(10))) {
+      assertThat(transactionService.balanceAsOf(date)).as("%s", date)
+          .isEqualByComparingTo(netFlow(all, LocalDate.MIN, date));
+    }
+    LocalDate from = origin.minusDays(400);
+    LocalDate to = origin.plusDays(90);
+    assertThat(transactionService.netFlowBetween(from, to))
+        .isEqualByComparingTo(netFlow(all, from, to));
+  }
+
+  @Test
+  @DisplayName("Даты на краях календаря не раздувают индекс по дням и дают верный баланс")
+  void balanceAsOf_ExtremeDates_MatchesScan() {
+    TransactionService striped = TransactionService.concurrent();
+    LocalDate first = LocalDate.of(1, 1, 1);
+    LocalDate last = LocalDate.of(9999, 12, 31);
+    striped.addTransaction(INCOME, new BigDecimal("100.00"), SALARY, "", first);
+    striped.addTransaction(EXPENSE, new BigDecimal("30.00"), GOODS, "", last);
+    striped.addTransaction(INCOME, new BigDecimal("5.00"), SALARY, "", LocalDate.of(2026, 1, 1));
+
+    assertThat(striped.balanceAsOf(first.minusDays(1))).isEqualByComparingTo("0");
+    assertThat(striped.balanceAsOf(first)).isEqualByComparingTo("100.00");
+    assertThat(striped.balanceAsOf(LocalDate.of(2026, 1, 1))).isEqualByComparingTo("105.00");
+    assertThat(striped.balanceAsOf(last)).isEqualByComparingTo("75.00");
+    assertThat(striped.netFlowBetween(LocalDate.of(2000, 1, 1), last))
+        .isEqualByComparingTo("-25.00");
+  }
+
+  @Test
+  @DisplayName("Поток за период с началом позже конца — ошибка")
+  void netFlowBetween_InvertedRange_ThrowsException() {
+    assertThatThrownBy(() -> transactionService.netFlowBetween(
+        LocalDate.of(2025, 3, 2), LocalDate.of(2025, 3, 1)))
+        .isInstanceOf(IllegalArgumentException.class);
+  }
+
+  @Test
+  @DisplayName("Поиск по описанию: префиксы, несколько слов, регистр и «ё»")
+  void search_PrefixAndSeveralTerms_MatchesAllWords() {
+    Transaction taxi = transactionService.addTransaction(
+        EXPENSE, new BigDecimal("350.00"), TRANSPORT, "Такси до аэропорта");
+    Transaction coffee = transactionService.addTransaction(
+        EXPENSE, new BigDecimal("180.00"), GOODS, "Кофе в аэропорту, ЁЛКИ-палки");
+    transactionService.addTransaction(
+        EXPENSE, new BigDecimal("90.00"), TRANSPORT, "Метро");
+
+    assertThat(transactionService.search("аэроп")).containsExactlyInAnyOrder(taxi, coffee);
+    assertThat(transactionService.search("такси АЭРО")).containsExactly(taxi);
+    assertThat(transactionService.search("елки")).containsExactly(coffee);
+    assertThat(transactionService.search("groc")).containsExactly(testExpense);
+    assertThat(transactionService.search("такси метро")).isEmpty();
+    assertThat(transactionService.search(" , ")).isEmpty();
+
+    transactionService.deleteTransaction(taxi.getId());
+
+    assertThat(transactionService.search("аэроп")).containsExactly(coffee);
+  }
+
+  @Test
+  @DisplayName("Поиск после добавлений пачкой и удалений совпадает с полным перебором")
+  void search_AfterBatchAddsAndDeletes_MatchesScan() {
+    String[] words = {"кофе", "кофейня", "такси", "метро", "coffee", "taxi", "обед"};
+    List<Transaction> drafts = new ArrayList<>();
+    for (int i = 0; i < 3_000; i++) {
+      drafts.add(new Transaction(0, words[i % words.length] + " " + words[i % 5],
+          BigDecimal.ONE, LocalDate.of(2025, 1, 1).plusDays(i % 90), GOODS, EXPENSE));
+    }
+    List<Transaction> added = transactionService.addTransactions(drafts);
+    for (int i = 0; i < added.size(); i += 4) {
+      transactionService.deleteTransaction(added.get(i).getId());
+    }
+
+    List<Transaction> expected = transactionService.getAllTransactions().stream()
+        .filter(t -> t.getDescription().contains("кофе") && t.getDescription().contains("такси"))
+        .toList();
+    assertThat(transactionService.search("такси коф")).containsExactlyElementsOf(expected);
+  }
+
+  @Test
+  @DisplayName("Повторные запросы попадают в кэш, добавление и удаление его сбрасывают")
+  void queryCache_AddAndDelete_InvalidateCachedResults() {
+    List<Transaction> before = transactionService.getTransactionsByType(EXPENSE);
+    assertThat(transactionService.getTransactionsByType(EXPENSE)).isSameAs(before);
+    BigDecimal balance = transactionService.calculateBalance();
+    assertThat(transactionService.getQueryCacheStats().hits()).isEqualTo(1);
+
+    Transaction taxi = transactionService.addTransaction(
+        EXPENSE, new BigDecimal("300.00"), TRANSPORT, "Taxi");
+
+    assertThat(transactionService.getTransactionsByType(EXPENSE)).hasSize(before.size() + 1);
+    assertThat(transactionService.calculateBalance())
+        .isEqualByComparingTo(balance.subtract(new BigDecimal("300.00")));
+
+    transactionService.deleteTransaction(taxi.getId());
+
+    assertThat(transactionService.getTransactionsByType(EXPENSE))
+        .containsExactlyElementsOf(before);
+    assertThat(transactionService.getQueryCacheStats().misses()).isEqualTo(5);
+  }
+
+  private static BigDecimal netFlow(List<Transaction> transactions, LocalDate from,
+      LocalDate to) {
+    return transactions.stream()
+        .filter(t -> !t.getDate().isBefore(from) && !t.getDate().isAfter(to))
+        .map(t -> t.getTransactionType() == INCOME ? t.getSum() : t.getSum().negate())
+        .reduce(BigDecimal.ZERO, BigDecimal::add);
+  }
 }
\ No newline at end of file
@@ -0,0 +1,50 @@
+package ru.mentee.power.fintrack.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+class IntHashMapTest {
+
+  @Test
+  @DisplayName("Случайные вставки и удаления совпадают с HashMap")
+  void randomOperations_MatchHashMap() {
+    IntHashMap<String> map = new IntHashMap<>();
+    Map<Integer, String> expected = new HashMap<>();
+    Random random = new Random(42);
+
+    for (int i = 0; i < 200_000; i++) {
+      int key = random.nextInt(5_000) - 1_000;
+      if (random.nextInt(3) == 0) {
+        assertThat(map.remove(key)).isEqualTo(expected.remove(key));
+      } else {
+        String value = "v" + i;
+        assertThat(map.put(key, value)).isEqualTo(expected.put(key, value));
+      }
+    }
+
+    assertThat(map.size()).isEqualTo(expected.size());
+    for (int key = -1_000; key < 4_000; key++) {
+      assertThat(map.get(key)).isEqualTo(expected.get(key));
+    }
+  }
+
+  @Test
+  @DisplayName("После удаления всех ключей таблица пуста и поиск ничего не находит")
+  void removeAll_LeavesEmptyMap() {
+    IntHashMap<Integer> map = new IntHashMap<>();
+    for (int key = 0; key < 10_000; key++) {
+      map.put(key, key);
+    }
+    for (int key = 0; key < 10_000; key++) {
+      assertThat(map.remove(key)).isEqualTo(key);
+    }
+
+    assertThat(map.size()).isZero();
+    assertThat(map.get(5_000)).isNull();
+  }
+}
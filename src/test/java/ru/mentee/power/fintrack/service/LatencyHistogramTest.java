@@ -0,0 +1,45 @@
+package ru.mentee.power.fintrack.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.Arrays;
+import java.util.Random;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+class LatencyHistogramTest {
+
+  @Test
+  @DisplayName("Квантили завышаются не более чем на 1/32 относительно точных")
+  void quantile_RandomLatencies_WithinRelativeError() {
+    LatencyHistogram histogram = new LatencyHistogram();
+    Random random = new Random(42);
+    long[] values = new long[100_000];
+    for (int i = 0; i < values.length; i++) {
+      // Логнормальное распределение от сотен наносекунд до десятков миллисекунд.
+      values[i] = (long) Math.exp(8 + 2 * random.nextGaussian());
+      histogram.record(values[i]);
+    }
+    Arrays.sort(values);
+
+    for (double q : new double[] {0.5, 0.99, 0.999}) {
+      long exact = values[(int) Math.ceil(q * values.length) - 1];
+      assertThat(histogram.quantile(q)).as("q=%s", q)
+          .isGreaterThanOrEqualTo(exact)
+          .isLessThanOrEqualTo(exact + exact / 32 + 1);
+    }
+  }
+
+  @Test
+  @DisplayName("Корзины идут подряд и покрывают весь диапазон long")
+  void indexOf_BucketBoundaries_AreContiguous() {
+    for (int index = 1; index < LatencyHistogram.indexOf(Long.MAX_VALUE); index++) {
+      long previousHighest = LatencyHistogram.highestEquivalent(index - 1);
+      assertThat(LatencyHistogram.indexOf(previousHighest + 1)).isEqualTo(index);
+      assertThat(LatencyHistogram.indexOf(LatencyHistogram.highestEquivalent(index)))
+          .isEqualTo(index);
+    }
+    assertThat(LatencyHistogram.highestEquivalent(LatencyHistogram.indexOf(Long.MAX_VALUE)))
+        .isEqualTo(Long.MAX_VALUE);
+  }
+}
@@ -0,0 +1,103 @@
+package ru.mentee.power.fintrack.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import ru.mentee.power.fintrack.model.Transaction;
+import ru.mentee.power.fintrack.model.Transaction.Category;
+import ru.mentee.power.fintrack.model.Transaction.TransactionType;
+
+class PersistentIndexTest {
+
+  private static Transaction transaction(int id, int day) {
+    return new Transaction(id, "", BigDecimal.ONE, LocalDate.of(2025, 1, 1).plusDays(day),
+        Category.GOODS, TransactionType.EXPENSE);
+  }
+
+  private static List<Transaction> toList(Iterator<Transaction> iterator) {
+    List<Transaction> result = new ArrayList<>();
+    iterator.forEachRemaining(result::add);
+    return result;
+  }
+
+  @Test
+  @DisplayName("Случайные вставки, пачки и удаления совпадают с TreeMap: диапазоны и номера")
+  void randomOperations_MatchTreeMap() {
+    PersistentIndex index = PersistentIndex.EMPTY;
+    TreeMap<TransactionKey, Transaction> expected = new TreeMap<>();
+    List<Transaction> added = new ArrayList<>();
+    Random random = new Random(42);
+    int nextId = 0;
+
+    for (int step = 0; step < 20_000; step++) {
+      int operation = random.nextInt(10);
+      if (operation < 5) {
+        Transaction transaction = transaction(nextId++, random.nextInt(100));
+        index = index.with(transaction);
+        expected.put(TransactionKey.of(transaction), transaction);
+        added.add(transaction);
+      } else if (operation < 6) {
+        TreeMap<TransactionKey, Transaction> batch = new TreeMap<>();
+        for (int i = random.nextInt(50); i > 0; i--) {
+          Transaction transaction = transaction(nextId++, random.nextInt(100));
+          batch.put(TransactionKey.of(transaction), transaction);
+          added.add(transaction);
+        }
+        index = index.withAll(new ArrayList<>(batch.values()));
+        expected.putAll(batch);
+      } else if (!added.isEmpty()) {
+        Transaction transaction = added.get(random.nextInt(added.size()));
+        index = index.without(transaction);
+        expected.remove(TransactionKey.of(transaction));
+      }
+    }
+
+    assertThat(toList(index.iterator(null, null))).containsExactlyElementsOf(expected.values());
+    assertThat(index.size()).isEqualTo(expected.size());
+    for (int i = 0; i < 100; i++) {
+      TransactionKey after = TransactionKey.newerThan(LocalDate.of(2025, 1, 1)
+          .plusDays(random.nextInt(100)));
+      TransactionKey upTo = TransactionKey.lastOf(LocalDate.of(2025, 1, 1)
+          .plusDays(random.nextInt(100)));
+      Map<TransactionKey, Transaction> range = after.compareTo(upTo) > 0
+          ? Map.of() : expected.subMap(after, false, upTo, true);
+      assertThat(toList(index.iterator(after, upTo))).containsExactlyElementsOf(range.values());
+      int from = index.countThrough(after);
+      assertThat(from).isEqualTo(expected.headMap(after, true).size());
+      assertThat(toList(index.iterator(from, index.countThrough(upTo))))
+          .containsExactlyElementsOf(range.values());
+    }
+    for (Transaction transaction : added) {
+      assertThat(index.find(transaction))
+          .isSameAs(expected.get(TransactionKey.of(transaction)));
+    }
+  }
+
+  @Test
+  @DisplayName("Изменения не затрагивают прежнюю версию и её незавершённый обход")
+  void with_OlderVersion_StaysUnchanged() {
+    PersistentIndex before = PersistentIndex.EMPTY;
+    for (int id = 0; id < 1_000; id++) {
+      before = before.with(transaction(id, id % 30));
+    }
+    Iterator<Transaction> reading = before.iterator(null, null);
+    reading.next();
+
+    PersistentIndex after = before.without(transaction(10, 10)).with(transaction(1_000, 5));
+
+    assertThat(toList(reading)).hasSize(999);
+    assertThat(before.find(transaction(10, 10))).isNotNull();
+    assertThat(before.find(transaction(1_000, 5))).isNull();
+    assertThat(after.find(transaction(10, 10))).isNull();
+    assertThat(toList(after.iterator(null, null))).hasSize(1_000);
+  }
+}
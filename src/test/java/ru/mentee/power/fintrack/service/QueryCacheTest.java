@@ -0,0 +1,50 @@
+package ru.mentee.power.fintrack.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+class QueryCacheTest {
+
+  @Test
+  @DisplayName("Повторный запрос без изменений берётся из кэша, после изменения считается заново")
+  void get_InvalidatedBetweenCalls_RecomputesOnce() {
+    QueryCache cache = new QueryCache(4);
+    AtomicInteger computed = new AtomicInteger();
+
+    assertThat(cache.<Integer>get("q", computed::incrementAndGet)).isEqualTo(1);
+    assertThat(cache.<Integer>get("q", computed::incrementAndGet)).isEqualTo(1);
+    cache.invalidate();
+    assertThat(cache.<Integer>get("q", computed::incrementAndGet)).isEqualTo(2);
+
+    assertThat(cache.stats()).isEqualTo(new QueryCacheStats(1, 2, 1, 4));
+  }
+
+  @Test
+  @DisplayName("При переполнении вытесняется давно не использованный результат")
+  void get_OverCapacity_EvictsLeastRecentlyUsed() {
+    QueryCache cache = new QueryCache(2);
+    cache.get("a", () -> "a1");
+    cache.get("b", () -> "b1");
+    cache.get("a", () -> "a2");
+    cache.get("c", () -> "c1");
+
+    assertThat(cache.<String>get("a", () -> "a3")).isEqualTo("a1");
+    assertThat(cache.<String>get("b", () -> "b2")).isEqualTo("b2");
+    assertThat(cache.stats().size()).isEqualTo(2);
+  }
+
+  @Test
+  @DisplayName("Кэш нулевого размера всегда считает запрос заново")
+  void get_ZeroCapacity_NeverCaches() {
+    QueryCache cache = new QueryCache(1);
+    cache.get("q", () -> 1);
+    cache.setCapacity(0);
+
+    assertThat(cache.<Integer>get("q", () -> 2)).isEqualTo(2);
+    assertThat(cache.stats().size()).isZero();
+    assertThat(cache.stats().hits()).isZero();
+  }
+}
@@ -0,0 +1,71 @@
+package ru.mentee.power.fintrack.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.lang.management.ManagementFactory;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import ru.mentee.power.fintrack.model.Transaction.Category;
+import ru.mentee.power.fintrack.model.Transaction.TransactionType;
+
+class ServiceMetricsTest {
+
+  @Test
+  @DisplayName("Без включения метрики пусты и ничего не копят")
+  void getMetrics_NotEnabled_RecordsNothing() {
+    TransactionService service = new TransactionService();
+    service.addTransaction(TransactionType.INCOME, BigDecimal.TEN, Category.SALARY, "");
+    service.calculateBalance();
+
+    assertThat(service.getMetrics().isEnabled()).isFalse();
+    assertThat(service.getMetrics().snapshot()).isEmpty();
+  }
+
+  @Test
+  @DisplayName("Включённые метрики считают вызовы каждой операции")
+  void enableMetrics_Operations_CountedPerOperation() {
+    TransactionService service = new TransactionService();
+    ServiceMetrics metrics = service.enableMetrics();
+    for (int i = 0; i < 10; i++) {
+      service.addTransaction(TransactionType.EXPENSE, BigDecimal.ONE, Category.GOODS, "",
+          LocalDate.of(2025, 3, 1 + i));
+    }
+    service.deleteTransaction(0);
+    service.calculateBalance();
+    service.calculateBalance();
+    service.getTransactionsBetween(LocalDate.of(2025, 3, 1), LocalDate.of(2025, 3, 5));
+
+    assertThat(metrics.snapshot()).containsOnlyKeys(ServiceOperation.ADD,
+        ServiceOperation.DELETE, ServiceOperation.BALANCE, ServiceOperation.SELECT);
+    OperationStats adds = metrics.stats(ServiceOperation.ADD);
+    assertThat(adds.count()).isEqualTo(10);
+    assertThat(adds.p50Nanos()).isPositive().isLessThanOrEqualTo(adds.p999Nanos());
+    assertThat(metrics.stats(ServiceOperation.BALANCE).count()).isEqualTo(2);
+    assertThat(service.getTransactionCount()).isEqualTo(9);
+  }
+
+  @Test
+  @DisplayName("Метрики операций и размер реестра доступны через JMX")
+  void registerMBeans_Registered_ExposesCountersAndGauges() throws JMException {
+    TransactionService service = new TransactionService();
+    service.enableMetrics().registerMBeans("fintrack.test");
+    service.addTransaction(TransactionType.INCOME, BigDecimal.TEN, Category.SALARY, "");
+
+    MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+    try {
+      assertThat(server.getAttribute(
+          new ObjectName("fintrack.test:type=Operation,name=add"), "Count")).isEqualTo(1L);
+      assertThat(server.getAttribute(
+          new ObjectName("fintrack.test:type=Ledger"), "TransactionCount")).isEqualTo(1L);
+    } finally {
+      for (ObjectName name : server.queryNames(new ObjectName("fintrack.test:*"), null)) {
+        server.unregisterMBean(name);
+      }
+    }
+  }
+}
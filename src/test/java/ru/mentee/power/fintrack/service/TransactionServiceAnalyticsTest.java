@@ -0,0 +1,112 @@
+package ru.mentee.power.fintrack.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import ru.mentee.power.fintrack.model.Transaction;
+import ru.mentee.power.fintrack.model.Transaction.Category;
+import ru.mentee.power.fintrack.model.Transaction.TransactionType;
+
+class TransactionServiceAnalyticsTest {
+
+  @TempDir
+  Path tempDir;
+
+  private static TransactionService randomLedger(TransactionService service, int count) {
+    Random random = new Random(7);
+    Category[] categories = Category.values();
+    for (int i = 0; i < count; i++) {
+      service.addTransaction(random.nextInt(4) == 0 ? TransactionType.INCOME
+              : TransactionType.EXPENSE,
+          BigDecimal.valueOf(1 + random.nextInt(100_000), 2),
+          categories[random.nextInt(categories.length)], "",
+          LocalDate.of(2025, 1, 1).plusDays(random.nextInt(365)));
+    }
+    return service;
+  }
+
+  private static List<Integer> sortedTop(TransactionService service, Category category,
+      int limit) {
+    return service.getTransactionsByCategory(category).stream()
+        .sorted(Comparator.comparing(Transaction::getSum).reversed()
+            .thenComparing(TransactionKey::compare))
+        .limit(limit)
+        .map(Transaction::getId)
+        .toList();
+  }
+
+  @Test
+  @DisplayName("Вершина совпадает с сортировкой выборки и после удаления крупных транзакций")
+  void getTopTransactions_AfterDeletes_MatchesFullSort() {
+    TransactionService service = randomLedger(new TransactionService(), 20_000);
+
+    assertThat(service.getTopTransactions(null, Category.GOODS, 10))
+        .extracting(Transaction::getId)
+        .containsExactlyElementsOf(sortedTop(service, Category.GOODS, 10));
+
+    for (int round = 0; round < 15; round++) {
+      for (Transaction transaction : service.getTopTransactions(null, Category.GOODS, 10)) {
+        service.deleteTransaction(transaction.getId());
+      }
+    }
+    assertThat(service.getTopTransactions(null, Category.GOODS, 10))
+        .extracting(Transaction::getId)
+        .containsExactlyElementsOf(sortedTop(service, Category.GOODS, 10));
+    assertThat(service.getTopTransactions(TransactionType.INCOME, null, 3))
+        .allSatisfy(transaction ->
+            assertThat(transaction.getTransactionType()).isEqualTo(TransactionType.INCOME));
+  }
+
+  @Test
+  @DisplayName("Квантили расходов близки к точным по отсортированной выборке")
+  void getAmountDistribution_Expenses_WithinOnePercent() {
+    TransactionService service = randomLedger(TransactionService.concurrent(), 10_000);
+    List<BigDecimal> amounts = service.getTransactionsByType(TransactionType.EXPENSE).stream()
+        .map(Transaction::getSum)
+        .sorted()
+        .toList();
+
+    AmountDistribution distribution = service.getAmountDistribution(TransactionType.EXPENSE,
+        null);
+
+    assertThat(distribution.count()).isEqualTo(amounts.size());
+    BigDecimal exact = amounts.get((int) Math.ceil(0.95 * amounts.size()) - 1);
+    assertThat(distribution.quantile(0.95))
+        .isBetween(exact.multiply(new BigDecimal("0.99")), exact.multiply(new BigDecimal("1.01")));
+    assertThatThrownBy(() -> service.getTopTransactions(null, null, 101))
+        .isInstanceOf(IllegalArgumentException.class);
+  }
+
+  @Test
+  @DisplayName("Записи снимка учитываются при первом запросе, удалённые из снимка — нет")
+  void getTopTransactions_Snapshot_LoadsLiveRowsOnce() throws IOException {
+    Path file = tempDir.resolve("ledger.snapshot");
+    TransactionService original = new TransactionService();
+    original.addTransaction(TransactionType.EXPENSE, new BigDecimal("500.00"), Category.GOODS,
+        "Телевизор", LocalDate.of(2025, 3, 1));
+    original.addTransaction(TransactionType.EXPENSE, new BigDecimal("300.00"), Category.GOODS,
+        "Куртка", LocalDate.of(2025, 3, 2));
+    original.saveSnapshot(file);
+    TransactionService restored = TransactionService.openSnapshot(file);
+
+    restored.deleteTransaction(0);
+    restored.addTransaction(TransactionType.EXPENSE, new BigDecimal("400.00"), Category.GOODS,
+        "Пылесос", LocalDate.of(2025, 3, 3));
+
+    assertThat(restored.getTopTransactions(TransactionType.EXPENSE, Category.GOODS, 5))
+        .extracting(Transaction::getDescription)
+        .containsExactly("Пылесос", "Куртка");
+    restored.deleteTransaction(1);
+    assertThat(restored.getAmountDistribution(null, Category.GOODS).count()).isEqualTo(1);
+  }
+}
@@ -0,0 +1,280 @@
+package ru.mentee.power.fintrack.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import ru.mentee.power.fintrack.model.Transaction;
+import ru.mentee.power.fintrack.model.Transaction.Category;
+import ru.mentee.power.fintrack.model.Transaction.TransactionType;
+import ru.mentee.power.fintrack.persistence.FsyncPolicy;
+import ru.mentee.power.fintrack.persistence.TransactionJournal;
+
+class TransactionServiceArchiveTest {
+
+  private static final LocalDate ARCHIVE_BEFORE = LocalDate.of(2025, 3, 1);
+
+  @TempDir
+  Path tempDir;
+
+  private TransactionService ledger() throws IOException {
+    TransactionService service = new TransactionService();
+    service.enableArchive(tempDir.resolve("archive"), 1);
+    fill(service);
+    return service;
+  }
+
+  private static void fill(TransactionService service) {
+    service.addTransaction(TransactionType.INCOME, new BigDecimal("1000.00"), Category.SALARY,
+        "Зарплата январь", LocalDate.of(2025, 1, 10));
+    service.addTransaction(TransactionType.EXPENSE, new BigDecimal("40.00"), Category.GOODS,
+        "Хлеб и молоко", LocalDate.of(2025, 1, 20));
+    service.addTransaction(TransactionType.EXPENSE, new BigDecimal("15.50"), Category.TRANSPORT,
+        "Такси", LocalDate.of(2025, 2, 3));
+    service.addTransaction(TransactionType.EXPENSE, new BigDecimal("60.00"), Category.GOODS,
+        "Сыр", LocalDate.of(2025, 2, 28));
+    service.addTransaction(TransactionType.EXPENSE, new BigDecimal("25.00"), Category.GOODS,
+        "Молоко", LocalDate.of(2025, 3, 1));
+  }
+
+  @Test
+  @DisplayName("Выборки читают оба уровня в общем порядке, итоги не читают сегменты")
+  void archiveBefore_OldMonths_QueriesSpanBothTiers() throws IOException {
+    TransactionService service = ledger();
+    List<Integer> before = service.getAllTransactions().stream().map(Transaction::getId).toList();
+    Map<Category, BigDecimal> expenses = service.getExpensesByCategory();
+
+    assertThat(service.archiveBefore(ARCHIVE_BEFORE)).isEqualTo(4);
+
+    assertThat(service.calculateBalance()).isEqualByComparingTo("859.50");
+    assertThat(service.getExpensesByCategory()).isEqualTo(expenses);
+    assertThat(service.getTransactionCount()).isEqualTo(5);
+    assertThat(service.getArchiveDecodes()).isZero();
+    assertThat(service.getAllTransactions())
+        .extracting(Transaction::getId)
+        .containsExactlyElementsOf(before);
+    assertThat(service.getTransactionsByCategory(Category.GOODS))
+        .extracting(Transaction::getDescription)
+        .containsExactly("Молоко", "Сыр", "Хлеб и молоко");
+    assertThat(service.getTransactionsByType(TransactionType.INCOME))
+        .extracting(Transaction::getDescription)
+        .containsExactly("Зарплата январь");
+    assertThat(service.indexesMatchStore()).isTrue();
+  }
+
+  @Test
+  @DisplayName("Выборка за период читает только сегменты своих месяцев")
+  void getTransactionsBetween_OneArchivedMonth_DecodesOnlyItsSegment() throws IOException {
+    TransactionService service = ledger();
+    service.archiveBefore(ARCHIVE_BEFORE);
+
+    assertThat(service.getTransactionsBetween(LocalDate.of(2025, 2, 1),
+        LocalDate.of(2025, 2, 28)))
+        .extracting(Transaction::getDescription)
+        .containsExactly("Сыр", "Такси");
+    assertThat(service.getArchiveDecodes()).isEqualTo(1);
+  }
+
+  @Test
+  @DisplayName("Архивная транзакция находится по id и поиском, её id не выдаётся повторно")
+  void getTransaction_ArchivedId_ReadsSegment() throws IOException {
+    TransactionService service = ledger();
+    service.archiveBefore(ARCHIVE_BEFORE);
+
+    assertThat(service.getTransaction(1)).hasValueSatisfying(transaction ->
+        assertThat(transaction.getDescription()).isEqualTo("Хлеб и молоко"));
+    assertThat(service.search("молоко"))
+        .extracting(Transaction::getId)
+        .containsExactly(4, 1);
+    assertThat(service.addTransaction(TransactionType.INCOME, BigDecimal.ONE, Category.SALARY,
+        "").getId()).isEqualTo(5);
+  }
+
+  @Test
+  @DisplayName("Удалённая архивная транзакция пропадает из выборок, поиска и итогов")
+  void deleteTransaction_ArchivedId_RemovesFromQueriesAndTotals() throws IOException {
+    TransactionService service = ledger();
+    service.archiveBefore(ARCHIVE_BEFORE);
+
+    assertThat(service.deleteTransaction(3)).isTrue();
+    assertThat(service.deleteTransaction(3)).isFalse();
+
+    assertThat(service.getTransaction(3)).isEmpty();
+    assertThat(service.getTransactionsByCategory(Category.GOODS))
+        .extracting(Transaction::getDescription)
+        .containsExactly("Молоко", "Хлеб и молоко");
+    assertThat(service.search("сыр")).isEmpty();
+    assertThat(service.calculateBalance()).isEqualByComparingTo("919.50");
+    assertThat(service.totalsMatchRecompute()).isTrue();
+  }
+
+  @Test
+  @DisplayName("Снимок после переноса в архив содержит всю историю")
+  void saveSnapshot_AfterArchive_KeepsArchivedTransactions() throws IOException {
+    TransactionService service = ledger();
+    service.archiveBefore(ARCHIVE_BEFORE);
+    Path file = tempDir.resolve("ledger.snapshot");
+
+    service.saveSnapshot(file);
+
+    assertThat(TransactionService.openSnapshot(file).getAllTransactions())
+        .extracting(Transaction::getId)
+        .containsExactly(4, 3, 2, 1, 0);
+  }
+
+  @Test
+  @DisplayName("Сегменты переживают перезапуск, а их записи в журнале пропускаются")
+  void enableArchive_AfterRestart_KeepsSegmentsAndSkipsJournalRecords() throws IOException {
+    Path journalFile = tempDir.resolve("ledger.journal");
+    TransactionService service = new TransactionService();
+    service.enableArchive(tempDir.resolve("archive"), 1);
+    try (TransactionJournal journal = TransactionJournal.open(journalFile, service,
+        FsyncPolicy.always())) {
+      fill(service);
+      service.archiveBefore(ARCHIVE_BEFORE);
+      service.deleteTransaction(3);
+    }
+
+    TransactionService restarted = new TransactionService();
+    restarted.enableArchive(tempDir.resolve("archive"), 1);
+    try (TransactionJournal journal = TransactionJournal.open(journalFile, restarted,
+        FsyncPolicy.always())) {
+      assertThat(restarted.archiveBefore(ARCHIVE_BEFORE)).isZero();
+      assertThat(restarted.getTransactionCount()).isEqualTo(4);
+      assertThat(restarted.calculateBalance()).isEqualByComparingTo("919.50");
+      assertThat(restarted.getAllTransactions())
+          .extracting(Transaction::getId)
+          .containsExactly(4, 2, 1, 0);
+      assertThat(restarted.search("молоко"))
+          .extracting(Transaction::getId)
+          .containsExactly(4, 1);
+      assertThat(restarted.indexesMatchStore()).isTrue();
+      assertThat(restarted.totalsMatchRecompute()).isTrue();
+      assertThat(restarted.deleteTransaction(0)).isTrue();
+      assertThat(restarted.addTransaction(TransactionType.INCOME, BigDecimal.ONE,
+          Category.SALARY, "").getId()).isEqualTo(5);
+    }
+
+    TransactionService again = new TransactionService();
+    again.enableArchive(tempDir.resolve("archive"), 1);
+    try (TransactionJournal journal = TransactionJournal.open(journalFile, again,
+        FsyncPolicy.always())) {
+      assertThat(again.getAllTransactions())
+          .extracting(Transaction::getId)
+          .containsExactly(5, 4, 2, 1);
+    }
+  }
+
+  @Test
+  @DisplayName("После снимка сегменты удаляются при следующем включении архива")
+  void enableArchive_AfterSnapshot_DropsSegments() throws IOException {
+    Path journalFile = tempDir.resolve("ledger.journal");
+    Path snapshotFile = tempDir.resolve("ledger.snapshot");
+    TransactionService service = new TransactionService();
+    service.enableArchive(tempDir.resolve("archive"), 1);
+    try (TransactionJournal journal = TransactionJournal.open(journalFile, service,
+        FsyncPolicy.always())) {
+      fill(service);
+      service.archiveBefore(ARCHIVE_BEFORE);
+      service.saveSnapshot(snapshotFile);
+    }
+
+    TransactionService restarted = TransactionService.openSnapshot(snapshotFile);
+    restarted.enableArchive(tempDir.resolve("archive"), 1);
+    try (TransactionJournal journal = TransactionJournal.open(journalFile, restarted,
+        FsyncPolicy.always())) {
+      assertThat(restarted.getAllTransactions())
+          .extracting(Transaction::getId)
+          .containsExactly(4, 3, 2, 1, 0);
+      assertThat(restarted.getTransactionCount()).isEqualTo(5);
+    }
+    try (DirectoryStream<Path> segments =
+        Files.newDirectoryStream(tempDir.resolve("archive"), "*.segment")) {
+      assertThat(segments).isEmpty();
+    }
+  }
+
+  @Test
+  @DisplayName("Архив с сегментами нельзя включить после добавления транзакций")
+  void enableArchive_SegmentsAndTransactionsInMemory_Throws() throws IOException {
+    ledger().archiveBefore(ARCHIVE_BEFORE);
+    TransactionService service = new TransactionService();
+    service.addTransaction(TransactionType.INCOME, BigDecimal.ONE, Category.SALARY, "");
+
+    assertThatThrownBy(() -> service.enableArchive(tempDir.resolve("archive"), 1))
+        .isInstanceOf(IllegalStateException.class);
+  }
+
+  @Test
+  @DisplayName("Подвал сегмента хранит итоги, а кэш держит не больше заданного числа сегментов")
+  void rows_CacheFull_EvictsLeastRecentlyUsedSegment() throws IOException {
+    ArchiveStore store = ArchiveStore.open(tempDir.resolve("archive"), 1, 0);
+    Transaction january = new Transaction(0, "Хлеб", new BigDecimal("40.00"),
+        LocalDate.of(2025, 1, 20), Category.GOODS, TransactionType.EXPENSE);
+    Transaction february = new Transaction(1, "Такси", new BigDecimal("15.50"),
+        LocalDate.of(2025, 2, 3), Category.TRANSPORT, TransactionType.EXPENSE);
+    ArchiveSegment first = store.write(YearMonth.of(2025, 1), List.of(january));
+    ArchiveSegment second = store.write(YearMonth.of(2025, 2), List.of(february));
+
+    assertThat(first.totals().sum(TransactionType.EXPENSE, Category.GOODS))
+        .isEqualByComparingTo("40.00");
+    assertThat(first.mayMatch(TransactionType.EXPENSE, Category.TRANSPORT)).isFalse();
+    assertThat(second.mayContain(0)).isFalse();
+
+    assertThat(store.rows(first).find(0)).usingRecursiveComparison().isEqualTo(january);
+    assertThat(store.rows(first).find(0).getDescription()).isEqualTo("Хлеб");
+    assertThat(store.decodes()).isEqualTo(1);
+    assertThat(store.rows(second).find(1)).usingRecursiveComparison().isEqualTo(february);
+    assertThat(store.rows(first).find(1)).isNull();
+    assertThat(store.decodes()).isEqualTo(3);
+  }
+
+  @Test
+  @DisplayName("Параллельные итоги по снимку, архиву и памяти совпадают с обходом выборки")
+  void summarize_SnapshotArchiveAndMemory_MatchesScan() throws IOException {
+    Path file = tempDir.resolve("ledger.snapshot");
+    TransactionService original = new TransactionService();
+    for (int i = 0; i < 300; i++) {
+      original.addTransaction(i % 4 == 0 ? TransactionType.INCOME : TransactionType.EXPENSE,
+          BigDecimal.valueOf(i + 1, 2), Category.values()[i % 4], "",
+          LocalDate.of(2024, 11, 1).plusDays(i % 150));
+    }
+    original.saveSnapshot(file);
+    TransactionService service = TransactionService.openSnapshot(file);
+    service.enableArchive(tempDir.resolve("archive"), 1);
+    for (int i = 0; i < 300; i++) {
+      service.addTransaction(i % 3 == 0 ? TransactionType.INCOME : TransactionType.EXPENSE,
+          BigDecimal.valueOf(i + 7, 1), Category.values()[i % 4], "",
+          LocalDate.of(2024, 12, 1).plusDays(i % 120));
+    }
+    service.archiveBefore(LocalDate.of(2025, 2, 1));
+    for (int id = 0; id < 600; id += 7) {
+      service.deleteTransaction(id);
+    }
+
+    for (TransactionFilter filter : List.of(
+        TransactionFilter.byCategory(Category.GOODS),
+        new TransactionFilter(TransactionType.EXPENSE, Category.TRANSPORT, null, null),
+        new TransactionFilter(null, null, LocalDate.of(2025, 1, 10), LocalDate.of(2025, 2, 20)),
+        new TransactionFilter(TransactionType.INCOME, null, LocalDate.of(2025, 3, 1), null))) {
+      CategoryTotals scanned = new CategoryTotals();
+      service.stream(filter).forEach(scanned::add);
+      TransactionSummary expected = new TransactionSummary(scanned);
+
+      assertThat(service.summarize(filter, 1).matches(expected)).as("%s", filter).isTrue();
+      assertThat(service.summarize(filter, Integer.MAX_VALUE).matches(expected))
+          .as("%s", filter).isTrue();
+    }
+  }
+}
@@ -0,0 +1,119 @@
+package ru.mentee.power.fintrack.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import ru.mentee.power.fintrack.model.Transaction;
+import ru.mentee.power.fintrack.model.Transaction.Category;
+import ru.mentee.power.fintrack.model.Transaction.TransactionType;
+
+class TransactionServiceBudgetTest {
+
+  private static final LocalDate MARCH = LocalDate.of(2025, 3, 10);
+
+  @TempDir
+  Path tempDir;
+
+  private static Transaction expense(TransactionService service, String sum, Category category,
+      LocalDate date) {
+    return service.addTransaction(TransactionType.EXPENSE, new BigDecimal(sum), category, "",
+        date);
+  }
+
+  @Test
+  @DisplayName("Бюджет учитывает прежние расходы и сообщает о переходе через лимит в обе стороны")
+  void setBudget_ExistingExpenses_AlertsOnCrossing() {
+    TransactionService service = new TransactionService();
+    expense(service, "600.00", Category.GOODS, MARCH);
+    expense(service, "900.00", Category.GOODS, MARCH.minusMonths(1));
+    service.setBudget(Category.GOODS, BudgetPeriod.MONTH, new BigDecimal("1000.00"));
+    List<BudgetStatus> alerts = new ArrayList<>();
+    service.addBudgetListener(alerts::add);
+
+    expense(service, "300.00", Category.GOODS, MARCH);
+    service.addTransaction(TransactionType.INCOME, new BigDecimal("500.00"), Category.GOODS, "",
+        MARCH);
+    expense(service, "500.00", Category.TRANSPORT, MARCH);
+    Transaction overrun = expense(service, "200.00", Category.GOODS, MARCH);
+    expense(service, "50.00", Category.GOODS, MARCH);
+    service.deleteTransaction(overrun.getId());
+
+    assertThat(alerts).extracting(BudgetStatus::spent, BudgetStatus::exceeded)
+        .containsExactly(tuple(new BigDecimal("1100.00"), true),
+            tuple(new BigDecimal("950.00"), false));
+    assertThat(service.getBudgetStatus(MARCH)).singleElement().satisfies(status -> {
+      assertThat(status.periodStart()).isEqualTo(LocalDate.of(2025, 3, 1));
+      assertThat(status.remaining()).isEqualByComparingTo("50.00");
+    });
+    assertThat(service.getBudgetStatus(MARCH.minusMonths(1)).get(0).spent())
+        .isEqualByComparingTo("900.00");
+  }
+
+  @Test
+  @DisplayName("Годовой бюджет складывает месяцы, снятый бюджет больше не сообщает")
+  void removeBudget_YearBudget_StopsAlerts() {
+    TransactionService service = new TransactionService();
+    expense(service, "700.00", Category.ENTERTAINMENT, LocalDate.of(2025, 1, 5));
+    service.setBudget(Category.ENTERTAINMENT, BudgetPeriod.YEAR, new BigDecimal("1000.00"));
+    service.setBudget(Category.ENTERTAINMENT, BudgetPeriod.MONTH, new BigDecimal("800.00"));
+    List<BudgetStatus> alerts = new ArrayList<>();
+    service.addBudgetListener(alerts::add);
+
+    expense(service, "400.00", Category.ENTERTAINMENT, LocalDate.of(2025, 6, 5));
+    assertThat(service.removeBudget(Category.ENTERTAINMENT, BudgetPeriod.YEAR)).isTrue();
+    assertThat(service.removeBudget(Category.ENTERTAINMENT, BudgetPeriod.YEAR)).isFalse();
+    expense(service, "900.00", Category.ENTERTAINMENT, LocalDate.of(2025, 7, 5));
+
+    assertThat(alerts).extracting(status -> status.budget().period())
+        .containsExactly(BudgetPeriod.YEAR, BudgetPeriod.MONTH);
+    assertThat(alerts.get(0).spent()).isEqualByComparingTo("1100.00");
+  }
+
+  @Test
+  @DisplayName("Слушатель бюджета вызывается после снятия замков: другой поток может писать")
+  void addBudgetListener_WritesFromOtherThread_DoNotBlock() {
+    TransactionService service = TransactionService.concurrent();
+    service.setBudget(Category.GOODS, BudgetPeriod.MONTH, new BigDecimal("100.00"));
+    List<Transaction> addedByListener = new ArrayList<>();
+    service.addBudgetListener(status -> addedByListener.addAll(CompletableFuture
+        .supplyAsync(() -> service.addTransactions(List.of(new Transaction(0, "", BigDecimal.ONE,
+            MARCH, Category.TRANSPORT, TransactionType.EXPENSE))))
+        .orTimeout(10, TimeUnit.SECONDS)
+        .join()));
+
+    expense(service, "150.00", Category.GOODS, MARCH);
+    service.deleteTransaction(0);
+
+    assertThat(addedByListener).hasSize(2);
+    assertThat(service.getAllTransactions()).hasSize(2);
+  }
+
+  @Test
+  @DisplayName("Бюджет поверх снимка не учитывает удалённые из снимка расходы")
+  void setBudget_Snapshot_ExcludesDeletedRows() throws IOException {
+    Path file = tempDir.resolve("ledger.snapshot");
+    TransactionService original = new TransactionService();
+    expense(original, "400.00", Category.GOODS, MARCH);
+    expense(original, "300.00", Category.GOODS, MARCH);
+    original.saveSnapshot(file);
+    TransactionService restored = TransactionService.openSnapshot(file);
+
+    restored.deleteTransaction(0);
+    restored.setBudget(Category.GOODS, BudgetPeriod.MONTH, new BigDecimal("500.00"));
+    restored.deleteTransaction(1);
+    expense(restored, "250.00", Category.GOODS, MARCH);
+
+    assertThat(restored.getBudgetStatus(MARCH).get(0).spent()).isEqualByComparingTo("250.00");
+  }
+}
@@ -0,0 +1,131 @@
+package ru.mentee.power.fintrack.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.tuple;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import ru.mentee.power.fintrack.model.Transaction;
+import ru.mentee.power.fintrack.model.Transaction.Category;
+import ru.mentee.power.fintrack.model.Transaction.TransactionType;
+
+class TransactionServiceChangeFeedTest {
+
+  private static final LocalDate DATE = LocalDate.of(2025, 3, 10);
+
+  private static Transaction add(TransactionService service, String sum) {
+    return service.addTransaction(TransactionType.EXPENSE, new BigDecimal(sum), Category.GOODS,
+        "", DATE);
+  }
+
+  private static void awaitPosition(ChangeFeed.Subscription subscription, long position)
+      throws InterruptedException {
+    long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+    while (subscription.position() < position && System.nanoTime() < deadline) {
+      Thread.sleep(5);
+    }
+    assertThat(subscription.position()).isEqualTo(position);
+  }
+
+  @Test
+  @DisplayName("Подписчик получает добавления и удаления по порядку и пачками не больше заданной")
+  void subscribeChanges_AddAndDelete_DeliversBatchesInOrder() throws InterruptedException {
+    TransactionService service = new TransactionService();
+    List<List<ChangeEvent>> batches = new CopyOnWriteArrayList<>();
+    Transaction first = add(service, "100.00");
+
+    try (ChangeFeed.Subscription subscription = service.subscribeChanges(1, 2, batches::add)) {
+      add(service, "200.00");
+      service.addTransactions(List.of(
+          new Transaction(0, "", new BigDecimal("300.00"), DATE, Category.GOODS,
+              TransactionType.INCOME)));
+      service.deleteTransaction(first.getId());
+      awaitPosition(subscription, 5);
+    }
+
+    assertThat(batches).allSatisfy(batch -> assertThat(batch).hasSizeBetween(1, 2));
+    assertThat(batches.stream().flatMap(List::stream).toList())
+        .extracting(ChangeEvent::sequence, ChangeEvent::type, event -> event.transaction().getId())
+        .containsExactly(tuple(1L, ChangeEvent.Type.ADD, 0), tuple(2L, ChangeEvent.Type.ADD, 1),
+            tuple(3L, ChangeEvent.Type.ADD, 2), tuple(4L, ChangeEvent.Type.DELETE, 0));
+    assertThat(service.getLastChangeSequence()).isEqualTo(4);
+  }
+
+  @Test
+  @DisplayName("Медленный подписчик не задерживает запись, а отставший узнаёт о пропуске")
+  void subscribeChanges_SlowSubscriber_DoesNotBlockWriters() throws InterruptedException {
+    ChangeFeed feed = new ChangeFeed(4);
+    CountDownLatch started = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+    List<Long> delivered = new CopyOnWriteArrayList<>();
+    List<long[]> missed = new CopyOnWriteArrayList<>();
+    Transaction transaction = new Transaction(0, "", BigDecimal.ONE, DATE, Category.GOODS,
+        TransactionType.EXPENSE);
+    ChangeSubscriber slow = new ChangeSubscriber() {
+      @Override
+      public void onEvents(List<ChangeEvent> events) {
+        started.countDown();
+        try {
+          release.await();
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+        events.forEach(event -> delivered.add(event.sequence()));
+      }
+
+      @Override
+      public void onMissed(long from, long to) {
+        missed.add(new long[] {from, to});
+      }
+    };
+
+    try (ChangeFeed.Subscription subscription = feed.subscribe(1, 1, slow)) {
+      feed.publish(ChangeEvent.Type.ADD, transaction);
+      assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+      for (int i = 0; i < 9; i++) {
+        feed.publish(ChangeEvent.Type.ADD, transaction);
+      }
+      release.countDown();
+      awaitPosition(subscription, 11);
+    }
+
+    assertThat(feed.lastSequence()).isEqualTo(10);
+    assertThat(missed).singleElement().satisfies(gap -> assertThat(gap).containsExactly(2, 6));
+    assertThat(delivered).containsExactly(1L, 7L, 8L, 9L, 10L);
+  }
+
+  @Test
+  @DisplayName("Закрытую или упавшую подписку можно возобновить с её позиции")
+  void subscribeChanges_Resume_ContinuesFromPosition() throws InterruptedException {
+    TransactionService service = new TransactionService();
+    List<Long> seen = new ArrayList<>();
+    add(service, "1.00");
+    add(service, "2.00");
+    ChangeFeed.Subscription failing = service.subscribeChanges(1, 10, events -> {
+      throw new IllegalStateException("сбой");
+    });
+    long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+    while (failing.isActive() && System.nanoTime() < deadline) {
+      Thread.sleep(5);
+    }
+    assertThat(failing.failure()).hasMessage("сбой");
+    add(service, "3.00");
+
+    try (ChangeFeed.Subscription resumed = service.subscribeChanges(failing.position(), 10,
+        events -> events.forEach(event -> seen.add(event.sequence())))) {
+      awaitPosition(resumed, 4);
+    }
+
+    assertThat(seen).containsExactly(1L, 2L, 3L);
+    assertThatThrownBy(() -> service.subscribeChanges(0, 10, events -> { }))
+        .isInstanceOf(IllegalArgumentException.class);
+  }
+}
@@ -0,0 +1,128 @@
+package ru.mentee.power.fintrack.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import ru.mentee.power.fintrack.model.Transaction;
+import ru.mentee.power.fintrack.model.Transaction.Category;
+import ru.mentee.power.fintrack.model.Transaction.TransactionType;
+
+class TransactionServiceConcurrencyTest {
+
+  private static final int THREADS = 8;
+  private static final int OPERATIONS_PER_THREAD = 20_000;
+
+  @Test
+  @DisplayName("Параллельные добавления и удаления не теряют и не дублируют транзакции")
+  void concurrentAddsAndDeletes_NoLostOrDuplicatedTransactions() throws Exception {
+    TransactionService service = TransactionService.concurrent();
+    Set<Integer> issuedIds = ConcurrentHashMap.newKeySet();
+    CountDownLatch start = new CountDownLatch(1);
+    ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+
+    List<Future<BigDecimal>> expectedBalances = new ArrayList<>();
+    for (int thread = 0; thread < THREADS; thread++) {
+      int seed = thread;
+      expectedBalances.add(executor.submit(() -> {
+        start.await();
+        BigDecimal balance = BigDecimal.ZERO;
+        for (int i = 0; i < OPERATIONS_PER_THREAD; i++) {
+          TransactionType type = (i + seed) % 3 == 0
+              ? TransactionType.EXPENSE : TransactionType.INCOME;
+          BigDecimal sum = BigDecimal.valueOf(i % 500 + 1, 2);
+          Transaction transaction = service.addTransaction(type, sum,
+              Category.values()[i % Category.values().length], "t" + seed,
+              LocalDate.of(2025, 1, 1).plusDays(i % 365));
+          assertThat(issuedIds.add(transaction.getId())).isTrue();
+
+          if (i % 4 == 0) {
+            assertThat(service.deleteTransaction(transaction.getId())).isTrue();
+            assertThat(issuedIds.remove(transaction.getId())).isTrue();
+          } else {
+            balance = type == TransactionType.INCOME ? balance.add(sum) : balance.subtract(sum);
+          }
+        }
+        return balance;
+      }));
+    }
+    start.countDown();
+
+    BigDecimal expectedBalance = BigDecimal.ZERO;
+    for (Future<BigDecimal> balance : expectedBalances) {
+      expectedBalance = expectedBalance.add(balance.get());
+    }
+    executor.shutdown();
+    assertThat(executor.awaitTermination(1, TimeUnit.MINUTES)).isTrue();
+
+    List<Transaction> stored = service.getAllTransactions();
+    Set<Integer> storedIds = stored.stream().map(Transaction::getId).collect(Collectors.toSet());
+    assertThat(stored).hasSize(issuedIds.size());
+    assertThat(storedIds).isEqualTo(issuedIds);
+    assertThat(service.calculateBalance()).isEqualByComparingTo(expectedBalance);
+    assertThat(service.indexesMatchStore()).isTrue();
+    assertThat(service.totalsMatchRecompute()).isTrue();
+  }
+
+  @Test
+  @DisplayName("Читатели видят согласованную версию реестра, пока писатели добавляют и удаляют")
+  void concurrentReadersAndWriters_ReadersSeeConsistentVersions() throws Exception {
+    TransactionService service = new TransactionService();
+    service.setQueryCacheCapacity(0);
+    AtomicBoolean writing = new AtomicBoolean(true);
+    ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+
+    Future<?> writer = executor.submit(() -> {
+      for (int i = 0; i < OPERATIONS_PER_THREAD; i++) {
+        // Пары «доход и расход» добавляются и удаляются пачкой, поэтому в любой версии реестра
+        // доходов и расходов поровну.
+        List<Transaction> pair = service.addTransactions(List.of(
+            new Transaction(0, "", BigDecimal.ONE, LocalDate.of(2025, 1, 1).plusDays(i % 365),
+                Category.SALARY, TransactionType.INCOME),
+            new Transaction(0, "", BigDecimal.ONE, LocalDate.of(2025, 1, 1).plusDays(i % 90),
+                Category.GOODS, TransactionType.EXPENSE)));
+        if (i % 3 == 0) {
+          pair.forEach(transaction -> service.deleteTransaction(transaction.getId()));
+        }
+      }
+      writing.set(false);
+    });
+    List<Future<Integer>> readers = new ArrayList<>();
+    for (int thread = 1; thread < THREADS; thread++) {
+      readers.add(executor.submit(() -> {
+        int reads = 0;
+        while (writing.get()) {
+          List<Transaction> all = service.getAllTransactions();
+          long incomes = all.stream()
+              .filter(transaction -> transaction.getTransactionType() == TransactionType.INCOME)
+              .count();
+          assertThat(incomes * 2).isLessThanOrEqualTo(all.size());
+          assertThat(all).isSortedAccordingTo(TransactionKey::compare);
+          reads++;
+        }
+        return reads;
+      }));
+    }
+
+    writer.get();
+    for (Future<Integer> reader : readers) {
+      assertThat(reader.get()).isPositive();
+    }
+    executor.shutdown();
+    assertThat(executor.awaitTermination(1, TimeUnit.MINUTES)).isTrue();
+    assertThat(service.indexesMatchStore()).isTrue();
+  }
+}
@@ -0,0 +1,236 @@
+package ru.mentee.power.fintrack.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import ru.mentee.power.fintrack.model.Transaction;
+import ru.mentee.power.fintrack.model.Transaction.Category;
+import ru.mentee.power.fintrack.model.Transaction.TransactionType;
+
+class TransactionServiceSnapshotTest {
+
+  @TempDir
+  Path tempDir;
+
+  private TransactionService savedService(Path file) throws IOException {
+    TransactionService service = new TransactionService();
+    service.addTransaction(TransactionType.INCOME, new BigDecimal("1000.00"), Category.SALARY,
+        "Зарплата", LocalDate.of(2025, 3, 1));
+    service.addTransaction(TransactionType.EXPENSE, new BigDecimal("15.5"), Category.TRANSPORT,
+        "Такси", LocalDate.of(2025, 3, 5));
+    service.addTransaction(TransactionType.EXPENSE, new BigDecimal("200.00"), Category.GOODS,
+        "Продукты", LocalDate.of(2025, 3, 3));
+    service.saveSnapshot(file);
+    return service;
+  }
+
+  @Test
+  @DisplayName("Сервис, открытый из снимка, возвращает те же транзакции, итоги и счётчик id")
+  void openSnapshot_SavedService_RestoresState() throws IOException {
+    Path file = tempDir.resolve("ledger.snapshot");
+    TransactionService original = savedService(file);
+
+    TransactionService restored = TransactionService.openSnapshot(file);
+
+    assertThat(restored.getSnapshotGeneration()).isEqualTo(1);
+    assertThat(restored.getAllTransactions())
+        .extracting(Transaction::getDescription)
+        .containsExactly("Такси", "Продукты", "Зарплата");
+    assertThat(restored.getTransaction(2)).hasValueSatisfying(transaction ->
+        assertThat(transaction.getSum()).isEqualByComparingTo(original.getTransaction(2)
+            .orElseThrow().getSum()));
+    assertThat(restored.calculateBalance()).isEqualByComparingTo("784.50");
+    assertThat(restored.getExpensesByCategory())
+        .isEqualTo(original.getExpensesByCategory());
+    assertThat(restored.addTransaction(TransactionType.INCOME, BigDecimal.ONE, Category.SALARY,
+        "").getId()).isEqualTo(3);
+  }
+
+  @Test
+  @DisplayName("Новые транзакции сливаются со снимком в общем порядке")
+  void getTransactionsBetween_SnapshotAndMemory_ReturnsMergedOrder() throws IOException {
+    Path file = tempDir.resolve("ledger.snapshot");
+    savedService(file);
+    TransactionService restored = TransactionService.openSnapshot(file);
+
+    restored.addTransaction(TransactionType.EXPENSE, new BigDecimal("50.00"), Category.GOODS,
+        "Хлеб", LocalDate.of(2025, 3, 4));
+
+    assertThat(restored.getTransactionsBetween(LocalDate.of(2025, 3, 2),
+        LocalDate.of(2025, 3, 31)))
+        .extracting(Transaction::getDescription)
+        .containsExactly("Такси", "Хлеб", "Продукты");
+    assertThat(restored.getTransactionsByCategory(Category.GOODS))
+        .extracting(Transaction::getDescription)
+        .containsExactly("Хлеб", "Продукты");
+    assertThat(restored.calculateBalance()).isEqualByComparingTo("734.50");
+  }
+
+  @Test
+  @DisplayName("Удалённая из снимка транзакция пропадает из выборок и итогов")
+  void deleteTransaction_SnapshotRow_ExcludedFromQueriesAndTotals() throws IOException {
+    Path file = tempDir.resolve("ledger.snapshot");
+    savedService(file);
+    TransactionService restored = TransactionService.openSnapshot(file);
+
+    assertThat(restored.deleteTransaction(2)).isTrue();
+    assertThat(restored.deleteTransaction(2)).isFalse();
+
+    assertThat(restored.getTransaction(2)).isEmpty();
+    assertThat(restored.getTransactionsByType(TransactionType.EXPENSE))
+        .extracting(Transaction::getDescription)
+        .containsExactly("Такси");
+    assertThat(restored.getExpensesByCategory()).doesNotContainKey(Category.GOODS);
+    assertThat(restored.calculateBalance()).isEqualByComparingTo("984.50");
+
+    Path next = tempDir.resolve("next.snapshot");
+    restored.saveSnapshot(next);
+    TransactionService reopened = TransactionService.openSnapshot(next);
+    assertThat(reopened.getSnapshotGeneration()).isEqualTo(2);
+    assertThat(reopened.getAllTransactions()).hasSize(2);
+    assertThat(reopened.calculateBalance()).isEqualByComparingTo("984.50");
+  }
+
+  @Test
+  @DisplayName("Страницы по ключу проходят через снимок и новые транзакции")
+  void page_SnapshotAndMemory_WalksMergedOrder() throws IOException {
+    Path file = tempDir.resolve("ledger.snapshot");
+    savedService(file);
+    TransactionService restored = TransactionService.openSnapshot(file);
+    restored.addTransaction(TransactionType.EXPENSE, new BigDecimal("50.00"), Category.GOODS,
+        "Хлеб", LocalDate.of(2025, 3, 4));
+
+    TransactionFilter expenses = TransactionFilter.byType(TransactionType.EXPENSE);
+    List<Transaction> first = restored.page(expenses, 2, null);
+    List<Transaction> second = restored.page(expenses, 2, first.get(1));
+
+    assertThat(first).extracting(Transaction::getDescription).containsExactly("Такси", "Хлеб");
+    assertThat(second).extracting(Transaction::getDescription).containsExactly("Продукты");
+    assertThat(restored.page(TransactionFilter.between(LocalDate.of(2025, 3, 1),
+        LocalDate.of(2025, 3, 4)), 10, first.get(1)))
+        .extracting(Transaction::getDescription)
+        .containsExactly("Продукты", "Зарплата");
+  }
+
+  @Test
+  @DisplayName("Итоги за месяц учитывают снимок, удаления из него и новые транзакции")
+  void summarizeMonth_SnapshotAndMemory_CombinesRollups() throws IOException {
+    Path file = tempDir.resolve("ledger.snapshot");
+    savedService(file);
+    TransactionService restored = TransactionService.openSnapshot(file);
+    restored.deleteTransaction(1);
+    restored.addTransaction(TransactionType.EXPENSE, new BigDecimal("50.00"), Category.GOODS,
+        "Хлеб", LocalDate.of(2025, 3, 4));
+
+    TransactionSummary march = restored.summarizeMonth(YearMonth.of(2025, 3));
+
+    assertThat(march.balance()).isEqualByComparingTo("750.00");
+    assertThat(march.byCategory(TransactionType.EXPENSE))
+        .containsOnlyKeys(Category.GOODS);
+    assertThat(restored.summarizePeriod(LocalDate.of(2025, 3, 2), LocalDate.of(2025, 3, 3))
+        .total(TransactionType.EXPENSE)).isEqualByComparingTo("200.00");
+  }
+
+  @Test
+  @DisplayName("Баланс на дату учитывает снимок, удаления из него и новые транзакции")
+  void balanceAsOf_SnapshotAndMemory_CombinesFlows() throws IOException {
+    Path file = tempDir.resolve("ledger.snapshot");
+    savedService(file);
+    TransactionService restored = TransactionService.openSnapshot(file);
+    restored.deleteTransaction(1);
+    restored.addTransaction(TransactionType.EXPENSE, new BigDecimal("50.00"), Category.GOODS,
+        "Хлеб", LocalDate.of(2025, 3, 4));
+    restored.addTransaction(TransactionType.INCOME, new BigDecimal("300.00"), Category.SALARY,
+        "Аванс", LocalDate.of(2025, 2, 20));
+
+    assertThat(restored.balanceAsOf(LocalDate.of(2025, 2, 28))).isEqualByComparingTo("300.00");
+    assertThat(restored.balanceAsOf(LocalDate.of(2025, 3, 3))).isEqualByComparingTo("1100.00");
+    assertThat(restored.balanceAsOf(LocalDate.of(2025, 3, 10)))
+        .isEqualByComparingTo(restored.calculateBalance());
+    assertThat(restored.netFlowBetween(LocalDate.of(2025, 3, 2), LocalDate.of(2025, 3, 5)))
+        .isEqualByComparingTo("-250.00");
+  }
+
+  @Test
+  @DisplayName("Поиск по описанию учитывает снимок, удаления из него и новые транзакции")
+  void search_SnapshotAndMemory_ReturnsLiveMatchesNewestFirst() throws IOException {
+    Path file = tempDir.resolve("ledger.snapshot");
+    savedService(file);
+    TransactionService restored = TransactionService.openSnapshot(file);
+    restored.deleteTransaction(1);
+    Transaction bread = restored.addTransaction(TransactionType.EXPENSE, new BigDecimal("50.00"),
+        Category.GOODS, "Продукты: хлеб", LocalDate.of(2025, 3, 4));
+    restored.addTransaction(TransactionType.EXPENSE, new BigDecimal("70.00"),
+        Category.TRANSPORT, "Такси", LocalDate.of(2025, 3, 6));
+
+    assertThat(restored.search("продукт")).extracting(Transaction::getId)
+        .containsExactly(bread.getId(), 2);
+    assertThat(restored.search("такси")).extracting(Transaction::getDate)
+        .containsExactly(LocalDate.of(2025, 3, 6));
+  }
+
+  @Test
+  @DisplayName("Поиск по индексу описаний в файле совпадает с поиском в памяти и в снимке v1")
+  void search_WordIndexInFile_MatchesInMemoryAndVersionOne() throws IOException {
+    Path file = tempDir.resolve("ledger.snapshot");
+    TransactionService original = new TransactionService();
+    String[] descriptions = {"Кафе \"Ёлка\"", "кофе с собой", "Кофейня №", "такси", "", "Ёж 42"};
+    for (int i = 0; i < 600; i++) {
+      original.addTransaction(TransactionType.EXPENSE, BigDecimal.ONE, Category.GOODS,
+          descriptions[i % descriptions.length] + (i % 7 == 0 ? i : ""),
+          LocalDate.of(2025, 1, 1).plusDays(i % 90));
+    }
+    original.saveSnapshot(file);
+    List<String> queries = List.of("коф", "кофе", "елка", "ко ф", "42", "1", "ж", "нет");
+
+    TransactionService restored = TransactionService.openSnapshot(file);
+    for (String query : queries) {
+      assertThat(restored.search(query)).as(query)
+          .usingRecursiveFieldByFieldElementComparator()
+          .containsExactlyElementsOf(original.search(query));
+    }
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+      channel.write(ByteBuffer.allocate(4).putInt(0, 1), 4);
+      channel.write(ByteBuffer.allocate(4), 40);
+    }
+    TransactionService versionOne = TransactionService.openSnapshot(file);
+    for (String query : queries) {
+      assertThat(versionOne.search(query)).as(query)
+          .usingRecursiveFieldByFieldElementComparator()
+          .containsExactlyElementsOf(original.search(query));
+    }
+  }
+
+  @Test
+  @DisplayName("Снимок, открытый для многих потоков, принимает параллельные записи без потерь")
+  void openSnapshotConcurrent_ParallelWriters_KeepsAllTransactions() throws IOException {
+    Path file = tempDir.resolve("ledger.snapshot");
+    savedService(file);
+    TransactionService restored = TransactionService.openSnapshotConcurrent(file);
+
+    try (ExecutorService writers = Executors.newVirtualThreadPerTaskExecutor()) {
+      for (int i = 0; i < 1_000; i++) {
+        writers.submit(() -> restored.addTransaction(TransactionType.EXPENSE, BigDecimal.ONE,
+            Category.GOODS, "Хлеб", LocalDate.of(2025, 3, 4)));
+      }
+      writers.submit(() -> restored.deleteTransaction(2));
+    }
+
+    assertThat(restored.getTransactionCount()).isEqualTo(1_002);
+    assertThat(restored.search("хлеб")).hasSize(1_000);
+    assertThat(restored.calculateBalance()).isEqualByComparingTo("-15.50");
+  }
+}